@@ -0,0 +1,139 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A monotone min priority queue of distinct integer elements in the range `[0..capacity)`
+ * associated with integer priorities in the range `[0..priorityLimit)`, implemented as an array of
+ * FIFO buckets, one per priority.  The queue is monotone: an element may not be added with a
+ * priority less than that of the last element removed (as in Dijkstra's algorithm or a
+ * priority-flood, where priorities never decrease).  Elements with equal priorities are removed in
+ * the order they were added.
+ * <p>
+ * Adding takes constant time.  Removing scans forward over empty buckets from the lowest priority
+ * that may be occupied, so a sequence of operations in which added priorities rarely fall below
+ * the queue's minimum takes time linear in the number of operations plus `priorityLimit`.  Like
+ * `IntMinQueue`, no objects are created by any operation.
+ */
+public class BucketQueue {
+
+    /**
+     * `heads[p]` and `tails[p]` are the first and last elements in the bucket for priority `p`, or
+     * -1 if that bucket is empty.
+     */
+    private final int[] heads;
+    private final int[] tails;
+
+    /**
+     * `next[e]` is the element after `e` in its bucket, or -1 if `e` is last.  Unspecified for
+     * elements not in this queue.
+     */
+    private final int[] next;
+
+    /**
+     * The priority of the last element removed (0 if none has been removed since the queue was
+     * created or cleared).  Elements may not be added with lower priorities.
+     */
+    private int floor;
+
+    /**
+     * All buckets for priorities less than `cursor` are empty.  `floor <= cursor`.
+     */
+    private int cursor;
+
+    /**
+     * The number of elements in this queue.
+     */
+    private int size;
+
+    /**
+     * Create an empty queue capable of holding the elements `[0..capacity)` with priorities in
+     * `[0..priorityLimit)`.
+     */
+    public BucketQueue(int capacity, int priorityLimit) {
+        heads = new int[priorityLimit];
+        tails = new int[priorityLimit];
+        next = new int[capacity];
+        Arrays.fill(heads, -1);
+        Arrays.fill(tails, -1);
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add `e` to this queue with priority `priority`.  Requires `e` is in `[0..capacity)` and is
+     * not already contained in this queue.  Throws IllegalArgumentException if `priority` is not
+     * less than the queue's priority limit or is less than the priority of the last element
+     * removed.
+     */
+    public void add(int e, int priority) {
+        if (priority < floor || priority >= heads.length) {
+            throw new IllegalArgumentException("Priority " + priority + " outside of ["
+                    + floor + ".." + heads.length + ")");
+        }
+        next[e] = -1;
+        if (heads[priority] < 0) {
+            heads[priority] = e;
+        } else {
+            next[tails[priority]] = e;
+        }
+        tails[priority] = e;
+        cursor = Math.min(cursor, priority);
+        size += 1;
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws
+     * NoSuchElementException if this queue is empty.
+     */
+    public int minPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException("Queue is empty");
+        }
+        while (heads[cursor] < 0) {
+            cursor += 1;
+        }
+        return cursor;
+    }
+
+    /**
+     * Remove and return the earliest-added element among those associated with the smallest
+     * priority in this queue.  Throws NoSuchElementException if this queue is empty.
+     */
+    public int remove() {
+        int priority = minPriority();
+        int e = heads[priority];
+        heads[priority] = next[e];
+        if (heads[priority] < 0) {
+            tails[priority] = -1;
+        }
+        floor = priority;
+        size -= 1;
+        return e;
+    }
+
+    /**
+     * Remove all elements from this queue (making it empty), and allow elements to be added with
+     * any priority again.
+     */
+    public void clear() {
+        Arrays.fill(heads, -1);
+        Arrays.fill(tails, -1);
+        floor = 0;
+        cursor = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,26 @@
+package graph;
+
+/**
+ * An edge in a compressed-sparse-row graph connecting the vertex with ID `startId` to the vertex
+ * with ID `endId`.  Its weight `weight` is intrinsic (see `weigher()`).
+ */
+public record CsrEdge(int startId, int endId, int weight) implements Edge {
+
+    /**
+     * Return a weigher that weighs edges by their intrinsic weights and that offers `source` as a
+     * primitive view of itself.
+     */
+    static Weigher<CsrEdge> weigher(PrimitiveGraph source) {
+        return new Weigher<>() {
+            @Override
+            public int weight(CsrEdge edge) {
+                return edge.weight();
+            }
+
+            @Override
+            public PrimitiveGraph primitiveView(Graph<?> graph) {
+                return (graph == source) ? source : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package graph;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A directed graph with intrinsic integer edge weights, stored in compressed-sparse-row (CSR)
+ * form.  The edges leaving the vertex with ID `id` occupy indices `[offsets[id]..offsets[id+1])`
+ * of the `targets` and `weights` arrays, so neighbors can be enumerated with a linear array scan.
+ * Instances are immutable.
+ */
+public class CsrGraph implements Graph<CsrVertex>, PrimitiveGraph {
+
+    /**
+     * `offsets[id]` is the index in `targets` and `weights` of the first edge leaving the vertex
+     * with ID `id`.  Has length `vertexCount() + 1`, starts at 0, is non-decreasing, and ends with
+     * the number of edges.
+     */
+    private final int[] offsets;
+
+    /**
+     * `targets[k]` is the ID of the vertex that edge `k` leads to.
+     */
+    private final int[] targets;
+
+    /**
+     * `weights[k]` is the weight of edge `k`.
+     */
+    private final int[] weights;
+
+    /**
+     * Weigher reporting the intrinsic weights of our edges.
+     */
+    private final Weigher<CsrEdge> weigher;
+
+    /**
+     * Create a graph from its CSR arrays (see the field specifications for their interpretation).
+     * Rep exposure: the new object takes ownership of the argument arrays, so clients must not
+     * mutate them after construction.  Throws IllegalArgumentException if the arrays are
+     * inconsistent.
+     */
+    public CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        if (offsets.length == 0 || offsets[0] != 0
+                || offsets[offsets.length - 1] != targets.length
+                || targets.length != weights.length) {
+            throw new IllegalArgumentException("Inconsistent CSR array lengths");
+        }
+        int n = offsets.length - 1;
+        for (int id = 0; id < n; ++id) {
+            if (offsets[id + 1] < offsets[id]) {
+                throw new IllegalArgumentException("Offsets must be non-decreasing");
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= n) {
+                throw new IllegalArgumentException("Edge target out of range: " + target);
+            }
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        weigher = CsrEdge.weigher(this);
+    }
+
+    /**
+     * Create a graph with `vertexCount` vertices and one edge for each index `k` of the argument
+     * arrays, leading from the vertex with ID `starts[k]` to the vertex with ID `ends[k]` with
+     * weight `weights[k]`.  The argument arrays are not modified.  Throws IllegalArgumentException
+     * if the arrays differ in length or refer to invalid vertex IDs.
+     */
+    public static CsrGraph fromEdges(int vertexCount, int[] starts, int[] ends, int[] weights) {
+        if (starts.length != ends.length || starts.length != weights.length) {
+            throw new IllegalArgumentException("Edge arrays must have equal lengths");
+        }
+
+        // Counting sort of edges by start vertex
+        int[] offsets = new int[vertexCount + 1];
+        for (int start : starts) {
+            if (start < 0 || start >= vertexCount) {
+                throw new IllegalArgumentException("Edge start out of range: " + start);
+            }
+            offsets[start + 1] += 1;
+        }
+        for (int id = 0; id < vertexCount; ++id) {
+            offsets[id + 1] += offsets[id];
+        }
+        int[] next = offsets.clone();
+        int[] sortedEnds = new int[ends.length];
+        int[] sortedWeights = new int[weights.length];
+        for (int k = 0; k < starts.length; ++k) {
+            int slot = next[starts[k]]++;
+            sortedEnds[slot] = ends[k];
+            sortedWeights[slot] = weights[k];
+        }
+        return new CsrGraph(offsets, sortedEnds, sortedWeights);
+    }
+
+    @Override
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Return the number of edges in this graph.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public CsrVertex getVertex(int id) {
+        if (id < 0 || id >= vertexCount()) {
+            throw new NoSuchElementException("No vertex with ID " + id);
+        }
+        return new CsrVertex(this, id);
+    }
+
+    @Override
+    public void forEachNeighbor(int id, NeighborConsumer action) {
+        int end = offsets[id + 1];
+        for (int k = offsets[id]; k < end; ++k) {
+            action.accept(targets[k], weights[k]);
+        }
+    }
+
+    /**
+     * Return a weigher that reports the intrinsic weights of this graph's edges.  Solvers given
+     * this weigher will traverse this graph through its primitive neighbor enumeration.
+     */
+    public Weigher<CsrEdge> weigher() {
+        return weigher;
+    }
+}
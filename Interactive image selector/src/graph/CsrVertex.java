@@ -0,0 +1,18 @@
+package graph;
+
+import java.util.ArrayList;
+
+/**
+ * The vertex with ID `id` in the compressed-sparse-row graph `graph`.  Its edges are materialized
+ * on demand from `graph`'s primitive neighbor enumeration.
+ */
+public record CsrVertex(PrimitiveGraph graph, int id) implements Vertex<CsrEdge> {
+
+    @Override
+    public Iterable<CsrEdge> outgoingEdges() {
+        ArrayList<CsrEdge> edges = new ArrayList<>();
+        graph.forEachNeighbor(id, (neighborId, weight) ->
+                edges.add(new CsrEdge(id, neighborId, weight)));
+        return edges;
+    }
+}
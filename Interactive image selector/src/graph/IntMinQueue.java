@@ -0,0 +1,186 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min priority queue of distinct integer elements in the range `[0..capacity)` associated with
+ * integer priorities, implemented using a binary heap paired with a position index.  Unlike
+ * `HeapMinQueue`, no objects are created by any operation, which makes it suitable for solvers
+ * that queue graph vertex IDs.
+ */
+public class IntMinQueue {
+
+    /**
+     * `heap[0..size)` is a min-heap of elements ordered by their priorities: for all `i` in
+     * `[1..size)`, `priorities[i] >= priorities[(i-1)/2]`.
+     */
+    private final int[] heap;
+
+    /**
+     * `priorities[i]` is the priority associated with the element `heap[i]`.
+     */
+    private final int[] priorities;
+
+    /**
+     * `index[e]` is the position of element `e` in `heap`, or -1 if `e` is not in this queue.
+     */
+    private final int[] index;
+
+    /**
+     * The number of elements in this queue.
+     */
+    private int size;
+
+    /**
+     * Create an empty queue capable of holding the elements `[0..capacity)`.
+     */
+    public IntMinQueue(int capacity) {
+        heap = new int[capacity];
+        priorities = new int[capacity];
+        index = new int[capacity];
+        Arrays.fill(index, -1);
+        size = 0;
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether `e` is contained in this queue.
+     */
+    public boolean contains(int e) {
+        return index[e] >= 0;
+    }
+
+    /**
+     * Return an element associated with the smallest priority in this queue.  Throws
+     * NoSuchElementException if this queue is empty.
+     */
+    public int get() {
+        if (size == 0) {
+            throw new NoSuchElementException("This queue is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws
+     * NoSuchElementException if this queue is empty.
+     */
+    public int minPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException("This queue is empty");
+        }
+        return priorities[0];
+    }
+
+    /**
+     * If `e` is already contained in this queue, change its associated priority to `priority`.
+     * Otherwise, add it to this queue with that priority.  Requires `e` is in `[0..capacity)`.
+     */
+    public void addOrUpdate(int e, int priority) {
+        int i = index[e];
+        if (i < 0) {
+            i = size;
+            size += 1;
+            place(e, priority, i);
+            bubbleUp(i);
+        } else if (priority < priorities[i]) {
+            priorities[i] = priority;
+            bubbleUp(i);
+        } else {
+            priorities[i] = priority;
+            bubbleDown(i);
+        }
+    }
+
+    /**
+     * Remove and return the element associated with the smallest priority in this queue.  If
+     * multiple elements are tied for the smallest priority, an arbitrary one will be removed.
+     * Throws NoSuchElementException if this queue is empty.
+     */
+    public int remove() {
+        int min = get();
+        index[min] = -1;
+        size -= 1;
+        if (size > 0) {
+            place(heap[size], priorities[size], 0);
+            bubbleDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Remove all elements from this queue (making it empty).  Takes time proportional to the number
+     * of elements removed.
+     */
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            index[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Store element `e` with priority `priority` at position `i` of the heap.
+     */
+    private void place(int e, int priority, int i) {
+        heap[i] = e;
+        priorities[i] = priority;
+        index[e] = i;
+    }
+
+    /**
+     * Move the entry at position `i` towards the root until its parent's priority is no greater
+     * than its own.
+     */
+    private void bubbleUp(int i) {
+        int e = heap[i];
+        int priority = priorities[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            place(heap[parent], priorities[parent], i);
+            i = parent;
+        }
+        place(e, priority, i);
+    }
+
+    /**
+     * Move the entry at position `i` towards the leaves until neither child has a smaller
+     * priority.
+     */
+    private void bubbleDown(int i) {
+        int e = heap[i];
+        int priority = priorities[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child += 1;
+            }
+            if (priorities[child] >= priority) {
+                break;
+            }
+            place(heap[child], priorities[child], i);
+            i = child;
+        }
+        place(e, priority, i);
+    }
+}
@@ -0,0 +1,390 @@
+package graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers repeated point-to-point shortest path queries on a fixed graph using the ALT algorithm
+ * (A* search, Landmarks, and the Triangle inequality).  Preprocessing selects a handful of
+ * "landmark" vertices and records the shortest path distance from each landmark to every vertex.
+ * Since `d(L, t) <= d(L, v) + d(v, t)` for any landmark `L`, the difference `d(L, t) - d(L, v)`
+ * never overestimates the remaining distance from `v` to a target `t`, which lets each query search
+ * towards its target instead of expanding in all directions like `ShortestPaths`.
+ * <p>
+ * Distance fields are stored compactly as 16-bit values, quantized by a per-landmark step size
+ * where necessary; the resulting bounds are loosened by one step so that they remain admissible.
+ * Preprocessing results may be saved with `save()` and restored with `load()`.
+ * <p>
+ * Instances reuse scratch state between queries and are therefore not thread-safe.
+ */
+public class LandmarkShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends Edge> {
+
+    /**
+     * Identifies a stream written by `save()`.
+     */
+    private static final int MAGIC = 0x414c5431; // "ALT1"
+
+    /**
+     * Quantized distance value representing a vertex that is unreachable from a landmark.
+     */
+    private static final char UNREACHABLE = Character.MAX_VALUE;
+
+    /**
+     * The result of a point-to-point query: the IDs of the vertices along a shortest path from the
+     * source to the destination (inclusive), and the total weight of that path.
+     */
+    public record Route(List<Integer> path, int distance) {
+    }
+
+    /**
+     * The graph we are searching for paths in.
+     */
+    private final Graph<VertexType> graph;
+
+    /**
+     * Weigher to use in order to query edge weights in our graph.  Must be the weigher that the
+     * landmark distances were computed with.
+     */
+    private final Weigher<EdgeType> weigher;
+
+    /**
+     * Whether every edge in our graph is paired with a reverse edge of equal weight.  If so, lower
+     * bounds may additionally be derived from `d(L, v) - d(L, t)`.
+     */
+    private final boolean symmetric;
+
+    /**
+     * IDs of the landmark vertices.
+     */
+    private final int[] landmarks;
+
+    /**
+     * `quanta[i]` is the step size by which the distances from landmark `i` were divided before
+     * being stored.  At least 1.
+     */
+    private final int[] quanta;
+
+    /**
+     * `landmarkDistances[i][id]` is the distance from landmark `i` to the vertex with ID `id`,
+     * divided by `quanta[i]` and rounded down, or `UNREACHABLE` if there is no such path.
+     */
+    private final char[][] landmarkDistances;
+
+    /* Per-query scratch state.  Only entries for the IDs listed in `touched` are ever set to values
+     *  other than -1, so they can be reset in time proportional to the size of the last search. */
+
+    /**
+     * `distances[id]` is the weight of the shortest known path from the current query's source to
+     * the vertex with ID `id`, or -1 if no such path is known.
+     */
+    private final int[] distances;
+
+    /**
+     * `predecessors[id]` is the ID of the penultimate vertex along the shortest known path from the
+     * current query's source to the vertex with ID `id`, or -1 if no such path is known.
+     */
+    private final int[] predecessors;
+
+    /**
+     * IDs of the vertices whose `distances` and `predecessors` entries were set during the current
+     * query (the first `touchedCount` entries are valid).
+     */
+    private int[] touched;
+    private int touchedCount;
+
+    /**
+     * Queue of discovered vertex IDs, ordered by the weight of the shortest known path to them plus
+     * a lower bound on their remaining distance to the current query's destination.
+     */
+    private final IntMinQueue frontier;
+
+    /**
+     * The number of vertices removed from the frontier during the most recent query.
+     */
+    private int lastSettledCount;
+
+    /**
+     * Preprocess the graph `graph`, whose edge weights are determined by `weigher`, by selecting
+     * `landmarkCount` landmarks and computing their distance fields.  Landmarks are chosen greedily
+     * to be far from each other, starting with the vertex farthest from `seedId`.  If `symmetric`
+     * is true, the graph must contain a reverse edge of equal weight for every edge.  Requires
+     * `landmarkCount` is positive and `seedId` is a valid vertex ID.
+     */
+    public LandmarkShortestPaths(Graph<VertexType> graph, Weigher<EdgeType> weigher,
+            int landmarkCount, int seedId, boolean symmetric) {
+        assert landmarkCount > 0;
+        this.graph = graph;
+        this.weigher = weigher;
+        this.symmetric = symmetric;
+
+        int n = graph.vertexCount();
+        landmarks = new int[landmarkCount];
+        quanta = new int[landmarkCount];
+        landmarkDistances = new char[landmarkCount][];
+
+        ShortestPaths<VertexType, EdgeType> solver = new ShortestPaths<>(graph, weigher);
+
+        // `separation[id]` is the smallest distance from any chosen landmark to `id` (or from the
+        //  seed vertex, before any landmarks have been chosen).
+        int[] separation = new int[n];
+        PathfindingSnapshot fromSeed = solver.findAllPaths(seedId);
+        for (int id = 0; id < n; ++id) {
+            separation[id] = fromSeed.distanceTo(id);
+        }
+
+        for (int i = 0; i < landmarkCount; ++i) {
+            landmarks[i] = farthest(separation);
+            PathfindingSnapshot paths = solver.findAllPaths(landmarks[i]);
+            int maxDistance = 0;
+            for (int id = 0; id < n; ++id) {
+                int d = paths.distanceTo(id);
+                maxDistance = Math.max(maxDistance, d);
+                if (d >= 0 && (i == 0 || d < separation[id])) {
+                    separation[id] = d;
+                }
+            }
+            // Reserve `UNREACHABLE` as a sentinel.
+            quanta[i] = maxDistance / (UNREACHABLE - 1) + 1;
+            char[] field = new char[n];
+            for (int id = 0; id < n; ++id) {
+                int d = paths.distanceTo(id);
+                field[id] = (d < 0) ? UNREACHABLE : (char) (d / quanta[i]);
+            }
+            landmarkDistances[i] = field;
+        }
+
+        distances = new int[n];
+        predecessors = new int[n];
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+        frontier = new IntMinQueue(n);
+        touched = new int[16];
+    }
+
+    /**
+     * Create a point-to-point solver for `graph` and `weigher` from previously computed landmark
+     * data.  Takes ownership of all array arguments.
+     */
+    private LandmarkShortestPaths(Graph<VertexType> graph, Weigher<EdgeType> weigher,
+            boolean symmetric, int[] landmarks, int[] quanta, char[][] landmarkDistances) {
+        this.graph = graph;
+        this.weigher = weigher;
+        this.symmetric = symmetric;
+        this.landmarks = landmarks;
+        this.quanta = quanta;
+        this.landmarkDistances = landmarkDistances;
+
+        int n = graph.vertexCount();
+        distances = new int[n];
+        predecessors = new int[n];
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+        frontier = new IntMinQueue(n);
+        touched = new int[16];
+    }
+
+    /**
+     * Return the ID of a vertex whose entry in `separation` is maximal.  Negative entries
+     * (unreachable vertices) are never preferred over non-negative ones.
+     */
+    private static int farthest(int[] separation) {
+        int best = 0;
+        for (int id = 1; id < separation.length; ++id) {
+            if (separation[id] > separation[best]) {
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the IDs of the landmark vertices selected during preprocessing.
+     */
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Return the number of vertices removed from the search frontier during the most recent call to
+     * `findRoute()`.  This is a measure of the work performed by the query.
+     */
+    public int lastSettledCount() {
+        return lastSettledCount;
+    }
+
+    /**
+     * Return a lower bound on the weight of any path from the vertex with ID `id` to the vertex
+     * with ID `dstId`, derived from the landmark distance fields.
+     */
+    int lowerBound(int id, int dstId) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; ++i) {
+            char[] field = landmarkDistances[i];
+            char fromL = field[id];
+            char toDst = field[dstId];
+            if (fromL == UNREACHABLE || toDst == UNREACHABLE) {
+                continue;
+            }
+            // Quantization may understate each distance by up to `q - 1`.
+            int q = quanta[i];
+            bound = Math.max(bound, q * (toDst - fromL) - (q - 1));
+            if (symmetric) {
+                bound = Math.max(bound, q * (fromL - toDst) - (q - 1));
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Find a shortest path from the vertex with ID `srcId` to the vertex with ID `dstId`.  Returns
+     * null if the destination is not reachable from the source.
+     */
+    public Route findRoute(int srcId, int dstId) {
+        resetQueryState();
+        lastSettledCount = 0;
+
+        discover(srcId, 0, -1);
+        frontier.addOrUpdate(srcId, lowerBound(srcId, dstId));
+
+        // Quantized bounds are admissible but not necessarily consistent, so a vertex may be
+        //  reached again by a shorter path after it has been removed; it is then simply re-added.
+        //  The first time the destination is removed, its distance is optimal.
+        while (!frontier.isEmpty()) {
+            int id = frontier.remove();
+            lastSettledCount += 1;
+            if (id == dstId) {
+                return new Route(pathTo(dstId), distances[dstId]);
+            }
+            VertexType v = graph.getVertex(id);
+            for (EdgeType e : v.outgoingEdges()) {
+                int neighbor = e.endId();
+                int dist = distances[id] + weigher.weight(e);
+                if (distances[neighbor] == -1 || distances[neighbor] > dist) {
+                    discover(neighbor, dist, id);
+                    frontier.addOrUpdate(neighbor, dist + lowerBound(neighbor, dstId));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record `dist` as the weight of the shortest known path to the vertex with ID `id`, whose
+     * penultimate vertex is `predecessorId`.
+     */
+    private void discover(int id, int dist, int predecessorId) {
+        if (distances[id] == -1) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, 2 * touched.length);
+            }
+            touched[touchedCount] = id;
+            touchedCount += 1;
+        }
+        distances[id] = dist;
+        predecessors[id] = predecessorId;
+    }
+
+    /**
+     * Return the sequence of vertex IDs along the shortest known path from the current query's
+     * source to the vertex with ID `dstId` (inclusive).  Requires that vertex has been discovered.
+     */
+    private List<Integer> pathTo(int dstId) {
+        ArrayList<Integer> path = new ArrayList<>();
+        for (int id = dstId; id != -1; id = predecessors[id]) {
+            path.add(id);
+        }
+        return path.reversed();
+    }
+
+    /**
+     * Clear the scratch state left behind by the previous query.
+     */
+    private void resetQueryState() {
+        for (int i = 0; i < touchedCount; ++i) {
+            distances[touched[i]] = -1;
+            predecessors[touched[i]] = -1;
+        }
+        touchedCount = 0;
+        frontier.clear();
+    }
+
+    /**
+     * Write the results of this solver's preprocessing to `out` so that they can be restored with
+     * `load()`.  Does not close `out`.  Throws an IOException if the data could not be written.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(graph.vertexCount());
+        data.writeInt(landmarks.length);
+        data.writeBoolean(symmetric);
+        for (int i = 0; i < landmarks.length; ++i) {
+            data.writeInt(landmarks[i]);
+            data.writeInt(quanta[i]);
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        CharBuffer chars = chunk.asCharBuffer();
+        for (char[] field : landmarkDistances) {
+            for (int pos = 0; pos < field.length; pos += chars.capacity()) {
+                int len = Math.min(chars.capacity(), field.length - pos);
+                chars.clear();
+                chars.put(field, pos, len);
+                data.write(chunk.array(), 0, 2 * len);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Restore a solver for `graph` and `weigher` from preprocessing results previously written to
+     * `in` by `save()`.  The graph and weigher must be equivalent to those used when the results
+     * were computed.  Does not close `in`.  Throws an IOException if the data could not be read or
+     * is not in the expected format, and an IllegalArgumentException if it was computed for a graph
+     * with a different number of vertices.
+     */
+    public static <VertexType extends Vertex<EdgeType>, EdgeType extends Edge>
+    LandmarkShortestPaths<VertexType, EdgeType> load(Graph<VertexType> graph,
+            Weigher<EdgeType> weigher, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a landmark data stream");
+        }
+        int n = data.readInt();
+        if (n != graph.vertexCount()) {
+            throw new IllegalArgumentException("Landmark data is for a graph with " + n
+                    + " vertices, not " + graph.vertexCount());
+        }
+        int landmarkCount = data.readInt();
+        if (landmarkCount <= 0) {
+            throw new IOException("Invalid landmark count " + landmarkCount);
+        }
+        boolean symmetric = data.readBoolean();
+        int[] landmarks = new int[landmarkCount];
+        int[] quanta = new int[landmarkCount];
+        for (int i = 0; i < landmarkCount; ++i) {
+            landmarks[i] = data.readInt();
+            quanta[i] = data.readInt();
+        }
+        char[][] landmarkDistances = new char[landmarkCount][n];
+        ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+        CharBuffer chars = chunk.asCharBuffer();
+        for (char[] field : landmarkDistances) {
+            for (int pos = 0; pos < n; pos += chars.capacity()) {
+                int len = Math.min(chars.capacity(), n - pos);
+                data.readFully(chunk.array(), 0, 2 * len);
+                chars.clear();
+                chars.get(field, pos, len);
+            }
+        }
+        return new LandmarkShortestPaths<>(graph, weigher, symmetric, landmarks, quanta,
+                landmarkDistances);
+    }
+}
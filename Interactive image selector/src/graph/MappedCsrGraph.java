@@ -0,0 +1,248 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only compressed-sparse-row graph backed by a memory-mapped file.  Opening a graph only
+ * maps the file and checks its header, so startup time does not depend on the graph's size, and
+ * processes that map the same file share its pages in the operating system's cache.
+ * <p>
+ * File format (all values little-endian):
+ * <pre>
+ *   offset  size           contents
+ *   0       4              magic number 0x47525343 ("CSRG")
+ *   4       4              format version (1)
+ *   8       8              vertex count V (at most Integer.MAX_VALUE - 1)
+ *   16      8              edge count E
+ *   24      8              reserved (0)
+ *   32      8 * (V + 1)    edge offsets (long), as in `CsrGraph`
+ *   ...     4 * E          edge targets (int)
+ *   ...     4 * E          edge weights (int)
+ * </pre>
+ * Edge targets are trusted rather than validated when the file is opened (validating them would
+ * read the whole file); a corrupt file may cause exceptions when its edges are enumerated.
+ */
+public class MappedCsrGraph implements Graph<CsrVertex>, PrimitiveGraph {
+
+    private static final int MAGIC = 0x47525343;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Files are mapped in chunks of `1 << CHUNK_BITS` bytes, since a single mapping is limited to
+     * 2 GiB.  Chunk boundaries are multiples of 8, so no array element straddles two chunks.
+     */
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    /**
+     * The mapped contents of the file, in order.
+     */
+    private final MappedByteBuffer[] chunks;
+
+    private final int vertexCount;
+    private final long edgeCount;
+
+    /**
+     * File positions of the first elements of the offsets, targets, and weights arrays.
+     */
+    private final long offsetsPos;
+    private final long targetsPos;
+    private final long weightsPos;
+
+    /**
+     * Weigher reporting the intrinsic weights of our edges.
+     */
+    private final Weigher<CsrEdge> weigher;
+
+    private MappedCsrGraph(MappedByteBuffer[] chunks, int vertexCount, long edgeCount) {
+        this.chunks = chunks;
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        offsetsPos = HEADER_SIZE;
+        targetsPos = offsetsPos + 8L * (vertexCount + 1);
+        weightsPos = targetsPos + 4L * edgeCount;
+        weigher = CsrEdge.weigher(this);
+    }
+
+    /**
+     * Map the graph file at `file` into memory.  Throws an IOException if the file could not be
+     * read or is not a graph file in the expected format.
+     */
+    public static MappedCsrGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("File too small to be a graph: " + file);
+            }
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int c = 0; c < chunkCount; ++c) {
+                long pos = (long) c << CHUNK_BITS;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                        Math.min(1L << CHUNK_BITS, size - pos));
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            // The mappings remain valid after the channel is closed.
+
+            ByteBuffer header = chunks[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " graph file: " + file);
+            }
+            long vertexCount = header.getLong(8);
+            long edgeCount = header.getLong(16);
+            if (vertexCount < 0 || vertexCount >= Integer.MAX_VALUE || edgeCount < 0
+                    || size != HEADER_SIZE + 8 * (vertexCount + 1) + 8 * edgeCount) {
+                throw new IOException("Graph file has inconsistent size: " + file);
+            }
+            return new MappedCsrGraph(chunks, (int) vertexCount, edgeCount);
+        }
+    }
+
+    /**
+     * Write `graph` to `file` in the format read by `open()`, replacing any existing file.  Throws
+     * an IOException if the file could not be written.
+     */
+    public static void write(PrimitiveGraph graph, Path file) throws IOException {
+        int n = graph.vertexCount();
+        NeighborList neighbors = new NeighborList();
+        long edgeCount = 0;
+        for (int id = 0; id < n; ++id) {
+            edgeCount += neighbors.load(graph, id);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(n).putLong(edgeCount).putLong(0);
+
+            long offset = 0;
+            for (int id = 0; id < n; ++id) {
+                reserve(channel, buf, 8).putLong(offset);
+                offset += neighbors.load(graph, id);
+            }
+            reserve(channel, buf, 8).putLong(offset);
+
+            for (int id = 0; id < n; ++id) {
+                int degree = neighbors.load(graph, id);
+                for (int k = 0; k < degree; ++k) {
+                    reserve(channel, buf, 4).putInt(neighbors.ids[k]);
+                }
+            }
+            for (int id = 0; id < n; ++id) {
+                int degree = neighbors.load(graph, id);
+                for (int k = 0; k < degree; ++k) {
+                    reserve(channel, buf, 4).putInt(neighbors.weights[k]);
+                }
+            }
+            drain(channel, buf);
+        }
+    }
+
+    /**
+     * Reusable storage for the neighbors of one vertex of a primitive graph.
+     */
+    private static class NeighborList implements NeighborConsumer {
+
+        int[] ids = new int[16];
+        int[] weights = new int[16];
+        int size;
+
+        /**
+         * Replace our contents with the neighbors of the vertex with ID `id` in `graph`, returning
+         * their number.
+         */
+        int load(PrimitiveGraph graph, int id) {
+            size = 0;
+            graph.forEachNeighbor(id, this);
+            return size;
+        }
+
+        @Override
+        public void accept(int neighborId, int weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+            }
+            ids[size] = neighborId;
+            weights[size] = weight;
+            size += 1;
+        }
+    }
+
+    /**
+     * Return `buf` after ensuring it has room for at least `bytes` more bytes, writing its contents
+     * to `channel` if necessary.
+     */
+    private static ByteBuffer reserve(FileChannel channel, ByteBuffer buf, int bytes)
+            throws IOException {
+        if (buf.remaining() < bytes) {
+            drain(channel, buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Write all of `buf`'s contents to `channel` and clear it.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    private long longAt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+
+    private int intAt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Return the number of edges in this graph.
+     */
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public CsrVertex getVertex(int id) {
+        if (id < 0 || id >= vertexCount) {
+            throw new NoSuchElementException("No vertex with ID " + id);
+        }
+        return new CsrVertex(this, id);
+    }
+
+    @Override
+    public void forEachNeighbor(int id, NeighborConsumer action) {
+        long start = longAt(offsetsPos + 8L * id);
+        long end = longAt(offsetsPos + 8L * (id + 1));
+        for (long k = start; k < end; ++k) {
+            action.accept(intAt(targetsPos + 4 * k), intAt(weightsPos + 4 * k));
+        }
+    }
+
+    /**
+     * Return a weigher that reports the intrinsic weights of this graph's edges.  Solvers given
+     * this weigher will traverse this graph through its primitive neighbor enumeration.
+     */
+    public Weigher<CsrEdge> weigher() {
+        return weigher;
+    }
+}
@@ -70,6 +70,15 @@ public class PathfindingSnapshot {
             return list;
     }
 
+    /**
+     * Return the ID of the penultimate vertex along the path that `pathTo(id)` would return, or -1
+     * if `id` is the starting vertex or has not been discovered.  Following these back pointers
+     * lets callers walk a path without building a list of it.
+     */
+    public int predecessor(int id) {
+        return predecessors[id];
+    }
+
     /**
      * Return the total weight along the shortest known path from the starting vertex to the vertex
      * with ID `dstId`.  If no path is known, return -1.  Requires `dstId` is a valid vertex ID in
@@ -0,0 +1,33 @@
+package graph;
+
+/**
+ * A directed graph whose vertices are labeled by integer IDs in `[0..vertexCount())` and whose
+ * weighted edges can be enumerated without creating any objects.  This is the traversal contract
+ * used by high-throughput solvers; see `Weigher.primitiveView()` for how a `Graph` and `Weigher`
+ * pair can offer it.
+ */
+public interface PrimitiveGraph {
+
+    /**
+     * Receives the neighbors of a vertex during `forEachNeighbor()`.
+     */
+    @FunctionalInterface
+    interface NeighborConsumer {
+
+        /**
+         * Accept an edge leading to the vertex with ID `neighborId` whose weight is `weight`.
+         */
+        void accept(int neighborId, int weight);
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    int vertexCount();
+
+    /**
+     * Invoke `action` once for each edge leaving the vertex with ID `id`, passing the ID of the
+     * vertex that the edge leads to and the edge's weight.  Requires `id` is a valid vertex ID.
+     */
+    void forEachNeighbor(int id, NeighborConsumer action);
+}
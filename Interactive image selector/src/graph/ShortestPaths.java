@@ -2,6 +2,7 @@ package graph;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.function.BooleanSupplier;
 
 /**
  * Supports incrementally solving for shortest paths from a starting vertex in a graph with vertices
@@ -10,6 +11,12 @@ import java.util.BitSet;
  */
 public class ShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends Edge> {
 
+    /**
+     * The number of vertices settled between checks of the clock and cancellation token during a
+     * time-budgeted search.
+     */
+    static final int CHECK_INTERVAL = 1024;
+
     /**
      * The graph we are searching for paths in.
      */
@@ -20,6 +27,24 @@ public class ShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends
      */
     private final Weigher<EdgeType> weigher;
 
+    /**
+     * A primitive view of our graph weighted by `weigher`, used to visit neighbors without creating
+     * edge objects.  Null if `weigher` does not offer one, in which case `graph` is traversed
+     * through its vertices' edges.
+     */
+    private final PrimitiveGraph primitive;
+
+    /**
+     * Relaxes edges leaving `currentId` as they are enumerated by `primitive`.  Created once so
+     * that visiting neighbors does not allocate.
+     */
+    private final PrimitiveGraph.NeighborConsumer relaxer = this::relax;
+
+    /**
+     * The ID of the vertex whose outgoing edges are currently being relaxed.
+     */
+    private int currentId;
+
     /**
      * The ID of the starting vertex for our current search, or -1 if no starting vertex has yet
      * been selected.
@@ -44,7 +69,7 @@ public class ShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends
      * shortest possible path has not yet been determined.  Ordered by weight of the shortest known
      * path from the starting vertex.
      */
-    private final MinQueue<Integer> frontier;
+    private final IntMinQueue frontier;
 
     /**
      * `settledIds.get(id)` is true if the shortest path has been determined from our starting
@@ -59,11 +84,12 @@ public class ShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends
     public ShortestPaths(Graph<VertexType> graph, Weigher<EdgeType> weigher) {
         this.graph = graph;
         this.weigher = weigher;
+        primitive = weigher.primitiveView(graph);
         distances = new int[graph.vertexCount()];
         predecessors = new int[graph.vertexCount()];
         settledIds = new BitSet(graph.vertexCount());
 
-        frontier = new HeapMinQueue<>();
+        frontier = new IntMinQueue(graph.vertexCount());
 
         reset();
     }
@@ -141,23 +167,61 @@ public class ShortestPaths<VertexType extends Vertex<EdgeType>, EdgeType extends
      */
     public PathfindingSnapshot extendSearch(int maxToSettle) {
         assert startId >= 0;
+        settle(maxToSettle);
+        return new PathfindingSnapshot(startId, distances, predecessors, settledIds);
+    }
+
+    /**
+     * Continue finding shortest paths from our current starting point until roughly `budgetNanos`
+     * nanoseconds have elapsed, `cancelled` reports true, or shortest paths have been found for all
+     * reachable vertices, whichever happens first.  Results can be queried from the returned
+     * object, as with `extendSearch()`.  The clock and `cancelled` are consulted every
+     * `CHECK_INTERVAL` settled vertices, so this returns promptly regardless of how the cost of
+     * settling a vertex varies.  They are first consulted after one such slice, so even a call
+     * whose token is already cancelled, or whose budget is already spent, settles up to
+     * `CHECK_INTERVAL` more vertices.  Requires that a starting vertex has been set.
+     */
+    public PathfindingSnapshot extendSearchFor(long budgetNanos, BooleanSupplier cancelled) {
+        assert startId >= 0;
+        long begin = System.nanoTime();
+        do {
+            settle(CHECK_INTERVAL);
+        } while (!frontier.isEmpty() && !cancelled.getAsBoolean()
+                && System.nanoTime() - begin < budgetNanos);
+        return new PathfindingSnapshot(startId, distances, predecessors, settledIds);
+    }
 
+    /**
+     * Find the shortest paths to the next `maxToSettle` closest vertices for which shortest paths
+     * are not yet known (or to all remaining reachable vertices, if there are fewer).
+     */
+    private void settle(int maxToSettle) {
         int count = 0;
 
-        while(!frontier.isEmpty() && count < maxToSettle){
-            VertexType v = graph.getVertex(frontier.remove());
-            for(EdgeType e : v.outgoingEdges()){
-                int neighbor = e.endId();
-                int dist = distances[v.id()] + weigher.weight(e);
-                if (distances[neighbor] == -1 || distances[neighbor] > dist){
-                    distances[neighbor] = dist;
-                    predecessors[neighbor] = v.id();
-                    frontier.addOrUpdate(neighbor, dist);
+        while (!frontier.isEmpty() && count < maxToSettle) {
+            currentId = frontier.remove();
+            if (primitive != null) {
+                primitive.forEachNeighbor(currentId, relaxer);
+            } else {
+                for (EdgeType e : graph.getVertex(currentId).outgoingEdges()) {
+                    relax(e.endId(), weigher.weight(e));
                 }
             }
-            settledIds.set(v.id());
+            settledIds.set(currentId);
             count++;
         }
-        return new PathfindingSnapshot(startId, distances, predecessors, settledIds);
+    }
+
+    /**
+     * Update the shortest known path to the vertex with ID `neighbor` if it is shorter to reach it
+     * from `currentId` by an edge of weight `weight`.
+     */
+    private void relax(int neighbor, int weight) {
+        int dist = distances[currentId] + weight;
+        if (distances[neighbor] == -1 || distances[neighbor] > dist) {
+            distances[neighbor] = dist;
+            predecessors[neighbor] = currentId;
+            frontier.addOrUpdate(neighbor, dist);
+        }
     }
 }
@@ -9,4 +9,14 @@ public interface Weigher<EdgeType extends Edge> {
      * Return the weight of the edge `edge`.
      */
     int weight(EdgeType edge);
-}
\ No newline at end of file
+
+    /**
+     * Return a view of `graph` that enumerates each vertex's neighbors together with the weights
+     * that this weigher would assign to the connecting edges, or null if this weigher cannot
+     * provide one for `graph`.  Solvers use such a view when it is available in order to avoid
+     * creating an edge object for every edge they visit.  The default implementation returns null.
+     */
+    default PrimitiveGraph primitiveView(Graph<?> graph) {
+        return null;
+    }
+}
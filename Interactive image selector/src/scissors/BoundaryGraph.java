@@ -0,0 +1,498 @@
+package scissors;
+
+import graph.CsrGraph;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+import selector.PixelPlanes;
+import selector.PolyLineBuffer;
+
+/**
+ * A graph whose edges run along the boundaries between superpixels, for tracing selections with
+ * far fewer vertices than an `ImageGraph` has.  Boundaries are made of "cracks" between adjacent
+ * pixels, which join the corners of the pixel lattice (corner (cx, cy) is the top-left corner of
+ * pixel (cx, cy)); the image's border is also a boundary.  The graph's vertices are the junctions
+ * where three or more boundary cracks meet, and each edge is an arc of cracks between two
+ * junctions, so every edge separates one pair of adjacent superpixels (this is the dual of their
+ * region adjacency graph).  An arc's weight sums the costs of its cracks, which are low where the
+ * color difference across the crack is high.  Closed boundaries with no junctions (around
+ * superpixels enclosed by a single neighbor) are split into two arcs between two new junctions.
+ * <p>
+ * Every arc appears as an edge in both directions.  Junctions are indexed spatially, so the
+ * junction nearest to a point can be found quickly.
+ */
+class BoundaryGraph {
+
+    /**
+     * Cost of a crack on the image's border.  Borders are cheaper than uniform regions, but less
+     * attractive than strong edges, as in `ScissorsWeights.crossGrad()`.
+     */
+    private static final int BORDER_COST = 164;
+
+    /**
+     * Factor by which the Lab color difference across a crack is multiplied before subtracting it
+     * from the maximum crack cost of 255.
+     */
+    private static final int GRADIENT_GAIN = 2;
+
+    /**
+     * Crack directions from a corner: right, up, left, and down.
+     */
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DY = {0, -1, 0, 1};
+
+    /**
+     * Dimensions of the image.  The corner lattice is one larger in each dimension.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Superpixels whose boundaries we follow.
+     */
+    private final Superpixels regions;
+
+    /**
+     * Quantized Lab planes of the image, used to cost cracks.
+     */
+    private final PixelPlanes lab;
+
+    /**
+     * The graph of junctions and arcs, whose edges are described by `offsets`, `targets`, and
+     * `weights` as in `CsrGraph`.
+     */
+    private final CsrGraph graph;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    /**
+     * `edgeArcs[k]` is `2 * a` if edge `k` traverses arc `a` forwards, or `2 * a + 1` if it
+     * traverses it backwards.
+     */
+    private final int[] edgeArcs;
+
+    /**
+     * `junctionCorners[j]` is the corner index (`cx + (width+1) * cy`) of junction `j`.
+     */
+    private final int[] junctionCorners;
+
+    /**
+     * The corners of arc `a`, from its start junction to its end junction inclusive, are
+     * `arcCorners[arcOffsets[a]..arcOffsets[a+1])`.
+     */
+    private final int[] arcOffsets;
+    private final int[] arcCorners;
+
+    /**
+     * Spatial index of junctions: the junctions whose corners lie in grid cell `c` (of size
+     * `cellSize`, numbered in row-major order with `cellCols` columns) are
+     * `cellJunctions[cellOffsets[c]..cellOffsets[c+1])`.
+     */
+    private final int cellSize;
+    private final int cellCols;
+    private final int cellRows;
+    private final int[] cellOffsets;
+    private final int[] cellJunctions;
+
+    /**
+     * Build the boundary graph of the superpixels `regions` of the image whose quantized Lab
+     * planes are `lab`.
+     */
+    BoundaryGraph(Superpixels regions, PixelPlanes lab) {
+        this.regions = regions;
+        this.lab = lab;
+        width = regions.width();
+        height = regions.height();
+        int cornerCols = width + 1;
+
+        // Junctions in scan order, so that their corner indices are sorted
+        IntList junctions = new IntList();
+        for (int cy = 0; cy <= height; ++cy) {
+            for (int cx = 0; cx <= width; ++cx) {
+                if (degree(cx, cy) >= 3) {
+                    junctions.add(cx + cornerCols * cy);
+                }
+            }
+        }
+        int[] sortedJunctions = junctions.toArray();
+
+        // Bit 0 of `visited[c]` marks the crack right of corner `c`; bit 1 marks the crack below.
+        byte[] visited = new byte[cornerCols * (height + 1)];
+        IntList arcStarts = new IntList();
+        IntList arcEnds = new IntList();
+        IntList arcWeights = new IntList();
+        IntList arcOffsetList = new IntList();
+        IntList corners = new IntList();
+        for (int j = 0; j < sortedJunctions.length; ++j) {
+            int corner = sortedJunctions[j];
+            for (int dir = 0; dir < 4; ++dir) {
+                if (isBoundary(corner % cornerCols, corner / cornerCols, dir)
+                        && !isVisited(visited, corner, dir)) {
+                    arcOffsetList.add(corners.size());
+                    arcStarts.add(j);
+                    int[] end = new int[1];
+                    arcWeights.add(walk(corner, dir, -1, visited, corners, end));
+                    arcEnds.add(Arrays.binarySearch(sortedJunctions, end[0]));
+                }
+            }
+        }
+
+        // Split closed boundaries that have no junctions into two arcs
+        for (int corner = 0; corner < visited.length; ++corner) {
+            int cx = corner % cornerCols;
+            int cy = corner / cornerCols;
+            for (int dir : new int[]{0, 3}) {
+                if (isBoundary(cx, cy, dir) && !isVisited(visited, corner, dir)) {
+                    IntList loop = new IntList();
+                    int cost = walk(corner, dir, corner, visited, loop, new int[1]);
+                    int middle = loop.size() / 2;
+                    int first = junctions.size();
+                    junctions.add(corner);
+                    junctions.add(loop.get(middle));
+                    // Costs are split in proportion to length, which is close enough for arcs
+                    //  that no path can enter except at their ends.
+                    int firstCost = (int) ((long) cost * middle / (loop.size() - 1));
+                    arcOffsetList.add(corners.size());
+                    arcStarts.add(first);
+                    arcEnds.add(first + 1);
+                    arcWeights.add(firstCost);
+                    for (int k = 0; k <= middle; ++k) {
+                        corners.add(loop.get(k));
+                    }
+                    arcOffsetList.add(corners.size());
+                    arcStarts.add(first + 1);
+                    arcEnds.add(first);
+                    arcWeights.add(cost - firstCost);
+                    for (int k = middle; k < loop.size(); ++k) {
+                        corners.add(loop.get(k));
+                    }
+                }
+            }
+        }
+        arcOffsetList.add(corners.size());
+        junctionCorners = junctions.toArray();
+        arcOffsets = arcOffsetList.toArray();
+        arcCorners = corners.toArray();
+
+        // Store each arc as an edge in both directions, sorted by start junction
+        int junctionCount = junctionCorners.length;
+        int arcCount = arcStarts.size();
+        offsets = new int[junctionCount + 1];
+        for (int a = 0; a < arcCount; ++a) {
+            offsets[arcStarts.get(a) + 1] += 1;
+            offsets[arcEnds.get(a) + 1] += 1;
+        }
+        for (int j = 0; j < junctionCount; ++j) {
+            offsets[j + 1] += offsets[j];
+        }
+        targets = new int[2 * arcCount];
+        weights = new int[2 * arcCount];
+        edgeArcs = new int[2 * arcCount];
+        int[] next = Arrays.copyOf(offsets, junctionCount);
+        for (int a = 0; a < arcCount; ++a) {
+            int forward = next[arcStarts.get(a)]++;
+            targets[forward] = arcEnds.get(a);
+            weights[forward] = arcWeights.get(a);
+            edgeArcs[forward] = 2 * a;
+            int backward = next[arcEnds.get(a)]++;
+            targets[backward] = arcStarts.get(a);
+            weights[backward] = arcWeights.get(a);
+            edgeArcs[backward] = 2 * a + 1;
+        }
+        graph = new CsrGraph(offsets, targets, weights);
+
+        // Bucket junctions by grid cell
+        cellSize = regions.regionSize();
+        cellCols = width / cellSize + 1;
+        cellRows = height / cellSize + 1;
+        cellOffsets = new int[cellCols * cellRows + 1];
+        for (int corner : junctionCorners) {
+            cellOffsets[cellOf(corner) + 1] += 1;
+        }
+        for (int c = 0; c < cellCols * cellRows; ++c) {
+            cellOffsets[c + 1] += cellOffsets[c];
+        }
+        cellJunctions = new int[junctionCount];
+        int[] cellNext = Arrays.copyOf(cellOffsets, cellCols * cellRows);
+        for (int j = 0; j < junctionCount; ++j) {
+            cellJunctions[cellNext[cellOf(junctionCorners[j])]++] = j;
+        }
+    }
+
+    /**
+     * Return the graph of junctions and arcs.  Edge weights are the arcs' costs.
+     */
+    CsrGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Return the junction nearest to the pixel at `p`, which must be within the image.  Returns -1
+     * if there are no junctions.
+     */
+    int nearestJunction(Point p) {
+        int gx = p.x / cellSize;
+        int gy = p.y / cellSize;
+        int best = -1;
+        long bestDist = Long.MAX_VALUE;
+        for (int ring = 0; ring < Math.max(cellCols, cellRows); ++ring) {
+            for (int cy = gy - ring; cy <= gy + ring; ++cy) {
+                for (int cx = gx - ring; cx <= gx + ring; ++cx) {
+                    boolean onRing = Math.abs(cx - gx) == ring || Math.abs(cy - gy) == ring;
+                    if (!onRing || cx < 0 || cy < 0 || cx >= cellCols || cy >= cellRows) {
+                        continue;
+                    }
+                    int cell = cx + cellCols * cy;
+                    for (int k = cellOffsets[cell]; k < cellOffsets[cell + 1]; ++k) {
+                        Point q = junctionPoint(cellJunctions[k]);
+                        long dist = (long) (q.x - p.x) * (q.x - p.x)
+                                + (long) (q.y - p.y) * (q.y - p.y);
+                        if (dist < bestDist) {
+                            bestDist = dist;
+                            best = cellJunctions[k];
+                        }
+                    }
+                }
+            }
+            // Junctions in farther rings are at least `ring * cellSize` away
+            long reach = (long) ring * cellSize;
+            if (best >= 0 && bestDist <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the pixel at junction `j`'s corner (corners on the right and bottom borders of the
+     * lattice are moved onto the nearest pixel).
+     */
+    Point junctionPoint(int j) {
+        return cornerPoint(junctionCorners[j]);
+    }
+
+    /**
+     * Append to `out` the pixels at the corners of the arcs that join the consecutive junctions of
+     * `path`, which must be a path in our graph.  Where several arcs join two junctions, the
+     * cheapest is used.
+     */
+    void appendPath(List<Integer> path, PolyLineBuffer out) {
+        out.append(junctionPoint(path.getFirst()));
+        for (int i = 1; i < path.size(); ++i) {
+            int from = path.get(i - 1);
+            int to = path.get(i);
+            int bestEdge = -1;
+            for (int k = offsets[from]; k < offsets[from + 1]; ++k) {
+                if (targets[k] == to && (bestEdge < 0 || weights[k] < weights[bestEdge])) {
+                    bestEdge = k;
+                }
+            }
+            int arc = edgeArcs[bestEdge] / 2;
+            boolean backward = (edgeArcs[bestEdge] & 1) != 0;
+            int begin = arcOffsets[arc];
+            int end = arcOffsets[arc + 1];
+            for (int k = begin; k < end; ++k) {
+                out.append(cornerPoint(arcCorners[backward ? begin + end - 1 - k : k]));
+            }
+        }
+    }
+
+    /**
+     * Return the pixel nearest to corner `corner` (a corner's top-left pixel, clamped to the
+     * image).
+     */
+    private Point cornerPoint(int corner) {
+        int cx = corner % (width + 1);
+        int cy = corner / (width + 1);
+        return new Point(Math.min(cx, width - 1), Math.min(cy, height - 1));
+    }
+
+    /**
+     * Return the grid cell of the spatial index containing corner `corner`.
+     */
+    private int cellOf(int corner) {
+        int cx = corner % (width + 1);
+        int cy = corner / (width + 1);
+        return cx / cellSize + cellCols * (cy / cellSize);
+    }
+
+    /**
+     * Follow the boundary from corner `corner` starting in direction `dir` until reaching a
+     * junction or the corner `stop`, appending every corner passed (including both ends) to
+     * `corners` and marking the cracks followed in `visited`.  Store the corner reached in
+     * `end[0]` and return the total cost of the cracks followed.
+     */
+    private int walk(int corner, int dir, int stop, byte[] visited, IntList corners, int[] end) {
+        int cornerCols = width + 1;
+        int cx = corner % cornerCols;
+        int cy = corner / cornerCols;
+        int cost = 0;
+        corners.add(corner);
+        while (true) {
+            markVisited(visited, cx + cornerCols * cy, dir);
+            cost += crackCost(cx, cy, dir);
+            cx += DX[dir];
+            cy += DY[dir];
+            int reached = cx + cornerCols * cy;
+            corners.add(reached);
+            if (reached == stop || degree(cx, cy) != 2) {
+                end[0] = reached;
+                return cost;
+            }
+            // Continue along the other boundary crack at this corner
+            int back = (dir + 2) % 4;
+            for (int d = 0; d < 4; ++d) {
+                if (d != back && isBoundary(cx, cy, d)) {
+                    dir = d;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of boundary cracks meeting at corner (`cx`, `cy`).
+     */
+    private int degree(int cx, int cy) {
+        int degree = 0;
+        for (int dir = 0; dir < 4; ++dir) {
+            if (isBoundary(cx, cy, dir)) {
+                degree += 1;
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * Return whether the crack leaving corner (`cx`, `cy`) in direction `dir` exists and is a
+     * boundary (either it separates different superpixels or it lies on the image's border).
+     */
+    private boolean isBoundary(int cx, int cy, int dir) {
+        return switch (dir) {
+            case 0 -> cx < width && horizontalBoundary(cx, cy);
+            case 1 -> cy > 0 && verticalBoundary(cx, cy - 1);
+            case 2 -> cx > 0 && horizontalBoundary(cx - 1, cy);
+            case 3 -> cy < height && verticalBoundary(cx, cy);
+            default -> throw new IllegalArgumentException();
+        };
+    }
+
+    /**
+     * Return whether the horizontal crack from corner (`cx`, `cy`) to (`cx+1`, `cy`), which lies
+     * between pixels (`cx`, `cy-1`) and (`cx`, `cy`), is a boundary.
+     */
+    private boolean horizontalBoundary(int cx, int cy) {
+        return cy == 0 || cy == height || regions.label(cx, cy - 1) != regions.label(cx, cy);
+    }
+
+    /**
+     * Return whether the vertical crack from corner (`cx`, `cy`) to (`cx`, `cy+1`), which lies
+     * between pixels (`cx-1`, `cy`) and (`cx`, `cy`), is a boundary.
+     */
+    private boolean verticalBoundary(int cx, int cy) {
+        return cx == 0 || cx == width || regions.label(cx - 1, cy) != regions.label(cx, cy);
+    }
+
+    /**
+     * Return the cost of the boundary crack leaving corner (`cx`, `cy`) in direction `dir`.
+     */
+    private int crackCost(int cx, int cy, int dir) {
+        // Normalize to a crack leaving its right or bottom end
+        if (dir == 1) {
+            cy -= 1;
+            dir = 3;
+        } else if (dir == 2) {
+            cx -= 1;
+            dir = 0;
+        }
+        int x0;
+        int y0;
+        int x1;
+        int y1;
+        if (dir == 0) {
+            if (cy == 0 || cy == height) {
+                return BORDER_COST;
+            }
+            x0 = cx;
+            y0 = cy - 1;
+            x1 = cx;
+            y1 = cy;
+        } else {
+            if (cx == 0 || cx == width) {
+                return BORDER_COST;
+            }
+            x0 = cx - 1;
+            y0 = cy;
+            x1 = cx;
+            y1 = cy;
+        }
+        int difference = 0;
+        for (int b = 0; b < 3; ++b) {
+            difference += Math.abs(lab.sample(x0, y0, b) - lab.sample(x1, y1, b));
+        }
+        return Math.max(1, 255 - GRADIENT_GAIN * difference);
+    }
+
+    /**
+     * Return whether the crack leaving corner `corner` in direction `dir` is marked in `visited`.
+     */
+    private boolean isVisited(byte[] visited, int corner, int dir) {
+        return (visited[crackCorner(corner, dir)] & crackBit(dir)) != 0;
+    }
+
+    /**
+     * Mark the crack leaving corner `corner` in direction `dir` in `visited`.
+     */
+    private void markVisited(byte[] visited, int corner, int dir) {
+        visited[crackCorner(corner, dir)] |= (byte) crackBit(dir);
+    }
+
+    /**
+     * Return the corner to the left of or above the crack leaving corner `corner` in direction
+     * `dir`, by which the crack is marked in visited arrays.
+     */
+    private int crackCorner(int corner, int dir) {
+        return switch (dir) {
+            case 1 -> corner - (width + 1);
+            case 2 -> corner - 1;
+            default -> corner;
+        };
+    }
+
+    /**
+     * Return the bit marking cracks in direction `dir` in visited arrays: 1 for horizontal cracks
+     * and 2 for vertical cracks.
+     */
+    private static int crackBit(int dir) {
+        return (dir % 2 == 0) ? 1 : 2;
+    }
+
+    /**
+     * A growable list of ints.
+     */
+    private static class IntList {
+
+        private int[] elements = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size++] = value;
+        }
+
+        int get(int index) {
+            return elements[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+}
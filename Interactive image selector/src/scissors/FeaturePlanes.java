@@ -0,0 +1,628 @@
+package scissors;
+
+import graph.PrimitiveGraph;
+import java.util.List;
+import selector.PixelPlanes;
+import selector.PolyLine;
+
+/**
+ * Per-pixel image features for the classic intelligent scissors edge cost of Mortensen and
+ * Barrett, which combines a Laplacian zero-crossing term `fZ`, a gradient magnitude term `fG`, and
+ * a gradient direction term `fD`:
+ * <pre>
+ *   cost(p, q) = wZ * fZ(q) + wG * fG(q) + wD * fD(p, q)
+ * </pre>
+ * The features are computed once from Gaussian-derivative filters of the image's band-averaged
+ * intensity, and are quantized so that the cost of an edge is the sum of two table lookups: one
+ * indexed by the end pixel's zero-crossing flag and gradient magnitude level, and one indexed by
+ * the edge's direction and both pixels' quantized gradient directions.  Costs are scaled to
+ * `[0..255]`.
+ * <p>
+ * The cost tables are separate from the features, so they can be retrained cheaply: `trained()`
+ * returns planes that share these features but whose gradient magnitude costs, and an additional
+ * intensity term, follow the feature histograms of a boundary the user has already traced (as in
+ * Mortensen and Barrett's "on-the-fly training").  Trained edge costs are at most
+ * `255 * (1 + wI)`.
+ */
+class FeaturePlanes implements PrimitiveGraph {
+
+    /**
+     * Relative weights of the zero-crossing, gradient magnitude, and gradient direction terms.
+     */
+    private static final double W_ZERO_CROSSING = 0.43;
+    private static final double W_GRADIENT = 0.43;
+    private static final double W_DIRECTION = 0.14;
+
+    /**
+     * Relative weight of the intensity term that is added to trained costs.
+     */
+    private static final double W_INTENSITY = 0.14;
+
+    /**
+     * Standard deviation, in pixels, of the Gaussian used to smooth the image before
+     * differentiating it.
+     */
+    private static final double SIGMA = 1.0;
+
+    /**
+     * Magnitude below which Laplacians and gradients are treated as zero, so that the rounding
+     * errors of filtering flat regions do not produce zero crossings or gradient directions there.
+     */
+    private static final float FLAT_EPSILON = 1e-3f;
+
+    /**
+     * Number of levels that gradient magnitude costs are quantized to.
+     */
+    private static final int GRADIENT_LEVELS = 128;
+
+    /**
+     * Number of levels that pixel intensities are quantized to.
+     */
+    private static final int INTENSITY_LEVELS = 64;
+
+    /**
+     * Number of boundary pixels, counting back from the end of the traced boundary, whose features
+     * are sampled by `trained()`.
+     */
+    private static final int TRAINING_LENGTH = 64;
+
+    /**
+     * Fewest sampled boundary pixels for which `trained()` will train costs.
+     */
+    private static final int MIN_TRAINING_SAMPLES = 8;
+
+    /**
+     * Radius, in levels, of the box filter used to smooth feature histograms before they are
+     * turned into costs.
+     */
+    private static final int HISTOGRAM_SMOOTHING = 2;
+
+    /**
+     * Number of bins that gradient directions are quantized to.  Pixels with no gradient are
+     * assigned the extra bin `DIRECTION_BINS`.
+     */
+    static final int DIRECTION_BINS = 64;
+
+    /**
+     * Resolution of the grid used to look up direction bins: `DIRECTION_BIN_GRID[i * S + j]`, where
+     * `S` is `2 * DIRECTION_GRID + 1`, is the direction bin of a gradient proportional to
+     * `(i - DIRECTION_GRID, j - DIRECTION_GRID)`.  Rounding a gradient to this grid changes its
+     * angle by much less than the width of a bin.
+     */
+    private static final int DIRECTION_GRID = 128;
+    private static final byte[] DIRECTION_BIN_GRID = makeDirectionBinGrid();
+
+    /**
+     * Offsets of the neighbor in each edge direction, with the same conventions as `ImageVertex`
+     * (0 points right and 2 points up).
+     */
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    /**
+     * Untrained static cost table (see `staticCost`).
+     */
+    private static final int[] STATIC_COST = makeStaticCosts(null);
+
+    /**
+     * Untrained intensity cost table (see `intensityCost`), which ignores intensity.
+     */
+    private static final int[] NO_INTENSITY_COST = new int[INTENSITY_LEVELS];
+
+    /**
+     * `DIRECTION_COST[(dir * B + bp) * B + bq]`, where `B` is `DIRECTION_BINS + 1`, is the scaled
+     * `wD * fD` term for an edge in direction `dir` from a pixel whose direction bin is `bp` to a
+     * pixel whose direction bin is `bq`.
+     */
+    private static final int[] DIRECTION_COST = makeDirectionCosts();
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * `features[i]` packs the features of the pixel with vertex ID `i`: bit 7 is set if the pixel
+     * is not a Laplacian zero-crossing, and bits 0-6 hold its quantized gradient magnitude cost
+     * (0 for the strongest gradient in the image).
+     */
+    private final byte[] features;
+
+    /**
+     * `directions[i]` is the quantized direction bin of the pixel with vertex ID `i`.
+     */
+    private final byte[] directions;
+
+    /**
+     * `intensities[i]` is the quantized band-averaged intensity of the pixel with vertex ID `i`,
+     * relative to the brightest pixel in the image.
+     */
+    private final byte[] intensities;
+
+    /**
+     * `staticCost[f]` is the scaled `wZ * fZ + wG * fG` term for an edge leading horizontally or
+     * vertically to a pixel with packed features `f` (see `features`), and `staticCost[f + 256]`
+     * is the term for an edge leading diagonally to it.  Shared with other planes; not modified.
+     */
+    private final int[] staticCost;
+
+    /**
+     * `intensityCost[v]` is the scaled `wI * fI` term for an edge leading to a pixel with quantized
+     * intensity `v`.  Shared with other planes; not modified.
+     */
+    private final int[] intensityCost;
+
+    /**
+     * Compute the features of the image whose samples are `img`, with untrained costs.
+     */
+    FeaturePlanes(PixelPlanes img) {
+        width = img.width();
+        height = img.height();
+        int n = width * height;
+        features = new byte[n];
+        directions = new byte[n];
+        intensities = new byte[n];
+        staticCost = STATIC_COST;
+        intensityCost = NO_INTENSITY_COST;
+
+        // Intermediate images are stored as arrays of rows, since the JIT compiler only
+        //  vectorizes loops whose array accesses share an index.
+        float[][] gray = new float[height][width];
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            int bands = img.bandCount();
+            for (int y = y0; y < y1; ++y) {
+                float[] row = gray[y];
+                int start = width * y;
+                for (int b = 0; b < bands; ++b) {
+                    if (img.isByte()) {
+                        byte[] plane = img.bytePlane(b);
+                        for (int x = 0; x < width; ++x) {
+                            row[x] += plane[start + x] & 0xFF;
+                        }
+                    } else {
+                        for (int x = 0; x < width; ++x) {
+                            row[x] += img.sample(x, y, b);
+                        }
+                    }
+                }
+                for (int x = 0; x < width; ++x) {
+                    row[x] /= bands;
+                }
+            }
+        });
+        quantizeIntensities(gray);
+
+        // Gaussian derivative filters are separable, so the three horizontal passes are shared
+        //  between the gradient and Laplacian components.
+        float[][] kernels = gaussianKernels(SIGMA);
+        float[] g = kernels[0];
+        float[] dg = kernels[1];
+        float[] ddg = kernels[2];
+        float[][] smoothX = convolveRows(gray, g);
+        float[][] slopeX = convolveRows(gray, dg);
+        float[][] curvatureX = gray;
+        convolveRows(gray, ddg, curvatureX);
+        float[][] gradX = convolveColumns(slopeX, g, null);
+        float[][] gradY = convolveColumns(smoothX, dg, null);
+        float[][] laplacian = convolveColumns(curvatureX, g, null);
+        convolveColumns(smoothX, ddg, laplacian);
+
+        // Reuse `slopeX` to hold gradient magnitudes
+        float[][] magnitude = slopeX;
+        float[] maxMagnitudes = new float[WeightPlanes.taskCount(height)];
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            float max = 0;
+            for (int y = y0; y < y1; ++y) {
+                float[] gx = gradX[y];
+                float[] gy = gradY[y];
+                float[] m = magnitude[y];
+                for (int x = 0; x < width; ++x) {
+                    m[x] = (float) Math.sqrt(gx[x] * gx[x] + gy[x] * gy[x]);
+                }
+                for (int x = 0; x < width; ++x) {
+                    max = Math.max(max, m[x]);
+                }
+            }
+            maxMagnitudes[y0 / WeightPlanes.ROWS_PER_TASK] = max;
+        });
+        float maxMagnitude = 0;
+        for (float m : maxMagnitudes) {
+            maxMagnitude = Math.max(maxMagnitude, m);
+        }
+        float gradientScale = (maxMagnitude > 0) ? (GRADIENT_LEVELS - 1) / maxMagnitude : 0;
+
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            for (int y = y0; y < y1; ++y) {
+                // Rows beyond the image's borders are replaced by the border row, which can never
+                //  be on the opposite side of a zero crossing from itself.
+                float[] above = laplacian[Math.max(0, y - 1)];
+                float[] row = laplacian[y];
+                float[] below = laplacian[Math.min(height - 1, y + 1)];
+                float[] m = magnitude[y];
+                float[] gx = gradX[y];
+                float[] gy = gradY[y];
+                int start = width * y;
+                for (int x = 0; x < width; ++x) {
+                    float v = row[x];
+                    boolean crossing;
+                    if (Math.abs(v) >= FLAT_EPSILON) {
+                        crossing = crosses(v, above[x]) || crosses(v, below[x])
+                                || (x > 0 && crosses(v, row[x - 1]))
+                                || (x + 1 < width && crosses(v, row[x + 1]));
+                    } else {
+                        // A pixel with no Laplacian is a crossing only if the Laplacian changes
+                        //  sign across it.
+                        crossing = crosses(above[x], below[x])
+                                || (x > 0 && x + 1 < width && crosses(row[x - 1], row[x + 1]));
+                    }
+                    int level = (GRADIENT_LEVELS - 1) - (int) (m[x] * gradientScale + 0.5f);
+                    features[start + x] = (byte) ((crossing ? 0 : 0x80) | level);
+                    directions[start + x] = (byte) directionBin(gx[x], gy[x]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Create planes that share the features of `planes` but use the cost tables `staticCost` and
+     * `intensityCost`.
+     */
+    private FeaturePlanes(FeaturePlanes planes, int[] staticCost, int[] intensityCost) {
+        width = planes.width;
+        height = planes.height;
+        features = planes.features;
+        directions = planes.directions;
+        intensities = planes.intensities;
+        this.staticCost = staticCost;
+        this.intensityCost = intensityCost;
+    }
+
+    /**
+     * Store the quantized intensities of the image whose band-averaged intensities are `gray` in
+     * `intensities`.
+     */
+    private void quantizeIntensities(float[][] gray) {
+        float[] maxGrays = new float[WeightPlanes.taskCount(height)];
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            float max = 0;
+            for (int y = y0; y < y1; ++y) {
+                float[] row = gray[y];
+                for (int x = 0; x < width; ++x) {
+                    max = Math.max(max, row[x]);
+                }
+            }
+            maxGrays[y0 / WeightPlanes.ROWS_PER_TASK] = max;
+        });
+        float maxGray = 0;
+        for (float m : maxGrays) {
+            maxGray = Math.max(maxGray, m);
+        }
+        float scale = (maxGray > 0) ? (INTENSITY_LEVELS - 1) / maxGray : 0;
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            for (int y = y0; y < y1; ++y) {
+                float[] row = gray[y];
+                int start = width * y;
+                for (int x = 0; x < width; ++x) {
+                    intensities[start + x] = (byte) (int) (row[x] * scale + 0.5f);
+                }
+            }
+        });
+    }
+
+    /**
+     * Return planes that share our features but whose costs are trained on the last
+     * `TRAINING_LENGTH` pixels of the traced boundary `segments` (in order, as in a selection),
+     * which must lie within the image.  Following Mortensen and Barrett, the gradient magnitude
+     * cost of a level is 1 minus its frequency along the boundary relative to the most frequent
+     * level (after smoothing), so the cheapest pixels are those whose gradients resemble the
+     * boundary's; an intensity term is added in the same way.  Only the cost tables are computed;
+     * features are shared.  Returns untrained planes if the boundary has too few pixels to train
+     * on.
+     */
+    FeaturePlanes trained(List<PolyLine> segments) {
+        int[] gradientHistogram = new int[GRADIENT_LEVELS];
+        int[] intensityHistogram = new int[INTENSITY_LEVELS];
+        int samples = 0;
+        for (int s = segments.size() - 1; s >= 0 && samples < TRAINING_LENGTH; --s) {
+            PolyLine segment = segments.get(s);
+            int[] xs = segment.xs();
+            int[] ys = segment.ys();
+            // Skip each segment's first point, which duplicates the previous segment's last one
+            for (int k = xs.length - 1; k > 0 && samples < TRAINING_LENGTH; --k) {
+                int id = xs[k] + width * ys[k];
+                gradientHistogram[features[id] & 0x7F] += 1;
+                intensityHistogram[intensities[id]] += 1;
+                samples += 1;
+            }
+        }
+        if (samples < MIN_TRAINING_SAMPLES) {
+            return (staticCost == STATIC_COST) ? this
+                    : new FeaturePlanes(this, STATIC_COST, NO_INTENSITY_COST);
+        }
+
+        double[] gradientCosts = histogramCosts(gradientHistogram);
+        double[] intensityCosts = histogramCosts(intensityHistogram);
+        int[] trainedIntensityCost = new int[INTENSITY_LEVELS];
+        for (int v = 0; v < INTENSITY_LEVELS; ++v) {
+            trainedIntensityCost[v] = (int) Math.round(255 * W_INTENSITY * intensityCosts[v]);
+        }
+        return new FeaturePlanes(this, makeStaticCosts(gradientCosts), trainedIntensityCost);
+    }
+
+    /**
+     * Return costs in `[0..1]` for each level of the feature histogram `histogram`: 1 minus the
+     * smoothed frequency of the level relative to that of the most frequent level.  Requires the
+     * histogram is not empty.
+     */
+    private static double[] histogramCosts(int[] histogram) {
+        int levels = histogram.length;
+        double[] smoothed = new double[levels];
+        double max = 0;
+        for (int v = 0; v < levels; ++v) {
+            int lo = Math.max(0, v - HISTOGRAM_SMOOTHING);
+            int hi = Math.min(levels - 1, v + HISTOGRAM_SMOOTHING);
+            for (int u = lo; u <= hi; ++u) {
+                smoothed[v] += histogram[u];
+            }
+            max = Math.max(max, smoothed[v]);
+        }
+        for (int v = 0; v < levels; ++v) {
+            smoothed[v] = 1 - smoothed[v] / max;
+        }
+        return smoothed;
+    }
+
+    /**
+     * Return whether a pixel whose Laplacian is `v`, at least `FLAT_EPSILON` in magnitude, is a
+     * zero crossing with respect to a neighbor whose Laplacian is `u`: `u` has the opposite sign
+     * and a magnitude at least that of `v` (so of the two pixels straddling a crossing, the one
+     * closer to zero is chosen).
+     */
+    private static boolean crosses(float v, float u) {
+        return ((v > 0 && u < 0) || (v < 0 && u > 0)) && Math.abs(v) <= Math.abs(u);
+    }
+
+    /**
+     * Return the direction bin of a pixel whose intensity gradient is (`gx`, `gy`).  Bins quantize
+     * the angle of the unit vector perpendicular to the gradient, `(gy, -gx)`; a gradient whose
+     * components are both smaller than `FLAT_EPSILON` gets the bin `DIRECTION_BINS`.  To avoid a
+     * slow `atan2()` call per pixel, the gradient is scaled onto the boundary of the square
+     * `[-1, 1]^2`, and the bin is looked up by the rounded scaled coordinates.
+     */
+    private static int directionBin(float gx, float gy) {
+        float scale = Math.max(Math.abs(gx), Math.abs(gy));
+        if (scale < FLAT_EPSILON) {
+            return DIRECTION_BINS;
+        }
+        float r = DIRECTION_GRID / scale;
+        int i = (int) (gx * r + DIRECTION_GRID + 0.5f);
+        int j = (int) (gy * r + DIRECTION_GRID + 0.5f);
+        return DIRECTION_BIN_GRID[i * (2 * DIRECTION_GRID + 1) + j];
+    }
+
+    /**
+     * Return the table of direction bins described by `DIRECTION_BIN_GRID`.
+     */
+    private static byte[] makeDirectionBinGrid() {
+        int size = 2 * DIRECTION_GRID + 1;
+        byte[] bins = new byte[size * size];
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                double gx = (double) (i - DIRECTION_GRID) / DIRECTION_GRID;
+                double gy = (double) (j - DIRECTION_GRID) / DIRECTION_GRID;
+                int bin = DIRECTION_BINS;
+                if (gx != 0 || gy != 0) {
+                    double angle = Math.atan2(-gx, gy);
+                    bin = Math.floorMod((int) Math.round(angle / (2 * Math.PI) * DIRECTION_BINS),
+                            DIRECTION_BINS);
+                }
+                bins[i * size + j] = (byte) bin;
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * Return the scaled static cost table (see `staticCost`) whose gradient magnitude cost for the
+     * level `v` is `gradientCosts[v]`, or is proportional to `v` if `gradientCosts` is null.
+     * Following Mortensen and Barrett, the gradient magnitude cost of a horizontal or vertical edge
+     * is scaled by `1/sqrt(2)` relative to that of a diagonal edge.
+     */
+    private static int[] makeStaticCosts(double[] gradientCosts) {
+        int[] costs = new int[512];
+        for (int f = 0; f < 256; ++f) {
+            int level = f & 0x7F;
+            double fZ = (f & 0x80) != 0 ? 1 : 0;
+            double fG = (gradientCosts != null) ? gradientCosts[level]
+                    : (double) level / (GRADIENT_LEVELS - 1);
+            costs[f] = (int) Math.round(255 * (W_ZERO_CROSSING * fZ
+                    + W_GRADIENT * fG / Math.sqrt(2)));
+            costs[f + 256] = (int) Math.round(255 * (W_ZERO_CROSSING * fZ + W_GRADIENT * fG));
+        }
+        return costs;
+    }
+
+    /**
+     * Return the scaled direction cost table (see `DIRECTION_COST`).  For an edge from `p` to `q`
+     * whose unit link vector `L` is oriented so that `D'(p) . L >= 0`, where `D'` is the unit
+     * vector perpendicular to a pixel's gradient, the direction cost is
+     * `fD = 2/(3 pi) * (acos(D'(p) . L) + acos(L . D'(q)))`.  Pixels with no gradient contribute
+     * dot products of 0.
+     */
+    private static int[] makeDirectionCosts() {
+        int bins = DIRECTION_BINS + 1;
+        int[] costs = new int[8 * bins * bins];
+        for (int dir = 0; dir < 8; ++dir) {
+            double len = Math.hypot(DX[dir], DY[dir]);
+            double lx = DX[dir] / len;
+            double ly = DY[dir] / len;
+            for (int bp = 0; bp < bins; ++bp) {
+                double[] dp = binVector(bp);
+                double sp = dp[0] * lx + dp[1] * ly;
+                double sign = (sp >= 0) ? 1 : -1;
+                for (int bq = 0; bq < bins; ++bq) {
+                    double[] dq = binVector(bq);
+                    double sq = sign * (dq[0] * lx + dq[1] * ly);
+                    double fD = 2 / (3 * Math.PI) * (Math.acos(Math.abs(sp))
+                            + Math.acos(Math.max(-1, Math.min(1, sq))));
+                    costs[(dir * bins + bp) * bins + bq] = (int) Math.round(255 * W_DIRECTION * fD);
+                }
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Return the unit vector at the center of direction bin `bin`, or the zero vector for the
+     * no-gradient bin.
+     */
+    private static double[] binVector(int bin) {
+        if (bin == DIRECTION_BINS) {
+            return new double[]{0, 0};
+        }
+        double angle = 2 * Math.PI * bin / DIRECTION_BINS;
+        return new double[]{Math.cos(angle), Math.sin(angle)};
+    }
+
+    /**
+     * Return the 1-D Gaussian with standard deviation `sigma` and its first and second
+     * derivatives, sampled at integer offsets from `-r` to `r` where `r = ceil(3 * sigma)`.  The
+     * sampled second derivative is shifted by a multiple of the Gaussian so that it sums to zero,
+     * as the continuous one integrates to zero; otherwise flat regions would have a Laplacian
+     * proportional to their intensity.
+     */
+    private static float[][] gaussianKernels(double sigma) {
+        int r = (int) Math.ceil(3 * sigma);
+        float[] g = new float[2 * r + 1];
+        float[] dg = new float[2 * r + 1];
+        float[] ddg = new float[2 * r + 1];
+        double sum = 0;
+        for (int k = -r; k <= r; ++k) {
+            sum += Math.exp(-k * k / (2 * sigma * sigma));
+        }
+        double ddgSum = 0;
+        for (int k = -r; k <= r; ++k) {
+            double v = Math.exp(-k * k / (2 * sigma * sigma)) / sum;
+            ddgSum += (k * k - sigma * sigma) / (sigma * sigma * sigma * sigma) * v;
+        }
+        for (int k = -r; k <= r; ++k) {
+            double v = Math.exp(-k * k / (2 * sigma * sigma)) / sum;
+            g[k + r] = (float) v;
+            dg[k + r] = (float) (-k / (sigma * sigma) * v);
+            ddg[k + r] = (float) (((k * k - sigma * sigma) / (sigma * sigma * sigma * sigma)
+                    - ddgSum) * v);
+        }
+        return new float[][]{g, dg, ddg};
+    }
+
+    /**
+     * Return the convolution of each row of the image `src` with the odd-length kernel `k`.
+     * Samples beyond the image's left and right borders are taken from the nearest border pixel.
+     */
+    private float[][] convolveRows(float[][] src, float[] k) {
+        float[][] dst = new float[height][width];
+        convolveRows(src, k, dst);
+        return dst;
+    }
+
+    /**
+     * Store the convolution of each row of the image `src` with the odd-length kernel `k` in
+     * `dst`, which may be the same as `src`.  Strips of rows are processed in parallel.
+     */
+    private void convolveRows(float[][] src, float[] k, float[][] dst) {
+        int r = k.length / 2;
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            // `padded[x + r]` is the sample at `x` in the current row, with replicated borders
+            float[] padded = new float[width + 2 * r];
+            for (int y = y0; y < y1; ++y) {
+                float[] row = src[y];
+                System.arraycopy(row, 0, padded, r, width);
+                for (int j = 0; j < r; ++j) {
+                    padded[j] = row[0];
+                    padded[width + r + j] = row[width - 1];
+                }
+                float[] out = dst[y];
+                for (int x = 0; x < width; ++x) {
+                    float sum = 0;
+                    for (int j = 0; j < k.length; ++j) {
+                        sum += k[j] * padded[x + 2 * r - j];
+                    }
+                    out[x] = sum;
+                }
+            }
+        });
+    }
+
+    /**
+     * Add the convolution of each column of the image `src` with the odd-length kernel `k` to
+     * `dst` and return it, or return the convolution in a new image if `dst` is null.  Samples
+     * beyond the image's top and bottom borders are taken from the nearest border pixel.  Strips
+     * of rows are processed in parallel.
+     */
+    private float[][] convolveColumns(float[][] src, float[] k, float[][] dst) {
+        float[][] result = (dst != null) ? dst : new float[height][width];
+        int r = k.length / 2;
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            for (int y = y0; y < y1; ++y) {
+                float[] out = result[y];
+                for (int j = 0; j < k.length; ++j) {
+                    float[] in = src[Math.max(0, Math.min(height - 1, y + r - j))];
+                    float c = k[j];
+                    for (int x = 0; x < width; ++x) {
+                        out[x] += c * in[x];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Return whether the pixel with vertex ID `id` is a Laplacian zero crossing.
+     */
+    boolean isZeroCrossing(int id) {
+        return (features[id] & 0x80) == 0;
+    }
+
+    /**
+     * Return the quantized gradient direction bin of the pixel with vertex ID `id`, in
+     * `[0..DIRECTION_BINS]` (see `directionBin()`).
+     */
+    int direction(int id) {
+        return directions[id];
+    }
+
+    /**
+     * Return the cost of the edge leaving the pixel with vertex ID `startId` in direction `dir`
+     * and arriving at the pixel with vertex ID `endId`.
+     */
+    int weight(int startId, int endId, int dir) {
+        int bins = DIRECTION_BINS + 1;
+        return staticCost[(features[endId] & 0xFF) + ((dir & 1) << 8)]
+                + intensityCost[intensities[endId]]
+                + DIRECTION_COST[(dir * bins + directions[startId]) * bins + directions[endId]];
+    }
+
+    @Override
+    public int vertexCount() {
+        return width * height;
+    }
+
+    /**
+     * Enumerate neighbors in order of increasing direction, as `ImageVertex` does.
+     */
+    @Override
+    public void forEachNeighbor(int id, NeighborConsumer action) {
+        int y = id / width;
+        int x = id - y * width;
+        for (int dir = 0; dir < 8; ++dir) {
+            int nx = x + DX[dir];
+            int ny = y + DY[dir];
+            if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+                int neighborId = nx + width * ny;
+                action.accept(neighborId, weight(id, neighborId, dir));
+            }
+        }
+    }
+}
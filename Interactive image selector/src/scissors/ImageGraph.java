@@ -2,6 +2,7 @@ package scissors;
 
 import graph.Edge;
 import graph.Graph;
+import graph.PathfindingSnapshot;
 import graph.Vertex;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
@@ -10,6 +11,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import selector.PolyLine;
+import selector.PolyLineBuffer;
 
 /**
  * Provides a Graph structure on top of an image where pixels are treated as vertices connected to
@@ -76,6 +78,13 @@ class ImageGraph implements Graph<ImageVertex> {
         return new ImageVertex(this, p.x, p.y);
     }
 
+    /**
+     * Return the image we are providing a graph structure for.
+     */
+    public BufferedImage image() {
+        return img;
+    }
+
     /**
      * Return the Raster backing our image.  This is convenient for querying the brightness of
      * pixels in different color bands.
@@ -95,6 +104,21 @@ class ImageGraph implements Graph<ImageVertex> {
         }
         return buffer.toPolyLine();
     }
+
+    /**
+     * Replace the contents of `out` with the pixels along the shortest known path in `paths` from
+     * its starting vertex to the vertex with ID `dstId`, and return `out`.  The path is read from
+     * back pointers without allocating, so `out` may be reused across calls.  Requires the
+     * destination has been discovered.
+     */
+    public PolyLineBuffer tracePath(PathfindingSnapshot paths, int dstId, PolyLineBuffer out) {
+        out.clear();
+        int width = width();
+        for (int id = dstId; id >= 0; id = paths.predecessor(id)) {
+            out.append(id % width, id / width);
+        }
+        return out.reverse();
+    }
 }
 
 /**
@@ -0,0 +1,141 @@
+package scissors;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import selector.PixelPlanes;
+
+/**
+ * Converts images to the CIELAB color space (D65 white point), in which distances track perceived
+ * color differences much better than in sRGB.  The result is three planes of 8-bit samples, `L`,
+ * `a`, and `b`, all quantized with the same scale `SCALE` (so that a step in any channel represents
+ * the same perceptual difference): `L` is stored as `L * SCALE` and `a` and `b` as
+ * `128 + a * SCALE` and `128 + b * SCALE`, rounded and clamped to `[0..255]`.  Only the most
+ * saturated blues are clamped.
+ * <p>
+ * Conversion uses a table for sRGB decoding and a table for the cube root in the Lab transfer
+ * function, and rows are converted in parallel.
+ */
+class LabPlanes {
+
+    /**
+     * Quantization scale of all three channels (see class specification).
+     */
+    static final float SCALE = 1.25f;
+
+    /**
+     * Number of intervals in the cube-root table over `[0..1]`.
+     */
+    private static final int CUBE_ROOT_STEPS = 4096;
+
+    /**
+     * `SRGB_TO_LINEAR[c]` is the linear-light intensity of the 8-bit sRGB component value `c`.
+     */
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    /**
+     * `LAB_F[i]` is the Lab transfer function `f(t)` at `t = i / CUBE_ROOT_STEPS`, which is the
+     * cube root of `t` except near 0; values in between are interpolated linearly.
+     */
+    private static final float[] LAB_F = new float[CUBE_ROOT_STEPS + 2];
+
+    static {
+        for (int c = 0; c < 256; ++c) {
+            double v = c / 255.0;
+            SRGB_TO_LINEAR[c] = (float) ((v <= 0.04045) ? v / 12.92
+                    : Math.pow((v + 0.055) / 1.055, 2.4));
+        }
+        double delta = 6.0 / 29;
+        for (int i = 0; i < LAB_F.length; ++i) {
+            double t = (double) i / CUBE_ROOT_STEPS;
+            LAB_F[i] = (float) ((t > delta * delta * delta) ? Math.cbrt(t)
+                    : t / (3 * delta * delta) + 4.0 / 29);
+        }
+    }
+
+    /**
+     * Return the quantized Lab planes of `img` (in the order L, a, b).  Images that are not 8-bit
+     * sRGB with three color components are first converted to sRGB through `getRGB()`.
+     */
+    static PixelPlanes convert(BufferedImage img) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        byte[][] lab = new byte[3][width * height];
+
+        PixelPlanes bands = srgbBands(img);
+        int[] argb = (bands == null) ? PixelPlanes.argbPixels(img) : null;
+
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            int begin = width * y0;
+            int end = width * y1;
+            if (bands != null) {
+                byte[] r = bands.bytePlane(0);
+                byte[] g = bands.bytePlane(1);
+                byte[] b = bands.bytePlane(2);
+                for (int i = begin; i < end; ++i) {
+                    convertPixel(r[i] & 0xFF, g[i] & 0xFF, b[i] & 0xFF, lab, i);
+                }
+            } else {
+                for (int i = begin; i < end; ++i) {
+                    int c = argb[i];
+                    convertPixel((c >> 16) & 0xFF, (c >> 8) & 0xFF, c & 0xFF, lab, i);
+                }
+            }
+        });
+        return PixelPlanes.ofBytes(width, height, lab);
+    }
+
+    /**
+     * Return the first three bands of `img` if they are its 8-bit sRGB red, green, and blue
+     * components (as for all standard non-indexed color image types), or null otherwise.
+     */
+    private static PixelPlanes srgbBands(BufferedImage img) {
+        ColorModel cm = img.getColorModel();
+        if (cm instanceof IndexColorModel || !cm.getColorSpace().isCS_sRGB()
+                || cm.getNumColorComponents() != 3) {
+            return null;
+        }
+        PixelPlanes planes = PixelPlanes.of(img.getRaster(), 3);
+        return planes.isByte() ? planes : null;
+    }
+
+    /**
+     * Store the quantized Lab coordinates of the sRGB color (`r`, `g`, `b`) at index `i` of the
+     * planes `lab`.
+     */
+    private static void convertPixel(int r, int g, int b, byte[][] lab, int i) {
+        float lr = SRGB_TO_LINEAR[r];
+        float lg = SRGB_TO_LINEAR[g];
+        float lb = SRGB_TO_LINEAR[b];
+
+        // Linear sRGB to XYZ, normalized by the D65 white point
+        float x = (0.4124564f * lr + 0.3575761f * lg + 0.1804375f * lb) * (1 / 0.95047f);
+        float y = 0.2126729f * lr + 0.7151522f * lg + 0.0721750f * lb;
+        float z = (0.0193339f * lr + 0.1191920f * lg + 0.9503041f * lb) * (1 / 1.08883f);
+
+        float fx = labF(x);
+        float fy = labF(y);
+        float fz = labF(z);
+        lab[0][i] = quantize((116 * fy - 16) * SCALE);
+        lab[1][i] = quantize(128 + 500 * (fx - fy) * SCALE);
+        lab[2][i] = quantize(128 + 200 * (fy - fz) * SCALE);
+    }
+
+    /**
+     * Return the Lab transfer function at `t`, interpolated from `LAB_F`.  Requires `t` is in
+     * `[0..1]` up to rounding error.
+     */
+    private static float labF(float t) {
+        float pos = Math.max(0, Math.min(1, t)) * CUBE_ROOT_STEPS;
+        int i = (int) pos;
+        float frac = pos - i;
+        return LAB_F[i] + frac * (LAB_F[i + 1] - LAB_F[i]);
+    }
+
+    /**
+     * Return `v` rounded and clamped to an unsigned byte.
+     */
+    private static byte quantize(float v) {
+        return (byte) (int) (Math.max(0, Math.min(255, v)) + 0.5f);
+    }
+}
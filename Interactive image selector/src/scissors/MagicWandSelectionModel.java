@@ -0,0 +1,123 @@
+package scissors;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import selector.PixelPlanes;
+import selector.SelectionModel;
+
+/**
+ * Models a "magic wand" selection tool: clicking selects the connected region of pixels whose
+ * colors are within a tolerance of the clicked pixel's color (see `WandRegions`), or, in global
+ * mode, every such region in the image, joined into one selection path.  Clicking again replaces
+ * the selection, and undoing clears it.  The selection is traced along the cracks around exactly
+ * the selected pixels, so holes are excluded; in global mode, matching regions within them are
+ * selected too.
+ */
+public class MagicWandSelectionModel extends RegionSelectionModel {
+
+    /**
+     * Initial tolerance, as the largest difference allowed in any band.
+     */
+    public static final int DEFAULT_TOLERANCE = 32;
+
+    /**
+     * Regions in global mode with fewer pixels than this, other than the one clicked, are left out
+     * of the selection as speckles.
+     */
+    private static final int MIN_REGION_AREA = 9;
+
+    /**
+     * Largest difference from the clicked pixel's samples allowed in any band of a selected pixel.
+     */
+    private int tolerance = DEFAULT_TOLERANCE;
+
+    /**
+     * Whether clicking selects all matching regions rather than only the one clicked.
+     */
+    private boolean global;
+
+    /**
+     * The samples of the current image (null if inherited `img` is null).
+     */
+    private PixelPlanes planes;
+
+    /**
+     * See `SelectionModel` for interpretation of `notifyOnEdt`.
+     */
+    public MagicWandSelectionModel(boolean notifyOnEdt) {
+        super(notifyOnEdt);
+    }
+
+    /**
+     * Create a model initialized to represent the same selection of the same image as `copy` (but
+     * without copying any listeners from `copy`).  See `SelectionModel` for thread restrictions.
+     */
+    public MagicWandSelectionModel(SelectionModel copy) {
+        super(copy);
+        if (image() != null) {
+            planes = PixelPlanes.of(image());
+        }
+    }
+
+    @Override
+    public void setImage(BufferedImage img) {
+        super.setImage(img);
+        planes = (img != null) ? PixelPlanes.of(img) : null;
+    }
+
+    /**
+     * Return the largest difference from the clicked pixel's samples allowed in any band of a
+     * selected pixel.
+     */
+    public int tolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the largest difference from the clicked pixel's samples allowed in any band of a pixel
+     * selected by later clicks to `tolerance`.  Throws IllegalArgumentException if `tolerance` is
+     * negative.
+     */
+    public void setTolerance(int tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Invalid tolerance: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Return whether clicking selects all matching regions rather than only the one clicked.
+     */
+    public boolean isGlobal() {
+        return global;
+    }
+
+    /**
+     * Set whether later clicks select all matching regions rather than only the one clicked.
+     */
+    public void setGlobal(boolean global) {
+        this.global = global;
+    }
+
+    /**
+     * Replace our selection with the region matching the pixel at `p` (or all of them, in global
+     * mode).
+     */
+    @Override
+    protected void selectRegionAt(Point p) {
+        WandRegions regions = new WandRegions(planes, p, tolerance);
+        setTracedSelection(global ? regions.allRegions(MIN_REGION_AREA) : regions.seedRegion());
+    }
+
+    /**
+     * Clear a selection made by clicking; otherwise, remove the last segment as usual.
+     */
+    @Override
+    protected void undoPoint() {
+        if (canExtendSelection()) {
+            reset();
+        } else {
+            super.undoPoint();
+        }
+    }
+}
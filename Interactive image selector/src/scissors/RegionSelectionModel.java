@@ -0,0 +1,142 @@
+package scissors;
+
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.util.ListIterator;
+import selector.PolyLine;
+import selector.SelectionMask;
+import selector.SelectionModel;
+
+/**
+ * Models a selection tool that selects whole regions of an image by clicking inside them, rather
+ * than by tracing their boundaries.  Subclasses determine which pixels a click selects; the
+ * selection path is traced along the cracks around a mask of them, so it rasterizes back to
+ * exactly those pixels and can be saved, filled, and deleted like any other.  Clicking while a
+ * traced selection is finished lets subclasses change it.
+ * <p>
+ * A selection that was still in progress when a model was created from another one is continued
+ * with straight lines, as by `PointToPointSelectionModel`.
+ */
+public abstract class RegionSelectionModel extends SelectionModel {
+
+    /**
+     * Whether our current selection was traced from regions (false if there is no selection).
+     */
+    private boolean traced;
+
+    /**
+     * See `SelectionModel` for interpretation of `notifyOnEdt`.
+     */
+    protected RegionSelectionModel(boolean notifyOnEdt) {
+        super(notifyOnEdt);
+    }
+
+    /**
+     * Initialize this model to represent the same selection of the same image as `copy`.  See
+     * `SelectionModel` for restrictions.
+     */
+    protected RegionSelectionModel(SelectionModel copy) {
+        super(copy);
+    }
+
+    /**
+     * Return whether our selection was traced from regions, in which case clicks may change it.
+     */
+    @Override
+    public boolean canExtendSelection() {
+        return traced;
+    }
+
+    /**
+     * If the selection is in progress, append a straight line segment to `p`.  Otherwise, let our
+     * subclass select the region at `p` (see `selectRegionAt()`).  Listeners will be notified if
+     * the "state" or "selection" properties are changed.  Throws an IllegalStateException if a
+     * selection that was not traced from regions is already finished.
+     */
+    @Override
+    public void addPoint(Point p) {
+        if (state() == SELECTING) {
+            super.addPoint(p);
+        } else if (state() == SELECTED && !traced) {
+            throw new IllegalStateException("Cannot add point in state " + state());
+        } else {
+            selectRegionAt(p);
+        }
+    }
+
+    /**
+     * Respond to a click at `p`, which is within the image, when there is no selection or our
+     * selection was traced from regions, typically by calling `setTracedSelection()`.
+     */
+    protected abstract void selectRegionAt(Point p);
+
+    /**
+     * Replace our selection with a path along the cracks around the pixels of `region`, which must
+     * not be empty, holes included (see `SelectionModel.replaceSelection()`), and transition to
+     * the SELECTED state.  The model is not reset first.  Notifies listeners that the "selection"
+     * property has changed.
+     */
+    protected void setTracedSelection(SelectionMask region) {
+        replaceSelection(region);
+        traced = true;
+    }
+
+    @Override
+    public void reset() {
+        traced = false;
+        super.reset();
+    }
+
+    /**
+     * Return a straight line segment from our last point to `p`.
+     */
+    @Override
+    public PolyLine liveWire(Point p) {
+        return new PolyLine(lastPoint(), p);
+    }
+
+    /**
+     * Append a straight line segment to the current selection path connecting its end with `p`.
+     */
+    @Override
+    protected void appendToSelection(Point p) {
+        selection.add(new PolyLine(lastPoint(), p));
+    }
+
+    /**
+     * Move the starting point of the segment of our selection with index `index` to `newPos`,
+     * keeping the rest of the path: the first point of that segment and the last point of the
+     * previous segment (wrapping around) are replaced with `newPos`.  Tracing the selection again
+     * discards moves.  Notify listeners that the "selection" property has changed.
+     */
+    @Override
+    public void movePoint(int index, Point newPos) {
+        if (state() != SELECTED) {
+            throw new IllegalStateException("May not move point in state " + state());
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        ListIterator<PolyLine> it = selection.listIterator(index + 1);
+        it.set(withPoint(it.previous(), 0, newPos));
+        if (!it.hasPrevious()) {
+            it = selection.listIterator(selection.size());
+            start = new Point(newPos);
+        }
+        PolyLine before = it.previous();
+        it.set(withPoint(before, before.size() - 1, newPos));
+        propSupport.firePropertyChange("selection", null, selection());
+    }
+
+    /**
+     * Return a copy of `line` whose point with index `k` is replaced by `p`.
+     */
+    private static PolyLine withPoint(PolyLine line, int k, Point p) {
+        int[] xs = line.xs().clone();
+        int[] ys = line.ys().clone();
+        xs[k] = p.x;
+        ys[k] = p.y;
+        return new PolyLine(xs, ys);
+    }
+}
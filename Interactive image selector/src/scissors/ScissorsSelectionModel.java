@@ -4,17 +4,22 @@ import static selector.SelectionModel.SelectionState.*;
 
 import graph.PathfindingSnapshot;
 import graph.ShortestPaths;
+import graph.Weigher;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import javax.swing.SwingWorker;
 import javax.swing.SwingWorker.StateValue;
+import selector.PixelPlanes;
 import selector.PolyLine;
+import selector.PolyLineBuffer;
 import selector.SelectionModel;
 
 /**
@@ -23,6 +28,11 @@ import selector.SelectionModel;
  */
 public class ScissorsSelectionModel extends SelectionModel {
 
+    /**
+     * Largest supported snap radius (see `setSnapRadius()`).
+     */
+    public static final int MAX_SNAP_RADIUS = SnapTargets.MAX_RADIUS;
+
     /**
      * The graph representation of the current image being rendered and traced (null if inherited
      * `img` is null).
@@ -35,6 +45,28 @@ public class ScissorsSelectionModel extends SelectionModel {
      */
     private String weightName;
 
+    /**
+     * Task that creates the weigher for edges in `graph` from `weightName` (null if `graph` is
+     * null).  Weighers may compute features of the whole image when they are created, so the task
+     * is run by the first solve for the image, on its worker thread; later solves wait for and
+     * share its result, so that any weights it precomputes are reused.
+     */
+    private FutureTask<Weigher<ImageEdge>> weigher;
+
+    /**
+     * Radius of the window around each added point that is searched for a stronger edge to snap
+     * the point to, or 0 if added points are not snapped.  In `[0..MAX_SNAP_RADIUS]`.
+     */
+    private int snapRadius;
+
+    /**
+     * Task that computes the snap targets for the pixels of the current image with our
+     * `snapRadius` (null if there is no image or `snapRadius` is 0).  It is started on a
+     * background thread whenever the image or radius changes, since it filters the whole image;
+     * points are not snapped until it has finished.
+     */
+    private FutureTask<SnapTargets> snapTargets;
+
     /**
      * The shortest paths computed from the last committed point for the current image.  May be null
      * if we are not in the SELECTING state.
@@ -83,6 +115,7 @@ public class ScissorsSelectionModel extends SelectionModel {
         this.weightName = weightName;
         if (image() != null) {
             graph = new ImageGraph(image());
+            weigher = weigherTask(weightName, graph);
         }
         if (state() == SELECTING) {
             findPaths(graph.idAt(lastPoint()));
@@ -116,9 +149,105 @@ public class ScissorsSelectionModel extends SelectionModel {
         //  graph with one that represents the new image.
         if (img != null) {
             graph = new ImageGraph(img);
+            weigher = weigherTask(weightName, graph);
         } else {
             graph = null;
+            weigher = null;
+        }
+        startSnapTargets();
+    }
+
+    /**
+     * Return a task that creates the weigher named `weightName` for the edges of `graph`.
+     */
+    private static FutureTask<Weigher<ImageEdge>> weigherTask(String weightName,
+            ImageGraph graph) {
+        return new FutureTask<>(() -> ScissorsWeights.makeWeigher(weightName, graph));
+    }
+
+    /**
+     * Return the radius within which added points are snapped to the strongest edge, or 0 if
+     * points are not snapped.
+     */
+    public int snapRadius() {
+        return snapRadius;
+    }
+
+    /**
+     * Snap each point added from now on to the pixel with the strongest intensity gradient within
+     * `radius` pixels of it (in each coordinate), so that clicks that narrowly miss an edge land
+     * on it; a radius of 0 disables snapping.  The gradients of the whole image are computed on a
+     * background thread, after which snapping takes constant time; until they are ready, points
+     * are not snapped.  The live wire leads to the snapped point as well.  Throws IllegalArgumentException if `radius` is negative
+     * or greater than `MAX_SNAP_RADIUS`.
+     */
+    public void setSnapRadius(int radius) {
+        if (radius < 0 || radius > MAX_SNAP_RADIUS) {
+            throw new IllegalArgumentException("Invalid snap radius: " + radius);
+        }
+        if (radius != snapRadius) {
+            snapRadius = radius;
+            startSnapTargets();
+        }
+    }
+
+    /**
+     * Cancel the computation of any previous snap targets and, if there is an image and our
+     * `snapRadius` is positive, start computing its snap targets with that radius on a background
+     * thread.
+     */
+    private void startSnapTargets() {
+        if (snapTargets != null) {
+            snapTargets.cancel(false);
+        }
+        if (graph == null || snapRadius == 0) {
+            snapTargets = null;
+            return;
         }
+        PixelPlanes planes = PixelPlanes.of(graph.raster(), graph.raster().getNumBands());
+        int radius = snapRadius;
+        snapTargets = new FutureTask<>(() -> SnapTargets.compute(planes, radius));
+        CompletableFuture.runAsync(snapTargets);
+    }
+
+    /**
+     * Add `p`, snapped to the strongest nearby edge if snapping is enabled (see
+     * `setSnapRadius()`), to the selection.
+     */
+    @Override
+    public void addPoint(Point p) {
+        super.addPoint(snap(p));
+    }
+
+    /**
+     * Return the point that `p` snaps to with our `snapRadius`, or `p` itself if snapping is
+     * disabled, the snap targets are not ready, or `p` is outside of the image.
+     */
+    private Point snap(Point p) {
+        SnapTargets targets = readySnapTargets();
+        if (targets == null || p.x < 0 || p.y < 0 || p.x >= graph.width()
+                || p.y >= graph.height()) {
+            return p;
+        }
+        return targets.snap(p);
+    }
+
+    /**
+     * Return the ID of the vertex that `p`, which must be within the image, snaps to with our
+     * `snapRadius` (or itself, as for `snap()`), without allocating.
+     */
+    private int snappedId(Point p) {
+        SnapTargets targets = readySnapTargets();
+        return (targets == null) ? graph.idAt(p) : targets.snapIndex(p.x, p.y);
+    }
+
+    /**
+     * Return the snap targets of the current image with our `snapRadius`, or null if snapping is
+     * disabled, there is no image, or the targets have not finished computing (or failed to).
+     */
+    SnapTargets readySnapTargets() {
+        return (snapTargets != null && snapTargets.state() == Future.State.SUCCESS)
+                ? snapTargets.resultNow() : null;
     }
 
     @Override
@@ -193,7 +322,9 @@ public class ScissorsSelectionModel extends SelectionModel {
     /**
      * Transition to the PROCESSING state and start solving for shortest paths from the vertex with
      * ID `startId`.  Preserves invariants associated with `worker`, `pendingPaths`, and
-     * `previousState`.
+     * `previousState`.  If our weigher is trainable, the worker first trains it on the current
+     * selection, so the solve uses weights adapted to the most recently committed part of the
+     * boundary.
      */
     private void findPaths(int startId) {
         previousState = state();
@@ -247,17 +378,21 @@ public class ScissorsSelectionModel extends SelectionModel {
 
     /**
      * Returns the "intelligent scissors" shortest path segment connecting our current selection's
-     * endpoint to `p`.
+     * endpoint to `p`, snapped as by `addPoint()`, so that it shows the segment that adding `p`
+     * would append.
      */
     @Override
     public PolyLine liveWire(Point p) {
+        return liveWire(p, new PolyLineBuffer()).toPolyLine();
+    }
 
-        int endPointId = graph.idAt(p);
-
-        List<Integer> pathToPointP = paths.pathTo(endPointId);
-
-        return graph.pathToPolyLine(pathToPointP);
-
+    /**
+     * Fill `buffer` with the same path as `liveWire(p)`, read straight from the shortest paths'
+     * back pointers so that no lists or boxed IDs are built as the mouse moves.
+     */
+    @Override
+    public PolyLineBuffer liveWire(Point p, PolyLineBuffer buffer) {
+        return graph.tracePath(paths, snappedId(p), buffer);
     }
 
     /**
@@ -291,10 +426,21 @@ public class ScissorsSelectionModel extends SelectionModel {
             extends SwingWorker<PathfindingSnapshot, PathfindingSnapshot> {
 
         /**
-         * The shortest-paths solver this worker will use.  After construction, must only be
-         * accessed from the background thread.
+         * Target interval between progress updates, in nanoseconds (about one frame at 60 Hz).
          */
-        private final ShortestPaths<ImageVertex, ImageEdge> pathfinder;
+        private static final long PUBLISH_INTERVAL_NANOS = 16_000_000;
+
+        /**
+         * The graph, weigher task, and selection of our outer model when this worker was created.
+         */
+        private final ImageGraph solveGraph;
+        private final FutureTask<Weigher<ImageEdge>> solveWeigher;
+        private final List<PolyLine> segments;
+
+        /**
+         * ID of the vertex to find shortest paths from.
+         */
+        private final int startId;
 
         /**
          * Construct a worker that, when executed, will find the shortest paths from the vertex with
@@ -302,9 +448,10 @@ public class ScissorsSelectionModel extends SelectionModel {
          * forwarded to our outer model's listeners.  This must be called from the EDT.
          */
         public ShortestPathsWorker(int startId) {
-            pathfinder = new ShortestPaths<>(
-                    graph, ScissorsWeights.makeWeigher(weightName, graph));
-            pathfinder.setStart(startId);
+            solveGraph = graph;
+            solveWeigher = weigher;
+            segments = List.copyOf(selection);
+            this.startId = startId;
 
             // Forward progress property changes to outer model's listeners (as long as we are
             // still the active solver).
@@ -316,28 +463,57 @@ public class ScissorsSelectionModel extends SelectionModel {
         }
 
         /**
-         * Solve for shortest paths and return the results.  Periodically publish progress
-         * percentage and preliminary shortest paths.  It is assumed that this is generally not
-         * called from the EDT.  Returns null if cancelled.
+         * Solve for shortest paths and return the results.  The weigher (if this is the first
+         * solve for the image) and the solver are created here rather than on the EDT, since
+         * creating them may precompute features and weights of the whole image (see
+         * `Weigher.primitiveView()`).  A trainable weigher is trained on our selection first.
+         * Search in time slices of about one display frame, publishing the progress percentage
+         * and preliminary shortest paths after each one.  It is assumed that this is generally
+         * not called from the EDT.  Returns null if cancelled.
          */
         @Override
-        public PathfindingSnapshot doInBackground() {
+        public PathfindingSnapshot doInBackground() throws InterruptedException {
+            solveWeigher.run();
+            Weigher<ImageEdge> w;
+            try {
+                w = solveWeigher.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            ShortestPaths<ImageVertex, ImageEdge> pathfinder;
+            if (w instanceof ScissorsWeights.TrainableWeigher trainable) {
+                // Another solve (such as a cancelled one) may be training the weigher too, and the
+                //  solver takes its weights when created, so train and create it together.
+                synchronized (trainable) {
+                    trainable.train(segments);
+                    pathfinder = new ShortestPaths<>(solveGraph, w);
+                }
+            } else {
+                pathfinder = new ShortestPaths<>(solveGraph, w);
+            }
+            pathfinder.setStart(startId);
+            long budget = PUBLISH_INTERVAL_NANOS;
+            PathfindingSnapshot currentSnapshot = null;
             while (!pathfinder.allPathsFound()) {
-
-                PathfindingSnapshot currentSnapshot = pathfinder.extendSearch(10000);
-
-                int progress = (int) ((double) pathfinder.settledCount() / pathfinder.vertexCount() * 100);
-
-                publish(currentSnapshot);
+                long begin = System.nanoTime();
+                currentSnapshot = pathfinder.extendSearchFor(budget, this::isCancelled);
 
                 if (isCancelled()) {
                     return null;
                 }
 
+                int progress = (int) ((double) pathfinder.settledCount() / pathfinder.vertexCount() * 100);
+                publish(currentSnapshot);
                 setProgress(progress);
+
+                // Taking a snapshot costs time proportional to the image size.  Lengthen the
+                //  slices if necessary so that copying does not dominate searching.
+                long overhead = System.nanoTime() - begin - budget;
+                budget = Math.max(PUBLISH_INTERVAL_NANOS, 2 * overhead);
             }
 
-            return pathfinder.findAllPaths(graph.idAt(lastPoint()));
+            // The last snapshot is complete, since all paths have been found.
+            return currentSnapshot;
         }
 
         /**
@@ -1,11 +1,15 @@
 package scissors;
 
+import graph.Graph;
+import graph.PrimitiveGraph;
 import graph.Weigher;
 import java.awt.image.BandCombineOp;
 import java.awt.image.Raster;
 import java.awt.image.RasterOp;
 import java.util.Arrays;
 import java.util.List;
+import selector.PixelPlanes;
+import selector.PolyLine;
 
 /**
  * Factory for edge weight functions appropriate for use by the Intelligent Scissors algorithm.
@@ -21,6 +25,9 @@ public class ScissorsWeights {
         return switch (weightName) {
             case "CrossGradMono" -> new CrossGradMonoWeight(graph);
             case "CrossGradColor" -> new CrossGradColorWeight(graph);
+            case "CrossGradLab" -> new CrossGradLabWeight(graph);
+            case "MultiFeature" -> new MultiFeatureWeight(graph);
+            case "Adaptive" -> new AdaptiveWeight(graph);
             default -> throw new IllegalArgumentException("Unknown weigher: " + weightName);
         };
     }
@@ -29,10 +36,24 @@ public class ScissorsWeights {
      * Return the names of weight functions that this factory can create.
      */
     static Iterable<String> weightNames() {
-        return List.of("CrossGradMono", "CrossGradColor");
+        return List.of("CrossGradMono", "CrossGradColor", "CrossGradLab", "MultiFeature",
+                "Adaptive");
+    }
+
+    /**
+     * A weigher whose weights adapt to the boundary being traced.
+     */
+    interface TrainableWeigher extends Weigher<ImageEdge> {
+
+        /**
+         * Adapt future weights to the traced boundary `segments` (in order, as in a selection),
+         * which must lie within the weigher's image.  Implementations may train on only the end
+         * of the boundary, nearest the point being traced from.  Solves started after this returns
+         * use the adapted weights; solves already running are unaffected.
+         */
+        void train(List<PolyLine> segments);
     }
 
-    
     /**
      * Return the magnitude of the slope of the image intensity of `img` in band `b` perpendicular
      * to the direction `dir` from the pixel at location (`x`, `y`), multiplied by the distance to
@@ -41,9 +62,9 @@ public class ScissorsWeights {
      * The conventions for `dir` are the same as in `ImageVertex`: it is an integer in [0..8] where
      * 0 points right and 2 points up.
      */
-    static int crossGrad(Raster img, int x, int y, int b, int dir) {
-        int width = img.getWidth();
-        int height = img.getHeight();
+    static int crossGrad(PixelPlanes img, int x, int y, int b, int dir) {
+        int width = img.width();
+        int height = img.height();
 
         // Note: Image boundaries are given slightly less than the maximum value, making it easier
         //  to select subjects that are cut off by the image's border without trying too hard to
@@ -52,21 +73,21 @@ public class ScissorsWeights {
 
         return switch (dir) {
             case 0 -> (y == 0 || y == height - 1) ? borderWeight :
-                    Math.abs((img.getSample(x, y + 1, b) + img.getSample(x + 1, y + 1, b)) -
-                            (img.getSample(x, y - 1, b) + img.getSample(x + 1, y - 1, b))) / 4;
-            case 1 -> Math.abs(img.getSample(x + 1, y, b) - img.getSample(x, y - 1, b));
+                    Math.abs((img.sample(x, y + 1, b) + img.sample(x + 1, y + 1, b)) -
+                            (img.sample(x, y - 1, b) + img.sample(x + 1, y - 1, b))) / 4;
+            case 1 -> Math.abs(img.sample(x + 1, y, b) - img.sample(x, y - 1, b));
             case 2 -> (x == 0 || x == width - 1) ? borderWeight :
-                    Math.abs((img.getSample(x + 1, y - 1, b) + img.getSample(x + 1, y, b)) -
-                            (img.getSample(x - 1, y - 1, b) + img.getSample(x - 1, y, b))) / 4;
-            case 3 -> Math.abs(img.getSample(x, y - 1, b) - img.getSample(x - 1, y, b));
+                    Math.abs((img.sample(x + 1, y - 1, b) + img.sample(x + 1, y, b)) -
+                            (img.sample(x - 1, y - 1, b) + img.sample(x - 1, y, b))) / 4;
+            case 3 -> Math.abs(img.sample(x, y - 1, b) - img.sample(x - 1, y, b));
             case 4 -> (y == 0 || y == height - 1) ? borderWeight :
-                    Math.abs((img.getSample(x, y - 1, b) + img.getSample(x - 1, y - 1, b)) -
-                            (img.getSample(x, y + 1, b) + img.getSample(x - 1, y + 1, b))) / 4;
-            case 5 -> Math.abs(img.getSample(x - 1, y, b) - img.getSample(x, y + 1, b));
+                    Math.abs((img.sample(x, y - 1, b) + img.sample(x - 1, y - 1, b)) -
+                            (img.sample(x, y + 1, b) + img.sample(x - 1, y + 1, b))) / 4;
+            case 5 -> Math.abs(img.sample(x - 1, y, b) - img.sample(x, y + 1, b));
             case 6 -> (x == 0 || x == width - 1) ? borderWeight :
-                    Math.abs((img.getSample(x - 1, y + 1, b) + img.getSample(x - 1, y, b)) -
-                            (img.getSample(x + 1, y + 1, b) + img.getSample(x + 1, y, b))) / 4;
-            case 7 -> Math.abs(img.getSample(x, y + 1, b) - img.getSample(x + 1, y, b));
+                    Math.abs((img.sample(x - 1, y + 1, b) + img.sample(x - 1, y, b)) -
+                            (img.sample(x + 1, y + 1, b) + img.sample(x + 1, y, b))) / 4;
+            case 7 -> Math.abs(img.sample(x, y + 1, b) - img.sample(x + 1, y, b));
             default -> throw new IllegalArgumentException();
         };
     }
@@ -83,9 +104,14 @@ public class ScissorsWeights {
         private ImageGraph graph;
 
         /**
-         * A grayscale copy of the image represented by `graph`.
+         * A grayscale copy of the image represented by `graph` (one band).
          */
-        private Raster grayImage;
+        private PixelPlanes grayImage;
+
+        /**
+         * Precomputed weights of all edges in `graph`, or null if they have not been needed yet.
+         */
+        private WeightPlanes planes;
 
         /**
          * Create a new weigher capable of weighing edges in `graph`.
@@ -105,7 +131,7 @@ public class ScissorsWeights {
             Arrays.fill(avgMatrix[0], weight);
             Arrays.fill(avgMatrix, avgMatrix[0]);
             RasterOp op = new BandCombineOp(avgMatrix, null);
-            grayImage = op.filter(src, null);
+            grayImage = PixelPlanes.of(op.filter(src, null), 1);
         }
 
         @Override
@@ -125,6 +151,22 @@ public class ScissorsWeights {
             //  edge's length, then subtract it from the best possible value.
             return eGradMax - crossGrad(grayImage, x, y, 0, edge.dir());
         }
+
+        /**
+         * Return precomputed weight planes for `graph` if its samples fit in 8 bits.  The planes
+         * are computed on first use, which takes time proportional to the image size, so solvers
+         * should be created off the EDT; this may be called from multiple threads.
+         */
+        @Override
+        public synchronized PrimitiveGraph primitiveView(Graph<?> g) {
+            if (g != graph || !grayImage.isByte()) {
+                return null;
+            }
+            if (planes == null) {
+                planes = WeightPlanes.compute(grayImage, 1);
+            }
+            return planes;
+        }
     }
 
 
@@ -138,14 +180,19 @@ public class ScissorsWeights {
         /**
          * A colored copy of the image represented by `graph`.
          */
-        private Raster colorImage;
+        private PixelPlanes colorImage;
+
+        /**
+         * Precomputed weights of all edges in `graph`, or null if they have not been needed yet.
+         */
+        private WeightPlanes planes;
 
         /**
          * Create new weigher capable of weighing edges in `graph`.
          */
         CrossGradColorWeight(ImageGraph graph) {
             this.graph = graph;
-            this.colorImage = graph.raster();
+            this.colorImage = PixelPlanes.of(graph.raster(), graph.raster().getNumBands());
         }
 
 
@@ -157,11 +204,167 @@ public class ScissorsWeights {
             int eGradMax = ((edge.dir() % 2) == 0) ? 180 : 255;
             int crossGradSum = 0;
 
-            for (int i = 0; i < colorImage.getNumBands(); i++) {
+            for (int i = 0; i < colorImage.bandCount(); i++) {
                 crossGradSum += crossGrad(colorImage, x, y, i, edge.dir());
             }
             return Math.max(0, eGradMax - crossGradSum);
         }
+
+        /**
+         * Return precomputed weight planes for `graph` if its samples fit in 8 bits, computing
+         * them on first use as `CrossGradMonoWeight` does.
+         */
+        @Override
+        public synchronized PrimitiveGraph primitiveView(Graph<?> g) {
+            if (g != graph || !colorImage.isByte()) {
+                return null;
+            }
+            if (planes == null) {
+                planes = WeightPlanes.compute(colorImage, colorImage.bandCount());
+            }
+            return planes;
+        }
+    }
+
+    /**
+     * Weight edges less if they run perpendicular to a large color gradient, measured in the
+     * perceptually uniform CIELAB color space (see `LabPlanes`).  The image is converted once, when
+     * the weigher is created, so edges are weighed from the quantized Lab planes at the same cost
+     * as `CrossGradColorWeight` weighs them from sRGB bands.
+     */
+    static class CrossGradLabWeight implements Weigher<ImageEdge> {
+
+        /**
+         * The graph that the edges to be weighed will come from.
+         */
+        private ImageGraph graph;
+
+        /**
+         * Quantized L, a, and b planes of the image represented by `graph`.
+         */
+        private PixelPlanes labImage;
+
+        /**
+         * Precomputed weights of all edges in `graph`, or null if they have not been needed yet.
+         */
+        private WeightPlanes planes;
+
+        /**
+         * Create a new weigher capable of weighing edges in `graph`.
+         */
+        CrossGradLabWeight(ImageGraph graph) {
+            this.graph = graph;
+            labImage = LabPlanes.convert(graph.image());
+        }
+
+        @Override
+        public int weight(ImageEdge edge) {
+            ImageVertex src = graph.getVertex(edge.startId());
+            int x = src.x();
+            int y = src.y();
+            int eGradMax = ((edge.dir() % 2) == 0) ? 180 : 255;
+            int crossGradSum = 0;
+            for (int i = 0; i < 3; i++) {
+                crossGradSum += crossGrad(labImage, x, y, i, edge.dir());
+            }
+            return Math.max(0, eGradMax - crossGradSum);
+        }
+
+        /**
+         * Return precomputed weight planes for `graph`, computing them on first use as
+         * `CrossGradMonoWeight` does.
+         */
+        @Override
+        public synchronized PrimitiveGraph primitiveView(Graph<?> g) {
+            if (g != graph) {
+                return null;
+            }
+            if (planes == null) {
+                planes = WeightPlanes.compute(labImage, 3);
+            }
+            return planes;
+        }
     }
 
+    /**
+     * Weight edges using the classic intelligent scissors cost, which combines Laplacian
+     * zero-crossings, gradient magnitude, and gradient direction (see `FeaturePlanes`).  The
+     * features are computed for the whole image when the weigher is created.
+     */
+    static class MultiFeatureWeight implements Weigher<ImageEdge> {
+
+        /**
+         * The graph that the edges to be weighed will come from.
+         */
+        private ImageGraph graph;
+
+        /**
+         * Precomputed features of the image represented by `graph`.
+         */
+        private FeaturePlanes features;
+
+        /**
+         * Create a new weigher capable of weighing edges in `graph`.
+         */
+        MultiFeatureWeight(ImageGraph graph) {
+            this.graph = graph;
+            features = new FeaturePlanes(PixelPlanes.of(graph.raster(),
+                    graph.raster().getNumBands()));
+        }
+
+        @Override
+        public int weight(ImageEdge edge) {
+            return features.weight(edge.startId(), edge.endId(), edge.dir());
+        }
+
+        @Override
+        public PrimitiveGraph primitiveView(Graph<?> g) {
+            return (g == graph) ? features : null;
+        }
+    }
+
+    /**
+     * Weight edges using the classic intelligent scissors cost (see `MultiFeatureWeight`), trained
+     * on the fly to prefer edges whose gradient magnitude and intensity resemble those of the most
+     * recently traced part of the boundary.  Features are computed once, when the weigher is
+     * created; training only rebuilds the small cost tables.
+     */
+    static class AdaptiveWeight implements TrainableWeigher {
+
+        /**
+         * The graph that the edges to be weighed will come from.
+         */
+        private ImageGraph graph;
+
+        /**
+         * Precomputed features of the image represented by `graph`, with the costs of the most
+         * recent training.  Replaced (never modified) when retrained, so that a solve that has
+         * obtained it sees consistent costs.
+         */
+        private volatile FeaturePlanes features;
+
+        /**
+         * Create a new weigher capable of weighing edges in `graph`.
+         */
+        AdaptiveWeight(ImageGraph graph) {
+            this.graph = graph;
+            features = new FeaturePlanes(PixelPlanes.of(graph.raster(),
+                    graph.raster().getNumBands()));
+        }
+
+        @Override
+        public void train(List<PolyLine> segments) {
+            features = features.trained(segments);
+        }
+
+        @Override
+        public int weight(ImageEdge edge) {
+            return features.weight(edge.startId(), edge.endId(), edge.dir());
+        }
+
+        @Override
+        public PrimitiveGraph primitiveView(Graph<?> g) {
+            return (g == graph) ? features : null;
+        }
+    }
 }
@@ -0,0 +1,298 @@
+package scissors;
+
+import java.awt.Point;
+import selector.PixelPlanes;
+
+/**
+ * For every pixel of an image, the location of the pixel with the strongest intensity gradient
+ * within a square window centered on it, so that a point clicked near an edge can be snapped onto
+ * the edge in constant time.
+ * <p>
+ * Gradient magnitudes are measured with a Sobel filter on the image's band-summed intensity.  The
+ * window maxima are computed with the van Herk/Gil-Werman algorithm, which takes a constant number
+ * of comparisons per pixel regardless of the window size: the window is separable into a row pass
+ * and a column pass, and each pass splits its line into blocks as long as the window, so that any
+ * window is covered by the suffix maximum of one block and the prefix maximum of the next.  To
+ * find where the maximum is, not just its value, each pixel's magnitude is packed into a key
+ * together with its coordinates modulo 256; since a window is at most 255 pixels across, those
+ * are enough to recover the full coordinates.
+ */
+class SnapTargets {
+
+    /**
+     * Largest supported window radius.
+     */
+    static final int MAX_RADIUS = 127;
+
+    /**
+     * Largest gradient magnitude after scaling, which must leave room in a key for coordinates.
+     */
+    private static final int MAX_MAGNITUDE = (1 << 15) - 1;
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Radius of the window around each pixel that is searched for a stronger gradient.
+     */
+    private final int radius;
+
+    /**
+     * `offsets[x + width*y]` packs the offset (dx, dy) from pixel (x, y) to its snap target as
+     * `(dx + radius) << 8 | (dy + radius)`.
+     */
+    private final short[] offsets;
+
+    private SnapTargets(int width, int height, int radius) {
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+        offsets = new short[width * height];
+    }
+
+    /**
+     * Find the snap targets of all pixels of `img` within a window of radius `radius`.  Throws
+     * IllegalArgumentException if `radius` is not in `[0..MAX_RADIUS]`.
+     */
+    static SnapTargets compute(PixelPlanes img, int radius) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Invalid snap radius: " + radius);
+        }
+        SnapTargets result = new SnapTargets(img.width(), img.height(), radius);
+        int[] keys = new int[result.width * result.height];
+        double maxGradient = Math.sqrt(32) * maxSample(img) * img.bandCount();
+        double scale = (maxGradient > 0) ? MAX_MAGNITUDE / maxGradient : 0;
+        WeightPlanes.parallelRows(result.height, (y0, y1) ->
+                result.computeRowMaxima(img, scale, keys, y0, y1));
+        WeightPlanes.parallelRows(result.width, (x0, x1) ->
+                result.computeColumnMaxima(keys, x0, x1));
+        WeightPlanes.parallelRows(result.height, (y0, y1) -> result.storeOffsets(keys, y0, y1));
+        return result;
+    }
+
+    /**
+     * Return the snap target of the pixel at `p`: the pixel with the strongest gradient within
+     * our radius of `p` (in each coordinate), or `p` itself if no pixel's gradient is stronger than
+     * its own.  Requires `p` is within the image.
+     */
+    Point snap(Point p) {
+        int packed = offsets[p.x + width * p.y];
+        return new Point(p.x + ((packed >> 8) & 0xFF) - radius, p.y + (packed & 0xFF) - radius);
+    }
+
+    /**
+     * Return the index (`x + width * y`) of the snap target of pixel (`x`, `y`), as for `snap()`,
+     * without allocating.  Requires the pixel is within the image.
+     */
+    int snapIndex(int x, int y) {
+        int packed = offsets[x + width * y];
+        return x + ((packed >> 8) & 0xFF) - radius + width * (y + (packed & 0xFF) - radius);
+    }
+
+    /**
+     * Return the radius of the window searched for snap targets.
+     */
+    int radius() {
+        return radius;
+    }
+
+    /**
+     * For each pixel in rows `[y0..y1)`, store its gradient magnitude, multiplied by `scale`, in
+     * `offsets` (to be replaced by `storeOffsets()`) and the key of the strongest pixel in the row
+     * window around it in `keys`.  `scale` must keep magnitudes within `MAX_MAGNITUDE`.
+     */
+    private void computeRowMaxima(PixelPlanes img, double scale, int[] keys, int y0, int y1) {
+        int window = 2 * radius + 1;
+        int[] padded = new int[width + 2 * radius];
+        int[] prefix = new int[padded.length];
+        int[] suffix = new int[padded.length];
+        gradientRows(img, y0, y1, (y, magnitudes) -> {
+            int start = width * y;
+            for (int x = 0; x < width; ++x) {
+                int magnitude = (int) (magnitudes[x] * scale);
+                offsets[start + x] = (short) magnitude;
+                padded[radius + x] = (magnitude << 16) | ((x & 0xFF) << 8) | (y & 0xFF);
+            }
+            for (int j = 0; j < radius; ++j) {
+                padded[j] = -1;
+                padded[radius + width + j] = -1;
+            }
+            for (int blockStart = 0; blockStart < padded.length; blockStart += window) {
+                int blockEnd = Math.min(padded.length, blockStart + window);
+                prefix[blockStart] = padded[blockStart];
+                for (int j = blockStart + 1; j < blockEnd; ++j) {
+                    prefix[j] = Math.max(prefix[j - 1], padded[j]);
+                }
+                suffix[blockEnd - 1] = padded[blockEnd - 1];
+                for (int j = blockEnd - 2; j >= blockStart; --j) {
+                    suffix[j] = Math.max(suffix[j + 1], padded[j]);
+                }
+            }
+            for (int x = 0; x < width; ++x) {
+                keys[start + x] = Math.max(suffix[x], prefix[x + 2 * radius]);
+            }
+        });
+    }
+
+    /**
+     * Replace the keys in columns `[x0..x1)` with the largest key in the column window around
+     * them, completing the window maxima.  Rows are read and written whole (within the columns) so
+     * that memory is accessed sequentially.
+     */
+    private void computeColumnMaxima(int[] keys, int x0, int x1) {
+        int span = x1 - x0;
+        int window = 2 * radius + 1;
+        int lines = height + 2 * radius;
+        // Row `p` of these buffers holds padded row `p - radius` of the columns
+        int[] prefix = new int[lines * span];
+        int[] suffix = new int[lines * span];
+        for (int p = 0; p < lines; ++p) {
+            int y = p - radius;
+            int pos = p * span;
+            if (y < 0 || y >= height) {
+                for (int j = 0; j < span; ++j) {
+                    prefix[pos + j] = -1;
+                }
+            } else {
+                System.arraycopy(keys, x0 + width * y, prefix, pos, span);
+            }
+        }
+        System.arraycopy(prefix, 0, suffix, 0, prefix.length);
+        for (int p = 0; p < lines; ++p) {
+            if (p % window != 0) {
+                int pos = p * span;
+                for (int j = 0; j < span; ++j) {
+                    prefix[pos + j] = Math.max(prefix[pos + j], prefix[pos - span + j]);
+                }
+            }
+        }
+        for (int p = lines - 2; p >= 0; --p) {
+            if (p % window != window - 1) {
+                int pos = p * span;
+                for (int j = 0; j < span; ++j) {
+                    suffix[pos + j] = Math.max(suffix[pos + j], suffix[pos + span + j]);
+                }
+            }
+        }
+        for (int y = 0; y < height; ++y) {
+            int top = y * span;
+            int bottom = (y + 2 * radius) * span;
+            int start = x0 + width * y;
+            for (int j = 0; j < span; ++j) {
+                keys[start + j] = Math.max(suffix[top + j], prefix[bottom + j]);
+            }
+        }
+    }
+
+    /**
+     * Replace the gradient magnitudes in rows `[y0..y1)` of `offsets` with the packed offsets to
+     * the pixels whose keys are given by `keys`, or to the pixels themselves if the window
+     * maximum is no stronger than they are.
+     */
+    private void storeOffsets(int[] keys, int y0, int y1) {
+        short stay = (short) ((radius << 8) | radius);
+        for (int y = y0; y < y1; ++y) {
+            int start = width * y;
+            for (int x = 0; x < width; ++x) {
+                int key = keys[start + x];
+                if ((key >>> 16) <= offsets[start + x]) {
+                    offsets[start + x] = stay;
+                } else {
+                    // The target's coordinates are congruent to those in the key modulo 256 and
+                    //  lie within the window, which is less than 256 pixels across.
+                    int dx = Math.floorMod(((key >> 8) & 0xFF) - (x - radius), 256);
+                    int dy = Math.floorMod((key & 0xFF) - (y - radius), 256);
+                    offsets[start + x] = (short) ((dx << 8) | dy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the Sobel gradient magnitudes of the band-summed intensity of `img` in rows
+     * `[y0..y1)`, treating pixels beyond the border as copies of the nearest pixel inside it, and
+     * pass each row's magnitudes to `visitor` in increasing order of `y`.  The same array is passed
+     * for every row, so `visitor` must not keep it.
+     */
+    static void gradientRows(PixelPlanes img, int y0, int y1, GradientRowVisitor visitor) {
+        int width = img.width();
+        int height = img.height();
+        // `rows` holds the band-summed intensities of rows `y-1`, `y`, and `y+1`, clamped to the
+        //  image.
+        int[][] rows = new int[3][width];
+        sumBands(img, Math.max(0, y0 - 1), rows[1]);
+        sumBands(img, y0, rows[2]);
+        double[] magnitudes = new double[width];
+        for (int y = y0; y < y1; ++y) {
+            int[] oldest = rows[0];
+            rows[0] = rows[1];
+            rows[1] = rows[2];
+            rows[2] = oldest;
+            sumBands(img, Math.min(height - 1, y + 1), rows[2]);
+            int[] up = rows[0];
+            int[] mid = rows[1];
+            int[] down = rows[2];
+            for (int x = 0; x < width; ++x) {
+                int l = Math.max(0, x - 1);
+                int r = Math.min(width - 1, x + 1);
+                int gx = (up[r] + 2 * mid[r] + down[r]) - (up[l] + 2 * mid[l] + down[l]);
+                int gy = (down[l] + 2 * down[x] + down[r]) - (up[l] + 2 * up[x] + up[r]);
+                magnitudes[x] = Math.sqrt((double) gx * gx + (double) gy * gy);
+            }
+            visitor.visit(y, magnitudes);
+        }
+    }
+
+    /**
+     * Store the sum over all bands of the samples of `img` in row `y` in `row`.
+     */
+    private static void sumBands(PixelPlanes img, int y, int[] row) {
+        int width = img.width();
+        int start = width * y;
+        for (int x = 0; x < width; ++x) {
+            row[x] = 0;
+        }
+        for (int b = 0; b < img.bandCount(); ++b) {
+            if (img.isByte()) {
+                byte[] plane = img.bytePlane(b);
+                for (int x = 0; x < width; ++x) {
+                    row[x] += plane[start + x] & 0xFF;
+                }
+            } else {
+                for (int x = 0; x < width; ++x) {
+                    row[x] += img.sample(x, y, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return an upper bound on the samples of `img`: 255 if they are stored as bytes, or else their
+     * largest value.
+     */
+    private static int maxSample(PixelPlanes img) {
+        if (img.isByte()) {
+            return 255;
+        }
+        int max = 0;
+        for (int b = 0; b < img.bandCount(); ++b) {
+            for (int y = 0; y < img.height(); ++y) {
+                for (int x = 0; x < img.width(); ++x) {
+                    max = Math.max(max, img.sample(x, y, b));
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Receives the gradient magnitudes of row `y` from `gradientRows()`.
+     */
+    interface GradientRowVisitor {
+
+        void visit(int y, double[] magnitudes);
+    }
+}
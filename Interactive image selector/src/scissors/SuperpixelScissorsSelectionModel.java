@@ -0,0 +1,418 @@
+package scissors;
+
+import static selector.SelectionModel.SelectionState.*;
+
+import graph.CsrEdge;
+import graph.CsrGraph;
+import graph.CsrVertex;
+import graph.PathfindingSnapshot;
+import graph.ShortestPaths;
+import graph.Weigher;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+import selector.PixelPlanes;
+import selector.PolyLine;
+import selector.PolyLineBuffer;
+import selector.SelectionModel;
+
+/**
+ * Models an "intelligent scissors" selection tool for very large images that traces coarsely on
+ * the boundaries between superpixels (see `Superpixels` and `BoundaryGraph`), which have about
+ * 100 times fewer vertices than the image has pixels, and then refines each committed segment to
+ * pixel accuracy by solving for a shortest path only among the pixels in a narrow band around the
+ * coarse route.  Both solves are small enough to run synchronously on each click; the live wire
+ * shows the coarse route.  Refined segments are weighed by the weight function named by
+ * `weightName`, as in `ScissorsSelectionModel`.
+ * <p>
+ * The superpixels and graphs of each new image are built on a background thread, during which
+ * the model is PROCESSING and reports its progress.  Since no point can be added without them,
+ * this preparation cannot be cancelled.
+ */
+public class SuperpixelScissorsSelectionModel extends SelectionModel {
+
+    /**
+     * Spacing of the superpixel grid, in pixels.
+     */
+    private static final int REGION_SIZE = 14;
+
+    /**
+     * Distance, in pixels, that the refinement band extends on either side of a coarse route.
+     */
+    private static final int BAND_RADIUS = REGION_SIZE / 2;
+
+    /**
+     * Name of the Weigher that determines the weights of edges between neighboring pixels when
+     * refining segments.  Must be recognized by the `ScissorsWeights` factory.
+     */
+    private final String weightName;
+
+    /**
+     * The graph representation of the current image (null if inherited `img` is null).
+     */
+    private ImageGraph graph;
+
+    /**
+     * Weigher for edges in `graph`, created from `weightName` (null if `graph` is null).
+     */
+    private Weigher<ImageEdge> weigher;
+
+    /**
+     * Superpixel boundaries of the current image (null if `graph` is null).
+     */
+    private BoundaryGraph boundaries;
+
+    /**
+     * Shortest paths in `boundaries` from the junction nearest to our last point.  Null if we are
+     * not in the SELECTING state.
+     */
+    private PathfindingSnapshot coarsePaths;
+
+    /**
+     * Marks of the pixels in the refinement band being collected by `bandAround()`, all clear
+     * between refinements (null if `graph` is null).
+     */
+    private BitSet bandMarks;
+
+    /**
+     * The worker preparing our graphs for the current image on a background thread, whose
+     * "progress" events are forwarded to our listeners.  Null unless we are PROCESSING.  Workers
+     * that are no longer our `preparer` do not change this model.
+     */
+    private PreparationWorker preparer;
+
+    /**
+     * The state we will return to once our image is prepared.  Unspecified unless we are
+     * PROCESSING.
+     */
+    private SelectionState previousState;
+
+    /**
+     * Create a model whose refined segments are weighed by the weight function named
+     * `weightName` (as recognized by the `ScissorsWeights` factory).  See `SelectionModel` for
+     * interpretation of `notifyOnEdt`.
+     */
+    public SuperpixelScissorsSelectionModel(String weightName, boolean notifyOnEdt) {
+        super(notifyOnEdt);
+        this.weightName = weightName;
+    }
+
+    /**
+     * Create a model whose refined segments are weighed by the weight function named
+     * `weightName`, initialized to represent the same selection of the same image as `copy` (but
+     * without copying any listeners from `copy`).  See `SelectionModel` for thread restrictions.
+     */
+    public SuperpixelScissorsSelectionModel(String weightName, SelectionModel copy) {
+        super(copy);
+        this.weightName = weightName;
+        if (image() != null) {
+            prepareImage(image());
+        }
+    }
+
+    @Override
+    public void setImage(BufferedImage img) {
+        // Results for the previous image must not be installed
+        preparer = null;
+        graph = null;
+        weigher = null;
+        boundaries = null;
+        bandMarks = null;
+        super.setImage(img);
+        if (img != null) {
+            prepareImage(img);
+        }
+    }
+
+    /**
+     * Transition to the PROCESSING state and start building our graphs and weigher for the image
+     * `img` on a background thread, returning to the current state once they are ready.
+     */
+    private void prepareImage(BufferedImage img) {
+        previousState = state();
+        setState(PROCESSING);
+        preparer = new PreparationWorker(img);
+        preparer.execute();
+    }
+
+    @Override
+    public void reset() {
+        coarsePaths = null;
+        super.reset();
+        if (preparer != null) {
+            // Keep waiting for our image to be prepared, with no selection to return to
+            previousState = NO_SELECTION;
+            setState(PROCESSING);
+        }
+    }
+
+    @Override
+    protected void startSelection(Point start) {
+        // Paths are found before the state changes, so that listeners may query the live wire.
+        coarsePaths = findCoarsePaths(start);
+        super.startSelection(start);
+    }
+
+    @Override
+    protected void undoPoint() {
+        super.undoPoint();
+        if (state() == SELECTING) {
+            coarsePaths = findCoarsePaths(lastPoint());
+        }
+    }
+
+    /**
+     * Append to the current selection the refined path from our selection's endpoint to `p` along
+     * the coarse route through superpixel boundaries.
+     */
+    @Override
+    protected void appendToSelection(Point p) {
+        selection.addLast(refine(coarseRoute(coarsePaths, lastPoint(), p)));
+        coarsePaths = findCoarsePaths(p);
+    }
+
+    /**
+     * Return the coarse route from our selection's endpoint to `p` through superpixel boundaries.
+     */
+    @Override
+    public PolyLine liveWire(Point p) {
+        return coarseRoute(coarsePaths, lastPoint(), p).toPolyLine();
+    }
+
+    /**
+     * Move the starting point of the segment of our selection with index `index` to `newPos`,
+     * replacing it and the previous segment (wrapping around) with refined paths through
+     * `newPos`.  Notify listeners that the "selection" property has changed.
+     */
+    @Override
+    public void movePoint(int index, Point newPos) {
+        if (state() != SELECTED) {
+            throw new IllegalStateException("May not move point in state " + state());
+        }
+        if (index < 0 || index >= selection.size()) {
+            throw new IllegalArgumentException("Invalid segment index " + index);
+        }
+        PathfindingSnapshot paths = findCoarsePaths(newPos);
+
+        ListIterator<PolyLine> it = selection.listIterator(index + 1);
+        PolyLine oldAfter = it.previous();
+        it.set(refine(coarseRoute(paths, newPos, oldAfter.end())));
+        if (!it.hasPrevious()) {
+            it = selection.listIterator(selection.size());
+            start = new Point(newPos);
+        }
+        PolyLine oldBefore = it.previous();
+        // Arcs are symmetric, so the route from the predecessor to `newPos` is the reverse of the
+        //  route from `newPos` to the predecessor.
+        it.set(refine(coarseRoute(paths, newPos, oldBefore.start()).reverse()));
+        propSupport.firePropertyChange("selection", null, selection());
+    }
+
+    /**
+     * Return the shortest paths in `boundaries` from the junction nearest to `p`, or null if
+     * there are no junctions.
+     */
+    private PathfindingSnapshot findCoarsePaths(Point p) {
+        int junction = boundaries.nearestJunction(p);
+        if (junction < 0) {
+            return null;
+        }
+        CsrGraph coarse = boundaries.graph();
+        return new ShortestPaths<>(coarse, coarse.weigher()).findAllPaths(junction);
+    }
+
+    /**
+     * Return a route from `from` to `to` that follows superpixel boundaries: it leads to the
+     * junction nearest to `from`, along the shortest path in `paths` (which must be the paths
+     * from that junction) to the junction nearest to `to`, and then to `to`.  If no such path is
+     * known, the route is a straight line.
+     */
+    private PolyLineBuffer coarseRoute(PathfindingSnapshot paths, Point from, Point to) {
+        PolyLineBuffer route = new PolyLineBuffer();
+        route.append(from);
+        int junction = boundaries.nearestJunction(to);
+        if (paths != null && junction >= 0 && paths.discovered(junction)) {
+            boundaries.appendPath(paths.pathTo(junction), route);
+        }
+        route.append(to);
+        return route;
+    }
+
+    /**
+     * Return the lowest-cost path between the ends of `route` among the pixels within
+     * `BAND_RADIUS` of it.
+     */
+    private PolyLine refine(PolyLineBuffer route) {
+        int[] band = bandAround(route);
+        int width = graph.width();
+
+        // Build the graph of pixels in the band, with vertex IDs given by their indices in `band`
+        int edgeCount = 0;
+        int[] starts = new int[8 * band.length];
+        int[] ends = new int[8 * band.length];
+        int[] weights = new int[8 * band.length];
+        for (int i = 0; i < band.length; ++i) {
+            ImageVertex v = graph.getVertex(band[i]);
+            for (int dir = 0; dir < 8; ++dir) {
+                if (!v.validDir(dir)) {
+                    continue;
+                }
+                int neighborId = v.neighborId(dir);
+                int j = Arrays.binarySearch(band, neighborId);
+                if (j >= 0) {
+                    starts[edgeCount] = i;
+                    ends[edgeCount] = j;
+                    weights[edgeCount] = weigher.weight(new ImageEdge(band[i], neighborId, dir));
+                    edgeCount += 1;
+                }
+            }
+        }
+        CsrGraph local = CsrGraph.fromEdges(band.length, Arrays.copyOf(starts, edgeCount),
+                Arrays.copyOf(ends, edgeCount), Arrays.copyOf(weights, edgeCount));
+
+        Point from = route.start();
+        Point to = route.end();
+        int localFrom = Arrays.binarySearch(band, from.x + width * from.y);
+        int localTo = Arrays.binarySearch(band, to.x + width * to.y);
+        PathfindingSnapshot paths = new ShortestPaths<CsrVertex, CsrEdge>(local, local.weigher())
+                .findAllPaths(localFrom);
+        List<Integer> path = new ArrayList<>();
+        for (int id : paths.pathTo(localTo)) {
+            path.add(band[id]);
+        }
+        return graph.pathToPolyLine(path);
+    }
+
+    /**
+     * Return the sorted IDs of the pixels within `BAND_RADIUS` (in each coordinate) of any point
+     * on the straight lines joining consecutive points of `route`.  The band is connected.
+     */
+    private int[] bandAround(PolyLineBuffer route) {
+        return bandAround(route, BAND_RADIUS, graph.width(), graph.height(), bandMarks);
+    }
+
+    /**
+     * Return the sorted IDs (`x + width * y`) of the pixels of a `width` x `height` image within
+     * `radius` (in each coordinate) of any point on the straight lines joining consecutive points
+     * of `route`.  Each row of the square around each point is marked at once in `marks`, which
+     * must be clear and is left clear, so that the IDs need neither sorting nor deduplication.
+     */
+    static int[] bandAround(PolyLineBuffer route, int radius, int width, int height,
+            BitSet marks) {
+        int[] xs = route.xs();
+        int[] ys = route.ys();
+        int yMin = height;
+        int yMax = -1;
+        for (int k = 0; k < route.size(); ++k) {
+            int x0 = xs[Math.max(0, k - 1)];
+            int y0 = ys[Math.max(0, k - 1)];
+            int steps = Math.max(1, Math.max(Math.abs(xs[k] - x0), Math.abs(ys[k] - y0)));
+            for (int s = 1; s <= steps; ++s) {
+                int cx = x0 + Math.round((float) (xs[k] - x0) * s / steps);
+                int cy = y0 + Math.round((float) (ys[k] - y0) * s / steps);
+                int xBegin = Math.max(0, cx - radius);
+                int xEnd = Math.min(width, cx + radius + 1);
+                int yBegin = Math.max(0, cy - radius);
+                int yEnd = Math.min(height, cy + radius + 1);
+                for (int y = yBegin; y < yEnd; ++y) {
+                    marks.set(xBegin + width * y, xEnd + width * y);
+                }
+                yMin = Math.min(yMin, yBegin);
+                yMax = Math.max(yMax, yEnd - 1);
+            }
+        }
+        if (yMax < yMin) {
+            return new int[0];
+        }
+        int from = width * yMin;
+        int to = width * (yMax + 1);
+        int[] ids = marks.get(from, to).stream().map(i -> i + from).toArray();
+        marks.clear(from, to);
+        return ids;
+    }
+
+    /**
+     * The graphs and weigher of a prepared image.
+     */
+    private record PreparedImage(ImageGraph graph, Weigher<ImageEdge> weigher,
+            BoundaryGraph boundaries) {
+    }
+
+    /**
+     * SwingWorker that builds the graphs and weigher for an image on a background thread,
+     * reporting the progress of its stages, and installs them in our outer model when done (as
+     * long as it is still the model's `preparer`).
+     */
+    private class PreparationWorker extends SwingWorker<PreparedImage, Void> {
+
+        /**
+         * The image to prepare.
+         */
+        private final BufferedImage img;
+
+        /**
+         * Construct a worker that, when executed, will prepare `img`.  "progress" events will be
+         * forwarded to our outer model's listeners.  This must be called from the EDT.
+         */
+        PreparationWorker(BufferedImage img) {
+            this.img = img;
+            addPropertyChangeListener((PropertyChangeEvent evt) -> {
+                if ("progress".equals(evt.getPropertyName()) && preparer == this) {
+                    propSupport.firePropertyChange(evt);
+                }
+            });
+        }
+
+        /**
+         * Build the pixel graph and weigher, then the superpixels and their boundary graph,
+         * which take most of the time.
+         */
+        @Override
+        public PreparedImage doInBackground() {
+            ImageGraph graph = new ImageGraph(img);
+            Weigher<ImageEdge> weigher = ScissorsWeights.makeWeigher(weightName, graph);
+            setProgress(10);
+            PixelPlanes lab = LabPlanes.convert(img);
+            setProgress(20);
+            Superpixels regions = Superpixels.compute(lab, REGION_SIZE);
+            setProgress(80);
+            return new PreparedImage(graph, weigher, new BoundaryGraph(regions, lab));
+        }
+
+        /**
+         * This is executed on the EDT.  If we are still the active worker, install our results
+         * and return our outer model to the state it was in before preparing, finding the coarse
+         * paths from its last point if it was SELECTING.
+         */
+        @Override
+        public void done() {
+            if (preparer != this) {
+                return;
+            }
+            preparer = null;
+            try {
+                PreparedImage prepared = get();
+                graph = prepared.graph();
+                weigher = prepared.weigher();
+                boundaries = prepared.boundaries();
+                bandMarks = new BitSet(graph.width() * graph.height());
+                if (previousState == SELECTING) {
+                    coarsePaths = findCoarsePaths(lastPoint());
+                }
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                // Not possible, since we are done
+            } finally {
+                setState(previousState);
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package scissors;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import selector.PixelPlanes;
+
+/**
+ * A partition of an image into compact regions of similar color ("superpixels"), computed with the
+ * SLIC algorithm of Achanta et al.: cluster centers start on a regular grid with spacing
+ * `regionSize`, and each iteration assigns every pixel to the center among those of the nearest
+ * 3x3 grid cells that minimizes a combined color and spatial distance, then moves each center to
+ * the mean of its pixels.  Finally, fragments that are not connected to their region's main body
+ * are merged into a neighboring region, so that every region is 4-connected.
+ * <p>
+ * Pixels are assigned in parallel across horizontal strips of grid cells (tiles).  A strip's
+ * pixels can only join the centers of its own and its two neighboring strips, so strips three
+ * apart update the centers' sums in parallel without conflicts.
+ */
+class Superpixels {
+
+    /**
+     * Number of assign-and-update iterations.  SLIC's assignments are nearly stable after a few.
+     */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * Relative weight of spatial distance (per grid spacing) to color distance, in units of
+     * quantized Lab steps (see `LabPlanes`).
+     */
+    private static final float COMPACTNESS = 10 * LabPlanes.SCALE;
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Spacing of the initial grid of cluster centers, in pixels.
+     */
+    private final int regionSize;
+
+    /**
+     * `labels[x + width*y]` is the region containing pixel (x, y), in `[0..regionCount)`.
+     */
+    private final int[] labels;
+
+    /**
+     * Number of regions.
+     */
+    private final int regionCount;
+
+    private Superpixels(int width, int height, int regionSize, int[] labels, int regionCount) {
+        this.width = width;
+        this.height = height;
+        this.regionSize = regionSize;
+        this.labels = labels;
+        this.regionCount = regionCount;
+    }
+
+    /**
+     * Partition the image whose quantized Lab planes are `lab` (as produced by `LabPlanes`) into
+     * superpixels roughly `regionSize` pixels across.  Throws IllegalArgumentException if
+     * `regionSize` is less than 2.
+     */
+    static Superpixels compute(PixelPlanes lab, int regionSize) {
+        if (regionSize < 2) {
+            throw new IllegalArgumentException("Invalid superpixel size: " + regionSize);
+        }
+        Clustering clustering = new Clustering(lab, regionSize);
+        for (int i = 0; i < ITERATIONS; ++i) {
+            clustering.assign();
+            clustering.update();
+        }
+        int[] labels = clustering.labels;
+        int regionCount = enforceConnectivity(labels, lab.width(), lab.height(),
+                regionSize * regionSize / 4);
+        return new Superpixels(lab.width(), lab.height(), regionSize, labels, regionCount);
+    }
+
+    /**
+     * Return the width of the image.
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the image.
+     */
+    int height() {
+        return height;
+    }
+
+    /**
+     * Return the spacing of the grid that superpixels were seeded on, in pixels.
+     */
+    int regionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Return the number of superpixels.
+     */
+    int regionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Return the superpixel containing pixel (`x`, `y`), which must be within the image.
+     */
+    int label(int x, int y) {
+        return labels[x + width * y];
+    }
+
+    /**
+     * The state of the SLIC clustering of one image.
+     */
+    private static class Clustering {
+
+        private final PixelPlanes lab;
+        private final int width;
+        private final int height;
+        private final int step;
+
+        /**
+         * Dimensions of the grid of cluster centers.  The center with index `k` was seeded in grid
+         * cell (`k % cols`, `k / cols`) and only ever claims pixels in that cell's 3x3
+         * neighborhood.
+         */
+        private final int cols;
+        private final int rows;
+
+        /**
+         * Color and position of each cluster center.
+         */
+        private final float[] centerL;
+        private final float[] centerA;
+        private final float[] centerB;
+        private final float[] centerX;
+        private final float[] centerY;
+
+        /**
+         * `labels[i]` is the index of the center that the pixel with index `i` is assigned to.
+         */
+        private final int[] labels;
+
+        Clustering(PixelPlanes lab, int step) {
+            this.lab = lab;
+            this.step = step;
+            width = lab.width();
+            height = lab.height();
+            cols = (width + step - 1) / step;
+            rows = (height + step - 1) / step;
+            int k = cols * rows;
+            centerL = new float[k];
+            centerA = new float[k];
+            centerB = new float[k];
+            centerX = new float[k];
+            centerY = new float[k];
+            labels = new int[width * height];
+            for (int gy = 0; gy < rows; ++gy) {
+                for (int gx = 0; gx < cols; ++gx) {
+                    int c = gx + cols * gy;
+                    int x = Math.min(width - 1, gx * step + step / 2);
+                    int y = Math.min(height - 1, gy * step + step / 2);
+                    centerX[c] = x;
+                    centerY[c] = y;
+                    centerL[c] = lab.sample(x, y, 0);
+                    centerA[c] = lab.sample(x, y, 1);
+                    centerB[c] = lab.sample(x, y, 2);
+                }
+            }
+        }
+
+        /**
+         * Assign every pixel to its nearest center, processing strips of grid cells in parallel.
+         */
+        void assign() {
+            float spatialWeight = (COMPACTNESS / step) * (COMPACTNESS / step);
+            byte[] planeL = lab.bytePlane(0);
+            byte[] planeA = lab.bytePlane(1);
+            byte[] planeB = lab.bytePlane(2);
+            IntStream.range(0, rows).parallel().forEach(gy -> {
+                float[] rowL = new float[width];
+                float[] rowA = new float[width];
+                float[] rowB = new float[width];
+                float[] bestDist = new float[step];
+                for (int y = gy * step; y < Math.min(height, (gy + 1) * step); ++y) {
+                    int start = width * y;
+                    for (int x = 0; x < width; ++x) {
+                        rowL[x] = planeL[start + x] & 0xFF;
+                        rowA[x] = planeA[start + x] & 0xFF;
+                        rowB[x] = planeB[start + x] & 0xFF;
+                    }
+                    // Within one grid cell, every pixel considers the same centers, so candidates
+                    //  are compared across the cell's pixels one center at a time.
+                    for (int gx = 0; gx < cols; ++gx) {
+                        int xBegin = gx * step;
+                        int xEnd = Math.min(width, xBegin + step);
+                        Arrays.fill(bestDist, Float.POSITIVE_INFINITY);
+                        for (int cy = Math.max(0, gy - 1); cy < Math.min(rows, gy + 2); ++cy) {
+                            for (int cx = Math.max(0, gx - 1); cx < Math.min(cols, gx + 2); ++cx) {
+                                int c = cx + cols * cy;
+                                float l = centerL[c];
+                                float a = centerA[c];
+                                float b = centerB[c];
+                                float px = centerX[c];
+                                float dy = y - centerY[c];
+                                float rowDist = spatialWeight * dy * dy;
+                                for (int x = xBegin; x < xEnd; ++x) {
+                                    float dl = rowL[x] - l;
+                                    float da = rowA[x] - a;
+                                    float db = rowB[x] - b;
+                                    float dx = x - px;
+                                    float dist = dl * dl + da * da + db * db
+                                            + spatialWeight * dx * dx + rowDist;
+                                    if (dist < bestDist[x - xBegin]) {
+                                        bestDist[x - xBegin] = dist;
+                                        labels[start + x] = c;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        /**
+         * Move every center to the mean color and position of its assigned pixels.  Centers that
+         * lost all of their pixels stay where they are.
+         */
+        void update() {
+            int k = cols * rows;
+            int[] counts = new int[k];
+            long[][] sums = new long[5][k];
+            byte[] planeL = lab.bytePlane(0);
+            byte[] planeA = lab.bytePlane(1);
+            byte[] planeB = lab.bytePlane(2);
+            for (int phase = 0; phase < 3; ++phase) {
+                int first = phase;
+                IntStream.range(0, (rows - first + 2) / 3).parallel().forEach(t -> {
+                    int gy = first + 3 * t;
+                    for (int y = gy * step; y < Math.min(height, (gy + 1) * step); ++y) {
+                        for (int x = 0; x < width; ++x) {
+                            int i = x + width * y;
+                            int c = labels[i];
+                            counts[c] += 1;
+                            sums[0][c] += planeL[i] & 0xFF;
+                            sums[1][c] += planeA[i] & 0xFF;
+                            sums[2][c] += planeB[i] & 0xFF;
+                            sums[3][c] += x;
+                            sums[4][c] += y;
+                        }
+                    }
+                });
+            }
+            for (int c = 0; c < k; ++c) {
+                if (counts[c] > 0) {
+                    float n = counts[c];
+                    centerL[c] = sums[0][c] / n;
+                    centerA[c] = sums[1][c] / n;
+                    centerB[c] = sums[2][c] / n;
+                    centerX[c] = sums[3][c] / n;
+                    centerY[c] = sums[4][c] / n;
+                }
+            }
+        }
+    }
+
+    /**
+     * Relabel the regions of `labels` (for a `width` x `height` image) so that each is 4-connected
+     * and labels are consecutive from 0, returning the number of regions.  Connected fragments of
+     * fewer than `minSize` pixels are merged into the region of a pixel adjacent to their first
+     * pixel in scan order, if there is one.
+     */
+    private static int enforceConnectivity(int[] labels, int width, int height, int minSize) {
+        // Pixels already relabeled hold `-1 - newLabel`, which is negative, while pixels yet to be
+        //  visited hold their (non-negative) old label.
+        int[] fragment = new int[64];
+        int next = 0;
+        for (int start = 0; start < labels.length; ++start) {
+            if (labels[start] < 0) {
+                continue;
+            }
+            int old = labels[start];
+            int sx = start % width;
+            int adjacent = -1;
+            if (sx > 0) {
+                adjacent = -1 - labels[start - 1];
+            } else if (start >= width) {
+                adjacent = -1 - labels[start - width];
+            }
+
+            // Flood fill the fragment containing `start`, using `fragment` as the queue
+            int size = 0;
+            labels[start] = -1 - next;
+            fragment[size++] = start;
+            for (int head = 0; head < size; ++head) {
+                int i = fragment[head];
+                int x = i % width;
+                int y = i / width;
+                for (int dir = 0; dir < 4; ++dir) {
+                    int nx = x + ((dir == 0) ? 1 : (dir == 2) ? -1 : 0);
+                    int ny = y + ((dir == 1) ? -1 : (dir == 3) ? 1 : 0);
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+                    int j = nx + width * ny;
+                    if (labels[j] == old) {
+                        labels[j] = -1 - next;
+                        if (size == fragment.length) {
+                            fragment = Arrays.copyOf(fragment, 2 * size);
+                        }
+                        fragment[size++] = j;
+                    }
+                }
+            }
+
+            if (size < minSize && adjacent >= 0) {
+                for (int f = 0; f < size; ++f) {
+                    labels[fragment[f]] = -1 - adjacent;
+                }
+            } else {
+                next += 1;
+            }
+        }
+        for (int i = 0; i < labels.length; ++i) {
+            labels[i] = -1 - labels[i];
+        }
+        return next;
+    }
+}
@@ -0,0 +1,233 @@
+package scissors;
+
+import java.awt.Point;
+import java.util.Arrays;
+import selector.PixelPlanes;
+import selector.SelectionMask;
+
+/**
+ * The regions of an image whose colors match that of a reference pixel within a tolerance, as
+ * selected by a "magic wand": a pixel matches if each of its samples differs from the reference
+ * pixel's sample in the same band by no more than the tolerance.  Regions are 4-connected sets of
+ * matching pixels.
+ * <p>
+ * The region containing the reference pixel is found by a scanline flood fill, which fills whole
+ * runs of a row at once and only revisits the rows above and below each run.  All regions are
+ * found at once by connected-component labeling with union-find: horizontal strips of rows are
+ * labeled in parallel, the labels are then joined across the boundaries between strips, and
+ * finally every pixel's label is resolved to its region's representative in parallel.  Every
+ * union makes the smaller pixel index the representative, so a region's representative is its
+ * first pixel in scan order.  The labels are rasterized into a `SelectionMask` rather than traced
+ * region by region, so that holes, and matching regions nested inside them, are outlined exactly.
+ */
+class WandRegions {
+
+    /**
+     * The image and its dimensions.
+     */
+    private final PixelPlanes img;
+    private final int width;
+    private final int height;
+
+    /**
+     * The byte planes of `img`, or null if its samples do not fit in bytes.
+     */
+    private final byte[][] bytePlanes;
+
+    /**
+     * The samples of the reference pixel, by band.
+     */
+    private final int[] reference;
+
+    /**
+     * Largest difference from `reference` in any band allowed for a matching pixel.
+     */
+    private final int tolerance;
+
+    /**
+     * Index of the reference pixel.
+     */
+    private final int seed;
+
+    /**
+     * Find the regions of `img` whose colors match that of the pixel at `seed`, which must be
+     * within the image, within `tolerance`.
+     */
+    WandRegions(PixelPlanes img, Point seed, int tolerance) {
+        this.img = img;
+        this.tolerance = tolerance;
+        width = img.width();
+        height = img.height();
+        this.seed = seed.x + width * seed.y;
+        reference = new int[img.bandCount()];
+        for (int b = 0; b < reference.length; ++b) {
+            reference[b] = img.sample(seed.x, seed.y, b);
+        }
+        if (img.isByte()) {
+            bytePlanes = new byte[reference.length][];
+            for (int b = 0; b < reference.length; ++b) {
+                bytePlanes[b] = img.bytePlane(b);
+            }
+        } else {
+            bytePlanes = null;
+        }
+    }
+
+    /**
+     * Return whether the pixel with index `i` matches the reference pixel.
+     */
+    private boolean matches(int i) {
+        for (int b = 0; b < reference.length; ++b) {
+            int sample = (bytePlanes != null) ? bytePlanes[b][i] & 0xFF
+                    : img.sample(i % width, i / width, b);
+            if (Math.abs(sample - reference[b]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the mask of the pixels of the region containing the reference pixel.  The region is
+     * filled in time proportional to its area.
+     */
+    SelectionMask seedRegion() {
+        boolean[] filled = new boolean[width * height];
+        // Each pending pixel is a matching pixel that starts a run in a row adjacent to a filled
+        //  run; its run is filled when it is popped, unless it was already filled from elsewhere.
+        int[] pending = new int[64];
+        int pendingCount = 0;
+        pending[pendingCount++] = seed;
+        while (pendingCount > 0) {
+            int i = pending[--pendingCount];
+            if (filled[i]) {
+                continue;
+            }
+            int rowStart = i - i % width;
+            int left = i;
+            while (left > rowStart && !filled[left - 1] && matches(left - 1)) {
+                left -= 1;
+            }
+            int right = i;
+            while (right < rowStart + width - 1 && !filled[right + 1] && matches(right + 1)) {
+                right += 1;
+            }
+            Arrays.fill(filled, left, right + 1, true);
+
+            for (int offset : new int[]{-width, width}) {
+                if (rowStart + offset < 0 || rowStart + offset >= filled.length) {
+                    continue;
+                }
+                boolean inRun = false;
+                for (int j = left + offset; j <= right + offset; ++j) {
+                    boolean open = !filled[j] && matches(j);
+                    if (open && !inRun) {
+                        if (pendingCount == pending.length) {
+                            pending = Arrays.copyOf(pending, 2 * pendingCount);
+                        }
+                        pending[pendingCount++] = j;
+                    }
+                    inRun = open;
+                }
+            }
+        }
+        return SelectionMask.fromPixels(width, height, j -> filled[j]);
+    }
+
+    /**
+     * Return the mask of all regions, holes and regions nested within them included, omitting
+     * those of fewer than `minArea` pixels except for the region containing the reference pixel.
+     */
+    SelectionMask allRegions(int minArea) {
+        int[] parent = labels();
+        // `area[root]` counts the pixels of the region whose representative is `root`
+        int[] area = new int[parent.length];
+        for (int i = 0; i < parent.length; ++i) {
+            if (parent[i] >= 0) {
+                area[parent[i]] += 1;
+            }
+        }
+        int seedRoot = parent[seed];
+        return SelectionMask.fromPixels(width, height, i -> parent[i] >= 0
+                && (area[parent[i]] >= minArea || parent[i] == seedRoot));
+    }
+
+    /**
+     * Return the region labels of all pixels: element `i` is -1 if pixel `i` does not match, or
+     * else the index of the first pixel in scan order of its region.
+     */
+    int[] labels() {
+        // `parent[i]` is -1 if pixel `i` does not match, or else a pixel of its region with an
+        //  index no greater than `i` (`i` itself if `i` is its region's representative).
+        int[] parent = new int[width * height];
+        WeightPlanes.parallelRows(height, (y0, y1) -> labelStrip(parent, y0, y1));
+        // Join regions across the first row of each strip and the last row of the one above
+        for (int y = WeightPlanes.ROWS_PER_TASK; y < height; y += WeightPlanes.ROWS_PER_TASK) {
+            for (int i = width * y; i < width * (y + 1); ++i) {
+                if (parent[i] >= 0 && parent[i - width] >= 0) {
+                    union(parent, i - width, i);
+                }
+            }
+        }
+        // Concurrent finds only ever replace a parent with one of its ancestors, so they may
+        //  overlap safely.
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            for (int i = width * y0; i < width * y1; ++i) {
+                if (parent[i] >= 0) {
+                    parent[i] = find(parent, i);
+                }
+            }
+        });
+        return parent;
+    }
+
+    /**
+     * Label the pixels in rows `[y0..y1)` in `parent`, joining each matching pixel with its
+     * matching neighbors to the left and above within those rows.
+     */
+    private void labelStrip(int[] parent, int y0, int y1) {
+        for (int y = y0; y < y1; ++y) {
+            int rowStart = width * y;
+            for (int i = rowStart; i < rowStart + width; ++i) {
+                if (!matches(i)) {
+                    parent[i] = -1;
+                    continue;
+                }
+                boolean left = i > rowStart && parent[i - 1] >= 0;
+                // Pixels in a run point to its first pixel
+                parent[i] = left ? parent[i - 1] : i;
+                if (y > y0 && parent[i - width] >= 0) {
+                    // If the pixels to the left and above-left match, the pixel above is already
+                    //  joined to this run through them.
+                    if (!left || parent[i - width - 1] < 0) {
+                        union(parent, i - width, i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the representative of the region of pixel `i` in `parent`, halving the path to it.
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merge the regions of pixels `a` and `b` in `parent`, keeping the smaller representative.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package scissors;
+
+import graph.BucketQueue;
+import java.util.Arrays;
+import selector.PixelPlanes;
+import selector.SelectionMask;
+
+/**
+ * A partition of an image into watershed basins of its intensity gradient, computed by a
+ * priority-flood: pixels are visited in order of increasing gradient, and each one that cannot be
+ * reached from an existing basin without climbing above its own level starts a new basin (it lies
+ * in a regional minimum).  Basins then grow by repeatedly claiming the unlabeled neighbors of
+ * their lowest queued pixel, so that every pixel joins the basin that floods it first.  Gradient
+ * magnitudes are quantized to `LEVELS` levels, so a `BucketQueue` orders the flood in time linear
+ * in the number of pixels; coarse quantization also merges shallow minima, limiting
+ * over-segmentation.  Only the basin labels are kept, from which the mask of any union of basins
+ * can be built without flooding the image again.
+ */
+class Watershed {
+
+    /**
+     * Number of levels that gradient magnitudes are quantized to.
+     */
+    static final int LEVELS = 32;
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * `labels[x + width*y]` is the basin containing pixel (x, y), in `[0..basinCount)`.
+     */
+    private final int[] labels;
+
+    /**
+     * Number of basins.
+     */
+    private final int basinCount;
+
+    private Watershed(int width, int height, int[] labels, int basinCount) {
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.basinCount = basinCount;
+    }
+
+    /**
+     * Partition `img` into the watershed basins of its band-summed intensity gradient.
+     */
+    static Watershed compute(PixelPlanes img) {
+        int width = img.width();
+        byte[] levels = quantizedGradient(img);
+
+        // Counting-sort the pixels by level, so that seeds are visited in increasing order
+        int[] levelStarts = new int[LEVELS + 1];
+        for (byte level : levels) {
+            levelStarts[level + 1] += 1;
+        }
+        for (int l = 0; l < LEVELS; ++l) {
+            levelStarts[l + 1] += levelStarts[l];
+        }
+        int[] order = new int[levels.length];
+        for (int i = 0; i < levels.length; ++i) {
+            order[levelStarts[levels[i]]++] = i;
+        }
+
+        // Pixels are labeled when they are queued, so each is queued exactly once
+        int[] labels = new int[levels.length];
+        Arrays.fill(labels, -1);
+        BucketQueue queue = new BucketQueue(levels.length, LEVELS);
+        int basinCount = 0;
+        for (int seed : order) {
+            if (labels[seed] >= 0) {
+                continue;
+            }
+            flood(queue, labels, levels, width, levels[seed]);
+            if (labels[seed] < 0) {
+                labels[seed] = basinCount++;
+                queue.add(seed, levels[seed]);
+            }
+        }
+        flood(queue, labels, levels, width, LEVELS - 1);
+        return new Watershed(width, img.height(), labels, basinCount);
+    }
+
+    /**
+     * Grow the basins of the pixels in `queue` (of an image `width` pixels wide whose pixels have
+     * gradient levels `levels`), removing queued pixels in order while their priority is no
+     * greater than `maxLevel` and labeling and queueing their unlabeled 4-neighbors.  A neighbor's
+     * priority is its own level or the level of the pixel that claimed it, whichever is higher.
+     */
+    private static void flood(BucketQueue queue, int[] labels, byte[] levels, int width,
+            int maxLevel) {
+        while (!queue.isEmpty() && queue.minPriority() <= maxLevel) {
+            int level = queue.minPriority();
+            int i = queue.remove();
+            int x = i % width;
+            int basin = labels[i];
+            if (x + 1 < width) {
+                claim(queue, labels, levels, i + 1, basin, level);
+            }
+            if (x > 0) {
+                claim(queue, labels, levels, i - 1, basin, level);
+            }
+            if (i + width < labels.length) {
+                claim(queue, labels, levels, i + width, basin, level);
+            }
+            if (i >= width) {
+                claim(queue, labels, levels, i - width, basin, level);
+            }
+        }
+    }
+
+    /**
+     * If pixel `j` is unlabeled, add it to `basin` and queue it at `level` or its own level,
+     * whichever is higher.
+     */
+    private static void claim(BucketQueue queue, int[] labels, byte[] levels, int j, int basin,
+            int level) {
+        if (labels[j] < 0) {
+            labels[j] = basin;
+            queue.add(j, Math.max(level, levels[j]));
+        }
+    }
+
+    /**
+     * Return the Sobel gradient magnitude of the band-summed intensity of each pixel of `img`,
+     * scaled so that the strongest gradient in the image maps to `LEVELS - 1` and rounded down (so
+     * that faint noise falls to level 0 instead of forming minima of its own).
+     */
+    private static byte[] quantizedGradient(PixelPlanes img) {
+        int width = img.width();
+        int height = img.height();
+        float[] magnitudes = new float[width * height];
+        float[] maxMagnitudes = new float[WeightPlanes.taskCount(height)];
+        WeightPlanes.parallelRows(height, (y0, y1) ->
+                SnapTargets.gradientRows(img, y0, y1, (y, row) -> {
+                    float max = maxMagnitudes[y0 / WeightPlanes.ROWS_PER_TASK];
+                    for (int x = 0; x < width; ++x) {
+                        float magnitude = (float) row[x];
+                        magnitudes[x + width * y] = magnitude;
+                        max = Math.max(max, magnitude);
+                    }
+                    maxMagnitudes[y0 / WeightPlanes.ROWS_PER_TASK] = max;
+                }));
+        float max = 0;
+        for (float m : maxMagnitudes) {
+            max = Math.max(max, m);
+        }
+        byte[] levels = new byte[magnitudes.length];
+        float scale = (max > 0) ? (LEVELS - 1) / max : 0;
+        WeightPlanes.parallelRows(height, (y0, y1) -> {
+            for (int i = width * y0; i < width * y1; ++i) {
+                levels[i] = (byte) (magnitudes[i] * scale);
+            }
+        });
+        return levels;
+    }
+
+    /**
+     * Return the width of the image.
+     */
+    int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the image.
+     */
+    int height() {
+        return height;
+    }
+
+    /**
+     * Return the number of basins.
+     */
+    int basinCount() {
+        return basinCount;
+    }
+
+    /**
+     * Return the basin containing pixel (`x`, `y`), which must be within the image.
+     */
+    int basinAt(int x, int y) {
+        return labels[x + width * y];
+    }
+
+    /**
+     * Return the mask of the pixels in the basins `b` for which `selected[b]` is true.
+     */
+    SelectionMask region(boolean[] selected) {
+        return SelectionMask.fromPixels(width, height, i -> selected[labels[i]]);
+    }
+}
@@ -0,0 +1,206 @@
+package scissors;
+
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+import selector.PixelPlanes;
+import selector.SelectionModel;
+
+/**
+ * Models a selection tool that selects whole regions of an image with single clicks.  The image is
+ * partitioned once into the watershed basins of its intensity gradient (see `Watershed`); clicking
+ * selects the basin under the cursor, and each further click merges another basin into the
+ * selection without flooding the image again.  The selection path runs along the cracks around
+ * exactly the pixels of the selected basins, so holes are excluded and basins need not touch.
+ * Undoing removes the most recently merged basin.
+ * <p>
+ * Each new image is flooded on a background thread, during which the model is PROCESSING; since
+ * no basin can be selected without it, flooding cannot be cancelled.  Only the basin labels (4
+ * bytes per pixel) are kept once it finishes.
+ */
+public class WatershedSelectionModel extends RegionSelectionModel {
+
+    /**
+     * Watershed basins of the current image (null if inherited `img` is null).
+     */
+    private Watershed basins;
+
+    /**
+     * The basins merged into the current selection, in the order they were clicked.  Empty unless
+     * our selection was traced from basins.
+     */
+    private final List<Integer> clickedBasins = new ArrayList<>();
+
+    /**
+     * `selectedBasins[b]` is whether basin `b` is in `clickedBasins` (null if `basins` is null).
+     */
+    private boolean[] selectedBasins;
+
+    /**
+     * The worker flooding the current image on a background thread.  Null unless we are
+     * PROCESSING.  Workers that are no longer our `flooder` do not change this model.
+     */
+    private FloodWorker flooder;
+
+    /**
+     * The state we will return to once our image is flooded.  Unspecified unless we are
+     * PROCESSING.
+     */
+    private SelectionState previousState;
+
+    /**
+     * See `SelectionModel` for interpretation of `notifyOnEdt`.
+     */
+    public WatershedSelectionModel(boolean notifyOnEdt) {
+        super(notifyOnEdt);
+    }
+
+    /**
+     * Create a model initialized to represent the same selection of the same image as `copy` (but
+     * without copying any listeners from `copy`).  See `SelectionModel` for thread restrictions.
+     */
+    public WatershedSelectionModel(SelectionModel copy) {
+        super(copy);
+        if (image() != null) {
+            prepareImage(image());
+        }
+    }
+
+    @Override
+    public void setImage(BufferedImage img) {
+        // Basins of the previous image must not be installed
+        flooder = null;
+        basins = null;
+        selectedBasins = null;
+        super.setImage(img);
+        if (img != null) {
+            prepareImage(img);
+        }
+    }
+
+    /**
+     * Transition to the PROCESSING state and start partitioning `img` into basins on a background
+     * thread, returning to the current state once they are ready.
+     */
+    private void prepareImage(BufferedImage img) {
+        previousState = state();
+        setState(PROCESSING);
+        flooder = new FloodWorker(img);
+        flooder.execute();
+    }
+
+    /**
+     * Throws IllegalStateException if our image is still being flooded; otherwise, as for
+     * `RegionSelectionModel`.
+     */
+    @Override
+    public void addPoint(Point p) {
+        if (state() == PROCESSING) {
+            throw new IllegalStateException("Cannot add point in state " + state());
+        }
+        super.addPoint(p);
+    }
+
+    /**
+     * Merge the basin containing `p` into our selection and trace the selection's outline.
+     */
+    @Override
+    protected void selectRegionAt(Point p) {
+        int basin = basins.basinAt(p.x, p.y);
+        if (!selectedBasins[basin]) {
+            selectedBasins[basin] = true;
+            clickedBasins.add(basin);
+            traceSelection();
+        }
+    }
+
+    /**
+     * Replace our selection with a path around the pixels of the selected basins.
+     */
+    private void traceSelection() {
+        setTracedSelection(basins.region(selectedBasins));
+    }
+
+    @Override
+    public void reset() {
+        clickedBasins.clear();
+        if (selectedBasins != null) {
+            Arrays.fill(selectedBasins, false);
+        }
+        super.reset();
+        if (flooder != null) {
+            // Keep waiting for our image to be flooded, with no selection to return to
+            previousState = NO_SELECTION;
+            setState(PROCESSING);
+        }
+    }
+
+    /**
+     * If our selection was traced from basins, un-merge the most recently clicked basin, resetting
+     * the selection if it was the only one.  Otherwise, remove the last segment as usual.
+     */
+    @Override
+    protected void undoPoint() {
+        if (clickedBasins.isEmpty()) {
+            super.undoPoint();
+        } else if (clickedBasins.size() == 1) {
+            reset();
+        } else {
+            selectedBasins[clickedBasins.remove(clickedBasins.size() - 1)] = false;
+            traceSelection();
+        }
+    }
+
+    /**
+     * SwingWorker that partitions an image into basins on a background thread and installs them
+     * in our outer model when done (as long as it is still the model's `flooder`).
+     */
+    private class FloodWorker extends SwingWorker<Watershed, Void> {
+
+        /**
+         * The image to flood.
+         */
+        private final BufferedImage img;
+
+        /**
+         * Construct a worker that, when executed, will flood `img`.  This must be called from the
+         * EDT.
+         */
+        FloodWorker(BufferedImage img) {
+            this.img = img;
+        }
+
+        @Override
+        public Watershed doInBackground() {
+            return Watershed.compute(PixelPlanes.of(img));
+        }
+
+        /**
+         * This is executed on the EDT.  If we are still the active worker, install our basins and
+         * return our outer model to the state it was in before flooding.
+         */
+        @Override
+        public void done() {
+            if (flooder != this) {
+                return;
+            }
+            flooder = null;
+            try {
+                basins = get();
+                selectedBasins = new boolean[basins.basinCount()];
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                // Not possible, since we are done
+            } finally {
+                setState(previousState);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package scissors;
+
+import graph.PrimitiveGraph;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import selector.PixelPlanes;
+
+/**
+ * Precomputed cross-gradient edge weights for every edge of an `ImageGraph`, stored as one byte per
+ * pixel per direction.  Cross-gradient weights are symmetric (the edge leaving pixel `p` in
+ * direction `d + 4` has the same weight as the edge leaving its neighbor in that direction in
+ * direction `d`), so only the four directions `[0..3]` are stored.  Weights are computed a row at a
+ * time with simple array loops that the JIT compiler can vectorize, and rows are processed in
+ * parallel.
+ * <p>
+ * The weights are bit-identical to those of `CrossGradMonoWeight` (given its grayscale image) and
+ * `CrossGradColorWeight`.  Only images whose samples fit in 8 bits (whose `PixelPlanes` are stored
+ * as bytes) are supported, since their weights always fit in a byte.
+ */
+class WeightPlanes implements PrimitiveGraph {
+
+    /**
+     * Number of rows (or columns) processed together by one task of `parallelRows()`.
+     */
+    static final int ROWS_PER_TASK = 64;
+
+    /**
+     * Dimensions of the image whose edges we weigh.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * `planes[d][x + width*y]` is the weight (as an unsigned byte) of the edge leaving pixel
+     * (x, y) in direction `d`, for `d` in [0..3].  Entries for edges that would leave the image are
+     * unspecified.
+     */
+    private final byte[][] planes;
+
+    private WeightPlanes(int width, int height) {
+        this.width = width;
+        this.height = height;
+        planes = new byte[4][width * height];
+    }
+
+    /**
+     * Compute the weights of all edges between pixels of `img` where the cross gradient of each
+     * edge is summed over bands `[0..bandCount)`.  Weights are the same as those of
+     * `CrossGradMonoWeight` if `img` is its grayscale image and `bandCount` is 1, and as those of
+     * `CrossGradColorWeight` if `img` is its color image and `bandCount` is its number of bands.
+     * Requires `img.isByte()`.
+     */
+    static WeightPlanes compute(PixelPlanes img, int bandCount) {
+        WeightPlanes result = new WeightPlanes(img.width(), img.height());
+        parallelRows(result.height, (y0, y1) -> result.computeRows(img, bandCount, y0, y1));
+        return result;
+    }
+
+    /**
+     * Compute our weights for the rows `[yBegin..yEnd)` of `img`.
+     */
+    private void computeRows(PixelPlanes img, int bandCount, int yBegin, int yEnd) {
+        // `rows[b][0..2]` hold the samples of band `b` in rows `y-1`, `y`, and `y+1`, each in the
+        //  form produced by `loadRow()`.
+        int[][][][] rows = new int[bandCount][3][3][width];
+        for (int b = 0; b < bandCount; ++b) {
+            if (yBegin > 0) {
+                loadRow(img, yBegin - 1, b, rows[b][1]);
+            }
+            loadRow(img, yBegin, b, rows[b][2]);
+        }
+        int[][] sums = new int[4][width];
+        for (int y = yBegin; y < yEnd; ++y) {
+            for (int[] sum : sums) {
+                Arrays.fill(sum, 0);
+            }
+            for (int b = 0; b < bandCount; ++b) {
+                // Shift the row window down by one, reusing the oldest buffers for the new row
+                int[][][] window = rows[b];
+                int[][] oldest = window[0];
+                window[0] = window[1];
+                window[1] = window[2];
+                window[2] = oldest;
+                if (y + 1 < height) {
+                    loadRow(img, y + 1, b, window[2]);
+                }
+                accumulateCrossGrad(y, window[0], window[1], window[2], sums);
+            }
+            int row = width * y;
+            storeWeights(sums[0], 180, planes[0], row);
+            storeWeights(sums[1], 255, planes[1], row);
+            storeWeights(sums[2], 180, planes[2], row);
+            storeWeights(sums[3], 255, planes[3], row);
+        }
+    }
+
+    /**
+     * Add the cross gradients of one band for the edges leaving row `y` in directions [0..3] to
+     * `sums`, following `ScissorsWeights.crossGrad()`.  `up`, `mid`, and `down` hold the band's
+     * samples in rows `y-1`, `y`, and `y+1` as produced by `loadRow()`; rows outside the image are
+     * not read.
+     * <p>
+     * Every loop reads all of its arrays at the same index as it writes, since the JIT compiler
+     * will not vectorize loops that mix offsets; neighboring samples are read from the shifted
+     * copies of each row instead.  Absolute differences are non-negative, so they are divided by
+     * 4 with a shift.
+     */
+    private void accumulateCrossGrad(int y, int[][] up, int[][] mid, int[][] down, int[][] sums) {
+        int borderWeight = 180 - 64;
+        int[] s0 = sums[0];
+        int[] s1 = sums[1];
+        int[] s2 = sums[2];
+        int[] s3 = sums[3];
+
+        // Direction 0 (right)
+        if (y == 0 || y == height - 1) {
+            for (int x = 0; x < width; ++x) {
+                s0[x] += borderWeight;
+            }
+        } else {
+            int[] d = down[1];
+            int[] dNext = down[2];
+            int[] u = up[1];
+            int[] uNext = up[2];
+            for (int x = 0; x < width; ++x) {
+                s0[x] += Math.abs((d[x] + dNext[x]) - (u[x] + uNext[x])) >> 2;
+            }
+        }
+
+        if (y > 0) {
+            int[] uPrev = up[0];
+            int[] u = up[1];
+            int[] uNext = up[2];
+            int[] mPrev = mid[0];
+            int[] mNext = mid[2];
+
+            // Direction 1 (up-right)
+            for (int x = 0; x < width; ++x) {
+                s1[x] += Math.abs(mNext[x] - u[x]);
+            }
+
+            // Direction 2 (up); the first and last columns are image borders
+            for (int x = 1; x < width - 1; ++x) {
+                s2[x] += Math.abs((uNext[x] + mNext[x]) - (uPrev[x] + mPrev[x])) >> 2;
+            }
+            s2[0] += borderWeight;
+            if (width > 1) {
+                s2[width - 1] += borderWeight;
+            }
+
+            // Direction 3 (up-left)
+            for (int x = 0; x < width; ++x) {
+                s3[x] += Math.abs(u[x] - mPrev[x]);
+            }
+        }
+    }
+
+    /**
+     * Store the weights `max(0, eGradMax - sums[x])` into `plane[row + x]` for all `x` in
+     * `[0..width)`.
+     */
+    private void storeWeights(int[] sums, int eGradMax, byte[] plane, int row) {
+        for (int x = 0; x < width; ++x) {
+            plane[row + x] = (byte) Math.max(0, eGradMax - sums[x]);
+        }
+    }
+
+    /**
+     * Copy the samples of band `b` in row `y` of `img` into `row[1]`, and copies of them shifted
+     * right and left by one pixel into `row[0]` and `row[2]` (so `row[0][x]` and `row[2][x]` are
+     * the samples at `x-1` and `x+1`).  Samples beyond the row's ends are replaced by the nearest
+     * ones within it; they only affect edges that leave the image.
+     */
+    private static void loadRow(PixelPlanes img, int y, int b, int[][] row) {
+        int width = img.width();
+        byte[] plane = img.bytePlane(b);
+        int[] samples = row[1];
+        int start = width * y;
+        for (int x = 0; x < width; ++x) {
+            samples[x] = plane[start + x] & 0xFF;
+        }
+        System.arraycopy(samples, 0, row[0], 1, width - 1);
+        row[0][0] = samples[0];
+        System.arraycopy(samples, 1, row[2], 0, width - 1);
+        row[2][width - 1] = samples[width - 1];
+    }
+
+    @Override
+    public int vertexCount() {
+        return width * height;
+    }
+
+    /**
+     * Enumerate neighbors in order of increasing direction, as `ImageVertex` does.
+     */
+    @Override
+    public void forEachNeighbor(int id, NeighborConsumer action) {
+        int y = id / width;
+        int x = id - y * width;
+        boolean right = x + 1 < width;
+        boolean left = x > 0;
+        boolean above = y > 0;
+        boolean below = y + 1 < height;
+        if (right) {
+            action.accept(id + 1, planes[0][id] & 0xFF);
+        }
+        if (right && above) {
+            action.accept(id + 1 - width, planes[1][id] & 0xFF);
+        }
+        if (above) {
+            action.accept(id - width, planes[2][id] & 0xFF);
+        }
+        if (left && above) {
+            action.accept(id - 1 - width, planes[3][id] & 0xFF);
+        }
+        if (left) {
+            action.accept(id - 1, planes[0][id - 1] & 0xFF);
+        }
+        if (left && below) {
+            action.accept(id - 1 + width, planes[1][id - 1 + width] & 0xFF);
+        }
+        if (below) {
+            action.accept(id + width, planes[2][id + width] & 0xFF);
+        }
+        if (right && below) {
+            action.accept(id + 1 + width, planes[3][id + 1 + width] & 0xFF);
+        }
+    }
+
+    /**
+     * Return the number of tasks that `parallelRows()` divides `rows` rows into.  The task for
+     * the strip starting at row `begin` is number `begin / ROWS_PER_TASK`, so tasks can store
+     * per-strip results in an array of this length.
+     */
+    static int taskCount(int rows) {
+        return (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+    }
+
+    /**
+     * Run `task` on strips of `ROWS_PER_TASK` of the rows (or columns) `[0..rows)` in parallel.
+     */
+    static void parallelRows(int rows, RowTask task) {
+        IntStream.range(0, taskCount(rows)).parallel().forEach(t ->
+                task.run(t * ROWS_PER_TASK, Math.min(rows, (t + 1) * ROWS_PER_TASK)));
+    }
+
+    /**
+     * Processes a range of rows (or columns) `[begin..end)`.
+     */
+    interface RowTask {
+
+        void run(int begin, int end);
+    }
+}
@@ -0,0 +1,266 @@
+package selector;
+
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the pixels selected by a `SelectionMask`, or the path around them, in compact formats for
+ * tools that want masks rather than images.  Every format is generated straight from the mask's
+ * runs or the path's vertices, without rendering an image:
+ * <ul>
+ *   <li>`PBM`: a binary portable bitmap ("P4") the size of the image, one bit per pixel, with
+ *   selected pixels set, streamed a row at a time.</li>
+ *   <li>`COCO_RLE`: a JSON object `{"size": [height, width], "counts": "..."}` holding the
+ *   compressed run-length string of the COCO dataset tools, whose runs go down each column in
+ *   turn (see `SelectionMask.transpose()`).</li>
+ *   <li>`CHAIN_CODE`: the start of the selection path, "x y" on one line, followed by a line of
+ *   Freeman chain code digits, one per step to an 8-neighbor along the path.</li>
+ * </ul>
+ */
+public class MaskExport {
+
+    /**
+     * Formats in which a selection can be written.
+     */
+    public enum Format {
+        PBM("PBM bitmaps", "pbm"),
+        COCO_RLE("COCO run-length masks", "json"),
+        CHAIN_CODE("Chain code contours", "chain");
+
+        private final String description;
+        private final String extension;
+
+        Format(String description, String extension) {
+            this.description = description;
+            this.extension = extension;
+        }
+
+        /**
+         * Return a description of this format for users.
+         */
+        public String description() {
+            return description;
+        }
+
+        /**
+         * Return the usual extension (without a period) of files in this format.
+         */
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Chain code digit of the step (`dx`, `dy`) is `DIRECTIONS[3 * (dy + 1) + dx + 1]`: 0 is east,
+     * and digits increase counterclockwise as seen on screen (with y pointing down), so 2 is up.
+     */
+    private static final char[] DIRECTIONS = {'3', '2', '1', '4', '?', '0', '5', '6', '7'};
+
+    /**
+     * Write the pixels of an `imageWidth` x `imageHeight` image selected by `mask` to `out` as a
+     * binary PBM bitmap.  `out` is flushed but not closed.
+     */
+    public static void writePbm(SelectionMask mask, int imageWidth, int imageHeight,
+            OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out);
+        buffered.write(("P4\n" + imageWidth + " " + imageHeight + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        byte[] row = new byte[(imageWidth + 7) / 8];
+        for (int py = 0; py < imageHeight; ++py) {
+            Arrays.fill(row, (byte) 0);
+            mask.forEachRunInRow(py, (rowY, xBegin, xEnd) ->
+                    setBits(row, Math.max(xBegin, 0), Math.min(xEnd, imageWidth)));
+            buffered.write(row);
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Set bits `[begin..end)` of `bits`, most significant bit first in each byte.
+     */
+    private static void setBits(byte[] bits, int begin, int end) {
+        if (begin >= end) {
+            return;
+        }
+        int first = begin >> 3;
+        int last = (end - 1) >> 3;
+        int head = 0xFF >> (begin & 7);
+        int tail = 0xFF << (7 - ((end - 1) & 7));
+        if (first == last) {
+            bits[first] |= (byte) (head & tail);
+            return;
+        }
+        bits[first] |= (byte) head;
+        Arrays.fill(bits, first + 1, last, (byte) 0xFF);
+        bits[last] |= (byte) tail;
+    }
+
+    /**
+     * Return the uncompressed COCO run-length counts of the pixels of an `imageWidth` x
+     * `imageHeight` image selected by `mask`: the lengths of alternating runs of unselected and
+     * selected pixels, taking the pixels down each column from left to right and starting with
+     * unselected pixels (so the first count may be 0).
+     */
+    public static long[] cocoCounts(SelectionMask mask, int imageWidth, int imageHeight) {
+        // Columns of the image are the rows of the transpose, whose runs are in COCO's order
+        SelectionMask columns = mask.transpose();
+        CountsBuilder builder = new CountsBuilder(imageHeight);
+        columns.forEachRun(builder);
+        return builder.finish((long) imageWidth * imageHeight);
+    }
+
+    /**
+     * Return the compressed string form of the COCO run-length counts `counts`, as produced by the
+     * COCO tools' `rleToString()`: each count after the second is stored less the count two before
+     * it, as little-endian groups of 5 bits offset into printable characters, with a sixth bit
+     * marking all groups but the last.
+     */
+    public static String cocoString(long[] counts) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < counts.length; ++i) {
+            long x = counts[i];
+            // The COCO tools only difference from the fourth count on, so we must too
+            if (i > 2) {
+                x -= counts[i - 2];
+            }
+            boolean more = true;
+            while (more) {
+                int c = (int) (x & 0x1F);
+                x >>= 5;
+                more = ((c & 0x10) != 0) ? x != -1 : x != 0;
+                if (more) {
+                    c |= 0x20;
+                }
+                s.append((char) (c + 48));
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * Write the pixels of an `imageWidth` x `imageHeight` image selected by `mask` to `out` as a
+     * JSON object holding their compressed COCO run-length encoding.  `out` is flushed but not
+     * closed.
+     */
+    public static void writeCocoRle(SelectionMask mask, int imageWidth, int imageHeight,
+            OutputStream out) throws IOException {
+        String counts = cocoString(cocoCounts(mask, imageWidth, imageHeight));
+        // Backslash is the only character in the string that JSON requires to be escaped
+        String json = "{\"size\": [" + imageHeight + ", " + imageWidth + "], \"counts\": \""
+                + counts.replace("\\", "\\\\") + "\"}\n";
+        out.write(json.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * Write the closed path `segments`, whose last point is its first, to `out` as a chain code.
+     * Straight lines between vertices that are not 8-neighbors are divided into the steps nearest
+     * to them.  `out` is flushed but not closed.  Throws IllegalArgumentException if `segments` is
+     * empty.
+     */
+    public static void writeChainCode(List<PolyLine> segments, OutputStream out)
+            throws IOException {
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Path has no segments");
+        }
+        OutputStream buffered = new BufferedOutputStream(out);
+        Point start = segments.get(0).start();
+        buffered.write((start.x + " " + start.y + "\n").getBytes(StandardCharsets.US_ASCII));
+        int[] xs = new int[64];
+        int[] ys = new int[64];
+        for (PolyLine segment : segments) {
+            if (xs.length < segment.size()) {
+                xs = new int[Math.max(segment.size(), 2 * xs.length)];
+                ys = new int[xs.length];
+            }
+            segment.copyPoints(0, xs, ys, 0);
+            // Each segment starts where the last one ended
+            for (int k = 1; k < segment.size(); ++k) {
+                writeSteps(xs[k - 1], ys[k - 1], xs[k], ys[k], buffered);
+            }
+        }
+        buffered.write('\n');
+        buffered.flush();
+    }
+
+    /**
+     * Write the chain code digits of the steps from (`x0`, `y0`) to (`x1`, `y1`) to `out`, taking
+     * the pixel nearest to the line at each step along its major axis.
+     */
+    private static void writeSteps(int x0, int y0, int x1, int y1, OutputStream out)
+            throws IOException {
+        long dx = x1 - x0;
+        long dy = y1 - y0;
+        long n = Math.max(Math.abs(dx), Math.abs(dy));
+        int x = x0;
+        int y = y0;
+        for (long i = 1; i <= n; ++i) {
+            int nextX = x0 + (int) Math.floorDiv(2 * i * dx + n, 2 * n);
+            int nextY = y0 + (int) Math.floorDiv(2 * i * dy + n, 2 * n);
+            out.write(DIRECTIONS[3 * (nextY - y + 1) + nextX - x + 1]);
+            x = nextX;
+            y = nextY;
+        }
+    }
+
+    /**
+     * Accumulates COCO run-length counts from the runs of selected pixels in each column of an
+     * image, visited in order as the rows of a transposed mask.
+     */
+    private static class CountsBuilder implements SelectionMask.RunVisitor {
+
+        /**
+         * Height of the image, and so the length of each column.
+         */
+        private final int columnLength;
+
+        private long[] counts = new long[16];
+        private int size = 0;
+
+        /**
+         * Index, in COCO's order, of the pixel after the last selected run.
+         */
+        private long position = 0;
+
+        CountsBuilder(int columnLength) {
+            this.columnLength = columnLength;
+        }
+
+        @Override
+        public void visit(int column, int yBegin, int yEnd) {
+            long begin = (long) column * columnLength + yBegin;
+            long end = (long) column * columnLength + yEnd;
+            if (size > 0 && begin == position) {
+                // Continues the previous column's run at the top of this one
+                counts[size - 1] += end - begin;
+            } else {
+                add(begin - position);
+                add(end - begin);
+            }
+            position = end;
+        }
+
+        /**
+         * Return the counts for an image of `pixelCount` pixels, ending with any unselected pixels
+         * after the last run.
+         */
+        long[] finish(long pixelCount) {
+            if (size == 0 || position < pixelCount) {
+                add(pixelCount - position);
+            }
+            return Arrays.copyOf(counts, size);
+        }
+
+        private void add(long count) {
+            if (size == counts.length) {
+                counts = Arrays.copyOf(counts, 2 * counts.length);
+            }
+            counts[size++] = count;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package selector;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.stream.IntStream;
+
+/**
+ * A band-planar copy of the samples of an image's raster.  The samples of band `b` are stored in
+ * their own array in row-major order, so that the sample at (x, y) is at index `x + width*y`.
+ * Images whose samples all fit in 8 bits are stored as unsigned `byte` planes; others are stored
+ * as `int` planes.  Bands are in the order of the raster (not necessarily RGB order), and sample
+ * values are exactly those reported by `Raster.getSample()`.
+ * <p>
+ * Building the planes reads directly from the data buffers of the common byte-interleaved
+ * (`TYPE_3BYTE_BGR`, `TYPE_4BYTE_ABGR`, `TYPE_BYTE_GRAY`) and int-packed (`TYPE_INT_RGB`,
+ * `TYPE_INT_ARGB`, `TYPE_INT_BGR`) layouts; other layouts are read a row at a time through their
+ * raster.  Planes are a snapshot; they do not reflect later changes to the image.
+ */
+public class PixelPlanes {
+
+    /**
+     * Number of rows (or columns) processed together by one task of `parallelRows()`.
+     */
+    static final int ROWS_PER_TASK = 64;
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * `bytePlanes[b]` holds the samples of band `b` as unsigned bytes, or `bytePlanes` is null if
+     * the samples do not fit in 8 bits.
+     */
+    private final byte[][] bytePlanes;
+
+    /**
+     * `intPlanes[b]` holds the samples of band `b`, or `intPlanes` is null if `bytePlanes` is
+     * non-null.
+     */
+    private final int[][] intPlanes;
+
+    private PixelPlanes(int width, int height, byte[][] bytePlanes, int[][] intPlanes) {
+        this.width = width;
+        this.height = height;
+        this.bytePlanes = bytePlanes;
+        this.intPlanes = intPlanes;
+    }
+
+    /**
+     * Copy the samples of all bands of `img` into planes.
+     */
+    public static PixelPlanes of(BufferedImage img) {
+        Raster raster = img.getRaster();
+        return of(raster, raster.getNumBands());
+    }
+
+    /**
+     * Copy the samples of bands `[0..bandCount)` of `raster` into planes.  Throws
+     * IllegalArgumentException if `raster` has fewer than `bandCount` bands.
+     */
+    public static PixelPlanes of(Raster raster, int bandCount) {
+        if (bandCount < 0 || bandCount > raster.getNumBands()) {
+            throw new IllegalArgumentException("Raster has " + raster.getNumBands()
+                    + " bands, not " + bandCount);
+        }
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        boolean fitsInBytes = true;
+        for (int b = 0; b < bandCount; ++b) {
+            fitsInBytes &= raster.getSampleModel().getSampleSize(b) <= 8;
+        }
+
+        if (fitsInBytes) {
+            byte[][] planes = new byte[bandCount][width * height];
+            for (int b = 0; b < bandCount; ++b) {
+                copyBand(raster, b, planes[b]);
+            }
+            return new PixelPlanes(width, height, planes, null);
+        } else {
+            int[][] planes = new int[bandCount][];
+            for (int b = 0; b < bandCount; ++b) {
+                planes[b] = raster.getSamples(raster.getMinX(), raster.getMinY(), width, height,
+                        b, new int[width * height]);
+            }
+            return new PixelPlanes(width, height, null, planes);
+        }
+    }
+
+    /**
+     * Create planes for a `width` x `height` image whose band `b` has the unsigned byte samples
+     * `planes[b]`.  Rep exposure: the new object takes ownership of the argument arrays, so clients
+     * must not mutate them after construction.  Throws IllegalArgumentException if a plane's
+     * length is not `width * height`.
+     */
+    public static PixelPlanes ofBytes(int width, int height, byte[]... planes) {
+        for (byte[] plane : planes) {
+            if (plane.length != width * height) {
+                throw new IllegalArgumentException("Plane length does not match dimensions");
+            }
+        }
+        return new PixelPlanes(width, height, planes, null);
+    }
+
+    /**
+     * Copy the samples of band `b` of `raster`, which must fit in 8 bits, into `plane`.
+     */
+    private static void copyBand(Raster raster, int b, byte[] plane) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        int sx = raster.getMinX() - raster.getSampleModelTranslateX();
+        int sy = raster.getMinY() - raster.getSampleModelTranslateY();
+        if (sm instanceof ComponentSampleModel csm && db instanceof DataBufferByte dbb) {
+            byte[] data = dbb.getData(csm.getBankIndices()[b]);
+            int pixelStride = csm.getPixelStride();
+            int scanlineStride = csm.getScanlineStride();
+            int rowStart = db.getOffsets()[csm.getBankIndices()[b]] + csm.getOffset(sx, sy, b);
+            for (int y = 0; y < height; ++y) {
+                int pos = rowStart;
+                int i = width * y;
+                for (int x = 0; x < width; ++x) {
+                    plane[i + x] = data[pos];
+                    pos += pixelStride;
+                }
+                rowStart += scanlineStride;
+            }
+        } else if (sm instanceof SinglePixelPackedSampleModel spm
+                && db instanceof DataBufferInt dbi) {
+            int[] data = dbi.getData();
+            int mask = spm.getBitMasks()[b];
+            int shift = spm.getBitOffsets()[b];
+            int rowStart = db.getOffset() + spm.getOffset(sx, sy);
+            for (int y = 0; y < height; ++y) {
+                int i = width * y;
+                for (int x = 0; x < width; ++x) {
+                    plane[i + x] = (byte) ((data[rowStart + x] & mask) >>> shift);
+                }
+                rowStart += spm.getScanlineStride();
+            }
+        } else {
+            int[] row = new int[width];
+            for (int y = 0; y < height; ++y) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y, width, 1, b, row);
+                int i = width * y;
+                for (int x = 0; x < width; ++x) {
+                    plane[i + x] = (byte) row[x];
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the width of the image (the number of samples in one row of a plane).
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the image.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the number of bands (planes) copied from the image.
+     */
+    public int bandCount() {
+        return bytePlanes != null ? bytePlanes.length : intPlanes.length;
+    }
+
+    /**
+     * Return whether the planes are stored as unsigned bytes (so `bytePlane()` may be called).
+     */
+    public boolean isByte() {
+        return bytePlanes != null;
+    }
+
+    /**
+     * Return the plane of samples of band `b`, stored as unsigned bytes.  Rep exposure: the
+     * returned array is shared and must not be modified.  Throws IllegalStateException if the
+     * planes are not stored as bytes.
+     */
+    public byte[] bytePlane(int b) {
+        if (bytePlanes == null) {
+            throw new IllegalStateException("Samples do not fit in bytes");
+        }
+        return bytePlanes[b];
+    }
+
+    /**
+     * Return the sample of band `b` at pixel (`x`, `y`).  Requires that the pixel is within the
+     * image and `b` is in `[0..bandCount())`.
+     */
+    public int sample(int x, int y, int b) {
+        int i = x + width * y;
+        return bytePlanes != null ? bytePlanes[b][i] & 0xFF : intPlanes[b][i];
+    }
+
+    /**
+     * Return the pixels of `img` in the default ARGB format (as returned by
+     * `BufferedImage.getRGB()`) in row-major order.  If `img` is a `TYPE_INT_ARGB` image whose
+     * pixels are stored contiguously, its data array is returned directly (so no conversion is
+     * done, and writes to the array change the image); otherwise the pixels are converted into a
+     * new array.
+     */
+    public static int[] argbPixels(BufferedImage img) {
+        int[] direct = directArgb(img);
+        if (direct != null) {
+            return direct;
+        }
+        int width = img.getWidth();
+        return img.getRGB(0, 0, width, img.getHeight(), null, 0, width);
+    }
+
+    /**
+     * Return the data array of `img` if it is a `TYPE_INT_ARGB` image whose pixels are stored
+     * contiguously in row-major order starting at index 0, so that the array's first
+     * `width * height` elements are exactly the values that `getRGB()` and `setRGB()` would read
+     * and write.  Otherwise return null.  Rep
+     * exposure: writes to the returned array change the image.
+     */
+    public static int[] directArgb(BufferedImage img) {
+        if (img.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return null;
+        }
+        Raster raster = img.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel spm)
+                || !(raster.getDataBuffer() instanceof DataBufferInt dbi)
+                || spm.getScanlineStride() != img.getWidth() || dbi.getOffset() != 0
+                || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0) {
+            return null;
+        }
+        return dbi.getData();
+    }
+
+    /**
+     * Run `task` on strips of `ROWS_PER_TASK` of the rows (or columns) `[0..rows)` in parallel.
+     */
+    static void parallelRows(int rows, RowTask task) {
+        int taskCount = (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        IntStream.range(0, taskCount).parallel().forEach(t ->
+                task.run(t * ROWS_PER_TASK, Math.min(rows, (t + 1) * ROWS_PER_TASK)));
+    }
+
+    /**
+     * Processes a range of rows (or columns) `[begin..end)`.
+     */
+    interface RowTask {
+
+        void run(int begin, int end);
+    }
+}
@@ -0,0 +1,348 @@
+package selector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes 8-bit RGBA PNG images whose rows are read from a `RowSource`, filtering and compressing
+ * blocks of rows in parallel.  Each block is filtered independently (its first row's filters read
+ * the last row of the previous block from the source again) and compressed by its own raw deflate
+ * stream, which ends with a sync flush on a byte boundary so that the streams of consecutive
+ * blocks concatenate into one valid zlib stream; the stream's Adler-32 checksum is combined from
+ * those of the blocks.  Each block becomes one IDAT chunk.
+ * <p>
+ * Only a bounded window of blocks is in flight at a time, and finished blocks are written in
+ * order as soon as they are ready, so the memory used beyond the source is independent of the
+ * image's height.
+ */
+public class PngEncoder {
+
+    /**
+     * Target number of uncompressed bytes in each block of rows.
+     */
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    /**
+     * Number of blocks in flight per thread of the common pool.
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    /**
+     * Bytes per pixel (RGBA).
+     */
+    private static final int BPP = 4;
+
+    /**
+     * PNG filter types, which are also the bytes that start filtered rows.
+     */
+    private static final int NONE = 0;
+    private static final int SUB = 1;
+    private static final int UP = 2;
+    private static final int AVERAGE = 3;
+    private static final int PAETH = 4;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * Deflate compression level: level 4 compresses typical photographs nearly as well as the
+     * default level 6, in well under half the time.
+     */
+    private static final int COMPRESSION_LEVEL = 4;
+
+    /**
+     * A zlib header declaring deflate with a 32 KiB window and a fast compression level.
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, 0x5E};
+
+    /**
+     * Modulus of Adler-32 sums.
+     */
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Supplies the rows of an image being encoded.
+     */
+    public interface RowSource {
+
+        /**
+         * Store the non-premultiplied ARGB colors of the pixels in row `y` in `argb`, whose length
+         * is the image's width.  Must be safe to call concurrently for different rows.
+         */
+        void readRow(int y, int[] argb);
+    }
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Number of rows in each block (the last may have fewer).
+     */
+    private final int rowsPerBlock;
+
+    /**
+     * Create an encoder for images that are `width` x `height` pixels.  Throws
+     * IllegalArgumentException if either dimension is not positive or the rows are too wide to
+     * encode.
+     */
+    public PngEncoder(int width, int height) {
+        if (width <= 0 || height <= 0 || width > (Integer.MAX_VALUE - 1) / BPP - 1) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        rowsPerBlock = Math.max(1, BLOCK_BYTES / rowBytes());
+    }
+
+    /**
+     * Return the number of bytes in a filtered row, including its filter type.
+     */
+    private int rowBytes() {
+        return 1 + BPP * width;
+    }
+
+    /**
+     * Write the image whose rows are given by `rows` to `out` as a PNG file.  `progress` is called
+     * with the number of rows written so far after each block, and `cancelled` is checked before
+     * each block is started.  Throws an IOException if writing fails, or a CancellationException if
+     * `cancelled` returned true, in which case `out` holds a truncated image.
+     */
+    public void encode(RowSource rows, WritableByteChannel out, IntConsumer progress,
+            BooleanSupplier cancelled) throws IOException {
+        writeFully(out, ByteBuffer.wrap(SIGNATURE));
+        ByteBuffer header = ByteBuffer.allocate(13);
+        header.putInt(width).putInt(height).put((byte) 8).put((byte) 6)
+                .put((byte) 0).put((byte) 0).put((byte) 0);
+        writeFully(out, chunk("IHDR", header.array(), header.position()));
+
+        int blockCount = (height + rowsPerBlock - 1) / rowsPerBlock;
+        int window = BLOCKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+        ArrayDeque<CompletableFuture<EncodedBlock>> pending = new ArrayDeque<>();
+        int next = 0;
+        long adler = 1;
+        try {
+            for (int written = 0; written < blockCount; ++written) {
+                while (next < blockCount && pending.size() < window) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("PNG encoding cancelled");
+                    }
+                    int block = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> encodeBlock(rows, block)));
+                }
+                EncodedBlock encoded = pending.remove().join();
+                writeFully(out, ByteBuffer.wrap(encoded.chunk()));
+                adler = combineAdler(adler, encoded.adler(), encoded.rawLength());
+                progress.accept(Math.min(height, (written + 1) * rowsPerBlock));
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            for (CompletableFuture<EncodedBlock> future : pending) {
+                future.cancel(false);
+            }
+        }
+
+        byte[] trailer = ByteBuffer.allocate(4).putInt((int) adler).array();
+        writeFully(out, chunk("IDAT", trailer, trailer.length));
+        writeFully(out, chunk("IEND", new byte[0], 0));
+    }
+
+    /**
+     * An IDAT chunk holding the compressed rows of a block, with the Adler-32 checksum and length
+     * of the filtered rows.
+     */
+    private record EncodedBlock(byte[] chunk, long adler, long rawLength) {
+
+    }
+
+    /**
+     * Filter and compress block `block` of the rows from `rows`.
+     */
+    private EncodedBlock encodeBlock(RowSource rows, int block) {
+        int y0 = block * rowsPerBlock;
+        int y1 = Math.min(height, y0 + rowsPerBlock);
+        int rowBytes = rowBytes();
+        byte[] filtered = new byte[(y1 - y0) * rowBytes];
+        int[] argb = new int[width];
+        byte[] previous = new byte[BPP * width];
+        byte[] current = new byte[BPP * width];
+        if (y0 > 0) {
+            rows.readRow(y0 - 1, argb);
+            toRgba(argb, previous);
+        }
+        for (int y = y0; y < y1; ++y) {
+            rows.readRow(y, argb);
+            toRgba(argb, current);
+            filterRow(current, previous, filtered, (y - y0) * rowBytes);
+            byte[] t = previous;
+            previous = current;
+            current = t;
+        }
+        Adler32 adler = new Adler32();
+        adler.update(filtered);
+
+        // Leave room for the chunk's length and type before the data, and its CRC after
+        boolean first = block == 0;
+        boolean last = y1 == height;
+        int headerBytes = first ? ZLIB_HEADER.length : 0;
+        byte[] chunk = new byte[8 + headerBytes + filtered.length + filtered.length / 100 + 64];
+        System.arraycopy(ZLIB_HEADER, 0, chunk, 8, headerBytes);
+        int end = 8 + headerBytes;
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+        try {
+            deflater.setInput(filtered);
+            if (last) {
+                deflater.finish();
+            }
+            while (true) {
+                if (chunk.length - end < 4 + 64) {
+                    chunk = Arrays.copyOf(chunk, 2 * chunk.length);
+                }
+                int space = chunk.length - end - 4;
+                int n = last ? deflater.deflate(chunk, end, space)
+                        : deflater.deflate(chunk, end, space, Deflater.SYNC_FLUSH);
+                end += n;
+                if (last ? deflater.finished() : n < space) {
+                    break;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        buffer.putInt(0, end - 8).put(4, new byte[]{'I', 'D', 'A', 'T'});
+        CRC32 crc = new CRC32();
+        crc.update(chunk, 4, end - 4);
+        buffer.putInt(end, (int) crc.getValue());
+        return new EncodedBlock(Arrays.copyOf(chunk, end + 4), adler.getValue(), filtered.length);
+    }
+
+    /**
+     * Store the RGBA bytes of the ARGB colors `argb` in `rgba`.
+     */
+    private static void toRgba(int[] argb, byte[] rgba) {
+        for (int k = 0; k < argb.length; ++k) {
+            int c = argb[k];
+            rgba[BPP * k] = (byte) (c >> 16);
+            rgba[BPP * k + 1] = (byte) (c >> 8);
+            rgba[BPP * k + 2] = (byte) c;
+            rgba[BPP * k + 3] = (byte) (c >>> 24);
+        }
+    }
+
+    /**
+     * Write the row `current` (whose predecessor is `previous`, all zeros for the first row) to
+     * `dst` at `offset`, preceded by its filter type, choosing the filter whose output has the
+     * smallest sum of absolute values as signed bytes.
+     */
+    private static void filterRow(byte[] current, byte[] previous, byte[] dst, int offset) {
+        long[] sums = new long[5];
+        for (int i = 0; i < current.length; ++i) {
+            int x = current[i] & 0xFF;
+            int a = (i >= BPP) ? current[i - BPP] & 0xFF : 0;
+            int b = previous[i] & 0xFF;
+            int c = (i >= BPP) ? previous[i - BPP] & 0xFF : 0;
+            sums[NONE] += Math.abs((byte) x);
+            sums[SUB] += Math.abs((byte) (x - a));
+            sums[UP] += Math.abs((byte) (x - b));
+            sums[AVERAGE] += Math.abs((byte) (x - ((a + b) >> 1)));
+            sums[PAETH] += Math.abs((byte) (x - paeth(a, b, c)));
+        }
+        int best = NONE;
+        for (int filter = SUB; filter <= PAETH; ++filter) {
+            if (sums[filter] < sums[best]) {
+                best = filter;
+            }
+        }
+        dst[offset] = (byte) best;
+        for (int i = 0; i < current.length; ++i) {
+            dst[offset + 1 + i] = (byte) filtered(best, current, previous, i);
+        }
+    }
+
+    /**
+     * Return byte `i` of row `current` filtered by `filter`, given the previous row `previous`.
+     */
+    private static int filtered(int filter, byte[] current, byte[] previous, int i) {
+        int x = current[i] & 0xFF;
+        int a = (i >= BPP) ? current[i - BPP] & 0xFF : 0;
+        int b = previous[i] & 0xFF;
+        return switch (filter) {
+            case SUB -> x - a;
+            case UP -> x - b;
+            case AVERAGE -> x - ((a + b) >> 1);
+            case PAETH -> x - paeth(a, b, (i >= BPP) ? previous[i - BPP] & 0xFF : 0);
+            default -> x;
+        };
+    }
+
+    /**
+     * Return the Paeth predictor of a byte from its left (`a`), upper (`b`), and upper-left (`c`)
+     * neighbors: whichever is closest to `a + b - c`.
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+    }
+
+    /**
+     * Return the Adler-32 checksum of the concatenation of data whose checksum is `adler1` with
+     * `length2` bytes of data whose checksum is `adler2` (as by zlib's `adler32_combine()`).
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        sum1 %= ADLER_BASE;
+        sum2 %= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Return a buffer holding a chunk of type `type` whose data are the first `length` bytes of
+     * `data`.
+     */
+    private static ByteBuffer chunk(String type, byte[] data, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + length);
+        buffer.putInt(length);
+        for (int k = 0; k < 4; ++k) {
+            buffer.put((byte) type.charAt(k));
+        }
+        buffer.put(data, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, 4 + length);
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Write all of `buffer` to `out`.
+     */
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
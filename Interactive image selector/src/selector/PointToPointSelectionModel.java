@@ -28,6 +28,17 @@ public class PointToPointSelectionModel extends SelectionModel {
         return polyLine;
     }
 
+    /**
+     * Fill `buffer` with the straight line segment from our last point to `p`, without allocating.
+     */
+    @Override
+    public PolyLineBuffer liveWire(Point p, PolyLineBuffer buffer) {
+        buffer.clear();
+        appendLastPoint(buffer);
+        buffer.append(p.x, p.y);
+        return buffer;
+    }
+
     /**
      * Append a straight line segment to the current selection path connecting its end with `p`.
      */
@@ -2,7 +2,10 @@ package selector;
 
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -10,27 +13,89 @@ import java.util.List;
  * immutable, its interface sacrifices some encapsulation in order to be used efficiently for AWT
  * graphics (that is, it does not create defensive copies of arrays), so clients must not modify the
  * contents of arrays returned by instances of this class.
+ * <p>
+ * Paths whose consecutive points are all 8-neighbors, such as those traced through pixels, may be
+ * stored compactly as a chain code (see `compact()`): their starting point followed by a 3-bit
+ * direction for each step, packed into longs.  Their coordinates are decoded on demand.
+ * <p>
+ * For drawing, each poly-line can supply simplified versions of itself (see `simplified()`) from a
+ * Douglas-Peucker hierarchy built the first time one is requested: each inner point's
+ * significance is the distance at which the algorithm would keep it, capped by the significance of
+ * the point that split its span, so the points kept at any tolerance are nested within those kept
+ * at finer ones.  Levels at tolerances doubling from `BASE_TOLERANCE` are stored explicitly.
  */
 public class PolyLine {
 
+    /**
+     * Number of 3-bit step directions packed into each element of `steps`.
+     */
+    private static final int STEPS_PER_WORD = 21;
+
+    /**
+     * Offsets to the neighbor in each step direction, counterclockwise from east as seen on screen
+     * (with y pointing down), as for Freeman chain codes.
+     */
+    private static final int[] STEP_DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] STEP_DY = {0, -1, -1, -1, 0, 1, 1, 1};
+
+    /**
+     * Direction of the step (`dx`, `dy`) is `DIRECTIONS[3 * (dy + 1) + dx + 1]`, or -1 if it is not
+     * a step to a neighbor.
+     */
+    private static final int[] DIRECTIONS = {3, 2, 1, 4, -1, 0, 5, 6, 7};
+
+    /**
+     * Tolerance, in the units of our coordinates, of the finest stored simplification.
+     */
+    public static final double BASE_TOLERANCE = 0.5;
+
     /**
      * Sequence of the x coordinates of the points along this poly-line.  The first element
-     * corresponds to the starting point.  Length must be at least 2.
+     * corresponds to the starting point.  Length must be at least 2.  Null if this poly-line is
+     * stored as a chain code.
      */
     private final int[] xs;
 
     /**
      * Sequence of the y coordinates of the points along this poly-line.  The first element
-     * corresponds to the starting point.  Length must match `xs.length`.
+     * corresponds to the starting point.  Length must match `xs.length`.  Null if this poly-line
+     * is stored as a chain code.
      */
     private final int[] ys;
 
+    /**
+     * Directions of the steps between consecutive points, if this poly-line is stored as a chain
+     * code (else null): step `k` is in bits `[3*j..3*j+3)` of `steps[k / STEPS_PER_WORD]`, where
+     * `j = k % STEPS_PER_WORD`.  Unused bits are 0.
+     */
+    private final long[] steps;
+
+    /**
+     * Number of points, and the coordinates of the first and last ones.
+     */
+    private final int size;
+    private final int startX;
+    private final int startY;
+    private final int endX;
+    private final int endY;
+
+    /**
+     * Bounds of our points, computed when first needed (see `bounds()`).
+     */
+    private volatile Rectangle bounds;
+
+    /**
+     * Simplification levels of this poly-line (see `simplified()`), where `levels[k]` is
+     * simplified at tolerance `BASE_TOLERANCE * 2^k`; empty if nothing can be simplified.
+     * Computed when first needed; races only duplicate work, since the result is immutable.
+     */
+    private volatile PolyLine[] levels;
+
     /**
      * Create a straight line segment starting at `start` and ending at `end`.
      */
     public PolyLine(Point start, Point end) {
-        xs = new int[]{start.x, end.x};
-        ys = new int[]{start.y, end.y};
+        this(new int[]{start.x, end.x}, new int[]{start.y, end.y});
     }
 
     /**
@@ -44,22 +109,112 @@ public class PolyLine {
         assert xs.length == ys.length;
         this.xs = xs;
         this.ys = ys;
+        steps = null;
+        size = xs.length;
+        startX = xs[0];
+        startY = ys[0];
+        endX = xs[size - 1];
+        endY = ys[size - 1];
+    }
+
+    /**
+     * Create a poly-line of `size` points starting at (`startX`, `startY`) and ending at (`endX`,
+     * `endY`), stored as the chain code `steps`.
+     */
+    private PolyLine(int startX, int startY, int endX, int endY, int size, long[] steps) {
+        xs = null;
+        ys = null;
+        this.steps = steps;
+        this.size = size;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
+
+    /**
+     * Return a poly-line through the first `size` points whose coordinates are in `xs` and `ys`,
+     * which must be at least 2.  If each point is an 8-neighbor of the one before it, the
+     * poly-line is stored as a chain code, taking under half a byte per point; otherwise the
+     * coordinates are copied.  The arguments are not retained.
+     */
+    public static PolyLine compact(int[] xs, int[] ys, int size) {
+        assert size >= 2;
+        long[] steps = new long[(size - 1 + STEPS_PER_WORD - 1) / STEPS_PER_WORD];
+        for (int k = 1; k < size; ++k) {
+            int dx = xs[k] - xs[k - 1];
+            int dy = ys[k] - ys[k - 1];
+            int direction = (Math.abs(dx) <= 1 && Math.abs(dy) <= 1)
+                    ? DIRECTIONS[3 * (dy + 1) + dx + 1] : -1;
+            if (direction < 0) {
+                return new PolyLine(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+            }
+            steps[(k - 1) / STEPS_PER_WORD] |=
+                    (long) direction << (3 * ((k - 1) % STEPS_PER_WORD));
+        }
+        return new PolyLine(xs[0], ys[0], xs[size - 1], ys[size - 1], size, steps);
     }
 
     /**
      * Return the sequence of the x coordinates of the points along this poly-line, in start-to-end
-     * order.  Rep exposure: clients must not mutate the contents of the returned array.
+     * order.  Rep exposure: clients must not mutate the contents of the returned array.  If this
+     * poly-line is stored as a chain code, a new array is decoded on every call; prefer
+     * `copyPoints()` when both coordinates are needed.
      */
     public int[] xs() {
-        return xs;
+        if (xs != null) {
+            return xs;
+        }
+        int[] decoded = new int[size];
+        copyPoints(0, decoded, new int[size], 0);
+        return decoded;
     }
 
     /**
      * Return the sequence of the y coordinates of the points along this poly-line, in start-to-end
-     * order.  Rep exposure: clients must not mutate the contents of the returned array.
+     * order.  Rep exposure: clients must not mutate the contents of the returned array.  If this
+     * poly-line is stored as a chain code, a new array is decoded on every call; prefer
+     * `copyPoints()` when both coordinates are needed.
      */
     public int[] ys() {
-        return ys;
+        if (ys != null) {
+            return ys;
+        }
+        int[] decoded = new int[size];
+        copyPoints(0, new int[size], decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Copy the coordinates of the points along this poly-line with indices from `from` to the end
+     * into `dstXs` and `dstYs`, starting at index `offset`.  Requires `0 <= from <= size()` and
+     * that the destinations have room for `size() - from` points.
+     */
+    public void copyPoints(int from, int[] dstXs, int[] dstYs, int offset) {
+        if (steps == null) {
+            System.arraycopy(xs, from, dstXs, offset, size - from);
+            System.arraycopy(ys, from, dstYs, offset, size - from);
+            return;
+        }
+        int x = startX;
+        int y = startY;
+        if (from == 0) {
+            dstXs[offset] = x;
+            dstYs[offset] = y;
+        }
+        int k = 1;
+        for (long word : steps) {
+            for (int j = 0; j < STEPS_PER_WORD && k < size; ++j, ++k) {
+                int direction = (int) (word & 7);
+                word >>>= 3;
+                x += STEP_DX[direction];
+                y += STEP_DY[direction];
+                if (k >= from) {
+                    dstXs[offset + k - from] = x;
+                    dstYs[offset + k - from] = y;
+                }
+            }
+        }
     }
 
     /**
@@ -67,21 +222,197 @@ public class PolyLine {
      * 2.  The number of straight-line segments is therefore `size() - 1`.
      */
     public int size() {
-        return xs.length;
+        return size;
     }
 
     /**
      * Return the first (starting) point along this poly-line.
      */
     public Point start() {
-        return new Point(xs[0], ys[0]);
+        return new Point(startX, startY);
     }
 
     /**
      * Return the last (ending) point along this poly-line.
      */
     public Point end() {
-        return new Point(xs[xs.length - 1], ys[ys.length - 1]);
+        return new Point(endX, endY);
+    }
+
+    /**
+     * Return the x coordinate of our last point, without allocating a `Point`.
+     */
+    public int endX() {
+        return endX;
+    }
+
+    /**
+     * Return the y coordinate of our last point, without allocating a `Point`.
+     */
+    public int endY() {
+        return endY;
+    }
+
+    /**
+     * Return the smallest rectangle containing every point of this poly-line.  Computed on the
+     * first call, in time proportional to our size.
+     */
+    public Rectangle bounds() {
+        Rectangle result = bounds;
+        if (result == null) {
+            int minX = Math.min(startX, endX);
+            int minY = Math.min(startY, endY);
+            int maxX = Math.max(startX, endX);
+            int maxY = Math.max(startY, endY);
+            if (size > 2) {
+                int[] pointXs = xs;
+                int[] pointYs = ys;
+                if (steps != null) {
+                    pointXs = new int[size];
+                    pointYs = new int[size];
+                    copyPoints(0, pointXs, pointYs, 0);
+                }
+                for (int k = 0; k < size; ++k) {
+                    minX = Math.min(minX, pointXs[k]);
+                    minY = Math.min(minY, pointYs[k]);
+                    maxX = Math.max(maxX, pointXs[k]);
+                    maxY = Math.max(maxY, pointYs[k]);
+                }
+            }
+            result = new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+            bounds = result;
+        }
+        return new Rectangle(result);
+    }
+
+    /**
+     * Return the poly-line with the fewest points stored for this one whose points are all within
+     * `tolerance` of it: a subset of our points, including both endpoints, kept by Douglas-Peucker
+     * simplification at the coarsest stored tolerance no greater than `tolerance`.  Returns this
+     * poly-line if `tolerance` is below `BASE_TOLERANCE` or no point can be dropped.  The
+     * simplification hierarchy is built on the first call, in time proportional to our size times
+     * the depth of the Douglas-Peucker recursion: about `n log n` when splits are balanced, but
+     * `n^2` in the worst case, when each split peels off a point next to an end of its span.
+     * Later calls take constant time.
+     */
+    public PolyLine simplified(double tolerance) {
+        PolyLine[] result = levels;
+        if (result == null) {
+            result = simplify();
+            levels = result;
+        }
+        if (!(tolerance >= BASE_TOLERANCE) || result.length == 0) {
+            return this;
+        }
+        int level = Math.getExponent(tolerance / BASE_TOLERANCE);
+        return result[Math.min(level, result.length - 1)];
+    }
+
+    /**
+     * Return the Douglas-Peucker simplification of this poly-line at tolerance
+     * `BASE_TOLERANCE * 2^k` for each level `k`, stopping once only the endpoints remain.  Levels
+     * that keep every point or the same points as the previous level share those poly-lines.
+     */
+    private PolyLine[] simplify() {
+        if (size <= 2) {
+            return new PolyLine[0];
+        }
+        int[] pointXs = new int[size];
+        int[] pointYs = new int[size];
+        copyPoints(0, pointXs, pointYs, 0);
+
+        double[] significance = significances(pointXs, pointYs);
+        List<PolyLine> levels = new ArrayList<>();
+        PolyLine previous = this;
+        int previousCount = size;
+        for (double tolerance = BASE_TOLERANCE; previousCount > 2; tolerance *= 2) {
+            int count = 0;
+            for (int k = 0; k < size; ++k) {
+                if (significance[k] > tolerance) {
+                    count += 1;
+                }
+            }
+            if (count < previousCount) {
+                int[] levelXs = new int[count];
+                int[] levelYs = new int[count];
+                int j = 0;
+                for (int k = 0; k < size; ++k) {
+                    if (significance[k] > tolerance) {
+                        levelXs[j] = pointXs[k];
+                        levelYs[j] = pointYs[k];
+                        j += 1;
+                    }
+                }
+                previous = new PolyLine(levelXs, levelYs);
+                previousCount = count;
+            }
+            levels.add(previous);
+        }
+        return levels.toArray(new PolyLine[0]);
+    }
+
+    /**
+     * Return the Douglas-Peucker significance of each point along the path with coordinates `xs`
+     * and `ys`: infinite for the endpoints, and otherwise the distance from the point to the chord
+     * of the span it splits, capped by the significance of the point that split the enclosing
+     * span.  The path keeps the points whose significance exceeds a tolerance.
+     */
+    private static double[] significances(int[] xs, int[] ys) {
+        int n = xs.length;
+        double[] significance = new double[n];
+        significance[0] = Double.POSITIVE_INFINITY;
+        significance[n - 1] = Double.POSITIVE_INFINITY;
+        // Spans still to split, as their first and last indices and their splitting point's
+        //  significance.
+        int[] spans = new int[2 * n];
+        double[] caps = new double[n];
+        spans[0] = 0;
+        spans[1] = n - 1;
+        caps[0] = Double.POSITIVE_INFINITY;
+        int depth = 1;
+        while (depth > 0) {
+            depth -= 1;
+            int a = spans[2 * depth];
+            int b = spans[2 * depth + 1];
+            double cap = caps[depth];
+            if (b - a < 2) {
+                continue;
+            }
+            int farthest = a + 1;
+            double distance = -1;
+            for (int k = a + 1; k < b; ++k) {
+                double d = distanceToChord(xs, ys, a, b, k);
+                if (d > distance) {
+                    distance = d;
+                    farthest = k;
+                }
+            }
+            double split = Math.min(distance, cap);
+            significance[farthest] = split;
+            spans[2 * depth] = a;
+            spans[2 * depth + 1] = farthest;
+            caps[depth] = split;
+            spans[2 * depth + 2] = farthest;
+            spans[2 * depth + 3] = b;
+            caps[depth + 1] = split;
+            depth += 2;
+        }
+        return significance;
+    }
+
+    /**
+     * Return the distance from point `k` to the line segment from point `a` to point `b` of the
+     * path with coordinates `xs` and `ys`.
+     */
+    private static double distanceToChord(int[] xs, int[] ys, int a, int b, int k) {
+        double dx = xs[b] - xs[a];
+        double dy = ys[b] - ys[a];
+        double px = xs[k] - xs[a];
+        double py = ys[k] - ys[a];
+        double lengthSquared = dx * dx + dy * dy;
+        double t = (lengthSquared > 0) ? Math.min(1, Math.max(0, (px * dx + py * dy)
+                / lengthSquared)) : 0;
+        return Math.hypot(px - t * dx, py - t * dy);
     }
 
     @Override
@@ -90,12 +421,16 @@ public class PolyLine {
             return false;
         }
         PolyLine otherLine = (PolyLine)other;
-        return Arrays.equals(xs, otherLine.xs) && Arrays.equals(ys, otherLine.ys);
+        if (steps != null && otherLine.steps != null) {
+            return size == otherLine.size && startX == otherLine.startX
+                    && startY == otherLine.startY && Arrays.equals(steps, otherLine.steps);
+        }
+        return Arrays.equals(xs(), otherLine.xs()) && Arrays.equals(ys(), otherLine.ys());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(new Object[]{xs, ys});
+        return Arrays.deepHashCode(new Object[]{xs(), ys()});
     }
 
     /**
@@ -123,10 +458,8 @@ public class PolyLine {
 
         for (PolyLine segment : segments) {
             int iStart = segment.start().equals(prevEnd) ? 1 : 0;
-            int nPoints = segment.size() - iStart;
-            System.arraycopy(segment.xs, iStart, xs, size, nPoints);
-            System.arraycopy(segment.ys, iStart, ys, size, nPoints);
-            size += nPoints;
+            segment.copyPoints(iStart, xs, ys, size);
+            size += segment.size() - iStart;
             prevEnd.x = xs[size - 1];
             prevEnd.y = ys[size - 1];
         }
@@ -134,4 +467,53 @@ public class PolyLine {
         return new Polygon(xs, ys, size);
     }
 
-}
\ No newline at end of file
+    /**
+     * Return a closed selection path around the (non-empty) closed loops of points whose
+     * coordinates are `xLoops` and `yLoops` (loop `c` has points (`xLoops.get(c)[k]`,
+     * `yLoops.get(c)[k]`), without repeating its first point at its end), each split into segments
+     * of `segmentLength` steps and starting and ending at its first point.  Multiple loops are
+     * joined by straight bridges between their first points, and the path returns to the first
+     * loop along the same bridges, so the bridges enclose no area under the even-odd rule.
+     * Segments whose consecutive points are 8-neighbors are stored as chain codes (see
+     * `compact()`).  Throws IllegalArgumentException if there are no loops.
+     */
+    public static LinkedList<PolyLine> joinLoops(List<int[]> xLoops, List<int[]> yLoops,
+            int segmentLength) {
+        if (xLoops.isEmpty()) {
+            throw new IllegalArgumentException("No loops to join");
+        }
+        LinkedList<PolyLine> segments = new LinkedList<>();
+        int loopCount = xLoops.size();
+        for (int c = 0; c < loopCount; ++c) {
+            int[] loopXs = xLoops.get(c);
+            int[] loopYs = yLoops.get(c);
+            int length = loopXs.length;
+            // Consecutive segments share their joining point, and the last one closes the loop.
+            for (int begin = 0; begin < length || begin == 0; begin += segmentLength) {
+                int end = Math.min(begin + segmentLength, length);
+                int[] xs = new int[end - begin + 1];
+                int[] ys = new int[end - begin + 1];
+                for (int k = begin; k <= end; ++k) {
+                    xs[k - begin] = loopXs[k % length];
+                    ys[k - begin] = loopYs[k % length];
+                }
+                segments.add(compact(xs, ys, xs.length));
+            }
+            if (c + 1 < loopCount) {
+                segments.add(new PolyLine(new int[]{loopXs[0], xLoops.get(c + 1)[0]},
+                        new int[]{loopYs[0], yLoops.get(c + 1)[0]}));
+            }
+        }
+        if (loopCount > 1) {
+            int[] xs = new int[loopCount];
+            int[] ys = new int[loopCount];
+            for (int c = 0; c < loopCount; ++c) {
+                xs[c] = xLoops.get(loopCount - 1 - c)[0];
+                ys[c] = yLoops.get(loopCount - 1 - c)[0];
+            }
+            segments.add(new PolyLine(xs, ys));
+        }
+        return segments;
+    }
+
+}
@@ -1,10 +1,15 @@
-package scissors;
+package selector;
 
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.util.Arrays;
-import selector.PolyLine;
 
+/**
+ * A growable sequence of points for building up a `PolyLine`.  Its arrays are only reallocated
+ * when they run out of room, so a buffer that is `clear()`ed and refilled, such as one holding the
+ * live wire while the mouse moves, stops allocating once it is large enough.
+ */
 public class PolyLineBuffer {
     private int[] xs;
     private int[] ys;
@@ -47,6 +52,34 @@ public class PolyLineBuffer {
         size += 1;
     }
 
+    /**
+     * Append the points of `line` to this buffer, skipping its start if it duplicates our last
+     * point.
+     */
+    public void append(PolyLine line) {
+        int offset = size;
+        if (offset > 0) {
+            Point start = line.start();
+            if (start.x == xs[offset - 1] && start.y == ys[offset - 1]) {
+                offset -= 1;
+            }
+        }
+        int newSize = offset + line.size();
+        if (newSize > xs.length) {
+            xs = Arrays.copyOf(xs, Math.max(newSize, 2 * xs.length));
+            ys = Arrays.copyOf(ys, xs.length);
+        }
+        line.copyPoints(0, xs, ys, offset);
+        size = newSize;
+    }
+
+    /**
+     * Remove all points from this buffer, keeping its arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
     public int[] xs() {
         return xs;
     }
@@ -69,6 +102,29 @@ public class PolyLineBuffer {
         return new Point(xs[size - 1], ys[size - 1]);
     }
 
+    /**
+     * Set `r` to the smallest rectangle containing the points in this buffer, and return it.  `r`
+     * is made empty if this buffer is empty.
+     */
+    public Rectangle bounds(Rectangle r) {
+        if (size == 0) {
+            r.setBounds(0, 0, 0, 0);
+            return r;
+        }
+        int minX = xs[0];
+        int maxX = xs[0];
+        int minY = ys[0];
+        int maxY = ys[0];
+        for (int i = 1; i < size; ++i) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        r.setBounds(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        return r;
+    }
+
     /**
      * Reverses the sequence of points in this buffer, then returns a reference to itself.
      */
@@ -93,7 +149,7 @@ public class PolyLineBuffer {
             Point p = new Point(xs[0], ys[0]);
             return new PolyLine(p, p);
         }
-        return new PolyLine(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+        return PolyLine.compact(xs, ys, size);
     }
 
     public static Polygon makePolygon(Iterable<PolyLineBuffer> segments) {
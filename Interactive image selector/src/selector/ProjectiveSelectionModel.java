@@ -7,6 +7,7 @@ import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import javax.swing.SwingUtilities;
@@ -70,6 +71,17 @@ public class ProjectiveSelectionModel extends SelectionModel {
         return new PolyLine(lastPoint(), p);
     }
 
+    /**
+     * Fill `buffer` with the straight line segment from our last point to `p`, without allocating.
+     */
+    @Override
+    public PolyLineBuffer liveWire(Point p, PolyLineBuffer buffer) {
+        buffer.clear();
+        appendLastPoint(buffer);
+        buffer.append(p.x, p.y);
+        return buffer;
+    }
+
     @Override
     protected void appendToSelection(Point p) {
         // Create a new line from the last point to 'p'
@@ -91,6 +103,10 @@ public class ProjectiveSelectionModel extends SelectionModel {
         if (index < 0 || index >= selection.size()) {
             throw new IllegalArgumentException("Invalid corner index " + index);
         }
+        if (pastedContent != null) {
+            // Moving a corner redraws the pasted content
+            checkNotExporting();
+        }
 
         PolyLine oldLine = selection.get(index);
         Point oldStart = oldLine.start();
@@ -121,6 +137,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
         if (state() != SelectionState.SELECTED) {
             throw new IllegalStateException("Must finish selection first");
         }
+        checkNotExporting();
 
         // Render the text into a BufferedImage
         BufferedImage textImg = renderText(text, new Font("Serif", Font.BOLD, 36), color);
@@ -140,6 +157,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
         if (state() != SelectionState.SELECTED) {
             throw new IllegalStateException("Must finish selection first");
         }
+        checkNotExporting();
         pastedContent = pasteImg;
         isText = false;
 
@@ -158,6 +176,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
         if (state() != SelectionState.SELECTED) {
             throw new IllegalStateException("Must finish selection first");
         }
+        checkNotExporting();
 
         // Create the shape image using ShapeUtils
         BufferedImage shapeImg = ShapeUtils.createShapeImage(shapeType, size, color);
@@ -401,32 +420,64 @@ public class ProjectiveSelectionModel extends SelectionModel {
      * @param destImg The destination image to overlay onto.
      * @param H       The homography matrix.
      */
-    private void warpAndOverlay(BufferedImage srcImg, BufferedImage destImg, double[][] H) {
+    void warpAndOverlay(BufferedImage srcImg, BufferedImage destImg, double[][] H) {
         // Compute the inverse homography matrix
         double[][] Hinv = invertHomography(H);
         if (Hinv == null) {
             throw new IllegalArgumentException("Homography matrix is singular and cannot be inverted.");
         }
 
-        int destWidth = destImg.getWidth();
-        int destHeight = destImg.getHeight();
+        // Read the source through a flat ARGB array instead of per-pixel getRGB() calls
+        int srcWidth = srcImg.getWidth();
+        int srcHeight = srcImg.getHeight();
+        int[] srcPixels = PixelPlanes.argbPixels(srcImg);
 
-        for (int y = 0; y < destHeight; y++) {
-            for (int x = 0; x < destWidth; x++) {
-                // Apply inverse homography to destination pixel
-                double[] srcPt = applyHomography(Hinv, x, y);
+        // Only visit destination pixels that the warped source can cover
+        Rectangle bounds = warpBounds(H, srcWidth, srcHeight, destImg.getWidth(),
+                destImg.getHeight());
 
-                double srcX = srcPt[0];
-                double srcY = srcPt[1];
+        // Write directly into ARGB images; otherwise read and write whole rows at a time
+        int destWidth = destImg.getWidth();
+        int[] destPixels = PixelPlanes.directArgb(destImg);
+        int[] row = new int[bounds.width];
 
-                // Perform bilinear interpolation
-                int rgb = bilinearInterpolate(srcImg, srcX, srcY);
+        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+            if (destPixels == null) {
+                destImg.getRGB(bounds.x, y, bounds.width, 1, row, 0, bounds.width);
+            }
+            int runStart = -1; // Start of the current run of changed pixels in `row`, or -1
+            for (int i = 0; i <= bounds.width; i++) {
+                int x = bounds.x + i;
+                boolean changed = false;
+                if (i < bounds.width) {
+                    // Apply inverse homography to destination pixel
+                    double[] srcPt = applyHomography(Hinv, x, y);
+
+                    // Perform bilinear interpolation
+                    int rgb = bilinearInterpolate(srcPixels, srcWidth, srcHeight, srcPt[0],
+                            srcPt[1]);
+
+                    // Blend the source pixel with the destination pixel
+                    if (rgb != 0) { // Assuming transparent pixels have RGB=0
+                        changed = true;
+                        if (destPixels != null) {
+                            int index = x + destWidth * y;
+                            destPixels[index] = blend(rgb, destPixels[index]);
+                        } else {
+                            row[i] = blend(rgb, row[i]);
+                        }
+                    }
+                }
 
-                // Blend the source pixel with the destination pixel
-                if (rgb != 0) { // Assuming transparent pixels have RGB=0
-                    int destRGB = destImg.getRGB(x, y);
-                    int blendedRGB = blend(rgb, destRGB);
-                    destImg.setRGB(x, y, blendedRGB);
+                // Write back each run of changed pixels as it ends
+                if (changed && runStart < 0) {
+                    runStart = i;
+                } else if (!changed && runStart >= 0) {
+                    if (destPixels == null) {
+                        destImg.setRGB(bounds.x + runStart, y, i - runStart, 1, row, runStart,
+                                bounds.width);
+                    }
+                    runStart = -1;
                 }
             }
         }
@@ -435,6 +486,47 @@ public class ProjectiveSelectionModel extends SelectionModel {
         propSupport.firePropertyChange("image", null, destImg);
     }
 
+    /**
+     * Returns the part of a destination image that an image can be warped onto.
+     *
+     * @param H          The homography matrix mapping source to destination coordinates.
+     * @param srcWidth   The width of the source image.
+     * @param srcHeight  The height of the source image.
+     * @param destWidth  The width of the destination image.
+     * @param destHeight The height of the destination image.
+     * @return The bounding box (clipped to the destination image) of the warped source rectangle,
+     *         or the whole destination image if the warped rectangle is unbounded.
+     */
+    private Rectangle warpBounds(double[][] H, int srcWidth, int srcHeight,
+                                 int destWidth, int destHeight) {
+        Rectangle all = new Rectangle(0, 0, destWidth, destHeight);
+        double[][] corners = {{0, 0}, {srcWidth, 0}, {srcWidth, srcHeight}, {0, srcHeight}};
+
+        // The warped rectangle is bounded (and is the quadrilateral spanned by its warped corners)
+        // only if the homography's denominator has the same sign at all four corners.
+        double firstDenominator = H[2][2]; // At the corner (0, 0)
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (double[] c : corners) {
+            double denominator = H[2][0] * c[0] + H[2][1] * c[1] + H[2][2];
+            if (denominator * firstDenominator <= 0) {
+                return all;
+            }
+            double[] p = applyHomography(H, c[0], c[1]);
+            minX = Math.min(minX, p[0]);
+            minY = Math.min(minY, p[1]);
+            maxX = Math.max(maxX, p[0]);
+            maxY = Math.max(maxY, p[1]);
+        }
+
+        // Pad by a pixel to allow for rounding
+        int x0 = (int) Math.max(0, Math.floor(minX) - 1);
+        int y0 = (int) Math.max(0, Math.floor(minY) - 1);
+        int x1 = (int) Math.min(destWidth, Math.ceil(maxX) + 2);
+        int y1 = (int) Math.min(destHeight, Math.ceil(maxY) + 2);
+        return new Rectangle(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+
     /**
      * Applies the homography matrix to a point (x, y).
      *
@@ -443,7 +535,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
      * @param y The y-coordinate.
      * @return The transformed point as a double array [x', y'].
      */
-    private double[] applyHomography(double[][] H, double x, double y) {
+    double[] applyHomography(double[][] H, double x, double y) {
         double denominator = H[2][0] * x + H[2][1] * y + H[2][2];
         double xPrime = (H[0][0] * x + H[0][1] * y + H[0][2]) / denominator;
         double yPrime = (H[1][0] * x + H[1][1] * y + H[1][2]) / denominator;
@@ -453,28 +545,30 @@ public class ProjectiveSelectionModel extends SelectionModel {
     /**
      * Performs bilinear interpolation for non-integer pixel locations.
      *
-     * @param img The source image.
-     * @param x   The x-coordinate (can be non-integer).
-     * @param y   The y-coordinate (can be non-integer).
+     * @param pixels The source image's ARGB pixels, in row-major order.
+     * @param width  The width of the source image.
+     * @param height The height of the source image.
+     * @param x      The x-coordinate (can be non-integer).
+     * @param y      The y-coordinate (can be non-integer).
      * @return The interpolated RGB value, or 0 if out of bounds.
      */
-    private int bilinearInterpolate(BufferedImage img, double x, double y) {
+    int bilinearInterpolate(int[] pixels, int width, int height, double x, double y) {
         int x1 = (int) Math.floor(x);
         int y1 = (int) Math.floor(y);
         int x2 = x1 + 1;
         int y2 = y1 + 1;
 
-        if (x1 < 0 || y1 < 0 || x2 >= img.getWidth() || y2 >= img.getHeight()) {
+        if (x1 < 0 || y1 < 0 || x2 >= width || y2 >= height) {
             return 0; // Transparent if out of bounds
         }
 
         double a = x - x1;
         double b = y - y1;
 
-        int rgb11 = img.getRGB(x1, y1);
-        int rgb21 = img.getRGB(x2, y1);
-        int rgb12 = img.getRGB(x1, y2);
-        int rgb22 = img.getRGB(x2, y2);
+        int rgb11 = pixels[x1 + width * y1];
+        int rgb21 = pixels[x2 + width * y1];
+        int rgb12 = pixels[x1 + width * y2];
+        int rgb22 = pixels[x2 + width * y2];
 
         int r = (int) (
                 ((1 - a) * (1 - b) * ((rgb11 >> 16) & 0xFF)) +
@@ -523,7 +617,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
      * @param H The homography matrix.
      * @return The inverse homography matrix, or null if singular.
      */
-    private double[][] invertHomography(double[][] H) {
+    double[][] invertHomography(double[][] H) {
         double a = H[0][0], b = H[0][1], c = H[0][2];
         double d = H[1][0], e = H[1][1], f = H[1][2];
         double g = H[2][0], h = H[2][1], i = H[2][2];
@@ -561,7 +655,7 @@ public class ProjectiveSelectionModel extends SelectionModel {
      * @param dstARGB The ARGB color of the destination pixel.
      * @return The blended ARGB result.
      */
-    private int blend(int srcARGB, int dstARGB) {
+    int blend(int srcARGB, int dstARGB) {
         // Extract source color components
         int srcA = (srcARGB >> 24) & 0xFF;
         int srcR = (srcARGB >> 16) & 0xFF;
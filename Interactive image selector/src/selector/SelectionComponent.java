@@ -23,6 +23,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.List;
 import javax.swing.JComponent;
+import javax.swing.Timer;
 import selector.SelectionModel.SelectionState;
 
 /**
@@ -53,8 +54,75 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
      */
     private Point mouseLocation = new Point();
 
+    /**
+     * Scratch coordinates into which paths are decoded for drawing (see `PolyLine.copyPoints()`),
+     * grown as needed and reused across repaints.
+     */
+    private int[] pathXs = new int[64];
+    private int[] pathYs = new int[64];
+
+    /**
+     * Offscreen layer holding the selection perimeter and control points as drawn over
+     * `layerBounds` (our visible area when it was drawn) at `layerScale` device pixels per pixel,
+     * or null if none has been drawn yet.  It is only redrawn if `layerValid` is false, which
+     * "selection", "state", and "image" events from our model make it, or if our visible area or
+     * the device scale change, so moving the mouse just copies the parts of it being repainted.
+     */
+    private BufferedImage layer;
+    private Rectangle layerBounds;
+    private double layerScale;
+    private boolean layerValid;
+
+    /**
+     * Our model's live wire to `liveWireLocation` as of model generation `liveWireGeneration`,
+     * valid only if `liveWireValid` (see `liveWire()`).  The buffer is refilled in place as the
+     * mouse moves, so tracking it allocates nothing once it has grown to the longest wire.
+     */
+    private final PolyLineBuffer liveWire = new PolyLineBuffer();
+    private boolean liveWireValid;
+    private final Point liveWireLocation = new Point();
+    private long liveWireGeneration;
+
+    /**
+     * Minimum interval, in milliseconds, between updates for mouse motion (about one frame at
+     * 60 Hz).  Motion events arriving sooner only record the mouse location, and `mouseTimer`
+     * applies the latest one when the interval is up, so that at most one live wire is extracted
+     * per frame however fast events arrive.
+     */
+    private static final int FRAME_MILLIS = 16;
+
+    /**
+     * Fires once to apply mouse motion deferred by `updateMouseLocation()`.
+     */
+    private final Timer mouseTimer;
+
+    /**
+     * Time (from `System.nanoTime()`) of the last update for mouse motion.
+     */
+    private long lastMouseUpdate;
+
+    /**
+     * Bounds of whatever was last drawn over the layer following the mouse pointer (the live wire
+     * or the guides for moving a point), grown by its stroke width, or empty if nothing was.
+     */
+    private final Rectangle overlayBounds = new Rectangle();
+
+    /**
+     * Scratch rectangles for updating `overlayBounds` without allocating on every mouse move.
+     */
+    private final Rectangle nextOverlayBounds = new Rectangle();
+    private final Rectangle dirtyBounds = new Rectangle();
+    private final Rectangle clipBounds = new Rectangle();
+
     /* View parameters */
 
+    /**
+     * The width of the selection path's stroke, in pixels.
+     */
+    private static final int PERIMETER_WIDTH = 2;
+    private static final java.awt.Stroke PERIMETER_STROKE =
+            new java.awt.BasicStroke(PERIMETER_WIDTH);
+
     /**
      * The radius of a control point, in pixels. Used both for rendering and for tolerance when
      * selecting points with the mouse.
@@ -88,6 +156,9 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         // Listen for mouse events that occur over us
         addMouseListener(this);
         addMouseMotionListener(this);
+
+        mouseTimer = new Timer(FRAME_MILLIS, e -> repaintOverlay());
+        mouseTimer.setRepeats(false);
     }
 
     /**
@@ -114,6 +185,9 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         selectedIndex = -1;
 
         // Model state has changed; update our view.
+        layerValid = false;
+        liveWireValid = false;
+        overlayBounds.setBounds(0, 0, 0, 0);
         repaint();
     }
 
@@ -137,8 +211,80 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         mouseLocation.x = Math.max(0, Math.min(p.x, model.image().getWidth() - 1));
         mouseLocation.y = Math.max(0, Math.min(p.y, model.image().getHeight() - 1));
 
-        // Update the view to reflect the new mouse location
-        repaint();
+        // Update the view to reflect the new mouse location, at most once per frame
+        if (!mouseTimer.isRunning()) {
+            long wait = FRAME_MILLIS - (System.nanoTime() - lastMouseUpdate) / 1_000_000;
+            if (wait <= 0) {
+                repaintOverlay();
+            } else {
+                mouseTimer.setInitialDelay((int) wait);
+                mouseTimer.restart();
+            }
+        }
+    }
+
+    /**
+     * Repaint only where the overlay following the mouse pointer was and will be drawn.
+     */
+    private void repaintOverlay() {
+        lastMouseUpdate = System.nanoTime();
+        if (model.image() == null) return;
+        dirtyBounds.setBounds(overlayBounds);
+        addBounds(dirtyBounds, currentOverlayBounds(nextOverlayBounds));
+        if (!dirtyBounds.isEmpty()) {
+            repaint(dirtyBounds);
+        }
+    }
+
+    /**
+     * Grow `r` to contain `other`, where either may be empty to mean no area at all.
+     */
+    private static void addBounds(Rectangle r, Rectangle other) {
+        if (other.isEmpty()) {
+            return;
+        }
+        if (r.isEmpty()) {
+            r.setBounds(other);
+        } else {
+            r.add(other);
+        }
+    }
+
+    /**
+     * Return our model's live wire to `mouseLocation`, requesting it only if the mouse has moved
+     * to another pixel or the model has changed (see `SelectionModel.generation()`) since it was
+     * last requested.
+     */
+    private PolyLineBuffer liveWire() {
+        if (!liveWireValid || liveWireGeneration != model.generation()
+                || !liveWireLocation.equals(mouseLocation)) {
+            liveWireLocation.setLocation(mouseLocation);
+            liveWireGeneration = model.generation();
+            model.liveWire(mouseLocation, liveWire);
+            liveWireValid = true;
+        }
+        return liveWire;
+    }
+
+    /**
+     * Set `r` to the bounds of what should be drawn over the layer following the mouse pointer in
+     * our current state, grown by its stroke width, or make it empty if nothing should be.  Returns
+     * `r`.
+     */
+    private Rectangle currentOverlayBounds(Rectangle r) {
+        Point[] ends;
+        if (model.state() == SelectionState.SELECTING) {
+            liveWire().bounds(r);
+        } else if (isInteractingWithPoint() && (ends = guideEnds(model.selection())) != null) {
+            r.setBounds(mouseLocation.x, mouseLocation.y, 0, 0);
+            r.add(ends[0]);
+            r.add(ends[1]);
+        } else {
+            r.setBounds(0, 0, 0, 0);
+            return r;
+        }
+        r.grow(PERIMETER_WIDTH, PERIMETER_WIDTH);
+        return r;
     }
 
     /**
@@ -160,8 +306,8 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
 
         List<PolyLine> segments = model.selection();
 
-        // Draw perimeter
-        paintSelectionPerimeter(g, segments);
+        // Draw perimeter and handles, from the layer unless the selection changed
+        paintLayer((Graphics2D) g, segments);
 
         // If dragging a point, draw guide lines
         if (isInteractingWithPoint() && mouseLocation != null) {
@@ -172,11 +318,15 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         if (model.state() == SelectionState.SELECTING && mouseLocation != null) {
             paintLiveWire(g);
         }
-
-        // Draw handles
-        if (model.state() == SelectionState.SELECTED) {
-            paintControlPoints(g, segments);
+        // Any of the previous overlay outside of our clip is still on screen
+        // Without a clip the whole overlay was repainted, just as if the clip were the old overlay
+        currentOverlayBounds(nextOverlayBounds);
+        clipBounds.setBounds(overlayBounds);
+        g.getClipBounds(clipBounds);
+        if (!overlayBounds.isEmpty() && !clipBounds.contains(overlayBounds)) {
+            addBounds(nextOverlayBounds, overlayBounds);
         }
+        overlayBounds.setBounds(nextOverlayBounds);
 
         // Draw pasted content overlays if applicable
         if (model instanceof ProjectiveSelectionModel) {
@@ -192,6 +342,43 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         }
     }
 
+    /**
+     * Copy the parts of our layer within `g`'s clip to `g`, first redrawing the selection
+     * perimeter of `segments` and, if the selection is finished, its control points into the
+     * layer if it is not valid for our visible area at `g`'s device scale.
+     */
+    private void paintLayer(Graphics2D g, List<PolyLine> segments) {
+        Rectangle visible = getVisibleRect();
+        if (visible.isEmpty()) {
+            return;
+        }
+        double scale = Math.sqrt(Math.abs(g.getTransform().getDeterminant()));
+        if (!layerValid || !visible.equals(layerBounds) || scale != layerScale) {
+            int width = (int) Math.ceil(visible.width * scale);
+            int height = (int) Math.ceil(visible.height * scale);
+            if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+                layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+            Graphics2D lg = layer.createGraphics();
+            lg.setComposite(AlphaComposite.Clear);
+            lg.fillRect(0, 0, width, height);
+            lg.setComposite(AlphaComposite.SrcOver);
+            lg.scale(scale, scale);
+            lg.translate(-visible.x, -visible.y);
+            lg.clip(visible);
+            paintSelectionPerimeter(lg, segments);
+            if (model.state() == SelectionState.SELECTED) {
+                paintControlPoints(lg, segments);
+            }
+            lg.dispose();
+            layerBounds = visible;
+            layerScale = scale;
+            layerValid = true;
+        }
+        g.drawImage(layer, visible.x, visible.y, visible.x + visible.width,
+                visible.y + visible.height, 0, 0, layer.getWidth(), layer.getHeight(), null);
+    }
+
     /**
      * Draw on `g` along the selection path represented by `segments` using our selection perimeter
      * color.
@@ -199,12 +386,20 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
     private void paintSelectionPerimeter(Graphics g, List<PolyLine> segments) {
         g.setColor(selectionPerimeterColor);
         Graphics2D g2 = (Graphics2D) g;
-        g2.setStroke(new java.awt.BasicStroke(2));
+        g2.setStroke(PERIMETER_STROKE);
 
+        // Points may be dropped if the line stays within half a device pixel of them
+        double tolerance = 0.5 / Math.sqrt(Math.abs(g2.getTransform().getDeterminant()));
+        Rectangle clip = g.getClipBounds();
         for (PolyLine line : segments) {
-            int[] xs = line.xs();
-            int[] ys = line.ys();
-            g.drawPolyline(xs, ys, line.size());
+            if (clip != null) {
+                Rectangle bounds = line.bounds();
+                bounds.grow(PERIMETER_WIDTH, PERIMETER_WIDTH);
+                if (!bounds.intersects(clip)) {
+                    continue;
+                }
+            }
+            drawPolyLine(g, line.simplified(tolerance));
         }
     }
 
@@ -214,8 +409,21 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
      */
     private void paintLiveWire(Graphics g) {
         g.setColor(liveWireColor);
-        PolyLine line = model.liveWire(mouseLocation);
-        g.drawPolyline(line.xs(), line.ys(), line.size());
+        ((Graphics2D) g).setStroke(PERIMETER_STROKE);
+        PolyLineBuffer wire = liveWire();
+        g.drawPolyline(wire.xs(), wire.ys(), wire.size());
+    }
+
+    /**
+     * Draw `line` on `g`, decoding its points into our scratch coordinates.
+     */
+    private void drawPolyLine(Graphics g, PolyLine line) {
+        if (pathXs.length < line.size()) {
+            pathXs = new int[Math.max(line.size(), 2 * pathXs.length)];
+            pathYs = new int[pathXs.length];
+        }
+        line.copyPoints(0, pathXs, pathYs, 0);
+        g.drawPolyline(pathXs, pathYs, line.size());
     }
 
     /**
@@ -229,15 +437,15 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         g2.setStroke(new java.awt.BasicStroke(1));
 
         for (PolyLine segment : segments) {
-            int[] xs = segment.xs();
-            int[] ys = segment.ys();
+            Point start = segment.start();
+            Point end = segment.end();
 
             // Draw start point
-            g.fillOval(xs[0] - controlPointRadius, ys[0] - controlPointRadius,
+            g.fillOval(start.x - controlPointRadius, start.y - controlPointRadius,
                     2 * controlPointRadius, 2 * controlPointRadius);
 
             // Draw end point
-            g.fillOval(xs[xs.length - 1] - controlPointRadius, ys[ys.length - 1] - controlPointRadius,
+            g.fillOval(end.x - controlPointRadius, end.y - controlPointRadius,
                     2 * controlPointRadius, 2 * controlPointRadius);
         }
     }
@@ -249,25 +457,40 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
      */
     private void paintMoveGuides(Graphics g, List<PolyLine> segments) {
         g.setColor(liveWireColor);
-        if (selectedIndex < segments.size() && selectedIndex >= 0) {
-            Point firstPoint;
-            Point secondPoint = segments.get(selectedIndex).end();
-            if (selectedIndex == 0) {
-                firstPoint = segments.getLast().start();
-            } else {
-                firstPoint = segments.get(selectedIndex - 1).start();
-            }
-            g.drawLine(firstPoint.x, firstPoint.y, mouseLocation.x, mouseLocation.y);
-            g.drawLine(secondPoint.x, secondPoint.y, mouseLocation.x, mouseLocation.y);
+        ((Graphics2D) g).setStroke(PERIMETER_STROKE);
+        Point[] ends = guideEnds(segments);
+        if (ends != null) {
+            g.drawLine(ends[0].x, ends[0].y, mouseLocation.x, mouseLocation.y);
+            g.drawLine(ends[1].x, ends[1].y, mouseLocation.x, mouseLocation.y);
+        }
+    }
+
+    /**
+     * Return the control points before and after our selected point along the selection path
+     * `segments`, between which guides for moving it are drawn, or null if `selectedIndex` is not
+     * in [0..segments.size()).
+     */
+    private Point[] guideEnds(List<PolyLine> segments) {
+        if (selectedIndex >= segments.size() || selectedIndex < 0) {
+            return null;
+        }
+        Point firstPoint;
+        Point secondPoint = segments.get(selectedIndex).end();
+        if (selectedIndex == 0) {
+            firstPoint = segments.getLast().start();
+        } else {
+            firstPoint = segments.get(selectedIndex - 1).start();
         }
+        return new Point[]{firstPoint, secondPoint};
     }
 
     /* Event listeners */
 
     /**
      * When mouse button 1 is clicked and a selection has either not yet been started or is still in
-     * progress, add the location of the point to the selection. Note: `mousePressed()` and
-     * `mouseReleased()` handle presses of button 1 when the selection is finished.
+     * progress, add the location of the point to the selection; this is also done when the
+     * selection is finished if our model can extend finished selections. Note: `mousePressed()`
+     * and `mouseReleased()` handle presses of button 1 when the selection is finished.
      * <p>
      * When mouse button 2 is clicked and a selection is in progress, finish the selection.
      * <p>
@@ -281,7 +504,8 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
         updateMouseLocation(e.getPoint());
 
         if (e.getButton() == MouseEvent.BUTTON1 && (model.state() == SelectionState.NO_SELECTION ||
-                model.state() == SelectionState.SELECTING)) {
+                model.state() == SelectionState.SELECTING ||
+                (model.state() == SelectionState.SELECTED && model.canExtendSelection()))) {
             model.addPoint(new Point(mouseLocation));
         } else if (e.getButton() == MouseEvent.BUTTON2 && model.state() == SelectionState.SELECTING) {
             model.finishSelection();
@@ -312,18 +536,18 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
     public void mouseDragged(MouseEvent e) {
         if (model.state() == SelectionState.SELECTING || isInteractingWithPoint()) {
             updateMouseLocation(e.getPoint());
-            repaint();
         }
     }
 
     /**
      * When mouse button 1 is pressed while our model's selection is complete, search for a control
-     * point close to the mouse pointer and, if found, start interacting with that point.
+     * point close to the mouse pointer and, if found, start interacting with that point.  Points
+     * are not moved while the image is being exported, since moving them may redraw the image.
      */
     @Override
     public void mousePressed(MouseEvent e) {
         if (e.getButton() == MouseEvent.BUTTON1) {
-            if (model.state() == SelectionState.SELECTED) {
+            if (model.state() == SelectionState.SELECTED && !model.isExporting()) {
                 selectedIndex = model.closestPoint(e.getPoint(), controlPointRadius * controlPointRadius);
                 if (selectedIndex != -1) {
                     // Indicate that a point is being dragged
@@ -363,6 +587,13 @@ public class SelectionComponent extends JComponent implements MouseListener, Mou
             selectedIndex = -1;
         }
 
+        // Only these properties change what the layer shows (the live wire is kept up to date by
+        // our model's generation)
+        if (e.getPropertyName().equals("selection") || e.getPropertyName().equals("state")
+                || e.getPropertyName().equals("image")) {
+            layerValid = false;
+        }
+
         // If any property of the model changed, repaint to update view
         repaint();
     }
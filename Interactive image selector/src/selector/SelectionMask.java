@@ -0,0 +1,712 @@
+package selector;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable set of pixels of an image, stored as sorted, disjoint, non-adjacent horizontal runs
+ * in each row of its bounding box.  Masks of closed selection paths are rasterized by a scanline
+ * algorithm with an active edge table: a pixel is inside if its center is inside the path's
+ * polygon under the even-odd rule, as for AWT's `Polygon.contains()`.
+ * <p>
+ * Runs may be visited a band of rows at a time in parallel, so that operations on the selected
+ * pixels only touch the bounding box and scale with the number of cores.
+ * <p>
+ * Masks combine by union, intersection, and subtraction in time linear in their numbers of runs,
+ * merging the runs of each row.  Any mask, holes included, converts back into a selection path
+ * along the cracks between its pixels and those outside (see `toSegments()`), which rasterizes to
+ * the same mask.
+ */
+public class SelectionMask {
+
+    /**
+     * Number of steps in each segment of a selection path around a mask (the last may be shorter).
+     */
+    private static final int SEGMENT_LENGTH = 64;
+
+    /**
+     * Directions along cracks between pixels, in clockwise order (with y pointing down).
+     */
+    private static final int EAST = 0;
+    private static final int SOUTH = 1;
+    private static final int WEST = 2;
+    private static final int NORTH = 3;
+
+    /**
+     * Bounding box of the selected pixels (empty, at the origin, if there are none).
+     */
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    /**
+     * The runs of row `y + r` are `runs[rowStarts[r]..rowStarts[r+1])`, as pairs of the first x
+     * coordinate in the run and the x coordinate after its last.
+     */
+    private final int[] rowStarts;
+    private final int[] runs;
+
+    private SelectionMask(int x, int y, int width, int height, int[] rowStarts, int[] runs) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.rowStarts = rowStarts;
+        this.runs = runs;
+    }
+
+    /**
+     * Receives a run of pixels `[xBegin..xEnd)` in row `y`.
+     */
+    public interface RunVisitor {
+
+        void visit(int y, int xBegin, int xEnd);
+    }
+
+    /**
+     * Decides whether a pixel is in a combination of two masks, given whether it is in each.
+     */
+    private interface Combination {
+
+        boolean test(boolean inA, boolean inB);
+    }
+
+    /**
+     * Return the mask of the pixels of an `imageWidth` x `imageHeight` image inside the closed path
+     * formed by `segments` (as by `PolyLine.makePolygon()`), which must not be empty.
+     */
+    public static SelectionMask rasterize(List<PolyLine> segments, int imageWidth,
+            int imageHeight) {
+        Polygon polygon = PolyLine.makePolygon(segments);
+        int n = polygon.npoints;
+
+        // Build the edge table from the non-horizontal edges, sorted by their top rows.  Edge `e`
+        //  spans rows `[tops[e]..bottoms[e])`.  Pixel centers lie half a row below integer
+        //  coordinates, so an edge from `y0` to `y1` crosses the centers of rows `[y0..y1)`; its
+        //  crossing in row `row`, less half a pixel, is the exact fraction
+        //  `(numerators[e] + (row - tops[e]) * steps[e]) / denominators[e]`, so that pixels whose
+        //  centers lie on the edge are classified consistently.
+        int edgeCount = 0;
+        int[] tops = new int[n];
+        int[] bottoms = new int[n];
+        long[] numerators = new long[n];
+        long[] steps = new long[n];
+        long[] denominators = new long[n];
+        for (int k = 0; k < n; ++k) {
+            long x0 = polygon.xpoints[k];
+            long y0 = polygon.ypoints[k];
+            long x1 = polygon.xpoints[(k + 1) % n];
+            long y1 = polygon.ypoints[(k + 1) % n];
+            if (y0 == y1) {
+                continue;
+            }
+            if (y0 > y1) {
+                long t = x0;
+                x0 = x1;
+                x1 = t;
+                t = y0;
+                y0 = y1;
+                y1 = t;
+            }
+            int top = (int) Math.max(y0, 0);
+            int bottom = (int) Math.min(y1, imageHeight);
+            if (top >= bottom) {
+                continue;
+            }
+            long dx = x1 - x0;
+            long dy = y1 - y0;
+            tops[edgeCount] = top;
+            bottoms[edgeCount] = bottom;
+            // x0 + (top + 1/2 - y0) * dx / dy - 1/2, over the common denominator 2 * dy
+            numerators[edgeCount] = 2 * dy * x0 + (2 * (top - y0) + 1) * dx - dy;
+            steps[edgeCount] = 2 * dx;
+            denominators[edgeCount] = 2 * dy;
+            edgeCount += 1;
+        }
+        // Edges are sorted by their top rows packed above their indices
+        long[] byTop = new long[edgeCount];
+        for (int e = 0; e < edgeCount; ++e) {
+            byTop[e] = ((long) tops[e] << 32) | e;
+        }
+        Arrays.sort(byTop);
+
+        // Scan the rows, keeping the edges that cross each row's center active.  Each crossing is
+        //  kept as the first pixel whose center is at or right of it.
+        int[] active = new int[edgeCount];
+        int activeCount = 0;
+        long[] crossings = new long[edgeCount];
+        int next = 0;
+        int firstRow = (edgeCount > 0) ? (int) (byTop[0] >>> 32) : 0;
+        int[] rowStarts = new int[Math.max(0, imageHeight - firstRow) + 1];
+        int[] runs = new int[16];
+        int runCount = 0;
+        int lastRow = firstRow;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        for (int row = firstRow; row < imageHeight && (next < edgeCount || activeCount > 0);
+                ++row) {
+            int kept = 0;
+            for (int a = 0; a < activeCount; ++a) {
+                if (bottoms[active[a]] > row) {
+                    active[kept++] = active[a];
+                }
+            }
+            activeCount = kept;
+            while (next < edgeCount && (int) (byTop[next] >>> 32) == row) {
+                active[activeCount++] = (int) byTop[next++];
+            }
+
+            // Active edges are kept sorted by their crossings, whose order only changes where
+            //  edges cross, so insertion sort is nearly linear.
+            for (int a = 0; a < activeCount; ++a) {
+                int e = active[a];
+                long crossing = -Math.floorDiv(-(numerators[e] + (row - tops[e]) * steps[e]),
+                        denominators[e]);
+                int c = a;
+                while (c > 0 && crossings[c - 1] > crossing) {
+                    crossings[c] = crossings[c - 1];
+                    active[c] = active[c - 1];
+                    c -= 1;
+                }
+                crossings[c] = crossing;
+                active[c] = e;
+            }
+
+            rowStarts[row - firstRow] = runCount;
+            for (int a = 0; a + 1 < activeCount; a += 2) {
+                // Pixel `px` is inside if its center `px + 0.5` is in `[left..right)`
+                int begin = (int) Math.max(0, crossings[a]);
+                int end = (int) Math.min(imageWidth, crossings[a + 1]);
+                if (begin >= end) {
+                    continue;
+                }
+                if (runCount > rowStarts[row - firstRow] && runs[runCount - 1] == begin) {
+                    runs[runCount - 1] = end;
+                } else {
+                    if (runCount + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, 2 * runs.length);
+                    }
+                    runs[runCount++] = begin;
+                    runs[runCount++] = end;
+                }
+                minX = Math.min(minX, begin);
+                maxX = Math.max(maxX, end);
+            }
+            lastRow = row + 1;
+        }
+        for (int row = lastRow; row <= firstRow + rowStarts.length - 1; ++row) {
+            rowStarts[row - firstRow] = runCount;
+        }
+        return trim(firstRow, rowStarts, Arrays.copyOf(runs, runCount), minX, maxX);
+    }
+
+    /**
+     * Return the mask of the pixels of `img` whose sample in band 0 is nonzero.
+     */
+    public static SelectionMask fromImage(BufferedImage img) {
+        Raster raster = img.getRaster();
+        int imageWidth = img.getWidth();
+        int imageHeight = img.getHeight();
+        int[] rowStarts = new int[imageHeight + 1];
+        int[] runs = new int[16];
+        int runCount = 0;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int[] samples = new int[imageWidth];
+        for (int row = 0; row < imageHeight; ++row) {
+            rowStarts[row] = runCount;
+            raster.getSamples(0, row, imageWidth, 1, 0, samples);
+            int px = 0;
+            while (px < imageWidth) {
+                while (px < imageWidth && samples[px] == 0) {
+                    px += 1;
+                }
+                int begin = px;
+                while (px < imageWidth && samples[px] != 0) {
+                    px += 1;
+                }
+                if (begin < px) {
+                    if (runCount + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, 2 * runs.length);
+                    }
+                    runs[runCount++] = begin;
+                    runs[runCount++] = px;
+                    minX = Math.min(minX, begin);
+                    maxX = Math.max(maxX, px);
+                }
+            }
+        }
+        rowStarts[imageHeight] = runCount;
+        return trim(0, rowStarts, Arrays.copyOf(runs, runCount), minX, maxX);
+    }
+
+    /**
+     * Return the mask of the pixels of an `imageWidth` x `imageHeight` image whose indices
+     * `px + imageWidth * py` satisfy `selected`, which is tested once per pixel in scan order.
+     */
+    public static SelectionMask fromPixels(int imageWidth, int imageHeight,
+            IntPredicate selected) {
+        int[] rowStarts = new int[imageHeight + 1];
+        int[] runs = new int[16];
+        int runCount = 0;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        for (int row = 0; row < imageHeight; ++row) {
+            rowStarts[row] = runCount;
+            int rowStart = imageWidth * row;
+            int px = 0;
+            while (px < imageWidth) {
+                while (px < imageWidth && !selected.test(rowStart + px)) {
+                    px += 1;
+                }
+                int begin = px;
+                while (px < imageWidth && selected.test(rowStart + px)) {
+                    px += 1;
+                }
+                if (begin < px) {
+                    if (runCount + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, 2 * runs.length);
+                    }
+                    runs[runCount++] = begin;
+                    runs[runCount++] = px;
+                    minX = Math.min(minX, begin);
+                    maxX = Math.max(maxX, px);
+                }
+            }
+        }
+        rowStarts[imageHeight] = runCount;
+        return trim(0, rowStarts, Arrays.copyOf(runs, runCount), minX, maxX);
+    }
+
+    /**
+     * Return an `imageWidth` x `imageHeight` grayscale image that is white at our selected pixels
+     * and black elsewhere.
+     */
+    public BufferedImage toImage(int imageWidth, int imageHeight) {
+        BufferedImage img = new BufferedImage(imageWidth, imageHeight,
+                BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = img.getRaster();
+        int[] white = new int[width];
+        Arrays.fill(white, 255);
+        forEachRun((py, xBegin, xEnd) -> {
+            int begin = Math.max(xBegin, 0);
+            int end = Math.min(xEnd, imageWidth);
+            if (py >= 0 && py < imageHeight && begin < end) {
+                raster.setSamples(begin, py, end - begin, 1, 0, white);
+            }
+        });
+        return img;
+    }
+
+    /**
+     * Return the mask of the pixels selected by this mask or by `other`.
+     */
+    public SelectionMask union(SelectionMask other) {
+        return combine(this, other, (inA, inB) -> inA || inB);
+    }
+
+    /**
+     * Return the mask of the pixels selected by both this mask and `other`.
+     */
+    public SelectionMask intersect(SelectionMask other) {
+        return combine(this, other, (inA, inB) -> inA && inB);
+    }
+
+    /**
+     * Return the mask of the pixels selected by this mask but not by `other`.
+     */
+    public SelectionMask subtract(SelectionMask other) {
+        return combine(this, other, (inA, inB) -> inA && !inB);
+    }
+
+    /**
+     * Return the mask selecting pixel (`py`, `px`) for each pixel (`px`, `py`) selected by this
+     * mask, whose rows are our columns.  Each column enters and leaves this mask where the runs of
+     * consecutive rows differ, so this takes time linear in our number of runs plus the number of
+     * cracks between our selected pixels and those above or below them.
+     */
+    public SelectionMask transpose() {
+        if (isEmpty()) {
+            return this;
+        }
+        // Two rows never have more endpoints between them than the whole mask
+        int[] flips = new int[runs.length];
+        int[] columnStarts = new int[width + 1];
+        for (int r = 0; r <= height; ++r) {
+            int n = flips(r, flips);
+            for (int k = 0; k < n; k += 2) {
+                for (int px = flips[k]; px < flips[k + 1]; ++px) {
+                    columnStarts[px - x + 1] += 1;
+                }
+            }
+        }
+        for (int c = 0; c < width; ++c) {
+            columnStarts[c + 1] += columnStarts[c];
+        }
+
+        // Membership flips down each column alternately enter and leave the mask, so they pair up
+        //  into the transpose's runs in order.
+        int[] transposed = new int[columnStarts[width]];
+        int[] next = Arrays.copyOf(columnStarts, width);
+        for (int r = 0; r <= height; ++r) {
+            int n = flips(r, flips);
+            for (int k = 0; k < n; k += 2) {
+                for (int px = flips[k]; px < flips[k + 1]; ++px) {
+                    transposed[next[px - x]++] = y + r;
+                }
+            }
+        }
+        return new SelectionMask(y, x, height, width, columnStarts, transposed);
+    }
+
+    /**
+     * Store in `flips` the endpoints of the runs of pixels that are selected in exactly one of rows
+     * `y + r - 1` and `y + r`, in order, and return their number.  Endpoints shared by both rows
+     * cancel.
+     */
+    private int flips(int r, int[] flips) {
+        int i = rowBegin(y + r - 1);
+        int iEnd = rowEnd(y + r - 1);
+        int j = rowBegin(y + r);
+        int jEnd = rowEnd(y + r);
+        int n = 0;
+        while (i < iEnd || j < jEnd) {
+            if (j == jEnd || i < iEnd && runs[i] < runs[j]) {
+                flips[n++] = runs[i++];
+            } else if (i == iEnd || runs[j] < runs[i]) {
+                flips[n++] = runs[j++];
+            } else {
+                i += 1;
+                j += 1;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Return the mask of the pixels for which `combination` holds, given whether they are selected
+     * by `a` and by `b`; `combination` must not hold for pixels selected by neither.  Merges the
+     * runs of each row, so takes time linear in the number of rows and runs of `a` and `b`.
+     */
+    private static SelectionMask combine(SelectionMask a, SelectionMask b,
+            Combination combination) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return a;
+        }
+        int firstRow = a.isEmpty() ? b.y : b.isEmpty() ? a.y : Math.min(a.y, b.y);
+        int endRow = a.isEmpty() ? b.y + b.height
+                : b.isEmpty() ? a.y + a.height : Math.max(a.y + a.height, b.y + b.height);
+        int[] rowStarts = new int[endRow - firstRow + 1];
+        int[] runs = new int[a.runs.length + b.runs.length];
+        int runCount = 0;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        for (int row = firstRow; row < endRow; ++row) {
+            rowStarts[row - firstRow] = runCount;
+            int i = a.rowBegin(row);
+            int iEnd = a.rowEnd(row);
+            int j = b.rowBegin(row);
+            int jEnd = b.rowEnd(row);
+            // Sweep the endpoints of both rows' runs in order, toggling membership at each
+            boolean inA = false;
+            boolean inB = false;
+            boolean in = false;
+            while (i < iEnd || j < jEnd) {
+                int px = Math.min((i < iEnd) ? a.runs[i] : Integer.MAX_VALUE,
+                        (j < jEnd) ? b.runs[j] : Integer.MAX_VALUE);
+                if (i < iEnd && a.runs[i] == px) {
+                    inA = !inA;
+                    i += 1;
+                }
+                if (j < jEnd && b.runs[j] == px) {
+                    inB = !inB;
+                    j += 1;
+                }
+                if (combination.test(inA, inB) != in) {
+                    in = !in;
+                    runs[runCount++] = px;
+                    minX = Math.min(minX, px);
+                    maxX = Math.max(maxX, px);
+                }
+            }
+        }
+        rowStarts[endRow - firstRow] = runCount;
+        return trim(firstRow, rowStarts, Arrays.copyOf(runs, runCount), minX, maxX);
+    }
+
+    /**
+     * Return the index in `runs` of the first run in row `py`, or of where it would be if the row
+     * is outside of our bounds.
+     */
+    private int rowBegin(int py) {
+        return (py < y) ? 0 : (py >= y + height) ? runs.length : rowStarts[py - y];
+    }
+
+    /**
+     * Return the index in `runs` after the last run in row `py`.
+     */
+    private int rowEnd(int py) {
+        return (py < y) ? 0 : (py >= y + height) ? runs.length : rowStarts[py - y + 1];
+    }
+
+    /**
+     * Return a closed selection path along the cracks between our selected pixels and those
+     * outside, with vertices at pixel corners, as loops joined by `PolyLine.joinLoops()`.  Each
+     * loop keeps selected pixels on its right (clockwise around selected regions, counterclockwise
+     * around holes), and pixels touching only at corners are separated.  The path rasterizes to
+     * this mask.  Loops keep only the corners where they turn, so their segments are stored as
+     * coordinate arrays rather than chain codes (see `PolyLine.compact()`); a straight run of
+     * cracks costs one vertex however long it is.  Throws IllegalArgumentException if this mask is
+     * empty.
+     */
+    public LinkedList<PolyLine> toSegments() {
+        if (isEmpty()) {
+            throw new IllegalArgumentException("Empty mask has no outline");
+        }
+        // Every run endpoint is a vertical crack crossed by exactly one loop
+        boolean[] traced = new boolean[runs.length];
+        List<int[]> xLoops = new ArrayList<>();
+        List<int[]> yLoops = new ArrayList<>();
+        for (int r = 0; r < height; ++r) {
+            for (int k = rowStarts[r]; k < rowStarts[r + 1]; ++k) {
+                if (!traced[k]) {
+                    traceLoop(y + r, k, traced, xLoops, yLoops);
+                }
+            }
+        }
+        return PolyLine.joinLoops(xLoops, yLoops, SEGMENT_LENGTH);
+    }
+
+    /**
+     * Trace the loop of cracks through the vertical crack at `runs[k]` in row `py`, marking its
+     * vertical cracks in `traced`, and append the coordinates of its corners to `xLoops` and
+     * `yLoops`.
+     */
+    private void traceLoop(int py, int k, boolean[] traced, List<int[]> xLoops,
+            List<int[]> yLoops) {
+        // Run beginnings are crossed going north and run ends going south, keeping the run on
+        //  the right; start from the corner where the crack is entered.
+        boolean begins = (k - rowStarts[py - y]) % 2 == 0;
+        int startX = runs[k];
+        int startY = begins ? py + 1 : py;
+        int startHeading = begins ? NORTH : SOUTH;
+        int vx = startX;
+        int vy = startY;
+        int heading = startHeading;
+        int[] xs = new int[8];
+        int[] ys = new int[8];
+        int length = 0;
+        do {
+            if (heading == NORTH) {
+                traced[endpointIndex(vy - 1, vx)] = true;
+                vy -= 1;
+            } else if (heading == SOUTH) {
+                traced[endpointIndex(vy, vx)] = true;
+                vy += 1;
+            } else {
+                vx = nextEndpoint(vy, vx, heading == EAST);
+            }
+            // Keep selected pixels on the right: turn right if the pixel ahead on the right is
+            //  outside, else turn left if the pixel ahead on the left is inside.
+            boolean aheadRight;
+            boolean aheadLeft;
+            switch (heading) {
+                case EAST -> {
+                    aheadRight = contains(vx, vy);
+                    aheadLeft = contains(vx, vy - 1);
+                }
+                case SOUTH -> {
+                    aheadRight = contains(vx - 1, vy);
+                    aheadLeft = contains(vx, vy);
+                }
+                case WEST -> {
+                    aheadRight = contains(vx - 1, vy - 1);
+                    aheadLeft = contains(vx - 1, vy);
+                }
+                default -> {
+                    aheadRight = contains(vx, vy - 1);
+                    aheadLeft = contains(vx - 1, vy - 1);
+                }
+            }
+            int turned = !aheadRight ? (heading + 1) % 4 : aheadLeft ? (heading + 3) % 4 : heading;
+            if (turned != heading) {
+                if (length == xs.length) {
+                    xs = Arrays.copyOf(xs, 2 * length);
+                    ys = Arrays.copyOf(ys, 2 * length);
+                }
+                xs[length] = vx;
+                ys[length] = vy;
+                length += 1;
+                heading = turned;
+            }
+        } while (vx != startX || vy != startY || heading != startHeading);
+        xLoops.add(Arrays.copyOf(xs, length));
+        yLoops.add(Arrays.copyOf(ys, length));
+    }
+
+    /**
+     * Return the index in `runs` of the run endpoint `px` in row `py`, which must exist.
+     */
+    private int endpointIndex(int py, int px) {
+        int k = Arrays.binarySearch(runs, rowBegin(py), rowEnd(py), px);
+        assert k >= 0;
+        return k;
+    }
+
+    /**
+     * Return the nearest run endpoint to the east (if `east`) or west of `px` in rows `py - 1` and
+     * `py`, which must exist.
+     */
+    private int nextEndpoint(int py, int px, boolean east) {
+        int best = east ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        for (int row = py - 1; row <= py; ++row) {
+            int begin = rowBegin(row);
+            int end = rowEnd(row);
+            int k = Arrays.binarySearch(runs, begin, end, px);
+            // Index of the first endpoint greater than `px`
+            int after = (k >= 0) ? k + 1 : -k - 1;
+            if (east && after < end) {
+                best = Math.min(best, runs[after]);
+            } else if (!east && ((k >= 0) ? k : after) > begin) {
+                best = Math.max(best, runs[((k >= 0) ? k : after) - 1]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return a mask whose runs for rows starting at `firstRow` are given by `rowStarts` and `runs`
+     * (as for our fields), with bounds tightened to the rows containing runs and to the
+     * x coordinates `[minX..maxX)`.
+     */
+    private static SelectionMask trim(int firstRow, int[] rowStarts, int[] runs, int minX,
+            int maxX) {
+        if (runs.length == 0) {
+            return new SelectionMask(0, 0, 0, 0, new int[]{0}, runs);
+        }
+        int top = 0;
+        while (rowStarts[top + 1] == 0) {
+            top += 1;
+        }
+        int bottom = rowStarts.length - 1;
+        while (rowStarts[bottom - 1] == runs.length) {
+            bottom -= 1;
+        }
+        int[] trimmed = Arrays.copyOfRange(rowStarts, top, bottom + 1);
+        for (int r = 0; r < trimmed.length; ++r) {
+            trimmed[r] -= rowStarts[top];
+        }
+        return new SelectionMask(minX, firstRow + top, maxX - minX, bottom - top,
+                trimmed, Arrays.copyOfRange(runs, rowStarts[top], rowStarts[bottom]));
+    }
+
+    /**
+     * Return the bounding box of the selected pixels, which is empty if there are none.
+     */
+    public Rectangle bounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * Return whether no pixels are selected.
+     */
+    public boolean isEmpty() {
+        return runs.length == 0;
+    }
+
+    /**
+     * Return the number of selected pixels.
+     */
+    public long area() {
+        long area = 0;
+        for (int k = 0; k < runs.length; k += 2) {
+            area += runs[k + 1] - runs[k];
+        }
+        return area;
+    }
+
+    /**
+     * Return whether pixel (`px`, `py`) is selected.
+     */
+    public boolean contains(int px, int py) {
+        if (py < y || py >= y + height) {
+            return false;
+        }
+        int begin = rowStarts[py - y];
+        int end = rowStarts[py - y + 1];
+        // Find the last run starting at or before `px`
+        int lo = 0;
+        int hi = (end - begin) / 2;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runs[begin + 2 * mid] <= px) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo > 0 && px < runs[begin + 2 * (lo - 1) + 1];
+    }
+
+    /**
+     * Set `dst[k]` to whether pixel (`x0 + k`, `py`) is selected, for all `k` in `dst`.
+     */
+    void fillRow(int py, boolean[] dst, int x0) {
+        Arrays.fill(dst, false);
+        if (py < y || py >= y + height) {
+            return;
+        }
+        for (int k = rowStarts[py - y]; k < rowStarts[py - y + 1]; k += 2) {
+            int begin = Math.max(runs[k] - x0, 0);
+            int end = Math.min(runs[k + 1] - x0, dst.length);
+            if (begin < end) {
+                Arrays.fill(dst, begin, end, true);
+            }
+        }
+    }
+
+    /**
+     * Call `visitor` with each run of selected pixels, in order of rows and then of x.
+     */
+    public void forEachRun(RunVisitor visitor) {
+        visitRows(0, height, visitor);
+    }
+
+    /**
+     * Call `visitor` with each run of selected pixels in row `py`, in order of x.
+     */
+    void forEachRunInRow(int py, RunVisitor visitor) {
+        if (py >= y && py < y + height) {
+            visitRows(py - y, py - y + 1, visitor);
+        }
+    }
+
+    /**
+     * Call `visitor` with each run of selected pixels, visiting bands of rows in parallel (runs in
+     * the same row are visited in order by the same thread).  `visitor` must be safe to call
+     * concurrently for different rows.
+     */
+    public void forEachRunParallel(RunVisitor visitor) {
+        PixelPlanes.parallelRows(height, (r0, r1) -> visitRows(r0, r1, visitor));
+    }
+
+    /**
+     * Call `visitor` with the runs of rows `[y + r0..y + r1)`.
+     */
+    private void visitRows(int r0, int r1, RunVisitor visitor) {
+        for (int r = r0; r < r1; ++r) {
+            for (int k = rowStarts[r]; k < rowStarts[r + 1]; k += 2) {
+                visitor.visit(y + r, runs[k], runs[k + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package selector;
+
+import java.awt.Rectangle;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable soft selection of the pixels of an image: an alpha value for each pixel, feathering
+ * the edge of a `SelectionMask` over a given radius.  A pixel's alpha ramps linearly with the
+ * signed distance of its center from the mask's edge, from 0 at `radius` outside to 255 at
+ * `radius` inside; a radius of 1/2 or less reproduces the hard mask.
+ * <p>
+ * Distances come from an exact Euclidean distance transform of the mask's boundary pixels (the
+ * pixels with a 4-neighbor on the other side of the edge), computed by Felzenszwalb and
+ * Huttenlocher's separable algorithm: distances within each row are found by two sweeps, and are
+ * then combined down each column by taking the lower envelope of the parabolas rooted at them.
+ * Rows and then columns are transformed in parallel bands.  Squared distances are capped just
+ * beyond the radius, so the cost is linear in the area of the mask's bounding box grown by the
+ * radius, whatever the radius.
+ */
+public class SelectionMatte {
+
+    /**
+     * Largest distance, in pixels, beyond the mask's edge at which squared distances are kept,
+     * so that they fit in an int.
+     */
+    private static final int MAX_PAD = 46339;
+
+    /**
+     * Bounds of the pixels whose alpha may be nonzero.
+     */
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    /**
+     * Alpha of pixel (`x + c`, `y + r`) is `alphas[c + width * r] & 0xFF`.
+     */
+    private final byte[] alphas;
+
+    private SelectionMatte(Rectangle bounds, byte[] alphas) {
+        x = bounds.x;
+        y = bounds.y;
+        width = bounds.width;
+        height = bounds.height;
+        this.alphas = alphas;
+    }
+
+    /**
+     * Return the matte feathering the edge of `mask`, which selects pixels of an `imageWidth` x
+     * `imageHeight` image, over `radius` pixels.  The image's own edges are not feathered.  Throws
+     * IllegalArgumentException if `radius` is negative or not a number.
+     */
+    public static SelectionMatte feather(SelectionMask mask, double radius, int imageWidth,
+            int imageHeight) {
+        return feather(mask, radius, imageWidth, imageHeight, 0, imageHeight);
+    }
+
+    /**
+     * Return the part in rows `[yBegin..yEnd)` of the matte feathering the edge of `mask` as for
+     * `feather(mask, radius, imageWidth, imageHeight)`: the alphas are the same, but only the rows
+     * of the mask within `radius` of these are transformed, so a large mask can be feathered a
+     * strip of rows at a time.  Throws IllegalArgumentException if `radius` is negative or not a
+     * number, or if `yBegin > yEnd`.
+     */
+    public static SelectionMatte feather(SelectionMask mask, double radius, int imageWidth,
+            int imageHeight, int yBegin, int yEnd) {
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException("Invalid feather radius: " + radius);
+        }
+        if (yBegin > yEnd) {
+            throw new IllegalArgumentException("Invalid rows: [" + yBegin + ".." + yEnd + ")");
+        }
+        Rectangle full = featherBounds(mask, radius, imageWidth, imageHeight);
+        Rectangle bounds = full.intersection(new Rectangle(0, yBegin, imageWidth, yEnd - yBegin));
+        if (bounds.isEmpty()) {
+            return new SelectionMatte(new Rectangle(), new byte[0]);
+        }
+        int pad = pad(radius);
+        // Boundary pixels more than `pad` rows away are too far from `bounds` to matter
+        Rectangle region = full.intersection(new Rectangle(0, bounds.y - pad, imageWidth,
+                bounds.height + 2 * pad));
+        int w = region.width;
+        int h = region.height;
+        // Squared distances of at least `cap` are too far from the edge to matter
+        int cap = (pad + 1) * (pad + 1);
+
+        int[] squared = new int[w * h];
+        PixelPlanes.parallelRows(h, (r0, r1) ->
+                transformRows(mask, region, imageWidth, imageHeight, cap, squared, r0, r1));
+        PixelPlanes.parallelRows(w, (c0, c1) -> transformColumns(w, h, cap, squared, c0, c1));
+
+        int rows = bounds.height;
+        int skip = w * (bounds.y - region.y);
+        byte[] alphas = new byte[w * rows];
+        double halfWidth = Math.max(radius, 0.5);
+        PixelPlanes.parallelRows(rows, (r0, r1) -> {
+            boolean[] inside = new boolean[w];
+            for (int r = r0; r < r1; ++r) {
+                mask.fillRow(bounds.y + r, inside, region.x);
+                for (int c = 0; c < w; ++c) {
+                    int d2 = squared[skip + c + w * r];
+                    if (d2 == cap) {
+                        alphas[c + w * r] = inside[c] ? (byte) 255 : 0;
+                        continue;
+                    }
+                    // Boundary pixels are half a pixel from the edge
+                    double distance = Math.sqrt(d2) + 0.5;
+                    double signed = inside[c] ? distance : -distance;
+                    double alpha = 0.5 + signed / (2 * halfWidth);
+                    alphas[c + w * r] = (byte) Math.round(255 * Math.min(1, Math.max(0, alpha)));
+                }
+            }
+        });
+        return new SelectionMatte(bounds, alphas);
+    }
+
+    /**
+     * Return the bounds of `feather(mask, radius, imageWidth, imageHeight)` without computing it:
+     * the bounding box of `mask` grown by `radius`, clipped to the image, or an empty rectangle if
+     * `mask` is empty.
+     */
+    public static Rectangle featherBounds(SelectionMask mask, double radius, int imageWidth,
+            int imageHeight) {
+        if (mask.isEmpty()) {
+            return new Rectangle();
+        }
+        int pad = pad(radius);
+        Rectangle bounds = mask.bounds();
+        bounds.grow(pad, pad);
+        return bounds.intersection(new Rectangle(imageWidth, imageHeight));
+    }
+
+    /**
+     * Return the distance beyond the edge of a mask within which pixels may be selected when
+     * feathering it over `radius`.
+     */
+    private static int pad(double radius) {
+        // No pixel farther than this from the mask's bounding box is within `radius` of its edge
+        return (int) Math.min(Math.ceil(radius), MAX_PAD);
+    }
+
+    /**
+     * Set `squared` (with row stride `region.width`) in rows `[r0..r1)` of `region` to the squared
+     * distances, capped at `cap`, from each pixel to the nearest boundary pixel of `mask` in its
+     * row.  Neighbors outside of the `imageWidth` x `imageHeight` image are ignored when finding
+     * boundary pixels.
+     */
+    private static void transformRows(SelectionMask mask, Rectangle region, int imageWidth,
+            int imageHeight, int cap, int[] squared, int r0, int r1) {
+        int w = region.width;
+        boolean[] above = new boolean[w];
+        boolean[] row = new boolean[w];
+        boolean[] below = new boolean[w];
+        boolean[] boundary = new boolean[w];
+        boolean hasLeft = region.x > 0;
+        boolean hasRight = region.x + w < imageWidth;
+        mask.fillRow(region.y + r0 - 1, above, region.x);
+        mask.fillRow(region.y + r0, row, region.x);
+        for (int r = r0; r < r1; ++r) {
+            int py = region.y + r;
+            mask.fillRow(py + 1, below, region.x);
+            for (int c = 0; c < w; ++c) {
+                // Pixels just outside of the region are outside of the mask
+                boolean in = row[c];
+                boolean leftDiffers = (c > 0) ? row[c - 1] != in : hasLeft && in;
+                boolean rightDiffers = (c + 1 < w) ? row[c + 1] != in : hasRight && in;
+                boolean upDiffers = py > 0 && above[c] != in;
+                boolean downDiffers = py + 1 < imageHeight && below[c] != in;
+                boundary[c] = leftDiffers || rightDiffers || upDiffers || downDiffers;
+            }
+
+            // Sweep right and then left, tracking the distance to the nearest boundary pixel
+            int offset = w * r;
+            int distance = Integer.MAX_VALUE;
+            for (int c = 0; c < w; ++c) {
+                distance = boundary[c] ? 0 : (distance == Integer.MAX_VALUE) ? distance
+                        : distance + 1;
+                squared[offset + c] = square(distance, cap);
+            }
+            distance = Integer.MAX_VALUE;
+            for (int c = w - 1; c >= 0; --c) {
+                distance = boundary[c] ? 0 : (distance == Integer.MAX_VALUE) ? distance
+                        : distance + 1;
+                squared[offset + c] = Math.min(squared[offset + c], square(distance, cap));
+            }
+
+            boolean[] t = above;
+            above = row;
+            row = below;
+            below = t;
+        }
+    }
+
+    /**
+     * Return the square of `distance`, or `cap` if that is smaller.
+     */
+    private static int square(int distance, int cap) {
+        return (int) Math.min((long) distance * distance, cap);
+    }
+
+    /**
+     * Replace the squared row distances in columns `[c0..c1)` of `squared` (a `w` x `h` grid) with
+     * squared Euclidean distances, capped at `cap`, by taking the lower envelope of the parabolas
+     * `(r - q)^2 + squared[q]` down each column.  Parabolas raised to `cap` are left out, since
+     * they cannot bring any distance below it.
+     */
+    private static void transformColumns(int w, int h, int cap, int[] squared, int c0, int c1) {
+        // Copy the columns out a row at a time, so that both grids are read and written in
+        //  cache-friendly order and each column is contiguous.
+        int n = c1 - c0;
+        int[] columns = new int[n * h];
+        for (int r = 0; r < h; ++r) {
+            for (int k = 0; k < n; ++k) {
+                columns[r + h * k] = squared[c0 + k + w * r];
+            }
+        }
+
+        int[] roots = new int[h];
+        double[] bounds = new double[h + 1];
+        int[] distances = new int[h];
+        for (int base = 0; base < columns.length; base += h) {
+            // Parabola `roots[k]` is lowest in `[bounds[k]..bounds[k+1])`
+            int k = -1;
+            for (int q = 0; q < h; ++q) {
+                if (columns[base + q] >= cap) {
+                    continue;
+                }
+                double s = Double.NEGATIVE_INFINITY;
+                if (k >= 0) {
+                    s = intersection(columns, base, roots[k], q);
+                    while (s <= bounds[k]) {
+                        k -= 1;
+                        s = intersection(columns, base, roots[k], q);
+                    }
+                }
+                k += 1;
+                roots[k] = q;
+                bounds[k] = s;
+            }
+            if (k < 0) {
+                continue;
+            }
+            bounds[k + 1] = Double.POSITIVE_INFINITY;
+
+            k = 0;
+            for (int r = 0; r < h; ++r) {
+                while (bounds[k + 1] < r) {
+                    k += 1;
+                }
+                long d = (long) (r - roots[k]) * (r - roots[k]) + columns[base + roots[k]];
+                distances[r] = (int) Math.min(d, cap);
+            }
+            System.arraycopy(distances, 0, columns, base, h);
+        }
+
+        for (int r = 0; r < h; ++r) {
+            for (int k = 0; k < n; ++k) {
+                squared[c0 + k + w * r] = columns[r + h * k];
+            }
+        }
+    }
+
+    /**
+     * Return the coordinate at which the parabolas rooted at `p` and `q` (with `p < q`) and raised
+     * by `f[base + p]` and `f[base + q]` intersect.
+     */
+    private static double intersection(int[] f, int base, int p, int q) {
+        return ((f[base + q] + (double) q * q) - (f[base + p] + (double) p * p))
+                / (2.0 * (q - p));
+    }
+
+    /**
+     * Return the bounds of the pixels whose alpha may be nonzero, which are empty if the matte
+     * selects nothing.
+     */
+    public Rectangle bounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * Return the alpha (from 0 to 255) with which pixel (`px`, `py`) is selected.
+     */
+    public int alpha(int px, int py) {
+        if (px < x || px >= x + width || py < y || py >= y + height) {
+            return 0;
+        }
+        return alphas[(px - x) + width * (py - y)] & 0xFF;
+    }
+
+    /**
+     * Call `rowVisitor` with the y coordinate of each row of our bounds, visiting bands of rows in
+     * parallel.  `rowVisitor` must be safe to call concurrently for different rows.
+     */
+    public void forEachRowParallel(IntConsumer rowVisitor) {
+        PixelPlanes.parallelRows(height, (r0, r1) -> {
+            for (int r = r0; r < r1; ++r) {
+                rowVisitor.accept(y + r);
+            }
+        });
+    }
+}
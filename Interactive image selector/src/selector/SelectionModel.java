@@ -5,20 +5,36 @@ import static selector.SelectionModel.SelectionState.PROCESSING;
 import static selector.SelectionModel.SelectionState.SELECTED;
 import static selector.SelectionModel.SelectionState.SELECTING;
 
-import java.awt.AlphaComposite;
 import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.SwingPropertyChangeSupport;
 
 /**
@@ -90,6 +106,42 @@ public abstract class SelectionModel {
      */
     protected SwingPropertyChangeSupport propSupport;
 
+    /**
+     * Number of property changes other than "progress" that our listeners have been notified of,
+     * counted by a listener of our own registered before any others (see `generation()`).
+     */
+    private long generation;
+
+    /**
+     * The mask of the pixels of `maskImage` inside the selection path formed by `maskSegments`, or
+     * null if no mask has been rasterized yet.  Segments are immutable, so the mask remains valid
+     * as long as `selection` holds the same segment objects (see `selectionMask()`).
+     */
+    private SelectionMask mask;
+    private PolyLine[] maskSegments;
+    private BufferedImage maskImage;
+
+    /**
+     * Radius, in pixels, over which the edge of the selection is feathered when saving or filling
+     * it (0 for a hard edge).
+     */
+    private double featherRadius;
+
+    /**
+     * The matte feathering `matteMask` over `matteRadius`, or null if no matte has been computed
+     * yet.
+     */
+    private SelectionMatte matte;
+    private SelectionMask matteMask;
+    private double matteRadius;
+
+    /**
+     * Workers returned by `exportSelection()` that may still be reading our image, which must not
+     * be modified while any are (see `isExporting()`).  Only accessed on Swing's Event Dispatch
+     * thread.
+     */
+    private final List<ExportWorker> exports = new ArrayList<>();
+
 
     /**
      * If `notifyOnEdt` is true, property change listeners will be notified on Swing's Event
@@ -101,6 +153,7 @@ public abstract class SelectionModel {
         state = NO_SELECTION;
         selection = new LinkedList<>();
         propSupport = new SwingPropertyChangeSupport(this, notifyOnEdt);
+        propSupport.addPropertyChangeListener(this::countChange);
     }
 
     /**
@@ -118,7 +171,9 @@ public abstract class SelectionModel {
         start = copy.start;
         selection = new LinkedList<>(copy.selection);
         img = copy.img;
+        featherRadius = copy.featherRadius;
         propSupport = new SwingPropertyChangeSupport(this, copy.propSupport.isNotifyOnEDT());
+        propSupport.addPropertyChangeListener(this::countChange);
     }
 
     /* Client interface */
@@ -179,6 +234,14 @@ public abstract class SelectionModel {
         }
     }
 
+    /**
+     * Return whether points may also be added once our selection is finished, extending it in a
+     * way determined by subclasses (by default, they may not).
+     */
+    public boolean canExtendSelection() {
+        return false;
+    }
+
     /**
      * Return the last (end) point along the current selection path.  If no segments have been added
      * to the selection yet, or if the selection has finished, this will be the starting point.
@@ -205,6 +268,54 @@ public abstract class SelectionModel {
      */
     public abstract PolyLine liveWire(Point p);
 
+    /**
+     * Replace the contents of `buffer` with the points of `liveWire(p)`, and return `buffer`.
+     * Callers that track the mouse should reuse one buffer, which subclasses that override this
+     * fill without allocating once it has grown large enough.  By default the result of
+     * `liveWire(p)` is copied.  Implementations must not save a reference to `p`.
+     */
+    public PolyLineBuffer liveWire(Point p, PolyLineBuffer buffer) {
+        buffer.clear();
+        buffer.append(liveWire(new Point(p)));
+        return buffer;
+    }
+
+    /**
+     * Append our last point (see `lastPoint()`) to `buffer` without allocating.  Throws an
+     * `IllegalStateException` if our state is NO_SELECTION.
+     */
+    protected void appendLastPoint(PolyLineBuffer buffer) {
+        if (state == NO_SELECTION) {
+            throw new IllegalStateException(
+                    "Cannot query last point when not selection has been started");
+        }
+        if (selection.isEmpty()) {
+            buffer.append(start.x, start.y);
+        } else {
+            PolyLine lastSeg = selection.getLast();
+            buffer.append(lastSeg.endX(), lastSeg.endY());
+        }
+    }
+
+    /**
+     * Return a count that changes whenever our listeners are notified of a change to any property
+     * other than "progress", such as our selection, state, or image.  Results of `liveWire()` may
+     * be reused for as long as the count is unchanged, since every change to what they depend on
+     * is announced by such an event.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Count `e` towards our generation unless it only reports progress.
+     */
+    private void countChange(PropertyChangeEvent e) {
+        if (!"progress".equals(e.getPropertyName())) {
+            generation += 1;
+        }
+    }
+
     /**
      * If we are still processing the most recently added point, cancel that operation.  Otherwise,
      * remove the last segment from the selection path.  If the selection path does not contain any
@@ -288,11 +399,32 @@ public abstract class SelectionModel {
      */
     public abstract void movePoint(int index, Point newPos);
 
+    /**
+     * Return the radius, in pixels, over which the edge of the selection is feathered when saving
+     * or filling it.
+     */
+    public double featherRadius() {
+        return featherRadius;
+    }
+
+    /**
+     * Feather the edge of the selection over `radius` pixels when saving or filling it (see
+     * `SelectionMatte`); 0 gives a hard edge.  Throws IllegalArgumentException if `radius` is
+     * negative or not a number.
+     */
+    public void setFeatherRadius(double radius) {
+        if (!(radius >= 0)) {
+            throw new IllegalArgumentException("Invalid feather radius: " + radius);
+        }
+        featherRadius = radius;
+    }
+
     /**
      * Write a PNG image to `out` containing the pixels from the current selection.  The size of the
-     * image matches the bounding box of the selection, and pixels outside of the selection are
-     * transparent.  Throws an IOException if the image could not be written.  Throws an
-     * IllegalStateException if our selection is not finished.
+     * image matches the bounding box of the selected pixels (see `selectionMask()`), grown by the
+     * feather radius, and pixels outside of the selection are transparent.  Throws an IOException
+     * if the image could not be written.  Throws an IllegalStateException if our selection is not
+     * finished or contains no pixels.
      */
     public void saveSelection(OutputStream out) throws IOException {
         assert img != null;
@@ -301,42 +433,248 @@ public abstract class SelectionModel {
             throw new IllegalStateException("Must complete selection before saving");
         }
 
-        Polygon clip = PolyLine.makePolygon(selection);
-        Rectangle bounds = clip.getBounds();
+        saveRegion(selectionMask(), out);
+    }
+
+    /**
+     * Write a PNG image to `out` containing the pixels of our image selected by `region`, such as
+     * a combination of several selections (see `SelectionMask`), as for `saveSelection()`.  Throws
+     * an IOException if the image could not be written.  Throws an IllegalStateException if
+     * `region` contains no pixels.
+     */
+    public void saveRegion(SelectionMask region, OutputStream out) throws IOException {
+        assert img != null;
+
+        if (region.isEmpty()) {
+            throw new IllegalStateException("Selection contains no pixels");
+        }
+        new RegionExport(img, region, featherRadius).writePng(Channels.newChannel(out),
+                percent -> {}, () -> false);
+    }
+
+    /**
+     * Write the current selection to `out` in `format` (see `MaskExport`): bitmaps and run-length
+     * masks cover our whole image and come from `selectionMask()`, while chain codes follow our
+     * selection path.  The feather radius is ignored.  `out` is flushed but not closed.  Throws an
+     * IOException if the mask could not be written.  Throws an IllegalStateException if our
+     * selection is not finished.
+     */
+    public void saveMask(MaskExport.Format format, OutputStream out) throws IOException {
+        assert img != null;
 
-        clip.translate(-bounds.x, -bounds.y);
+        if (state != SELECTED) {
+            throw new IllegalStateException("Must complete selection before saving");
+        }
+        switch (format) {
+            case PBM -> MaskExport.writePbm(selectionMask(), img.getWidth(), img.getHeight(), out);
+            case COCO_RLE -> MaskExport.writeCocoRle(selectionMask(), img.getWidth(),
+                    img.getHeight(), out);
+            case CHAIN_CODE -> MaskExport.writeChainCode(selection, out);
+        }
+    }
+
+    /**
+     * Return a worker that, when executed, writes an image containing the pixels from the current
+     * selection to `file`, as for `saveSelection()`, on a background thread.  The image is a tiled
+     * TIFF if `file`'s name ends in ".tif" or ".tiff" (ignoring case), and a PNG otherwise.  Rows
+     * or tiles are encoded in parallel and streamed to the file as they are ready (see
+     * `PngEncoder` and `TiffEncoder`), and the worker's "progress" property reports the percentage
+     * written.  TIFF export holds only a few tiles in memory, and feathered export only a few
+     * strips of the matte, however large the selection.  If the worker is cancelled or writing
+     * fails, the partial file is deleted, and `get()` reports any failure.  Must be called on
+     * Swing's Event Dispatch thread.  Our image cannot be modified (see `isExporting()`) until
+     * the worker has finished running or has been cancelled before it started.  Throws an
+     * IllegalStateException if our selection is not finished or contains no pixels.
+     */
+    public SwingWorker<Void, Void> exportSelection(Path file) {
+        assert img != null;
 
-        BufferedImage dst = new BufferedImage(bounds.width, bounds.height,
-                BufferedImage.TYPE_INT_ARGB);
+        if (state != SELECTED) {
+            throw new IllegalStateException("Must complete selection before saving");
+        }
+        SelectionMask region = selectionMask();
+        if (region.isEmpty()) {
+            throw new IllegalStateException("Selection contains no pixels");
+        }
+        String name = file.getFileName().toString().toLowerCase();
+        boolean tiff = name.endsWith(".tif") || name.endsWith(".tiff");
+        ExportWorker worker = new ExportWorker(img, region, featherRadius, file, tiff,
+                () -> propSupport.firePropertyChange("exporting", true, isExporting()));
+        boolean wasExporting = isExporting();
+        exports.add(worker);
+        propSupport.firePropertyChange("exporting", wasExporting, true);
+        return worker;
+    }
 
-        var g = dst.createGraphics();
-        g.setClip(clip);
-        g.drawImage(img, -bounds.x, -bounds.y, null);
+    /**
+     * Return whether a worker returned by `exportSelection()` may still be reading our image, in
+     * which case the image may not be modified: one that has not finished running and was not
+     * cancelled before it started.  Listeners are notified that the "exporting" property has
+     * changed when an export starts and when one finishes running.
+     */
+    public boolean isExporting() {
+        exports.removeIf(ExportWorker::isFinished);
+        return !exports.isEmpty();
+    }
 
-        ImageIO.write(dst, "png", out);
+    /**
+     * Throw an IllegalStateException if our image may not be modified because it is being
+     * exported (see `isExporting()`).
+     */
+    protected void checkNotExporting() {
+        if (isExporting()) {
+            throw new IllegalStateException("Cannot modify the image while it is being saved");
+        }
     }
 
+    /**
+     * Make the pixels of the image inside the current selection transparent (or black, if the
+     * image has no alpha channel), and reset the selection.  Throws an IllegalStateException if
+     * our selection is not finished or our image is being exported.
+     */
     public void deleteSelectedRegion() {
-        // 1. Must be in the SELECTED state
         if (state != SelectionState.SELECTED) {
             throw new IllegalStateException("Selection must be finished before deleting the region.");
         }
 
-        // 2. Make a standard AWT Polygon from the PolyLine list
-        Polygon polygon = PolyLine.makePolygon(selection);
+        deleteRegion(selectionMask());
 
-        // 3. Get a Graphics2D context and fill the polygon
-        Graphics2D g2 = img.createGraphics();
-        g2.setClip(polygon);
+        // Reset the selection so user can't manipulate it further
+        reset();
+    }
 
-        // Example: Fill with black
-        g2.setComposite(AlphaComposite.Clear);
-        g2.fillRect(0, 0, img.getWidth(), img.getHeight());
+    /**
+     * Make the pixels of our image selected by `region` transparent (or black, if the image has
+     * no alpha channel).  The selection is not changed.  Throws an IllegalStateException if our
+     * image is being exported.
+     */
+    public void deleteRegion(SelectionMask region) {
+        checkNotExporting();
+        fillMask(region, 0);
+    }
 
-        g2.dispose();
+    /**
+     * Replace our selection with a path around the pixels of `region`, such as a combination of
+     * several selections (see `SelectionMask.toSegments()`), and transition to the SELECTED
+     * state.  Any previous selection is reset first.  Listeners will be notified that the "state"
+     * and "selection" properties have changed.  Throws an IllegalArgumentException if `region`
+     * contains no pixels, or an IllegalStateException if our state is PROCESSING.
+     */
+    public void selectRegion(SelectionMask region) {
+        assert img != null;
+
+        if (state == PROCESSING) {
+            throw new IllegalStateException("Cannot select a region in state " + state);
+        }
+        List<PolyLine> outline = region.toSegments();
 
-        // 4. Reset the selection so user can’t manipulate it further
         reset();
+        setOutline(region, outline);
+    }
+
+    /**
+     * Replace our selection with a path around the pixels of `region`, as for `selectRegion()`,
+     * but without resetting this model first, so that subclasses keep any state describing how
+     * the region was chosen (internal operation).  Requires that our state is not PROCESSING.
+     */
+    protected void replaceSelection(SelectionMask region) {
+        assert img != null && state != PROCESSING;
+        setOutline(region, region.toSegments());
+    }
+
+    /**
+     * Replace our selection with `outline`, the path around the pixels of `region` (see
+     * `SelectionMask.toSegments()`), and transition to the SELECTED state if not already there.
+     * Listeners will be notified that the "selection" property has changed.
+     */
+    private void setOutline(SelectionMask region, List<PolyLine> outline) {
+        selection.clear();
+        selection.addAll(outline);
+        start = selection.getFirst().start();
+        // The outline rasterizes back to `region`, unless it extends beyond the image
+        if (new Rectangle(img.getWidth(), img.getHeight()).contains(region.bounds())) {
+            mask = region;
+            maskSegments = selection.toArray(new PolyLine[0]);
+            maskImage = img;
+        }
+        if (state != SELECTED) {
+            setState(SELECTED);
+        }
+        propSupport.firePropertyChange("selection", null, selection());
+    }
+
+    /**
+     * Return the mask of the pixels of our image inside our selection path.  The mask is cached
+     * until the selection or image changes.  Throws an IllegalStateException if our selection is
+     * not finished.
+     */
+    public SelectionMask selectionMask() {
+        if (state != SELECTED) {
+            throw new IllegalStateException("Selection is not yet finished");
+        }
+        if (mask == null || maskImage != img || !sameSegments(maskSegments, selection)) {
+            maskSegments = selection.toArray(new PolyLine[0]);
+            maskImage = img;
+            mask = SelectionMask.rasterize(selection, img.getWidth(), img.getHeight());
+        }
+        return mask;
+    }
+
+    /**
+     * Return the matte feathering the edge of `selectionMask()` over our feather radius.  The matte
+     * is cached until the selection, image, or radius changes.  Throws an IllegalStateException if
+     * our selection is not finished.
+     */
+    public SelectionMatte selectionMatte() {
+        return matteOf(selectionMask());
+    }
+
+    /**
+     * Return the matte feathering the edge of `region` over our feather radius, reusing the last
+     * one computed if it was for the same region and radius.
+     */
+    private SelectionMatte matteOf(SelectionMask region) {
+        if (matte == null || matteMask != region || matteRadius != featherRadius) {
+            matteMask = region;
+            matteRadius = featherRadius;
+            matte = SelectionMatte.feather(region, featherRadius, img.getWidth(),
+                    img.getHeight());
+        }
+        return matte;
+    }
+
+    /**
+     * Return whether `segments` holds the same segment objects as `list`, in the same order.
+     */
+    private static boolean sameSegments(PolyLine[] segments, List<PolyLine> list) {
+        if (segments.length != list.size()) {
+            return false;
+        }
+        int k = 0;
+        for (PolyLine segment : list) {
+            if (segments[k++] != segment) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the pixels of our image selected by `mask` to the ARGB color `argb`, processing bands of
+     * rows in parallel.
+     */
+    private void fillMask(SelectionMask mask, int argb) {
+        int[] direct = PixelPlanes.directArgb(img);
+        if (direct != null) {
+            int width = img.getWidth();
+            mask.forEachRunParallel((y, xBegin, xEnd) ->
+                    Arrays.fill(direct, xBegin + width * y, xEnd + width * y, argb));
+        } else {
+            int[] row = new int[mask.bounds().width];
+            Arrays.fill(row, argb);
+            mask.forEachRunParallel((y, xBegin, xEnd) ->
+                    img.setRGB(xBegin, y, xEnd - xBegin, 1, row, 0, xEnd - xBegin));
+        }
     }
 
 
@@ -395,28 +733,71 @@ public abstract class SelectionModel {
         }
     }
 
+    /**
+     * Paint the pixels of the image inside the current selection with `color`, blending it over
+     * them if it is translucent or where the selection's edge is feathered.  Throws an
+     * IllegalStateException if our selection is not finished or our image is being exported.
+     */
     public void fillSelectionWithColor(Color color) {
         if (state != SelectionState.SELECTED) {
             throw new IllegalStateException("Selection must be finished before filling with a color.");
         }
 
-        // Convert the selection (a list of PolyLine segments) into a Java AWT Polygon
-        Polygon polygon = PolyLine.makePolygon(selection);
-
-        // Get a Graphics2D object to draw on the BufferedImage
-        Graphics2D g2 = img.createGraphics();
-
-        // Restrict all drawing to the polygonal region
-        g2.setClip(polygon);
-
-        // Fill with the user-chosen color
-        g2.setColor(color);
-        g2.fillRect(0, 0, img.getWidth(), img.getHeight());
+        fillRegionWithColor(selectionMask(), color);
+    }
 
-        g2.dispose();
+    /**
+     * Paint the pixels of our image selected by `region`, such as a combination of several
+     * selections (see `SelectionMask`), with `color`, as for `fillSelectionWithColor()`.
+     * Throws an IllegalStateException if our image is being exported.
+     */
+    public void fillRegionWithColor(SelectionMask region, Color color) {
+        checkNotExporting();
+        if (featherRadius > 0) {
+            SelectionMatte matte = matteOf(region);
+            Rectangle bounds = matte.bounds();
+            matte.forEachRowParallel(y -> {
+                int[] row = img.getRGB(bounds.x, y, bounds.width, 1, null, 0, bounds.width);
+                for (int k = 0; k < row.length; ++k) {
+                    int alpha = (color.getAlpha() * matte.alpha(bounds.x + k, y) + 127) / 255;
+                    row[k] = blendOver((alpha << 24) | (color.getRGB() & 0xFFFFFF), row[k]);
+                }
+                img.setRGB(bounds.x, y, bounds.width, 1, row, 0, bounds.width);
+            });
+        } else if (color.getAlpha() == 255) {
+            fillMask(region, color.getRGB());
+        } else {
+            // Blend translucent colors over the existing pixels, as drawing would
+            region.forEachRunParallel((y, xBegin, xEnd) -> {
+                int[] row = img.getRGB(xBegin, y, xEnd - xBegin, 1, null, 0, xEnd - xBegin);
+                for (int k = 0; k < row.length; ++k) {
+                    row[k] = blendOver(color.getRGB(), row[k]);
+                }
+                img.setRGB(xBegin, y, xEnd - xBegin, 1, row, 0, xEnd - xBegin);
+            });
+        }
+    }
 
-        // Optionally reset the selection
-        // reset();
+    /**
+     * Return the non-premultiplied ARGB color resulting from compositing `src` over `dst` (both
+     * non-premultiplied ARGB).
+     */
+    private static int blendOver(int src, int dst) {
+        int srcAlpha = src >>> 24;
+        int dstAlpha = dst >>> 24;
+        int outAlpha255 = srcAlpha * 255 + dstAlpha * (255 - srcAlpha);
+        if (outAlpha255 == 0) {
+            return 0;
+        }
+        int argb = ((outAlpha255 + 127) / 255) << 24;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int s = (src >> shift) & 0xFF;
+            int d = (dst >> shift) & 0xFF;
+            int c = (s * srcAlpha * 255 + d * dstAlpha * (255 - srcAlpha) + outAlpha255 / 2)
+                    / outAlpha255;
+            argb |= c << shift;
+        }
+        return argb;
     }
 
     /* Observation interface */
@@ -471,4 +852,243 @@ public abstract class SelectionModel {
     public Object getProcessingProgress() {
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * The pixels of an image selected by a region, or by its feathered matte, cropped to their
+     * bounds, as a source of rows for `PngEncoder` or of tiles for `TiffEncoder`.  The matte is
+     * computed a strip of rows at a time as the encoder reaches them, and only the strips read
+     * most recently are kept, so memory does not grow with the area of the region.
+     */
+    private static class RegionExport implements PngEncoder.RowSource, TiffEncoder.TileSource {
+
+        /**
+         * Number of rows in each strip of the matte.
+         */
+        private static final int STRIP_ROWS = 256;
+
+        /**
+         * Number of strips of the matte kept at once: enough for every encoding thread to be
+         * reading a different strip, with one more each to spare.
+         */
+        private static final int STRIPS_KEPT = 2 * Runtime.getRuntime().availableProcessors() + 2;
+
+        private final BufferedImage img;
+        private final SelectionMask region;
+
+        /**
+         * Radius over which `region` is feathered (0 for a hard edge).
+         */
+        private final double featherRadius;
+
+        /**
+         * Bounds of the exported pixels in `img`.
+         */
+        private final Rectangle bounds;
+
+        /**
+         * Strips of the matte feathering `region`, by index from the top of `bounds`, in order of
+         * last use.  Each is computed by the first thread to need it, while threads needing the
+         * same strip wait for it.
+         */
+        private final LinkedHashMap<Integer, FutureTask<SelectionMatte>> strips =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<Integer, FutureTask<SelectionMatte>> eldest) {
+                        return size() > STRIPS_KEPT;
+                    }
+                };
+
+        RegionExport(BufferedImage img, SelectionMask region, double featherRadius) {
+            this.img = img;
+            this.region = region;
+            this.featherRadius = featherRadius;
+            bounds = (featherRadius > 0) ? SelectionMatte.featherBounds(region, featherRadius,
+                    img.getWidth(), img.getHeight()) : region.bounds();
+        }
+
+        /**
+         * Write our pixels to `out` as a PNG image, reporting the percentage written to
+         * `progress` and checking for cancellation as for `PngEncoder.encode()`.
+         */
+        void writePng(WritableByteChannel out, IntConsumer progress, BooleanSupplier cancelled)
+                throws IOException {
+            new PngEncoder(bounds.width, bounds.height).encode(this, out,
+                    rows -> progress.accept(100 * rows / bounds.height), cancelled);
+        }
+
+        /**
+         * Write our pixels to `out` as a tiled TIFF image, which is BigTIFF if it might not fit in
+         * 4 GiB, reporting the percentage written to `progress` and checking for cancellation as
+         * for `TiffEncoder.encode()`.
+         */
+        void writeTiff(SeekableByteChannel out, IntConsumer progress, BooleanSupplier cancelled)
+                throws IOException {
+            TiffEncoder encoder = new TiffEncoder(bounds.width, bounds.height,
+                    TiffEncoder.needsBigTiff(bounds.width, bounds.height));
+            encoder.encode(this, out,
+                    tiles -> progress.accept(100 * tiles / encoder.tileCount()), cancelled);
+        }
+
+        @Override
+        public void readRow(int y, int[] argb) {
+            readSpan(0, y, bounds.width, argb, 0);
+        }
+
+        @Override
+        public void readTile(int x, int y, int width, int height, int[] argb) {
+            for (int r = 0; r < height; ++r) {
+                readSpan(x, y + r, width, argb, r * width);
+            }
+        }
+
+        /**
+         * Store the colors of the `width` exported pixels starting at column `x` of row `y`
+         * (relative to our bounds) in `argb`, starting at index `offset`.
+         */
+        private void readSpan(int x, int y, int width, int[] argb, int offset) {
+            int px = bounds.x + x;
+            int py = bounds.y + y;
+            if (featherRadius == 0) {
+                Arrays.fill(argb, offset, offset + width, 0);
+                region.forEachRunInRow(py, (rowY, xBegin, xEnd) -> {
+                    int begin = Math.max(xBegin, px);
+                    int end = Math.min(xEnd, px + width);
+                    if (begin < end) {
+                        img.getRGB(begin, rowY, end - begin, 1, argb, offset + begin - px, width);
+                    }
+                });
+            } else {
+                SelectionMatte matte = matteStrip(y / STRIP_ROWS);
+                img.getRGB(px, py, width, 1, argb, offset, width);
+                for (int k = 0; k < width; ++k) {
+                    int alpha = ((argb[offset + k] >>> 24) * matte.alpha(px + k, py) + 127) / 255;
+                    argb[offset + k] = (alpha << 24) | (argb[offset + k] & 0xFFFFFF);
+                }
+            }
+        }
+
+        /**
+         * Return strip `index` of the matte feathering our region, computing it if it is not
+         * kept.  Throws a CancellationException if interrupted while waiting for another thread
+         * to compute it.
+         */
+        private SelectionMatte matteStrip(int index) {
+            FutureTask<SelectionMatte> strip;
+            synchronized (strips) {
+                strip = strips.get(index);
+                if (strip == null) {
+                    int yBegin = bounds.y + index * STRIP_ROWS;
+                    int yEnd = Math.min(bounds.y + bounds.height, yBegin + STRIP_ROWS);
+                    strip = new FutureTask<>(() -> SelectionMatte.feather(region, featherRadius,
+                            img.getWidth(), img.getHeight(), yBegin, yEnd));
+                    strips.put(index, strip);
+                }
+            }
+            strip.run();
+            try {
+                return strip.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while feathering");
+            }
+        }
+    }
+
+    /**
+     * SwingWorker exporting the pixels of an image selected by a region to a PNG or TIFF file.
+     */
+    private static class ExportWorker extends SwingWorker<Void, Void> {
+
+        private final BufferedImage img;
+        private final SelectionMask region;
+        private final double featherRadius;
+        private final Path file;
+
+        /**
+         * Whether to write a tiled TIFF image rather than a PNG image.
+         */
+        private final boolean tiff;
+
+        /**
+         * Action to run on Swing's Event Dispatch thread once `doInBackground()` has finished.
+         */
+        private final Runnable onFinished;
+
+        /**
+         * Whether `doInBackground()` has started, or we were found cancelled before it started, so
+         * that it will return without reading `img`.
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * Whether we will no longer read `img`.
+         */
+        private volatile boolean finished;
+
+        ExportWorker(BufferedImage img, SelectionMask region, double featherRadius, Path file,
+                boolean tiff, Runnable onFinished) {
+            this.img = img;
+            this.region = region;
+            this.featherRadius = featherRadius;
+            this.file = file;
+            this.tiff = tiff;
+            this.onFinished = onFinished;
+        }
+
+        /**
+         * Return whether we will no longer read our image: `doInBackground()` has finished, or we
+         * were cancelled before it started.  (Workers cancelled before they start are not notified
+         * that they are done.)
+         */
+        boolean isFinished() {
+            if (isCancelled() && claimed.compareAndSet(false, true)) {
+                finished = true;
+            }
+            return finished;
+        }
+
+        /**
+         * Encode the pixels of our region, feathered if necessary, straight to our file, deleting
+         * the file if cancelled or if writing fails.
+         */
+        @Override
+        protected Void doInBackground() throws IOException {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                export();
+            } finally {
+                finished = true;
+                SwingUtilities.invokeLater(onFinished);
+            }
+            return null;
+        }
+
+        /**
+         * Write our file as for `doInBackground()`.
+         */
+        private void export() throws IOException {
+            RegionExport export = new RegionExport(img, region, featherRadius);
+            boolean complete = false;
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                if (tiff) {
+                    export.writeTiff(out, this::setProgress, this::isCancelled);
+                } else {
+                    export.writePng(out, this::setProgress, this::isCancelled);
+                }
+                complete = true;
+            } catch (CancellationException e) {
+                // Leave no truncated image behind
+            } finally {
+                if (!complete) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+}
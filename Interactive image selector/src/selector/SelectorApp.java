@@ -7,11 +7,17 @@ import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BinaryOperator;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import selector.SelectionModel.SelectionState;
+import scissors.MagicWandSelectionModel;
 import scissors.ScissorsSelectionModel;
+import scissors.SuperpixelScissorsSelectionModel;
+import scissors.WatershedSelectionModel;
 
 /**
  * A graphical application for selecting and extracting regions of images.
@@ -49,6 +55,38 @@ public class SelectorApp implements PropertyChangeListener {
     private JButton projectiveTextButton;
     private final JLabel statusLabel;
 
+    /**
+     * Chooser of the selection tool.  Disabled while the image is being exported, since a new
+     * tool would share the image with the exporting one.
+     */
+    private JComboBox<String> modelChooser;
+
+    /**
+     * Radius over which the edges of saved and filled selections are feathered.  Applied to each
+     * new selection model.
+     */
+    private JSpinner featherSpinner;
+
+    /**
+     * Largest difference from the clicked pixel's color selected by the magic wand.  Applied to
+     * each new magic wand model, and only enabled while one is in use.
+     */
+    private JSpinner toleranceSpinner;
+
+    /**
+     * Radius around each clicked point searched for an edge to snap it to (0 to disable
+     * snapping).  Applied to each new intelligent scissors model, and only enabled while one is
+     * in use.
+     */
+    private JSpinner snapSpinner;
+
+    /**
+     * A selection remembered for combining with later ones, and the image it was made on (both
+     * null if there is none).
+     */
+    private SelectionMask rememberedRegion;
+    private BufferedImage rememberedImage;
+
 
     /**
      * Progress bar to indicate the progress of a model that needs to do long calculations in a
@@ -115,6 +153,8 @@ public class SelectorApp implements PropertyChangeListener {
         fileMenu.add(openItem);
         saveItem = new JMenuItem("Save...");
         fileMenu.add(saveItem);
+        JMenuItem saveMaskItem = new JMenuItem("Save Mask...");
+        fileMenu.add(saveMaskItem);
         JMenuItem closeItem = new JMenuItem("Close");
         fileMenu.add(closeItem);
         JMenuItem exitItem = new JMenuItem("Exit");
@@ -137,6 +177,24 @@ public class SelectorApp implements PropertyChangeListener {
         undoItem = new JMenuItem("Undo");
         editMenu.add(undoItem);
 
+        JMenu regionMenu = new JMenu("Region");
+        menuBar.add(regionMenu);
+        JMenuItem rememberItem = new JMenuItem("Remember Selection");
+        regionMenu.add(rememberItem);
+        rememberItem.addActionListener(e -> rememberSelection());
+        JMenuItem unionItem = new JMenuItem("Add to Remembered");
+        regionMenu.add(unionItem);
+        unionItem.addActionListener(e -> combineWithRemembered("add",
+                (remembered, current) -> remembered.union(current)));
+        JMenuItem subtractItem = new JMenuItem("Subtract from Remembered");
+        regionMenu.add(subtractItem);
+        subtractItem.addActionListener(e -> combineWithRemembered("subtract",
+                (remembered, current) -> remembered.subtract(current)));
+        JMenuItem intersectItem = new JMenuItem("Intersect with Remembered");
+        regionMenu.add(intersectItem);
+        intersectItem.addActionListener(e -> combineWithRemembered("intersect",
+                (remembered, current) -> remembered.intersect(current)));
+
 
 
 
@@ -144,6 +202,7 @@ public class SelectorApp implements PropertyChangeListener {
         openItem.addActionListener(e -> openImage());
         closeItem.addActionListener(e -> imgPanel.setImage(null));
         saveItem.addActionListener(e -> saveSelection());
+        saveMaskItem.addActionListener(e -> saveMask());
         exitItem.addActionListener(e -> frame.dispose());
         undoItem.addActionListener(e -> model.undo());
         projectiveTextItem.addActionListener(e -> doAddPerspectiveText());
@@ -155,6 +214,47 @@ public class SelectorApp implements PropertyChangeListener {
         return menuBar;
     }
 
+    /**
+     * Remember the current selection for combining with later ones.  Show a warning if there is
+     * no finished selection.
+     */
+    private void rememberSelection() {
+        if (model.state() != SelectionState.SELECTED) {
+            JOptionPane.showMessageDialog(frame,
+                    "Please finish selecting a region first.",
+                    "No selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        rememberedRegion = model.selectionMask();
+        rememberedImage = model.image();
+        statusLabel.setText("Selection remembered");
+    }
+
+    /**
+     * Replace the current selection with the result of `operation` on the remembered selection
+     * and the current one, which then becomes the remembered selection.  `verb` names the
+     * operation in messages.  Show a warning if either selection is missing or the result is
+     * empty.
+     */
+    private void combineWithRemembered(String verb,
+            BinaryOperator<SelectionMask> operation) {
+        if (model.state() != SelectionState.SELECTED || rememberedRegion == null
+                || rememberedImage != model.image()) {
+            JOptionPane.showMessageDialog(frame,
+                    "Please remember a selection, then finish another one to " + verb + ".",
+                    "No selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        SelectionMask combined = operation.apply(rememberedRegion, model.selectionMask());
+        if (combined.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "The combined region is empty.",
+                    "Empty region", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        model.selectRegion(combined);
+        rememberedRegion = combined;
+    }
+
     private void doAddPerspectiveText() {
         if (model.state() != SelectionModel.SelectionState.SELECTED) {
             JOptionPane.showMessageDialog(frame,
@@ -322,11 +422,46 @@ public class SelectorApp implements PropertyChangeListener {
         projectiveTextButton.setEnabled(false);
         p.add(projectiveTextButton);
 
+        JPanel featherPanel = new JPanel(new BorderLayout());
+        featherPanel.add(new JLabel("Feather radius: "), BorderLayout.LINE_START);
+        featherSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 1000.0, 0.5));
+        featherPanel.add(featherSpinner, BorderLayout.CENTER);
+        p.add(featherPanel);
+        featherSpinner.addChangeListener(e -> model.setFeatherRadius(
+                ((Number) featherSpinner.getValue()).doubleValue()));
+
+        JPanel tolerancePanel = new JPanel(new BorderLayout());
+        tolerancePanel.add(new JLabel("Wand tolerance: "), BorderLayout.LINE_START);
+        toleranceSpinner = new JSpinner(new SpinnerNumberModel(
+                MagicWandSelectionModel.DEFAULT_TOLERANCE, 0, 255, 1));
+        tolerancePanel.add(toleranceSpinner, BorderLayout.CENTER);
+        p.add(tolerancePanel);
+        toleranceSpinner.addChangeListener(e -> {
+            if (model instanceof MagicWandSelectionModel wand) {
+                wand.setTolerance(((Number) toleranceSpinner.getValue()).intValue());
+            }
+        });
+
+        JPanel snapPanel = new JPanel(new BorderLayout());
+        snapPanel.add(new JLabel("Snap radius: "), BorderLayout.LINE_START);
+        snapSpinner = new JSpinner(new SpinnerNumberModel(0, 0,
+                ScissorsSelectionModel.MAX_SNAP_RADIUS, 1));
+        snapPanel.add(snapSpinner, BorderLayout.CENTER);
+        p.add(snapPanel);
+        snapSpinner.addChangeListener(e -> {
+            if (model instanceof ScissorsSelectionModel scissors) {
+                scissors.setSnapRadius(((Number) snapSpinner.getValue()).intValue());
+            }
+        });
+
         String[] comBoxOptions = new String[]{
-                "Point-to-point", "Intelligent scissors","CrossGradColor","ProjectiveText"
+                "Point-to-point", "Intelligent scissors","CrossGradColor","CrossGradLab",
+                "MultiFeature","Adaptive","Superpixel","Watershed","MagicWand","MagicWandGlobal",
+                "ProjectiveText"
         };
 
-        JComboBox comBox = new JComboBox(comBoxOptions);
+        JComboBox<String> comBox = new JComboBox<>(comBoxOptions);
+        modelChooser = comBox;
 
         p.add(comBox);
 
@@ -340,6 +475,22 @@ public class SelectorApp implements PropertyChangeListener {
                 newModel = new ScissorsSelectionModel("CrossGradMono", model);
             } else if (selectedModel.equals("CrossGradColor")){
                 newModel = new ScissorsSelectionModel("CrossGradColor", model);
+            } else if (selectedModel.equals("CrossGradLab")){
+                newModel = new ScissorsSelectionModel("CrossGradLab", model);
+            } else if (selectedModel.equals("MultiFeature")){
+                newModel = new ScissorsSelectionModel("MultiFeature", model);
+            } else if (selectedModel.equals("Adaptive")){
+                newModel = new ScissorsSelectionModel("Adaptive", model);
+            } else if (selectedModel.equals("Superpixel")){
+                newModel = new SuperpixelScissorsSelectionModel("CrossGradColor", model);
+            } else if (selectedModel.equals("Watershed")){
+                newModel = new WatershedSelectionModel(model);
+            } else if (selectedModel.equals("MagicWand")){
+                newModel = new MagicWandSelectionModel(model);
+            } else if (selectedModel.equals("MagicWandGlobal")){
+                MagicWandSelectionModel wand = new MagicWandSelectionModel(model);
+                wand.setGlobal(true);
+                newModel = wand;
             } else if ((selectedModel.equals("ProjectiveText"))) {
                 newModel = new ProjectiveSelectionModel(true);
             }
@@ -370,6 +521,7 @@ public class SelectorApp implements PropertyChangeListener {
     /**
      * React to property changes in an observed model.  Supported properties include:
      * * "state": Update components to reflect the new selection state.
+     * * "exporting": Disable or re-enable the actions that modify the image.
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
@@ -386,6 +538,8 @@ public class SelectorApp implements PropertyChangeListener {
                 processingProgress.setIndeterminate(false);
             }
 
+        } else if ("exporting".equals(evt.getPropertyName())) {
+            reflectSelectionState(model.state());
         } else if ("progress".equals(evt.getPropertyName())) {
             int progress = (int) evt.getNewValue();
 
@@ -396,7 +550,8 @@ public class SelectorApp implements PropertyChangeListener {
 
     /**
      * Update components to reflect a selection state of `state`.  Disable buttons and menu items
-     * whose actions are invalid in that state, and update the status bar.
+     * whose actions are invalid in that state, or that would modify the image while it is being
+     * exported, and update the status bar.
      */
     private void reflectSelectionState(SelectionState state) {
         // Update status bar to show current state
@@ -460,6 +615,19 @@ public class SelectorApp implements PropertyChangeListener {
             projectiveTextButton.setEnabled(false);
 
         }
+
+        // The image is read on a background thread while it is being exported
+        boolean editable = !model.isExporting();
+        fillItem.setEnabled(editable);
+        projectiveTextItem.setEnabled(editable);
+        pastePerspectiveItem.setEnabled(editable);
+        modelChooser.setEnabled(editable);
+        if (!editable) {
+            deleteButton.setEnabled(false);
+            if (deleteItem != null)
+                deleteItem.setEnabled(false);
+            projectiveTextButton.setEnabled(false);
+        }
     }
 
     /**
@@ -482,9 +650,19 @@ public class SelectorApp implements PropertyChangeListener {
 
         imgPanel.setSelectionModel(newModel);
         model = imgPanel.selection();
+        model.setFeatherRadius(((Number) featherSpinner.getValue()).doubleValue());
+        if (model instanceof MagicWandSelectionModel wand) {
+            wand.setTolerance(((Number) toleranceSpinner.getValue()).intValue());
+        }
+        toleranceSpinner.setEnabled(model instanceof MagicWandSelectionModel);
+        if (model instanceof ScissorsSelectionModel scissors) {
+            scissors.setSnapRadius(((Number) snapSpinner.getValue()).intValue());
+        }
+        snapSpinner.setEnabled(model instanceof ScissorsSelectionModel);
         model.addPropertyChangeListener("state", this);
         // New in A6: Listen for "progress" events
         model.addPropertyChangeListener("progress", this);
+        model.addPropertyChangeListener("exporting", this);
 
         // Since the new model's initial state may be different from the old model's state, manually
         //  trigger an update to our state-dependent view.
@@ -543,15 +721,24 @@ public class SelectorApp implements PropertyChangeListener {
         JFileChooser chooser = new JFileChooser();
         // Start browsing in current directory
         chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
-        // We always save in PNG format, so only show existing PNG files
-        chooser.setFileFilter(new FileNameExtensionFilter("PNG images", "png"));
+        // We save in PNG format, or as a tiled TIFF for cut-outs too large for memory
+        FileNameExtensionFilter png = new FileNameExtensionFilter("PNG images", "png");
+        FileNameExtensionFilter tiff = new FileNameExtensionFilter("Tiled TIFF images", "tif",
+                "tiff");
+        chooser.addChoosableFileFilter(png);
+        chooser.addChoosableFileFilter(tiff);
+        chooser.setFileFilter(png);
 
         int option = chooser.showSaveDialog(frame);
 
         if (option == JFileChooser.APPROVE_OPTION) {
             File file = chooser.getSelectedFile();
 
-            if (!file.getName().endsWith(".png")) {
+            if (chooser.getFileFilter() == tiff) {
+                if (!tiff.accept(file)) {
+                    file = new File(file.getAbsolutePath() + ".tif");
+                }
+            } else if (!file.getName().endsWith(".png")) {
                 file = new File(file.getAbsolutePath() + ".png");
             }
 
@@ -565,19 +752,92 @@ public class SelectorApp implements PropertyChangeListener {
                 }
             }
             try {
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                model.saveSelection(outputStream);
-
-                try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-                    outputStream.writeTo(fileOutputStream);
-                }
-            } catch (IOException | IllegalStateException e) {
+                exportInBackground(model.exportSelection(file.toPath()), file);
+            } catch (IllegalStateException e) {
                 JOptionPane.showMessageDialog(frame, e.getMessage(),
                         e.getClass().getSimpleName(), JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
+    /**
+     * Save the current selection as a mask or contour (see `MaskExport`) to a file selected from a
+     * "save" dialog, in the format of the chosen file filter.  Show an error message dialog if the
+     * mask could not be saved.
+     */
+    private void saveMask() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
+        chooser.setAcceptAllFileFilterUsed(false);
+        MaskExport.Format[] formats = MaskExport.Format.values();
+        FileNameExtensionFilter[] filters = new FileNameExtensionFilter[formats.length];
+        for (int k = 0; k < formats.length; ++k) {
+            filters[k] = new FileNameExtensionFilter(formats[k].description(),
+                    formats[k].extension());
+            chooser.addChoosableFileFilter(filters[k]);
+        }
+        chooser.setFileFilter(filters[0]);
+
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        MaskExport.Format format = formats[Arrays.asList(filters)
+                .indexOf(chooser.getFileFilter())];
+        File file = chooser.getSelectedFile();
+        if (!file.getName().endsWith("." + format.extension())) {
+            file = new File(file.getAbsolutePath() + "." + format.extension());
+        }
+        if (file.exists()) {
+            int response = JOptionPane.showConfirmDialog(frame, "Do you want to overwrite"
+                            + " this file?", "Confirm Overwrite", JOptionPane.YES_NO_CANCEL_OPTION,
+                    JOptionPane.WARNING_MESSAGE);
+            if (response == JOptionPane.NO_OPTION || response == JOptionPane.CANCEL_OPTION) {
+                saveMask();
+                return;
+            }
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            model.saveMask(format, out);
+            statusLabel.setText("Saved " + file.getName());
+        } catch (IOException | IllegalStateException e) {
+            JOptionPane.showMessageDialog(frame, e.getMessage(),
+                    e.getClass().getSimpleName(), JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Run `export`, which writes `file`, on a background thread, showing its progress in a
+     * monitor from which it can be cancelled.  Show an error message dialog if it fails.
+     */
+    private void exportInBackground(SwingWorker<Void, Void> export, File file) {
+        ProgressMonitor monitor = new ProgressMonitor(frame, "Saving " + file.getName(), null,
+                0, 100);
+        export.addPropertyChangeListener(evt -> {
+            if ("progress".equals(evt.getPropertyName())) {
+                monitor.setProgress((int) evt.getNewValue());
+                if (monitor.isCanceled()) {
+                    export.cancel(false);
+                }
+            } else if ("state".equals(evt.getPropertyName())
+                    && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+                monitor.close();
+                if (export.isCancelled()) {
+                    statusLabel.setText("Save cancelled");
+                    return;
+                }
+                try {
+                    export.get();
+                    statusLabel.setText("Saved " + file.getName());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(frame, cause.getMessage(),
+                            cause.getClass().getSimpleName(), JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        export.execute();
+    }
+
     /**
      * Run an instance of SelectorApp.  No program arguments are expected.
      */
@@ -0,0 +1,369 @@
+package selector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.zip.Deflater;
+
+/**
+ * Writes 8-bit RGBA images (with unassociated alpha) as tiled TIFF files whose tiles are read one
+ * at a time from a `TileSource`, so that images far larger than the heap can be written.  Tiles
+ * are compressed with Deflate after horizontal differencing, in parallel, and written in order;
+ * as for `PngEncoder`, only a bounded window of tiles is in flight at a time.  The single image
+ * file directory follows the tiles.
+ * <p>
+ * Files that could exceed 4 GiB are written as BigTIFF, whose offsets are 64 bits wide; smaller
+ * ones are written as classic TIFF, which more readers support.
+ */
+public class TiffEncoder {
+
+    /**
+     * Width and height of each tile, in pixels.  Tiles at the right and bottom edges are padded
+     * with transparent pixels.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * Number of tiles in flight per thread of the common pool.
+     */
+    private static final int TILES_PER_THREAD = 4;
+
+    /**
+     * Bytes per pixel (RGBA).
+     */
+    private static final int BPP = 4;
+
+    /**
+     * Deflate compression level (see `PngEncoder`).
+     */
+    private static final int COMPRESSION_LEVEL = 4;
+
+    /**
+     * Largest file size, in bytes, written as classic TIFF, allowing for the directory and for
+     * incompressible tiles growing slightly when deflated.
+     */
+    private static final long CLASSIC_LIMIT = 0xFFFF_FFFFL * 15 / 16;
+
+    /**
+     * TIFF field types.
+     */
+    private static final short SHORT = 3;
+    private static final short LONG = 4;
+    private static final short LONG8 = 16;
+
+    /**
+     * Supplies the pixels of an image being encoded.
+     */
+    public interface TileSource {
+
+        /**
+         * Store the non-premultiplied ARGB colors of the `width` x `height` pixels whose top-left
+         * corner is (`x`, `y`) in `argb`, row by row.  The rectangle lies within the image.  Must
+         * be safe to call concurrently for different rectangles.
+         */
+        void readTile(int x, int y, int width, int height, int[] argb);
+    }
+
+    /**
+     * Dimensions of the image.
+     */
+    private final int width;
+    private final int height;
+
+    /**
+     * Whether to write BigTIFF rather than classic TIFF.
+     */
+    private final boolean bigTiff;
+
+    /**
+     * Numbers of columns and rows of tiles.
+     */
+    private final int tilesAcross;
+    private final int tilesDown;
+
+    /**
+     * Create an encoder for images that are `width` x `height` pixels, written as BigTIFF if
+     * `bigTiff` is true.  Throws IllegalArgumentException if either dimension is not positive, or
+     * if the image is too large for classic TIFF and `bigTiff` is false.
+     */
+    public TiffEncoder(int width, int height, boolean bigTiff) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        if (!bigTiff && needsBigTiff(width, height)) {
+            throw new IllegalArgumentException("Image too large for classic TIFF: " + width + "x"
+                    + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.bigTiff = bigTiff;
+        tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Return whether a `width` x `height` image might not fit in a classic TIFF file.
+     */
+    public static boolean needsBigTiff(int width, int height) {
+        long tiles = (long) ((width + TILE_SIZE - 1) / TILE_SIZE)
+                * ((height + TILE_SIZE - 1) / TILE_SIZE);
+        return tiles * TILE_SIZE * TILE_SIZE * BPP > CLASSIC_LIMIT;
+    }
+
+    /**
+     * Return the number of tiles in the image.
+     */
+    public int tileCount() {
+        return tilesAcross * tilesDown;
+    }
+
+    /**
+     * Write the image whose pixels are given by `tiles` to `out`, from its current position, as a
+     * TIFF file.  `progress` is called with the number of tiles written so far after each tile,
+     * and `cancelled` is checked before each tile is started.  Throws an IOException if writing
+     * fails, or a CancellationException if `cancelled` returned true, in which case `out` holds an
+     * incomplete image.
+     */
+    public void encode(TileSource tiles, SeekableByteChannel out, IntConsumer progress,
+            BooleanSupplier cancelled) throws IOException {
+        long start = out.position();
+        // The header's directory offset is filled in once the tiles have been written
+        ByteBuffer header = buffer(bigTiff ? 16 : 8);
+        header.put((byte) 'I').put((byte) 'I');
+        if (bigTiff) {
+            header.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(0);
+        } else {
+            header.putShort((short) 42).putInt(0);
+        }
+        writeFully(out, header.flip());
+
+        int tileCount = tileCount();
+        long[] offsets = new long[tileCount];
+        long[] byteCounts = new long[tileCount];
+        int window = TILES_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+        ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (int written = 0; written < tileCount; ++written) {
+                while (next < tileCount && pending.size() < window) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("TIFF encoding cancelled");
+                    }
+                    int tile = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> encodeTile(tiles, tile)));
+                }
+                byte[] encoded = pending.remove().join();
+                offsets[written] = out.position() - start;
+                byteCounts[written] = encoded.length;
+                writeFully(out, ByteBuffer.wrap(encoded));
+                progress.accept(written + 1);
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            for (CompletableFuture<byte[]> future : pending) {
+                future.cancel(false);
+            }
+        }
+
+        // Directories and their out-of-line values must start on word boundaries
+        if ((out.position() - start) % 2 != 0) {
+            writeFully(out, ByteBuffer.wrap(new byte[1]));
+        }
+        long directory = out.position() - start;
+        writeDirectory(out, directory, offsets, byteCounts);
+        long end = out.position();
+        ByteBuffer pointer = buffer(bigTiff ? 8 : 4);
+        if (bigTiff) {
+            pointer.putLong(directory);
+        } else {
+            pointer.putInt((int) directory);
+        }
+        out.position(start + (bigTiff ? 8 : 4));
+        writeFully(out, pointer.flip());
+        out.position(end);
+    }
+
+    /**
+     * Write the image file directory, which starts at offset `directory` in the file, for tiles at
+     * offsets `offsets` with sizes `byteCounts`, followed by the arrays of offsets and sizes.
+     */
+    private void writeDirectory(SeekableByteChannel out, long directory, long[] offsets,
+            long[] byteCounts) throws IOException {
+        int entryCount = 13;
+        int entryBytes = bigTiff ? 20 : 12;
+        int countBytes = bigTiff ? 8 : 2;
+        int offsetBytes = bigTiff ? 8 : 4;
+        long arrays = directory + countBytes + (long) entryCount * entryBytes + offsetBytes;
+        boolean inline = offsets.length == 1;
+
+        ByteBuffer ifd = buffer((int) (arrays - directory));
+        if (bigTiff) {
+            ifd.putLong(entryCount);
+        } else {
+            ifd.putShort((short) entryCount);
+        }
+        // Entries must be sorted by tag
+        putEntry(ifd, 256, LONG, 1, width);
+        putEntry(ifd, 257, LONG, 1, height);
+        // Four 8-bit samples fit inline in BigTIFF, but follow the arrays in classic TIFF
+        long arrayBytes = inline ? 0 : (long) offsets.length * offsetBytes;
+        putEntry(ifd, 258, SHORT, BPP, bigTiff ? 0x0008_0008_0008_0008L : arrays + 2 * arrayBytes);
+        putEntry(ifd, 259, SHORT, 1, 8);
+        putEntry(ifd, 262, SHORT, 1, 2);
+        putEntry(ifd, 277, SHORT, 1, BPP);
+        putEntry(ifd, 284, SHORT, 1, 1);
+        putEntry(ifd, 317, SHORT, 1, 2);
+        putEntry(ifd, 322, LONG, 1, TILE_SIZE);
+        putEntry(ifd, 323, LONG, 1, TILE_SIZE);
+        short offsetType = bigTiff ? LONG8 : LONG;
+        putEntry(ifd, 324, offsetType, offsets.length, inline ? offsets[0] : arrays);
+        putEntry(ifd, 325, offsetType, byteCounts.length,
+                inline ? byteCounts[0] : arrays + arrayBytes);
+        putEntry(ifd, 338, SHORT, 1, 2);
+        // No further directories
+        if (bigTiff) {
+            ifd.putLong(0);
+        } else {
+            ifd.putInt(0);
+        }
+        writeFully(out, ifd.flip());
+
+        if (!inline) {
+            writeArray(out, offsets);
+            writeArray(out, byteCounts);
+        }
+        if (!bigTiff) {
+            ByteBuffer bits = buffer(8);
+            for (int k = 0; k < 4; ++k) {
+                bits.putShort((short) 8);
+            }
+            writeFully(out, bits.flip());
+        }
+    }
+
+    /**
+     * Append a directory entry with tag `tag`, of type `type`, with `count` values, whose value or
+     * offset field holds `value` (left-justified, as TIFF requires for inline values).
+     */
+    private void putEntry(ByteBuffer ifd, int tag, short type, long count, long value) {
+        ifd.putShort((short) tag).putShort(type);
+        if (bigTiff) {
+            ifd.putLong(count);
+        } else {
+            ifd.putInt((int) count);
+        }
+        int fieldBytes = bigTiff ? 8 : 4;
+        int end = ifd.position() + fieldBytes;
+        if (type == SHORT && count == 1) {
+            ifd.putShort((short) value);
+        } else if (bigTiff && (type == LONG8 || count > 1)) {
+            ifd.putLong(value);
+        } else {
+            ifd.putInt((int) value);
+        }
+        while (ifd.position() < end) {
+            ifd.put((byte) 0);
+        }
+    }
+
+    /**
+     * Write `values` as an array of offsets (8 bytes each for BigTIFF, else 4), a block at a time.
+     */
+    private void writeArray(SeekableByteChannel out, long[] values) throws IOException {
+        int offsetBytes = bigTiff ? 8 : 4;
+        ByteBuffer block = buffer(offsetBytes * 8192);
+        for (long value : values) {
+            if (!block.hasRemaining()) {
+                writeFully(out, block.flip());
+                block.clear();
+            }
+            if (bigTiff) {
+                block.putLong(value);
+            } else {
+                block.putInt((int) value);
+            }
+        }
+        writeFully(out, block.flip());
+    }
+
+    /**
+     * Read, difference, and compress tile `tile` (in row-major order) of the image from `tiles`.
+     */
+    private byte[] encodeTile(TileSource tiles, int tile) {
+        int x0 = (tile % tilesAcross) * TILE_SIZE;
+        int y0 = (tile / tilesAcross) * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, width - x0);
+        int h = Math.min(TILE_SIZE, height - y0);
+        int[] argb = new int[w * h];
+        tiles.readTile(x0, y0, w, h, argb);
+
+        // Horizontal differencing: each sample is stored less the same sample to its left
+        byte[] samples = new byte[TILE_SIZE * TILE_SIZE * BPP];
+        for (int r = 0; r < h; ++r) {
+            int previous = 0;
+            int offset = r * TILE_SIZE * BPP;
+            for (int c = 0; c < w; ++c) {
+                int p = argb[c + w * r];
+                samples[offset + BPP * c] = (byte) ((p >> 16) - (previous >> 16));
+                samples[offset + BPP * c + 1] = (byte) ((p >> 8) - (previous >> 8));
+                samples[offset + BPP * c + 2] = (byte) (p - previous);
+                samples[offset + BPP * c + 3] = (byte) ((p >>> 24) - (previous >>> 24));
+                previous = p;
+            }
+            // Padding is transparent black, which differs from the last pixel's samples
+            if (w < TILE_SIZE) {
+                samples[offset + BPP * w] = (byte) -(previous >> 16);
+                samples[offset + BPP * w + 1] = (byte) -(previous >> 8);
+                samples[offset + BPP * w + 2] = (byte) -previous;
+                samples[offset + BPP * w + 3] = (byte) -(previous >>> 24);
+            }
+        }
+
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+        try {
+            deflater.setInput(samples);
+            deflater.finish();
+            byte[] compressed = new byte[samples.length / 2];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return Arrays.copyOf(compressed, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Return a little-endian buffer with capacity `capacity`.
+     */
+    private static ByteBuffer buffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Write all of `buffer` to `out`.
+     */
+    private static void writeFully(SeekableByteChannel out, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LandmarkShortestPathsTest {
+
+    /**
+     * Return a `width` x `height` grid graph whose neighboring vertices are connected in both
+     * directions by edges of equal, pseudo-random weight.
+     */
+    static SimpleGraph makeGrid(int width, int height, long seed) {
+        SimpleGraph g = new SimpleGraph();
+        for (int i = 0; i < width * height; ++i) {
+            g.addVertex(Integer.toString(i));
+        }
+        Random rng = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int id = x + width * y;
+                if (x + 1 < width) {
+                    int w = 1 + rng.nextInt(50);
+                    g.addEdge(id, id + 1, w);
+                    g.addEdge(id + 1, id, w);
+                }
+                if (y + 1 < height) {
+                    int w = 1 + rng.nextInt(50);
+                    g.addEdge(id, id + width, w);
+                    g.addEdge(id + width, id, w);
+                }
+            }
+        }
+        return g;
+    }
+
+    @DisplayName("WHEN querying a directed graph, THEN routes have the same distance as those "
+            + "found by ShortestPaths")
+    @Test
+    void testDirectedRoutesMatchShortestPaths() {
+        SimpleGraph g = SimpleGraph.fromText(ShortestPathsTest.graph1);
+        Weigher<SimpleEdge> w = new SimpleWeigher();
+        var alt = new LandmarkShortestPaths<>(g, w, 2, 0, false);
+        ShortestPaths<SimpleVertex, SimpleEdge> reference = new ShortestPaths<>(g, w);
+
+        int a = g.getVertexByLabel("A").id();
+        int gId = g.getVertexByLabel("G").id();
+        LandmarkShortestPaths.Route route = alt.findRoute(a, gId);
+        assertEquals(50, route.distance());
+        String[] pathLabels = route.path().stream()
+                .map(id -> g.getVertex(id).label())
+                .toArray(String[]::new);
+        assertArrayEquals(new String[]{"A", "C", "E", "F", "G"}, pathLabels);
+
+        for (int src = 0; src < g.vertexCount(); ++src) {
+            PathfindingSnapshot paths = reference.findAllPaths(src);
+            for (int dst = 0; dst < g.vertexCount(); ++dst) {
+                LandmarkShortestPaths.Route r = alt.findRoute(src, dst);
+                if (paths.discovered(dst)) {
+                    assertEquals(paths.distanceTo(dst), r.distance());
+                } else {
+                    assertNull(r);
+                }
+            }
+        }
+    }
+
+    @DisplayName("WHEN querying a symmetric grid, THEN routes are shortest AND fewer vertices are "
+            + "settled than by a full search")
+    @Test
+    void testGrid() {
+        int width = 40;
+        int height = 30;
+        SimpleGraph g = makeGrid(width, height, 1);
+        Weigher<SimpleEdge> w = new SimpleWeigher();
+        var alt = new LandmarkShortestPaths<>(g, w, 4, 0, true);
+        ShortestPaths<SimpleVertex, SimpleEdge> reference = new ShortestPaths<>(g, w);
+
+        Random rng = new Random(2);
+        int totalSettled = 0;
+        int queries = 50;
+        for (int i = 0; i < queries; ++i) {
+            int src = rng.nextInt(g.vertexCount());
+            int dst = rng.nextInt(g.vertexCount());
+            PathfindingSnapshot paths = reference.findAllPaths(src);
+            LandmarkShortestPaths.Route route = alt.findRoute(src, dst);
+            assertEquals(paths.distanceTo(dst), route.distance());
+
+            // The route must be a valid path in the graph with the reported weight.
+            List<Integer> path = route.path();
+            assertEquals(src, path.getFirst());
+            assertEquals(dst, path.getLast());
+            int sum = 0;
+            for (int j = 1; j < path.size(); ++j) {
+                int from = path.get(j - 1);
+                int to = path.get(j);
+                sum += g.getVertex(from).outgoingEdges().stream()
+                        .filter(e -> e.endId() == to)
+                        .mapToInt(SimpleEdge::weight)
+                        .min().orElseThrow();
+            }
+            assertEquals(route.distance(), sum);
+            totalSettled += alt.lastSettledCount();
+        }
+        assertTrue(totalSettled < queries * g.vertexCount() / 2);
+    }
+
+    @DisplayName("WHEN preprocessing results are saved and loaded, THEN the restored solver finds "
+            + "the same routes")
+    @Test
+    void testSaveLoad() throws IOException {
+        SimpleGraph g = makeGrid(20, 20, 3);
+        Weigher<SimpleEdge> w = new SimpleWeigher();
+        var alt = new LandmarkShortestPaths<>(g, w, 3, 0, true);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        alt.save(out);
+        var restored = LandmarkShortestPaths.load(g, w,
+                new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(alt.landmarks(), restored.landmarks());
+
+        for (int dst = 0; dst < g.vertexCount(); dst += 7) {
+            assertEquals(alt.findRoute(5, dst), restored.findRoute(5, dst));
+        }
+
+        // Data for a differently sized graph must be rejected
+        assertThrows(IllegalArgumentException.class, () -> LandmarkShortestPaths.load(
+                makeGrid(5, 5, 3), w, new ByteArrayInputStream(out.toByteArray())));
+    }
+}
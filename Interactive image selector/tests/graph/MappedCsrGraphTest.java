@@ -0,0 +1,61 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MappedCsrGraphTest {
+
+    /**
+     * Return a CsrGraph with the same vertices and weighted edges as `g`.
+     */
+    static CsrGraph toCsr(SimpleGraph g) {
+        List<SimpleEdge> edges = new ArrayList<>();
+        for (int id = 0; id < g.vertexCount(); ++id) {
+            edges.addAll(g.getVertex(id).outgoingEdges());
+        }
+        return CsrGraph.fromEdges(g.vertexCount(),
+                edges.stream().mapToInt(SimpleEdge::startId).toArray(),
+                edges.stream().mapToInt(SimpleEdge::endId).toArray(),
+                edges.stream().mapToInt(SimpleEdge::weight).toArray());
+    }
+
+    @DisplayName("WHEN a graph is written and mapped back in, THEN it has the same edges AND "
+            + "shortest paths over it are unchanged")
+    @Test
+    void testRoundTrip() throws IOException {
+        CsrGraph csr = toCsr(LandmarkShortestPathsTest.makeGrid(13, 9, 4));
+        Path file = Files.createTempFile("graph", ".csr");
+        // Some platforms refuse to delete files that are still mapped, so defer the cleanup.
+        file.toFile().deleteOnExit();
+        MappedCsrGraph.write(csr, file);
+        MappedCsrGraph mapped = MappedCsrGraph.open(file);
+        assertEquals(csr.vertexCount(), mapped.vertexCount());
+        assertEquals(csr.edgeCount(), mapped.edgeCount());
+        for (int id = 0; id < csr.vertexCount(); ++id) {
+            assertEquals(csr.getVertex(id).outgoingEdges(),
+                    mapped.getVertex(id).outgoingEdges());
+        }
+
+        var expected = new ShortestPaths<>(csr, csr.weigher()).findAllPaths(0);
+        var paths = new ShortestPaths<>(mapped, mapped.weigher()).findAllPaths(0);
+        for (int id = 0; id < csr.vertexCount(); ++id) {
+            assertEquals(expected.distanceTo(id), paths.distanceTo(id));
+        }
+    }
+
+    @DisplayName("WHEN a file that is not a graph is opened, THEN an IOException is thrown")
+    @Test
+    void testInvalidFile() throws IOException {
+        Path file = Files.createTempFile("graph", ".csr");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> MappedCsrGraph.open(file));
+    }
+}
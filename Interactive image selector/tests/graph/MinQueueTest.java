@@ -213,6 +213,90 @@ class MinQueueTest {
         assertThrows(NoSuchElementException.class, () -> q.remove());
     }
 
+    @DisplayName("GIVEN an IntMinQueue and a MinQueue receiving the same random updates, "
+            + "WHEN elements are successively removed, THEN their priorities will match AND "
+            + "clearing the IntMinQueue allows all elements to be added again")
+    @Test
+    void testIntMinQueueMatchesHeap() {
+        int capacity = 50;
+        IntMinQueue q = new IntMinQueue(capacity);
+        MinQueue<Integer> reference = makeQueue();
+
+        Random rng = new Random(2);
+        for (int round = 0; round < 3; ++round) {
+            for (int i = 0; i < 200; i += 1) {
+                int key = rng.nextInt(capacity);
+                int priority = rng.nextInt(1000);
+                q.addOrUpdate(key, priority);
+                reference.addOrUpdate(key, priority);
+                assertEquals(reference.size(), q.size());
+                assertEquals(reference.minPriority(), q.minPriority());
+            }
+            for (int i = 0; i < 10; i += 1) {
+                int priority = q.minPriority();
+                int removed = q.remove();
+                assertFalse(q.contains(removed));
+                assertEquals(priority, reference.minPriority());
+                reference.addOrUpdate(removed, priority);
+                reference.remove();
+            }
+            q.clear();
+            reference.clear();
+            assertTrue(q.isEmpty());
+        }
+        assertThrows(NoSuchElementException.class, () -> q.remove());
+    }
+
+    @DisplayName("GIVEN a BucketQueue receiving random additions no lower than the last removed "
+            + "priority, WHEN elements are successively removed, THEN they will come out in order "
+            + "of priority, first-in first-out among equal priorities, AND adding below the last "
+            + "removed priority will throw an IllegalArgumentException")
+    @Test
+    void testBucketQueueMonotone() {
+        int capacity = 50;
+        int priorityLimit = 20;
+        BucketQueue q = new BucketQueue(capacity, priorityLimit);
+        // Elements are added in increasing order, so FIFO order among equal priorities is
+        //  increasing order of elements.
+        List<Integer> free = new ArrayList<>();
+        int[] priorities = new int[capacity];
+
+        Random rng = new Random(3);
+        for (int round = 0; round < 3; ++round) {
+            free.clear();
+            for (int e = 0; e < capacity; ++e) {
+                free.add(e);
+            }
+            int floor = 0;
+            int lastRemoved = -1;
+            while (!free.isEmpty() || !q.isEmpty()) {
+                if (!free.isEmpty() && (q.isEmpty() || rng.nextBoolean())) {
+                    int e = free.remove(0);
+                    priorities[e] = floor + rng.nextInt(Math.min(4, priorityLimit - floor));
+                    q.add(e, priorities[e]);
+                } else {
+                    int min = q.minPriority();
+                    int e = q.remove();
+                    assertEquals(min, priorities[e]);
+                    assertTrue(min >= floor);
+                    if (min == floor) {
+                        assertTrue(e > lastRemoved);
+                    }
+                    floor = min;
+                    lastRemoved = e;
+                }
+            }
+            assertEquals(0, q.size());
+            if (floor > 0) {
+                int last = floor;
+                assertThrows(IllegalArgumentException.class, () -> q.add(0, last - 1));
+            }
+            q.clear();
+        }
+        assertThrows(IllegalArgumentException.class, () -> q.add(0, priorityLimit));
+        assertThrows(NoSuchElementException.class, () -> q.remove());
+    }
+
     /**
      * Helper method for constructing new, empty MinQueues.  Convenient for testing different
      * implementations.
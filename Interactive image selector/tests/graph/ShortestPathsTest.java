@@ -153,6 +153,63 @@ class ShortestPathsTest {
         assertEquals(g.vertexCount(), pathfinder.settledCount());
         assertTrue(pathfinder.allPathsFound());
     }
+
+    @DisplayName("Extending a search by time should stop after one slice of vertices when its "
+            + "token is cancelled or its budget is tiny, and should otherwise find all paths given "
+            + "enough time")
+    @Test
+    void testExtendSearchFor() {
+        SimpleGraph g = LandmarkShortestPathsTest.makeGrid(100, 50, 5);
+        Weigher<SimpleEdge> w = new SimpleWeigher();
+        ShortestPaths<SimpleVertex, SimpleEdge> pathfinder = new ShortestPaths<>(g, w);
+
+        // A cancelled token stops the search after one slice
+        pathfinder.setStart(0);
+        pathfinder.extendSearchFor(Long.MAX_VALUE, () -> true);
+        assertEquals(ShortestPaths.CHECK_INTERVAL, pathfinder.settledCount());
+        assertFalse(pathfinder.allPathsFound());
+
+        // So does a budget that is spent before the clock is first checked
+        pathfinder.extendSearchFor(1, () -> false);
+        assertEquals(2 * ShortestPaths.CHECK_INTERVAL, pathfinder.settledCount());
+        assertFalse(pathfinder.allPathsFound());
+
+        // An ample budget finds all paths
+        PathfindingSnapshot paths = pathfinder.extendSearchFor(Long.MAX_VALUE, () -> false);
+        assertTrue(pathfinder.allPathsFound());
+        assertEquals(g.vertexCount(), pathfinder.settledCount());
+        assertEquals(new ShortestPaths<>(g, w).findAllPaths(0).distanceTo(g.vertexCount() - 1),
+                paths.distanceTo(g.vertexCount() - 1));
+    }
+
+    @DisplayName("WHEN solving on a CsrGraph with its intrinsic weigher, THEN distances match "
+            + "those found on an equivalent object graph")
+    @Test
+    void testCsrGraph() {
+        SimpleGraph g = SimpleGraph.fromText(graph1);
+        List<SimpleEdge> edges = new ArrayList<>();
+        for (int id = 0; id < g.vertexCount(); ++id) {
+            edges.addAll(g.getVertex(id).outgoingEdges());
+        }
+        CsrGraph csr = CsrGraph.fromEdges(g.vertexCount(),
+                edges.stream().mapToInt(SimpleEdge::startId).toArray(),
+                edges.stream().mapToInt(SimpleEdge::endId).toArray(),
+                edges.stream().mapToInt(SimpleEdge::weight).toArray());
+        assertEquals(edges.size(), csr.edgeCount());
+        assertNotNull(csr.weigher().primitiveView(csr));
+
+        ShortestPaths<CsrVertex, CsrEdge> pathfinder = new ShortestPaths<>(csr, csr.weigher());
+        ShortestPaths<SimpleVertex, SimpleEdge> reference =
+                new ShortestPaths<>(g, new SimpleWeigher());
+        for (int start = 0; start < g.vertexCount(); ++start) {
+            PathfindingSnapshot paths = pathfinder.findAllPaths(start);
+            PathfindingSnapshot expected = reference.findAllPaths(start);
+            for (int id = 0; id < g.vertexCount(); ++id) {
+                assertEquals(expected.distanceTo(id), paths.distanceTo(id));
+                assertEquals(expected.discovered(id), paths.discovered(id));
+            }
+        }
+    }
 }
 
 /*
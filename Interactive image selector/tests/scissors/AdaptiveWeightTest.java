@@ -0,0 +1,168 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.PrimitiveGraph;
+import graph.Weigher;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PolyLine;
+
+class AdaptiveWeightTest {
+
+    /**
+     * Column of the strong edge in `twoEdgeImage()`: the first column right of a step from black
+     * to white.  Edges are traced along the column on either side of their step, whichever is the
+     * Laplacian zero crossing.
+     */
+    static final int STRONG_EDGE = 10;
+
+    /**
+     * Column of the weak edge in `twoEdgeImage()`: the first column right of a step between two
+     * similar grays.
+     */
+    static final int WEAK_EDGE = 30;
+
+    /**
+     * Return a 40 x 30 gray image with a strong vertical edge at `STRONG_EDGE` and a weak one at
+     * `WEAK_EDGE`.
+     */
+    static BufferedImage twoEdgeImage() {
+        BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 30; ++y) {
+            for (int x = 0; x < 40; ++x) {
+                int v = (x < STRONG_EDGE) ? 0 : (x < WEAK_EDGE) ? 255 : 200;
+                img.getRaster().setSample(x, y, 0, v);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Return a vertical segment along column `x` from row `y0` to row `y1` (in either order), one
+     * point per pixel.
+     */
+    static PolyLine column(int x, int y0, int y1) {
+        int n = Math.abs(y1 - y0) + 1;
+        int step = (y1 >= y0) ? 1 : -1;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = x;
+            ys[i] = y0 + step * i;
+        }
+        return new PolyLine(xs, ys);
+    }
+
+    /**
+     * Return the total weight given by `weigher` to the downward edges along column `x` between
+     * rows 8 and 22 of `graph`.
+     */
+    static int columnCost(Weigher<ImageEdge> weigher, ImageGraph graph, int x) {
+        int cost = 0;
+        for (int y = 8; y < 22; ++y) {
+            cost += weigher.weight(new ImageEdge(x + graph.width() * y,
+                    x + graph.width() * (y + 1), 6));
+        }
+        return cost;
+    }
+
+    /**
+     * Return the smaller of the `columnCost()`s of the two columns on either side of the step at
+     * column `edge` of `twoEdgeImage()`, one of which is the step's Laplacian zero crossing.
+     */
+    static int edgeCost(Weigher<ImageEdge> weigher, ImageGraph graph, int edge) {
+        return Math.min(columnCost(weigher, graph, edge - 1), columnCost(weigher, graph, edge));
+    }
+
+    /**
+     * Return the weights of the edges leaving vertex `id` in `view`, in enumeration order.
+     */
+    static int[] neighborWeights(PrimitiveGraph view, int id) {
+        int[] weights = new int[8];
+        int[] count = {0};
+        view.forEachNeighbor(id, (neighbor, weight) -> weights[count[0]++] = weight);
+        return Arrays.copyOf(weights, count[0]);
+    }
+
+    @DisplayName("GIVEN an untrained adaptive weigher, WHEN weighing every edge, THEN its weights"
+            + " equal those of the multi-feature weigher")
+    @Test
+    void testUntrainedMatchesMultiFeature() {
+        BufferedImage img = WeightPlanesTest.randomImage(31, 23, 21);
+        ImageGraph graph = new ImageGraph(img);
+        Weigher<ImageEdge> adaptive = ScissorsWeights.makeWeigher("Adaptive", graph);
+        Weigher<ImageEdge> multi = ScissorsWeights.makeWeigher("MultiFeature", graph);
+        for (int id = 0; id < graph.vertexCount(); ++id) {
+            for (ImageEdge edge : graph.getVertex(id).outgoingEdges()) {
+                assertEquals(multi.weight(edge), adaptive.weight(edge));
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a traced boundary along a weak edge, WHEN training, THEN the cost along"
+            + " that edge falls below its untrained cost and below the cost along a stronger edge")
+    @Test
+    void testTrainingLowersMatchingEdge() {
+        ImageGraph graph = new ImageGraph(twoEdgeImage());
+        ScissorsWeights.AdaptiveWeight weigher = new ScissorsWeights.AdaptiveWeight(graph);
+        int untrainedWeak = edgeCost(weigher, graph, WEAK_EDGE);
+        assertTrue(untrainedWeak > edgeCost(weigher, graph, STRONG_EDGE));
+
+        weigher.train(List.of(column(WEAK_EDGE, 2, 14), column(WEAK_EDGE, 14, 27)));
+        int trainedWeak = edgeCost(weigher, graph, WEAK_EDGE);
+        assertTrue(trainedWeak < untrainedWeak);
+        assertTrue(trainedWeak < edgeCost(weigher, graph, STRONG_EDGE));
+    }
+
+    @DisplayName("GIVEN a trained weigher, WHEN training on a boundary too short to sample, THEN"
+            + " its weights return to the untrained ones")
+    @Test
+    void testShortBoundaryUntrains() {
+        ImageGraph graph = new ImageGraph(twoEdgeImage());
+        ScissorsWeights.AdaptiveWeight weigher = new ScissorsWeights.AdaptiveWeight(graph);
+        int untrained = columnCost(weigher, graph, WEAK_EDGE);
+        weigher.train(List.of(column(WEAK_EDGE, 2, 27)));
+        assertNotEquals(untrained, columnCost(weigher, graph, WEAK_EDGE));
+        weigher.train(List.of(column(WEAK_EDGE, 2, 5)));
+        assertEquals(untrained, columnCost(weigher, graph, WEAK_EDGE));
+    }
+
+    @DisplayName("GIVEN a primitive view obtained before training, WHEN training, THEN the view"
+            + " keeps its untrained weights while new views use the trained ones")
+    @Test
+    void testTrainingKeepsEarlierViews() {
+        ImageGraph graph = new ImageGraph(twoEdgeImage());
+        ScissorsWeights.AdaptiveWeight weigher = new ScissorsWeights.AdaptiveWeight(graph);
+        PrimitiveGraph before = weigher.primitiveView(graph);
+        int id = WEAK_EDGE + graph.width() * 15;
+        int[] untrained = neighborWeights(before, id);
+        weigher.train(List.of(column(WEAK_EDGE, 2, 27)));
+        assertArrayEquals(untrained, neighborWeights(before, id));
+        int[] trained = neighborWeights(weigher.primitiveView(graph), id);
+        assertFalse(Arrays.equals(untrained, trained));
+    }
+
+    @DisplayName("GIVEN a boundary that follows a strong edge and then a weak one, WHEN training,"
+            + " THEN only the most recent pixels count and the costs equal those trained on the"
+            + " weak edge alone")
+    @Test
+    void testTrainingUsesRecentBoundary() {
+        ImageGraph graph = new ImageGraph(twoEdgeImage());
+        List<PolyLine> weak = List.of(column(WEAK_EDGE, 2, 27), column(WEAK_EDGE, 27, 2),
+                column(WEAK_EDGE, 2, 27));
+        ScissorsWeights.AdaptiveWeight recent = new ScissorsWeights.AdaptiveWeight(graph);
+        recent.train(weak);
+        ScissorsWeights.AdaptiveWeight both = new ScissorsWeights.AdaptiveWeight(graph);
+        List<PolyLine> boundary = new ArrayList<>(List.of(column(STRONG_EDGE, 2, 27)));
+        boundary.addAll(weak);
+        both.train(boundary);
+        for (int x : new int[]{STRONG_EDGE, WEAK_EDGE}) {
+            assertEquals(columnCost(recent, graph, x), columnCost(both, graph, x));
+        }
+    }
+}
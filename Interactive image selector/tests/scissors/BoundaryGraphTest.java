@@ -0,0 +1,66 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.CsrGraph;
+import graph.PathfindingSnapshot;
+import graph.ShortestPaths;
+import java.awt.Point;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+import selector.PolyLineBuffer;
+
+class BoundaryGraphTest {
+
+    /**
+     * Return the boundary graph of superpixels about 10 pixels across of the two-tone image of
+     * `SuperpixelsTest` with its edge at column `edge`.
+     */
+    static BoundaryGraph twoToneBoundaries(int width, int height, int edge) {
+        PixelPlanes lab = LabPlanes.convert(
+                SuperpixelsTest.twoToneImage(width, height, edge, 1));
+        return new BoundaryGraph(Superpixels.compute(lab, 10), lab);
+    }
+
+    @DisplayName("GIVEN superpixels of an image with a strong vertical edge, WHEN finding the"
+            + " shortest path between the junctions at the ends of the edge, THEN it runs along"
+            + " the edge")
+    @Test
+    void testPathFollowsEdge() {
+        int edge = 61;
+        BoundaryGraph boundaries = twoToneBoundaries(150, 110, edge);
+        int top = boundaries.nearestJunction(new Point(edge, 0));
+        int bottom = boundaries.nearestJunction(new Point(edge, 109));
+        assertEquals(new Point(edge, 0), boundaries.junctionPoint(top));
+        assertEquals(new Point(edge, 109), boundaries.junctionPoint(bottom));
+
+        CsrGraph graph = boundaries.graph();
+        PathfindingSnapshot paths = new ShortestPaths<>(graph, graph.weigher()).findAllPaths(top);
+        PolyLineBuffer route = new PolyLineBuffer();
+        boundaries.appendPath(paths.pathTo(bottom), route);
+        assertEquals(new Point(edge, 0), route.start());
+        assertEquals(new Point(edge, 109), route.end());
+        for (int i = 0; i < route.size(); ++i) {
+            assertEquals(edge, route.xs()[i]);
+        }
+    }
+
+    @DisplayName("GIVEN a boundary graph, WHEN finding the junction nearest to random points,"
+            + " THEN no junction is nearer")
+    @Test
+    void testNearestJunction() {
+        BoundaryGraph boundaries = twoToneBoundaries(150, 110, 61);
+        int junctionCount = boundaries.graph().vertexCount();
+        assertTrue(junctionCount > 0);
+        Random rng = new Random(2);
+        for (int q = 0; q < 50; ++q) {
+            Point p = new Point(rng.nextInt(150), rng.nextInt(110));
+            double nearest = p.distance(boundaries.junctionPoint(boundaries.nearestJunction(p)));
+            for (int j = 0; j < junctionCount; ++j) {
+                assertTrue(p.distance(boundaries.junctionPoint(j)) >= nearest);
+            }
+        }
+    }
+}
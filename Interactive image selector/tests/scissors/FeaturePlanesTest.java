@@ -0,0 +1,93 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.function.IntBinaryOperator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+
+class FeaturePlanesTest {
+
+    /**
+     * Return the features of a `width` x `height` gray image whose intensity at (x, y) is
+     * `intensity.applyAsInt(x, y)`.
+     */
+    static FeaturePlanes features(int width, int height, IntBinaryOperator intensity) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                img.getRaster().setSample(x, y, 0, intensity.applyAsInt(x, y));
+            }
+        }
+        return new FeaturePlanes(PixelPlanes.of(img.getRaster(), 1));
+    }
+
+    @DisplayName("GIVEN a vertical step, WHEN computing features, THEN every row has a zero"
+            + " crossing on one side of the step and none elsewhere")
+    @Test
+    void testZeroCrossingsOfStep() {
+        int width = 30;
+        int step = 13;
+        FeaturePlanes planes = features(width, 20, (x, y) -> (x < step) ? 40 : 200);
+        for (int y = 0; y < 20; ++y) {
+            int crossings = 0;
+            for (int x = 0; x < width; ++x) {
+                if (planes.isZeroCrossing(x + width * y)) {
+                    assertTrue(x == step - 1 || x == step, "Crossing at x = " + x);
+                    crossings += 1;
+                }
+            }
+            assertEquals(1, crossings, "Row " + y);
+        }
+    }
+
+    @DisplayName("GIVEN a thin bright line, WHEN computing features, THEN zero crossings lie on"
+            + " both flanks of the line and not on it")
+    @Test
+    void testZeroCrossingsOfLine() {
+        int width = 30;
+        FeaturePlanes planes = features(width, 20, (x, y) -> (x >= 14 && x <= 15) ? 220 : 30);
+        int y = 10;
+        for (int x = 0; x < width; ++x) {
+            boolean flank = (x >= 11 && x <= 13) || (x >= 16 && x <= 18);
+            if (!flank) {
+                assertFalse(planes.isZeroCrossing(x + width * y), "Crossing at x = " + x);
+            }
+        }
+        boolean left = false;
+        boolean right = false;
+        for (int x = 11; x <= 13; ++x) {
+            left |= planes.isZeroCrossing(x + width * y);
+        }
+        for (int x = 16; x <= 18; ++x) {
+            right |= planes.isZeroCrossing(x + width * y);
+        }
+        assertTrue(left && right);
+    }
+
+    @DisplayName("GIVEN steps brightening toward each side and diagonally, WHEN computing"
+            + " features, THEN pixels at the step have the direction bin of the angle"
+            + " perpendicular to the gradient, and flat pixels have no direction")
+    @Test
+    void testGradientDirections() {
+        int size = 24;
+        int c = size / 2;
+        int q = FeaturePlanes.DIRECTION_BINS / 4;
+        // Bins measure the angle of `(gy, -gx)` from the +x axis, with y pointing down
+        FeaturePlanes right = features(size, size, (x, y) -> (x < c) ? 30 : 220);
+        assertEquals(3 * q, right.direction(c + size * c));
+        FeaturePlanes left = features(size, size, (x, y) -> (x < c) ? 220 : 30);
+        assertEquals(q, left.direction(c + size * c));
+        FeaturePlanes down = features(size, size, (x, y) -> (y < c) ? 30 : 220);
+        assertEquals(0, down.direction(c + size * c));
+        FeaturePlanes up = features(size, size, (x, y) -> (y < c) ? 220 : 30);
+        assertEquals(2 * q, up.direction(c + size * c));
+        FeaturePlanes diagonal = features(size, size, (x, y) -> (x + y < 2 * c) ? 30 : 220);
+        assertEquals(7 * q / 2, diagonal.direction(c + size * c));
+
+        assertEquals(FeaturePlanes.DIRECTION_BINS, right.direction(2 + size * c));
+        assertEquals(FeaturePlanes.DIRECTION_BINS, right.direction(size - 3 + size * c));
+    }
+}
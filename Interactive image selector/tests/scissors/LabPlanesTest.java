@@ -0,0 +1,105 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+
+class LabPlanesTest {
+
+    /**
+     * sRGB colors and their CIELAB coordinates (D65) as computed by the standard formulas in
+     * double precision: white, black, mid gray, the primaries, and the secondaries.
+     */
+    static final int[] COLORS = {0xFFFFFF, 0x000000, 0x808080, 0xFF0000, 0x00FF00, 0x0000FF,
+            0x00FFFF, 0xFF00FF, 0xFFFF00};
+    static final double[][] LAB = {
+            {100, 0, 0},
+            {0, 0, 0},
+            {53.585, 0, 0},
+            {53.241, 80.092, 67.203},
+            {87.735, -86.183, 83.179},
+            {32.297, 79.188, -107.860},
+            {91.113, -48.088, -14.131},
+            {60.324, 98.234, -60.825},
+            {97.139, -21.554, 94.478},
+    };
+
+    /**
+     * Largest difference, in Lab units, allowed between a reference coordinate and its quantized
+     * value: half a quantization step plus the error of the conversion's tables.
+     */
+    static final double TOLERANCE = 0.5 / LabPlanes.SCALE + 0.1;
+
+    /**
+     * Return an image of type `type` with one pixel of each of `COLORS`, in a row.
+     */
+    static BufferedImage colorRow(int type) {
+        BufferedImage img = new BufferedImage(COLORS.length, 1, type);
+        for (int i = 0; i < COLORS.length; ++i) {
+            img.setRGB(i, 0, COLORS[i]);
+        }
+        return img;
+    }
+
+    @DisplayName("GIVEN white, black, gray, primaries, and secondaries, WHEN converting to Lab,"
+            + " THEN each quantized coordinate is within rounding of the reference value, and"
+            + " only the saturated blue's b is clamped")
+    @Test
+    void testReferenceColors() {
+        PixelPlanes lab = LabPlanes.convert(colorRow(BufferedImage.TYPE_INT_RGB));
+        for (int i = 0; i < COLORS.length; ++i) {
+            double[] expected = {LAB[i][0] * LabPlanes.SCALE, 128 + LAB[i][1] * LabPlanes.SCALE,
+                    128 + LAB[i][2] * LabPlanes.SCALE};
+            for (int c = 0; c < 3; ++c) {
+                int sample = lab.sample(i, 0, c);
+                String what = String.format("Color %06X channel %d", COLORS[i], c);
+                if (expected[c] < 0) {
+                    assertEquals(0, sample, what);
+                } else {
+                    assertEquals(expected[c], sample, TOLERANCE * LabPlanes.SCALE, what);
+                }
+            }
+        }
+        assertEquals(125, lab.sample(0, 0, 0));
+        assertEquals(128, lab.sample(0, 0, 1));
+        assertEquals(128, lab.sample(0, 0, 2));
+        assertEquals(0, lab.sample(1, 0, 0));
+    }
+
+    @DisplayName("GIVEN the same colors in images of several types, WHEN converting to Lab, THEN"
+            + " the planes are identical whether read from bands or through `getRGB()`")
+    @Test
+    void testImageTypesAgree() {
+        byte[][] palette = new byte[3][COLORS.length];
+        for (int i = 0; i < COLORS.length; ++i) {
+            for (int c = 0; c < 3; ++c) {
+                palette[c][i] = (byte) (COLORS[i] >> (16 - 8 * c));
+            }
+        }
+        BufferedImage indexed = new BufferedImage(COLORS.length, 1,
+                BufferedImage.TYPE_BYTE_INDEXED, new IndexColorModel(8, COLORS.length,
+                palette[0], palette[1], palette[2]));
+        for (int i = 0; i < COLORS.length; ++i) {
+            indexed.getRaster().setSample(i, 0, 0, i);
+        }
+
+        PixelPlanes expected = LabPlanes.convert(colorRow(BufferedImage.TYPE_INT_RGB));
+        List<BufferedImage> images = List.of(colorRow(BufferedImage.TYPE_3BYTE_BGR),
+                colorRow(BufferedImage.TYPE_INT_ARGB), colorRow(BufferedImage.TYPE_INT_BGR),
+                colorRow(BufferedImage.TYPE_4BYTE_ABGR), indexed);
+        for (BufferedImage img : images) {
+            PixelPlanes lab = LabPlanes.convert(img);
+            for (int i = 0; i < COLORS.length; ++i) {
+                for (int c = 0; c < 3; ++c) {
+                    assertEquals(expected.sample(i, 0, c), lab.sample(i, 0, c),
+                            "Type " + img.getType() + " color " + i);
+                }
+            }
+        }
+    }
+}
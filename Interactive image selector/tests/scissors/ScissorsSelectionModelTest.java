@@ -0,0 +1,35 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PolyLine;
+
+class ScissorsSelectionModelTest {
+
+    @DisplayName("GIVEN a scissors model with each weight, WHEN adding points along a strong edge,"
+            + " THEN the segments follow the edge")
+    @Test
+    void testSegmentsFollowEdge() throws Exception {
+        int edge = 41;
+        for (String weightName : ScissorsWeights.weightNames()) {
+            ScissorsSelectionModel model = new ScissorsSelectionModel(weightName, false);
+            model.setImage(SuperpixelsTest.twoToneImage(90, 100, edge, 2));
+            for (int y : new int[]{8, 40, 70, 92}) {
+                SwingUtilities.invokeAndWait(() -> model.addPoint(new Point(edge, y)));
+                SuperpixelScissorsSelectionModelTest.awaitPrepared(model);
+                assertEquals(SELECTING, model.state(), weightName);
+            }
+            assertEquals(3, model.selection().size());
+            for (PolyLine segment : model.selection()) {
+                for (int x : segment.xs()) {
+                    assertTrue(Math.abs(x - edge) <= 2, weightName + " strayed to x = " + x);
+                }
+            }
+        }
+    }
+}
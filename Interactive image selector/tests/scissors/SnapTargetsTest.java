@@ -0,0 +1,177 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+import selector.PolyLine;
+
+class SnapTargetsTest {
+
+    /**
+     * Return the Sobel gradient magnitude of the band-summed intensity of each pixel of `img`
+     * (clamping at the borders), scaled as by `SnapTargets`.
+     */
+    static int[] referenceMagnitudes(PixelPlanes img) {
+        int width = img.width();
+        int height = img.height();
+        int max = 0;
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                for (int b = 0; b < img.bandCount(); ++b) {
+                    max = Math.max(max, img.sample(x, y, b));
+                }
+            }
+        }
+        double maxGradient = Math.sqrt(32) * (img.isByte() ? 255 : max) * img.bandCount();
+        double scale = (maxGradient > 0) ? ((1 << 15) - 1) / maxGradient : 0;
+        int[][] kernel = {{-1, 0, 1}, {-2, 0, 2}, {-1, 0, 1}};
+        int[] magnitudes = new int[width * height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int gx = 0;
+                int gy = 0;
+                for (int dy = -1; dy <= 1; ++dy) {
+                    for (int dx = -1; dx <= 1; ++dx) {
+                        int sx = Math.max(0, Math.min(width - 1, x + dx));
+                        int sy = Math.max(0, Math.min(height - 1, y + dy));
+                        int sum = 0;
+                        for (int b = 0; b < img.bandCount(); ++b) {
+                            sum += img.sample(sx, sy, b);
+                        }
+                        gx += kernel[dy + 1][dx + 1] * sum;
+                        gy += kernel[dx + 1][dy + 1] * sum;
+                    }
+                }
+                magnitudes[x + width * y] =
+                        (int) (Math.sqrt((double) gx * gx + (double) gy * gy) * scale);
+            }
+        }
+        return magnitudes;
+    }
+
+    /**
+     * Wait until `model` has finished computing its snap targets.
+     */
+    static void awaitSnapTargets(ScissorsSelectionModel model) throws InterruptedException {
+        while (model.readySnapTargets() == null) {
+            Thread.sleep(10);
+        }
+    }
+
+    @DisplayName("GIVEN random and checkered images of 8- and 16-bit samples, WHEN computing snap"
+            + " targets, THEN each pixel snaps within its window to a pixel with the window's"
+            + " strongest gradient, AND stays put if its own gradient is that strong")
+    @Test
+    void testWindowMaxima() {
+        Random rng = new Random(3);
+        for (int trial = 0; trial < 8; ++trial) {
+            int width = 1 + rng.nextInt(90);
+            int height = 1 + rng.nextInt(70);
+            boolean bytes = trial % 2 == 0;
+            BufferedImage img = new BufferedImage(width, height,
+                    bytes ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_USHORT_GRAY);
+            WritableRaster raster = img.getRaster();
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    for (int b = 0; b < raster.getNumBands(); ++b) {
+                        int sample = (trial % 4 < 2) ? rng.nextInt(bytes ? 256 : 65536)
+                                : ((x / 17 + y / 11) % 2) * 200;
+                        raster.setSample(x, y, b, sample);
+                    }
+                }
+            }
+            PixelPlanes planes = PixelPlanes.of(img);
+            int radius = rng.nextInt(20);
+            SnapTargets targets = SnapTargets.compute(planes, radius);
+            int[] magnitudes = referenceMagnitudes(planes);
+
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    int best = 0;
+                    for (int wy = Math.max(0, y - radius);
+                            wy <= Math.min(height - 1, y + radius); ++wy) {
+                        for (int wx = Math.max(0, x - radius);
+                                wx <= Math.min(width - 1, x + radius); ++wx) {
+                            best = Math.max(best, magnitudes[wx + width * wy]);
+                        }
+                    }
+                    Point target = targets.snap(new Point(x, y));
+                    assertTrue(Math.abs(target.x - x) <= radius
+                            && Math.abs(target.y - y) <= radius);
+                    assertTrue(target.x >= 0 && target.y >= 0 && target.x < width
+                            && target.y < height);
+                    assertEquals(best, magnitudes[target.x + width * target.y]);
+                    if (magnitudes[x + width * y] == best) {
+                        assertEquals(new Point(x, y), target);
+                    }
+                    assertEquals(target.x + width * target.y, targets.snapIndex(x, y));
+                }
+            }
+        }
+    }
+
+    @DisplayName("WHEN computing snap targets with a radius outside [0..MAX_RADIUS], THEN an"
+            + " IllegalArgumentException is thrown")
+    @Test
+    void testInvalidRadius() {
+        PixelPlanes planes = PixelPlanes.of(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalArgumentException.class, () -> SnapTargets.compute(planes, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> SnapTargets.compute(planes, SnapTargets.MAX_RADIUS + 1));
+    }
+
+    @DisplayName("GIVEN a scissors model, WHEN its image or snap radius changes, THEN its snap"
+            + " targets are computed in the background, AND none are kept without an image or"
+            + " radius")
+    @Test
+    void testModelComputesSnapTargetsInBackground() throws Exception {
+        ScissorsSelectionModel model = new ScissorsSelectionModel("CrossGradColor", false);
+        model.setSnapRadius(3);
+        assertNull(model.readySnapTargets());
+        BufferedImage img = SuperpixelsTest.twoToneImage(150, 110, 61, 1);
+        model.setImage(img);
+        awaitSnapTargets(model);
+        assertEquals(3, model.readySnapTargets().radius());
+
+        model.setSnapRadius(7);
+        awaitSnapTargets(model);
+        assertEquals(7, model.readySnapTargets().radius());
+
+        model.setSnapRadius(0);
+        assertNull(model.readySnapTargets());
+        model.setSnapRadius(2);
+        model.setImage(null);
+        assertNull(model.readySnapTargets());
+    }
+
+    @DisplayName("GIVEN a scissors model with a snap radius, WHEN the mouse is near a strong edge,"
+            + " THEN the live wire and the added point snap onto the edge")
+    @Test
+    void testModelSnapsLiveWire() throws Exception {
+        int edge = 61;
+        ScissorsSelectionModel model = new ScissorsSelectionModel("CrossGradColor", false);
+        model.setImage(SuperpixelsTest.twoToneImage(150, 110, edge, 1));
+        model.setSnapRadius(5);
+        awaitSnapTargets(model);
+        assertEquals(5, model.readySnapTargets().radius());
+        SwingUtilities.invokeAndWait(() -> model.addPoint(new Point(edge + 3, 10)));
+        SuperpixelScissorsSelectionModelTest.awaitPrepared(model);
+        assertEquals(SELECTING, model.state());
+        Point start = model.lastPoint();
+        assertTrue(Math.abs(start.x - edge) <= 1, "Start did not snap: " + start);
+
+        PolyLine wire = model.liveWire(new Point(edge - 4, 80));
+        assertTrue(Math.abs(wire.end().x - edge) <= 1, "Live wire did not snap: " + wire.end());
+        SwingUtilities.invokeAndWait(() -> model.addPoint(new Point(edge - 4, 80)));
+        SuperpixelScissorsSelectionModelTest.awaitPrepared(model);
+        assertEquals(wire.end(), model.lastPoint());
+    }
+}
@@ -0,0 +1,138 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Random;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PolyLine;
+import selector.PolyLineBuffer;
+import selector.SelectionModel;
+import selector.SelectionModel.SelectionState;
+
+class SuperpixelScissorsSelectionModelTest {
+
+    /**
+     * Wait until `model` has finished preparing its image on a background thread, reading its
+     * state on the EDT, where preparation completes.
+     */
+    static void awaitPrepared(SelectionModel model) throws Exception {
+        SelectionState[] state = new SelectionState[1];
+        do {
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> state[0] = model.state());
+        } while (state[0] == PROCESSING);
+    }
+
+    @DisplayName("GIVEN random routes, WHEN collecting the band around them, THEN it holds"
+            + " exactly the pixels within the radius of the route's lines, in increasing order,"
+            + " AND the marks are left clear")
+    @Test
+    void testBandAround() {
+        int width = 70;
+        int height = 50;
+        int radius = 3;
+        BitSet marks = new BitSet(width * height);
+        Random rng = new Random(1);
+        for (int trial = 0; trial < 30; ++trial) {
+            PolyLineBuffer route = new PolyLineBuffer();
+            int points = 1 + rng.nextInt(5);
+            for (int k = 0; k < points; ++k) {
+                route.append(rng.nextInt(width), rng.nextInt(height));
+            }
+
+            // Points of the route's lines are found by the same rounding as the model uses
+            boolean[] expected = new boolean[width * height];
+            for (int k = 0; k < route.size(); ++k) {
+                int x0 = route.xs()[Math.max(0, k - 1)];
+                int y0 = route.ys()[Math.max(0, k - 1)];
+                int x1 = route.xs()[k];
+                int y1 = route.ys()[k];
+                int steps = Math.max(1, Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0)));
+                for (int s = 1; s <= steps; ++s) {
+                    int cx = x0 + Math.round((float) (x1 - x0) * s / steps);
+                    int cy = y0 + Math.round((float) (y1 - y0) * s / steps);
+                    for (int y = 0; y < height; ++y) {
+                        for (int x = 0; x < width; ++x) {
+                            if (Math.abs(x - cx) <= radius && Math.abs(y - cy) <= radius) {
+                                expected[x + width * y] = true;
+                            }
+                        }
+                    }
+                }
+            }
+
+            int[] band = SuperpixelScissorsSelectionModel.bandAround(route, radius, width,
+                    height, marks);
+            int next = 0;
+            for (int id = 0; id < width * height; ++id) {
+                if (expected[id]) {
+                    assertEquals(id, band[next++]);
+                }
+            }
+            assertEquals(band.length, next);
+            assertTrue(marks.isEmpty());
+        }
+    }
+
+    @DisplayName("GIVEN a model, WHEN an image is set, THEN it is PROCESSING until the image is"
+            + " prepared in the background, AND then has no selection")
+    @Test
+    void testPreparesInBackground() throws Exception {
+        SuperpixelScissorsSelectionModel model =
+                new SuperpixelScissorsSelectionModel("CrossGradColor", false);
+        model.setImage(SuperpixelsTest.twoToneImage(150, 110, 61, 1));
+        assertEquals(PROCESSING, model.state());
+        awaitPrepared(model);
+        assertEquals(NO_SELECTION, model.state());
+    }
+
+    @DisplayName("GIVEN a prepared image with a strong vertical edge, WHEN adding points at both"
+            + " ends of the edge, THEN the refined segment stays on the edge")
+    @Test
+    void testRefineFollowsEdge() throws Exception {
+        int edge = 61;
+        BufferedImage img = SuperpixelsTest.twoToneImage(150, 110, edge, 1);
+        SuperpixelScissorsSelectionModel model =
+                new SuperpixelScissorsSelectionModel("CrossGradColor", false);
+        model.setImage(img);
+        awaitPrepared(model);
+
+        SwingUtilities.invokeAndWait(() -> {
+            model.addPoint(new Point(edge, 5));
+            model.addPoint(new Point(edge, 100));
+        });
+        assertEquals(SELECTING, model.state());
+        PolyLine segment = model.selection().getFirst();
+        assertEquals(new Point(edge, 5), segment.start());
+        assertEquals(new Point(edge, 100), segment.end());
+        for (int i = 0; i < segment.size(); ++i) {
+            int x = segment.xs()[i];
+            assertTrue(x == edge - 1 || x == edge, "Segment leaves the edge at x = " + x);
+        }
+    }
+
+    @DisplayName("GIVEN a selection in progress, WHEN a superpixel model is created from it,"
+            + " THEN it returns to SELECTING once its image is prepared")
+    @Test
+    void testCopyWhileSelecting() throws Exception {
+        SelectionModel previous = new selector.PointToPointSelectionModel(false);
+        previous.setImage(SuperpixelsTest.twoToneImage(150, 110, 61, 1));
+        previous.addPoint(new Point(10, 10));
+        previous.addPoint(new Point(40, 30));
+
+        SuperpixelScissorsSelectionModel[] model = new SuperpixelScissorsSelectionModel[1];
+        SwingUtilities.invokeAndWait(() ->
+                model[0] = new SuperpixelScissorsSelectionModel("CrossGradColor", previous));
+        assertEquals(PROCESSING, model[0].state());
+        awaitPrepared(model[0]);
+        assertEquals(SELECTING, model[0].state());
+        assertEquals(new Point(40, 30), model[0].lastPoint());
+        assertNotNull(model[0].liveWire(new Point(80, 60)));
+    }
+}
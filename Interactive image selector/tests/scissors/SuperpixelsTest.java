@@ -0,0 +1,113 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SuperpixelsTest {
+
+    /**
+     * Return a `width` x `height` image that is dark blue left of column `edge` and light beige
+     * from it on, with pseudo-random noise of a few levels added to every sample.
+     */
+    static BufferedImage twoToneImage(int width, int height, int edge, long seed) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(40, 60, 120));
+        g.fillRect(0, 0, edge, height);
+        g.setColor(new Color(230, 220, 200));
+        g.fillRect(edge, 0, width - edge, height);
+        g.dispose();
+        Random rng = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int rgb = img.getRGB(x, y);
+                int noisy = 0;
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int sample = ((rgb >> shift) & 0xFF) + rng.nextInt(7) - 3;
+                    noisy |= Math.max(0, Math.min(255, sample)) << shift;
+                }
+                img.setRGB(x, y, noisy);
+            }
+        }
+        return img;
+    }
+
+    @DisplayName("GIVEN a noisy image, WHEN computing superpixels, THEN every region is"
+            + " 4-connected AND there are about as many regions as grid cells")
+    @Test
+    void testConnectedRegions() {
+        int width = 150;
+        int height = 110;
+        Superpixels regions = Superpixels.compute(
+                LabPlanes.convert(twoToneImage(width, height, 61, 1)), 10);
+        int cells = 15 * 11;
+        assertTrue(regions.regionCount() > cells / 2 && regions.regionCount() < 2 * cells);
+
+        boolean[] seenLabels = new boolean[regions.regionCount()];
+        boolean[] visited = new boolean[width * height];
+        for (int start = 0; start < width * height; ++start) {
+            if (visited[start]) {
+                continue;
+            }
+            int label = regions.label(start % width, start / width);
+            assertFalse(seenLabels[label], "Region " + label + " is not connected");
+            seenLabels[label] = true;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            visited[start] = true;
+            while (!queue.isEmpty()) {
+                int p = queue.poll();
+                int x = p % width;
+                int y = p / width;
+                int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+                for (int[] step : steps) {
+                    int nx = x + step[0];
+                    int ny = y + step[1];
+                    if (nx >= 0 && ny >= 0 && nx < width && ny < height
+                            && !visited[nx + width * ny] && regions.label(nx, ny) == label) {
+                        visited[nx + width * ny] = true;
+                        queue.add(nx + width * ny);
+                    }
+                }
+            }
+        }
+        for (boolean seen : seenLabels) {
+            assertTrue(seen);
+        }
+    }
+
+    @DisplayName("GIVEN an image with a strong vertical edge off the grid, WHEN computing"
+            + " superpixels, THEN no region straddles the edge")
+    @Test
+    void testRespectsEdges() {
+        int edge = 61;
+        Superpixels regions = Superpixels.compute(
+                LabPlanes.convert(twoToneImage(150, 110, edge, 2)), 10);
+        boolean[] leftLabels = new boolean[regions.regionCount()];
+        for (int y = 0; y < 110; ++y) {
+            for (int x = 0; x < edge; ++x) {
+                leftLabels[regions.label(x, y)] = true;
+            }
+        }
+        for (int y = 0; y < 110; ++y) {
+            for (int x = edge; x < 150; ++x) {
+                assertFalse(leftLabels[regions.label(x, y)]);
+            }
+        }
+    }
+
+    @DisplayName("WHEN computing superpixels smaller than 2 pixels, THEN an"
+            + " IllegalArgumentException is thrown")
+    @Test
+    void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> Superpixels.compute(
+                LabPlanes.convert(twoToneImage(20, 20, 10, 3)), 1));
+    }
+}
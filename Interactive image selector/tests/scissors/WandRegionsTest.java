@@ -0,0 +1,225 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+import selector.SelectionMask;
+
+class WandRegionsTest {
+
+    /**
+     * Return a `width` x `height` image whose pixels are pseudo-randomly black or white, with
+     * black drawn with probability `density`.
+     */
+    static BufferedImage randomBinaryImage(int width, int height, double density, long seed) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random rng = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                img.setRGB(x, y, rng.nextDouble() < density ? 0 : 0xFFFFFF);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Return a white `size` x `size` image with a black square ring around a white square hole,
+     * whose pixels are those with both coordinates in `[holeBegin..holeEnd)`.  The ring is
+     * `ringWidth` pixels thick.
+     */
+    static BufferedImage nestedImage(int size, int holeBegin, int holeEnd, int ringWidth) {
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, size, size);
+        g.setColor(Color.BLACK);
+        g.fillRect(holeBegin - ringWidth, holeBegin - ringWidth,
+                holeEnd - holeBegin + 2 * ringWidth, holeEnd - holeBegin + 2 * ringWidth);
+        g.setColor(Color.WHITE);
+        g.fillRect(holeBegin, holeBegin, holeEnd - holeBegin, holeEnd - holeBegin);
+        g.dispose();
+        return img;
+    }
+
+    /**
+     * Return the labels of the 4-connected regions of pixels of `img` with the same color as the
+     * pixel at `seed`, as for `WandRegions.labels()` with zero tolerance, found by breadth-first
+     * search.
+     */
+    static int[] referenceLabels(BufferedImage img, Point seed) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int color = img.getRGB(seed.x, seed.y);
+        int[] labels = new int[width * height];
+        Arrays.fill(labels, -2);
+        for (int i = 0; i < labels.length; ++i) {
+            if (labels[i] != -2) {
+                continue;
+            }
+            if (img.getRGB(i % width, i / width) != color) {
+                labels[i] = -1;
+                continue;
+            }
+            ArrayDeque<Integer> frontier = new ArrayDeque<>();
+            labels[i] = i;
+            frontier.add(i);
+            while (!frontier.isEmpty()) {
+                int j = frontier.remove();
+                int x = j % width;
+                int y = j / width;
+                int[][] neighbors = {{x - 1, y}, {x + 1, y}, {x, y - 1}, {x, y + 1}};
+                for (int[] n : neighbors) {
+                    if (n[0] < 0 || n[0] >= width || n[1] < 0 || n[1] >= height) {
+                        continue;
+                    }
+                    int k = n[0] + width * n[1];
+                    if (labels[k] == -2 && img.getRGB(n[0], n[1]) == color) {
+                        labels[k] = i;
+                        frontier.add(k);
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    @DisplayName("GIVEN a random two-color image taller than one labeling strip, WHEN its regions "
+            + "are labeled, THEN every pixel is labeled with the first pixel of its 4-connected "
+            + "region, as found by a breadth-first search")
+    @Test
+    void testLabels() {
+        for (long seed = 0; seed < 4; ++seed) {
+            BufferedImage img = randomBinaryImage(57, 150, 0.45, seed);
+            Point click = new Point(3, 5);
+            WandRegions regions = new WandRegions(PixelPlanes.of(img), click, 0);
+            assertArrayEquals(referenceLabels(img, click), regions.labels());
+        }
+    }
+
+    @DisplayName("GIVEN a white image with a black ring around a white hole, WHEN all regions "
+            + "matching white are selected, THEN the ring is excluded AND the hole within it is "
+            + "included")
+    @Test
+    void testAllRegionsNested() {
+        BufferedImage img = nestedImage(40, 15, 25, 5);
+        WandRegions regions = new WandRegions(PixelPlanes.of(img), new Point(0, 0), 0);
+        SelectionMask mask = regions.allRegions(1);
+        assertEquals(40 * 40 - (20 * 20 - 10 * 10), mask.area());
+        assertTrue(mask.contains(0, 0));
+        assertTrue(mask.contains(20, 20));
+        assertFalse(mask.contains(12, 12));
+        assertFalse(mask.contains(26, 20));
+
+        // Clicking in the hole selects the same pixels
+        regions = new WandRegions(PixelPlanes.of(img), new Point(20, 20), 0);
+        assertEquals(mask.area(), regions.allRegions(1).area());
+    }
+
+    @DisplayName("GIVEN a magic wand in global mode on an image with a region nested inside a hole "
+            + "of another, WHEN clicking either, THEN the selection path encloses exactly the "
+            + "matching pixels")
+    @Test
+    void testGlobalSelectionNested() {
+        BufferedImage img = nestedImage(40, 15, 25, 5);
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(img);
+        model.setGlobal(true);
+        model.setTolerance(0);
+        model.addPoint(new Point(0, 0));
+        SelectionMask expected = new WandRegions(PixelPlanes.of(img), new Point(0, 0), 0)
+                .allRegions(1);
+        SelectionMask selected = SelectionMask.rasterize(model.selection(), 40, 40);
+        assertEquals(expected.area(), selected.area());
+        assertTrue(selected.subtract(expected).isEmpty());
+        assertTrue(model.canExtendSelection());
+
+        model.addPoint(new Point(20, 20));
+        selected = SelectionMask.rasterize(model.selection(), 40, 40);
+        assertEquals(expected.area(), selected.area());
+        assertTrue(selected.subtract(expected).isEmpty());
+    }
+
+    @DisplayName("GIVEN an image with a small region, WHEN all regions are selected with a minimum "
+            + "area larger than it, THEN it is omitted unless it was clicked")
+    @Test
+    void testAllRegionsMinArea() {
+        BufferedImage img = nestedImage(40, 19, 21, 5);
+        WandRegions regions = new WandRegions(PixelPlanes.of(img), new Point(0, 0), 0);
+        assertFalse(regions.allRegions(5).contains(20, 20));
+        regions = new WandRegions(PixelPlanes.of(img), new Point(20, 20), 0);
+        assertTrue(regions.allRegions(5).contains(20, 20));
+    }
+
+    @DisplayName("GIVEN a ring around a hole, WHEN the region of a pixel of the ring is filled, "
+            + "THEN its mask holds exactly the ring's pixels")
+    @Test
+    void testSeedRegion() {
+        BufferedImage img = nestedImage(40, 15, 25, 5);
+        WandRegions regions = new WandRegions(PixelPlanes.of(img), new Point(12, 20), 0);
+        SelectionMask mask = regions.seedRegion();
+        assertEquals(20 * 20 - 10 * 10, mask.area());
+        assertTrue(mask.contains(10, 10));
+        assertTrue(mask.contains(29, 29));
+        assertFalse(mask.contains(20, 20));
+        assertFalse(mask.contains(30, 20));
+    }
+
+    @DisplayName("GIVEN a magic wand in single-region mode, WHEN clicking a small square, a"
+            + " one-pixel-wide line, and regions of a random image, THEN the selection's mask"
+            + " holds exactly the pixels of the clicked region")
+    @Test
+    void testSingleSelectionMask() {
+        BufferedImage img = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(2, 2, 3, 3);
+        g.fillRect(7, 1, 1, 8);
+        g.dispose();
+        MagicWandSelectionModel model = new MagicWandSelectionModel(false);
+        model.setImage(img);
+        model.setTolerance(0);
+        model.addPoint(new Point(3, 3));
+        assertEquals(9, model.selectionMask().area());
+        model.addPoint(new Point(7, 4));
+        assertEquals(8, model.selectionMask().area());
+        assertTrue(model.selectionMask().contains(7, 8));
+
+        for (long seed = 0; seed < 4; ++seed) {
+            BufferedImage random = randomBinaryImage(37, 29, 0.4, seed);
+            model.setImage(random);
+            Point click = new Point(11, 13);
+            model.addPoint(click);
+            int[] labels = referenceLabels(random, click);
+            int label = labels[click.x + 37 * click.y];
+            SelectionMask mask = model.selectionMask();
+            int area = 0;
+            for (int i = 0; i < labels.length; ++i) {
+                assertEquals(labels[i] == label, mask.contains(i % 37, i / 37), "Pixel " + i);
+                area += (labels[i] == label) ? 1 : 0;
+            }
+            assertEquals(area, mask.area());
+        }
+    }
+
+    @DisplayName("GIVEN a tolerance, WHEN pixels differ from the clicked one by up to and beyond "
+            + "it in any band, THEN only those within it match")
+    @Test
+    void testTolerance() {
+        BufferedImage img = new BufferedImage(4, 1, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(0, 0, 0x808080);
+        img.setRGB(1, 0, 0x8A8080);
+        img.setRGB(2, 0, 0x808076);
+        img.setRGB(3, 0, 0x808075);
+        WandRegions regions = new WandRegions(PixelPlanes.of(img), new Point(0, 0), 10);
+        assertArrayEquals(new int[]{0, 0, 0, -1}, regions.labels());
+    }
+}
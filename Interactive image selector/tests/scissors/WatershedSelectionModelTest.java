@@ -0,0 +1,83 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static selector.SelectionModel.SelectionState.*;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+import selector.SelectionMask;
+
+class WatershedSelectionModelTest {
+
+    @DisplayName("GIVEN a model, WHEN an image is set, THEN it is PROCESSING and rejects clicks"
+            + " until the image is flooded in the background, AND a click then selects a closed"
+            + " path around the clicked basin")
+    @Test
+    void testFloodsInBackground() throws Exception {
+        WatershedSelectionModel model = new WatershedSelectionModel(false);
+        model.setImage(WatershedTest.basinImage(50, 30, 23, 0, 0, 0));
+        assertEquals(PROCESSING, model.state());
+        assertThrows(IllegalStateException.class, () -> model.addPoint(new Point(5, 5)));
+        SuperpixelScissorsSelectionModelTest.awaitPrepared(model);
+        assertEquals(NO_SELECTION, model.state());
+
+        SwingUtilities.invokeAndWait(() -> model.addPoint(new Point(5, 5)));
+        assertEquals(SELECTED, model.state());
+        assertEquals(model.selection().getFirst().start(), model.selection().getLast().end());
+        SelectionMask mask = model.selectionMask();
+        assertTrue(mask.bounds().x == 0 && mask.bounds().y == 0);
+        assertTrue(mask.bounds().width >= 22 && mask.bounds().width <= 24);
+        assertEquals(30, mask.bounds().height);
+    }
+
+    @DisplayName("GIVEN a flooded image with a disk inside one half, WHEN clicking the half"
+            + " around the disk, THEN the disk is a hole in the selection, AND WHEN clicking the"
+            + " disk and the other half instead, THEN both are selected though they do not touch,"
+            + " AND undoing removes the last one")
+    @Test
+    void testHolesAndDisjointBasins() throws Exception {
+        BufferedImage img = WatershedTest.basinImage(60, 40, 25, 45, 20, 7);
+        Watershed basins = Watershed.compute(PixelPlanes.of(img));
+        int left = basins.basinAt(2, 2);
+        int right = basins.basinAt(58, 2);
+        int disk = basins.basinAt(45, 20);
+        assertTrue(left != right && right != disk && disk != left);
+        WatershedSelectionModel model = new WatershedSelectionModel(false);
+        model.setImage(img);
+        SuperpixelScissorsSelectionModelTest.awaitPrepared(model);
+
+        SwingUtilities.invokeAndWait(() -> model.addPoint(new Point(58, 2)));
+        assertMaskHolds(model.selectionMask(), basins, right);
+        assertFalse(model.selectionMask().contains(45, 20));
+
+        SwingUtilities.invokeAndWait(() -> {
+            model.reset();
+            model.addPoint(new Point(2, 2));
+            model.addPoint(new Point(45, 20));
+        });
+        assertMaskHolds(model.selectionMask(), basins, left, disk);
+        SwingUtilities.invokeAndWait(model::undo);
+        assertMaskHolds(model.selectionMask(), basins, left);
+    }
+
+    /**
+     * Assert that `mask` holds exactly the pixels of the basins `selected` of `basins`.
+     */
+    static void assertMaskHolds(SelectionMask mask, Watershed basins, int... selected) {
+        int area = 0;
+        for (int y = 0; y < basins.height(); ++y) {
+            for (int x = 0; x < basins.width(); ++x) {
+                int basin = basins.basinAt(x, y);
+                boolean inside = Arrays.stream(selected).anyMatch(b -> b == basin);
+                assertEquals(inside, mask.contains(x, y), "pixel (" + x + ", " + y + ")");
+                area += inside ? 1 : 0;
+            }
+        }
+        assertEquals(area, mask.area());
+    }
+}
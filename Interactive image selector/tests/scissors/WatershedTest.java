@@ -0,0 +1,84 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import selector.PixelPlanes;
+import selector.SelectionMask;
+
+class WatershedTest {
+
+    /**
+     * Return a `width` x `height` image that is black left of column `edge` and white from it on,
+     * with a gray disk of radius `radius` centered at (`cx`, `cy`) drawn over it if `radius` is
+     * positive.
+     */
+    static BufferedImage basinImage(int width, int height, int edge, int cx, int cy, int radius) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, edge, height);
+        g.setColor(Color.WHITE);
+        g.fillRect(edge, 0, width - edge, height);
+        if (radius > 0) {
+            g.setColor(Color.GRAY);
+            g.fillOval(cx - radius, cy - radius, 2 * radius, 2 * radius);
+        }
+        g.dispose();
+        return img;
+    }
+
+    @DisplayName("GIVEN an image of two flat halves, WHEN flooding it, THEN there are two basins"
+            + " AND every pixel away from the edge is in the basin of its half")
+    @Test
+    void testTwoBasins() {
+        int edge = 23;
+        Watershed basins = Watershed.compute(PixelPlanes.of(basinImage(50, 30, edge, 0, 0, 0)));
+        assertEquals(2, basins.basinCount());
+        int left = basins.basinAt(0, 0);
+        int right = basins.basinAt(49, 29);
+        assertNotEquals(left, right);
+        for (int y = 0; y < 30; ++y) {
+            for (int x = 0; x < 50; ++x) {
+                if (x < edge - 1) {
+                    assertEquals(left, basins.basinAt(x, y));
+                } else if (x > edge) {
+                    assertEquals(right, basins.basinAt(x, y));
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN basins of an image with a disk over an edge, WHEN building the mask of"
+            + " each basin and of each pair of basins, THEN it holds exactly their pixels")
+    @Test
+    void testRegion() {
+        int width = 60;
+        int height = 40;
+        Watershed basins = Watershed.compute(
+                PixelPlanes.of(basinImage(width, height, 25, 30, 20, 11)));
+        int count = basins.basinCount();
+        assertTrue(count >= 3);
+        for (int a = 0; a < count; ++a) {
+            for (int b = a; b < count; ++b) {
+                boolean[] selected = new boolean[count];
+                selected[a] = true;
+                selected[b] = true;
+                SelectionMask mask = basins.region(selected);
+                int area = 0;
+                for (int y = 0; y < height; ++y) {
+                    for (int x = 0; x < width; ++x) {
+                        boolean inside = selected[basins.basinAt(x, y)];
+                        assertEquals(inside, mask.contains(x, y), "pixel (" + x + ", " + y + ")");
+                        area += inside ? 1 : 0;
+                    }
+                }
+                assertEquals(area, mask.area());
+            }
+        }
+    }
+}
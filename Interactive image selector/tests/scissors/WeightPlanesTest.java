@@ -0,0 +1,89 @@
+package scissors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.PrimitiveGraph;
+import graph.Weigher;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WeightPlanesTest {
+
+    /**
+     * Return a `width` x `height` image of pseudo-random colors.
+     */
+    static BufferedImage randomImage(int width, int height, long seed) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random rng = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                img.setRGB(x, y, rng.nextInt(0x1000000));
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Assert that the primitive view of the weigher named `weightName` for `img` enumerates the
+     * same neighbors, in the same order and with bit-identical weights, as the weigher itself
+     * gives the edges of every vertex.
+     */
+    static void assertMatchesWeigher(BufferedImage img, String weightName) {
+        ImageGraph graph = new ImageGraph(img);
+        Weigher<ImageEdge> weigher = ScissorsWeights.makeWeigher(weightName, graph);
+        PrimitiveGraph view = weigher.primitiveView(graph);
+        assertNotNull(view);
+        assertEquals(graph.vertexCount(), view.vertexCount());
+        for (int id = 0; id < graph.vertexCount(); ++id) {
+            List<int[]> neighbors = new ArrayList<>();
+            view.forEachNeighbor(id, (neighbor, weight) -> neighbors.add(
+                    new int[]{neighbor, weight}));
+            int i = 0;
+            for (ImageEdge edge : graph.getVertex(id).outgoingEdges()) {
+                int[] neighbor = neighbors.get(i++);
+                assertEquals(edge.endId(), neighbor[0]);
+                assertEquals(weigher.weight(edge), neighbor[1],
+                        weightName + " weight of edge " + edge);
+            }
+            assertEquals(i, neighbors.size());
+        }
+    }
+
+    @DisplayName("GIVEN a random image, WHEN weighing every edge with each cross-gradient weight,"
+            + " THEN the weight planes agree bit for bit with the weigher")
+    @Test
+    void testMatchesWeigher() {
+        BufferedImage img = randomImage(37, 29, 11);
+        for (String weightName : new String[]{"CrossGradMono", "CrossGradColor", "CrossGradLab"}) {
+            assertMatchesWeigher(img, weightName);
+        }
+    }
+
+    @DisplayName("GIVEN random images one or two pixels wide or tall and a subimage, WHEN"
+            + " weighing every edge, THEN the weight planes agree bit for bit with the weigher")
+    @Test
+    void testMatchesWeigherOnEdgeCases() {
+        BufferedImage img = randomImage(23, 19, 12);
+        List<BufferedImage> images = List.of(randomImage(1, 9, 13),
+                randomImage(2, 7, 14), randomImage(9, 1, 15),
+                randomImage(8, 2, 16), img.getSubimage(3, 4, 15, 12));
+        for (BufferedImage image : images) {
+            for (String weightName : new String[]{"CrossGradMono", "CrossGradColor"}) {
+                assertMatchesWeigher(image, weightName);
+            }
+        }
+    }
+
+    @DisplayName("GIVEN an image with 16-bit samples, WHEN asking a color cross-gradient weigher"
+            + " for its primitive view, THEN there is none")
+    @Test
+    void testNoViewForWideSamples() {
+        BufferedImage img = new BufferedImage(4, 4, BufferedImage.TYPE_USHORT_GRAY);
+        ImageGraph graph = new ImageGraph(img);
+        assertNull(ScissorsWeights.makeWeigher("CrossGradColor", graph).primitiveView(graph));
+    }
+}
@@ -0,0 +1,124 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MaskExportTest {
+
+    /**
+     * Corners of a concave quadrilateral within a 45 x 37 image.
+     */
+    private static final Point[] VERTICES = {new Point(3, 2), new Point(40, 9),
+            new Point(22, 35), new Point(20, 12)};
+
+    @DisplayName("GIVEN a mask, WHEN it is written as a PBM bitmap, THEN the header will give the"
+            + " image's size AND each bit will be set exactly at the mask's pixels")
+    @Test
+    void testWritePbm() throws IOException {
+        int width = 45;
+        int height = 37;
+        SelectionMask mask = SelectionMask.rasterize(SelectionMaskTest.polygonPath(VERTICES),
+                width, height);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MaskExport.writePbm(mask, width, height, out);
+        byte[] pbm = out.toByteArray();
+        byte[] header = ("P4\n" + width + " " + height + "\n").getBytes();
+        assertArrayEquals(header, Arrays.copyOf(pbm, header.length));
+        int rowBytes = (width + 7) / 8;
+        assertEquals(header.length + rowBytes * height, pbm.length);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int bit = (pbm[header.length + rowBytes * y + x / 8] >> (7 - x % 8)) & 1;
+                assertEquals(mask.contains(x, y) ? 1 : 0, bit, "pixel (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a mask, WHEN it is written as a COCO run-length mask, THEN the size will"
+            + " be the image's AND the counts, decoded as the COCO tools do, will be the runs"
+            + " down each column of the mask")
+    @Test
+    void testWriteCocoRle() throws IOException {
+        int width = 45;
+        int height = 37;
+        SelectionMask mask = SelectionMask.rasterize(SelectionMaskTest.polygonPath(VERTICES),
+                width, height);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MaskExport.writeCocoRle(mask, width, height, out);
+        String json = out.toString();
+        String prefix = "{\"size\": [" + height + ", " + width + "], \"counts\": \"";
+        assertTrue(json.startsWith(prefix), json);
+        String counts = json.substring(prefix.length(), json.lastIndexOf('"'))
+                .replace("\\\\", "\\");
+        // Decode as the COCO tools' `rleFrString()` does
+        List<Long> decoded = new LinkedList<>();
+        int p = 0;
+        while (p < counts.length()) {
+            long x = 0;
+            int k = 0;
+            int c;
+            do {
+                c = counts.charAt(p++) - 48;
+                x |= (long) (c & 0x1F) << (5 * k++);
+            } while ((c & 0x20) != 0);
+            if ((c & 0x10) != 0) {
+                x |= -1L << (5 * k);
+            }
+            if (decoded.size() > 2) {
+                x += decoded.get(decoded.size() - 2);
+            }
+            decoded.add(x);
+        }
+        List<Long> expected = new LinkedList<>();
+        boolean in = false;
+        long run = 0;
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                if (mask.contains(x, y) != in) {
+                    expected.add(run);
+                    in = !in;
+                    run = 0;
+                }
+                run += 1;
+            }
+        }
+        expected.add(run);
+        assertEquals(expected, decoded);
+        assertEquals(expected, Arrays.stream(MaskExport.cocoCounts(mask, width, height))
+                .boxed().toList());
+    }
+
+    @DisplayName("GIVEN a closed path, WHEN it is written as a chain code, THEN the first line"
+            + " will be its start AND the steps will visit each vertex and return to the start")
+    @Test
+    void testWriteChainCode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MaskExport.writeChainCode(SelectionMaskTest.polygonPath(VERTICES), out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("3 2", lines[0]);
+        int[] dxs = {1, 1, 0, -1, -1, -1, 0, 1};
+        int[] dys = {0, -1, -1, -1, 0, 1, 1, 1};
+        Point current = new Point(3, 2);
+        List<Point> visited = new LinkedList<>();
+        for (char digit : lines[1].toCharArray()) {
+            current.translate(dxs[digit - '0'], dys[digit - '0']);
+            visited.add(new Point(current));
+        }
+        assertEquals(new Point(3, 2), current);
+        for (Point vertex : VERTICES) {
+            assertTrue(visited.contains(vertex), "vertex " + vertex);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MaskExport.writeChainCode(List.of(), new ByteArrayOutputStream()));
+    }
+}
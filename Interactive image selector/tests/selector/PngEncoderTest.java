@@ -0,0 +1,115 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.zip.Adler32;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PngEncoderTest {
+
+    /**
+     * Return a `width` x `height` ARGB image of smooth gradients with some noise, so that the
+     * encoder's filters differ between rows, and random alphas (some fully transparent).
+     */
+    static BufferedImage gradientImage(int width, int height, long seed) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                int alpha = (random.nextInt(8) == 0) ? 0 : random.nextInt(256);
+                img.setRGB(x, y, alpha << 24 | ((x + y) & 0xFF) << 16 | (y & 0xFF) << 8
+                        | random.nextInt(4));
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Encode `img` as a PNG file, recording the progress reported in `progress`.
+     */
+    static byte[] encode(BufferedImage img, List<Integer> progress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PngEncoder(img.getWidth(), img.getHeight()).encode(
+                (y, argb) -> img.getRGB(0, y, img.getWidth(), 1, argb, 0, img.getWidth()),
+                Channels.newChannel(out), progress::add, () -> false);
+        return out.toByteArray();
+    }
+
+    @DisplayName("GIVEN an image tall enough to span several blocks, WHEN it is encoded, THEN the"
+            + " PNG will decode to the same colors and alphas, AND progress will rise to its"
+            + " height")
+    @Test
+    void testEncode() throws IOException {
+        for (int[] size : new int[][]{{300, 2000}, {1, 1}, {7, 3}}) {
+            BufferedImage img = gradientImage(size[0], size[1], size[0]);
+            List<Integer> progress = new ArrayList<>();
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encode(img, progress)));
+
+            assertEquals(img.getWidth(), decoded.getWidth());
+            assertEquals(img.getHeight(), decoded.getHeight());
+            for (int y = 0; y < img.getHeight(); ++y) {
+                for (int x = 0; x < img.getWidth(); ++x) {
+                    assertEquals(img.getRGB(x, y), decoded.getRGB(x, y),
+                            "pixel (" + x + ", " + y + ")");
+                }
+            }
+            for (int k = 1; k < progress.size(); ++k) {
+                assertTrue(progress.get(k) > progress.get(k - 1));
+            }
+            assertEquals(img.getHeight(), progress.get(progress.size() - 1));
+            // One report per block
+            assertEquals(img.getHeight() > 1000, progress.size() > 1);
+        }
+    }
+
+    @DisplayName("WHEN encoding is cancelled, THEN a CancellationException will be thrown, AND"
+            + " WHEN an encoder is created for an empty image, THEN an IllegalArgumentException"
+            + " will be thrown")
+    @Test
+    void testCancelAndInvalidSize() {
+        BufferedImage img = gradientImage(40, 30, 1);
+        assertThrows(CancellationException.class, () -> new PngEncoder(40, 30).encode(
+                (y, argb) -> img.getRGB(0, y, 40, 1, argb, 0, 40),
+                Channels.newChannel(new ByteArrayOutputStream()), rows -> {}, () -> true));
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(5, -1));
+    }
+
+    @DisplayName("GIVEN two byte sequences, WHEN their Adler-32 checksums are combined, THEN the"
+            + " result will be the checksum of their concatenation")
+    @Test
+    void testCombineAdler() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 50; ++trial) {
+            byte[] first = new byte[random.nextInt(200_000)];
+            byte[] second = new byte[random.nextInt(200_000)];
+            // Runs of 0xFF push the sums toward the modulus
+            byte fill = (byte) ((trial % 2 == 0) ? 0xFF : 0);
+            for (byte[] bytes : new byte[][]{first, second}) {
+                for (int k = 0; k < bytes.length; ++k) {
+                    bytes[k] = (random.nextInt(4) == 0) ? (byte) random.nextInt() : fill;
+                }
+            }
+            Adler32 whole = new Adler32();
+            whole.update(first);
+            whole.update(second);
+            Adler32 a = new Adler32();
+            a.update(first);
+            Adler32 b = new Adler32();
+            b.update(second);
+            assertEquals(whole.getValue(),
+                    PngEncoder.combineAdler(a.getValue(), b.getValue(), second.length));
+        }
+    }
+}
@@ -3,11 +3,23 @@ package selector;
 import static org.junit.jupiter.api.Assertions.*;
 import static selector.SelectionModel.SelectionState.*;
 
+import java.awt.Color;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -308,6 +320,363 @@ class PointToPointSelectionModelTest {
         assertEquals( 3, model.closestPoint (new Point( 1, 12) , 9));
     }
 
+    /* Tests of selectionMask() */
+
+    @DisplayName("GIVEN a self-intersecting selection over an image, WHEN its mask is requested, "
+            + "THEN it will be the rasterized selection, AND the same mask will be returned until "
+            + "the selection changes")
+    @Test
+    void testSelectionMask() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(new BufferedImage(30, 20, BufferedImage.TYPE_INT_ARGB));
+        model.addPoint(new Point(-5, 2));
+        model.addPoint(new Point(25, 17));
+        model.addPoint(new Point(12, -3));
+        model.addPoint(new Point(3, 16));
+        model.addPoint(new Point(33, 6));
+        model.finishSelection();
+
+        SelectionMask mask = model.selectionMask();
+        SelectionMask expected = SelectionMask.rasterize(model.selection(), 30, 20);
+        assertTrue(mask.subtract(expected).isEmpty() && expected.subtract(mask).isEmpty());
+        assertSame(mask, model.selectionMask());
+
+        model.movePoint(2, new Point(12, 5));
+        assertNotSame(mask, model.selectionMask());
+    }
+
+    @DisplayName("GIVEN a selection over an image, WHEN it is filled with a color, THEN exactly "
+            + "the pixels in its mask will change color")
+    @Test
+    void testFillSelection() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        model.setImage(img);
+        model.addPoint(new Point(2, 3));
+        model.addPoint(new Point(17, 5));
+        model.addPoint(new Point(9, 18));
+        model.finishSelection();
+
+        model.fillSelectionWithColor(Color.RED);
+        SelectionMask mask = model.selectionMask();
+        for (int y = 0; y < 20; ++y) {
+            for (int x = 0; x < 20; ++x) {
+                int expected = mask.contains(x, y) ? Color.RED.getRGB() : Color.BLACK.getRGB();
+                assertEquals(expected, img.getRGB(x, y), "pixel (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a rectangular selection with a feather radius, WHEN it is filled with a "
+            + "color, THEN the color will ramp across the selection's edge over that radius")
+    @Test
+    void testFeatheredFill() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        model.setImage(img);
+        model.addPoint(new Point(10, 10));
+        model.addPoint(new Point(30, 10));
+        model.addPoint(new Point(30, 30));
+        model.addPoint(new Point(10, 30));
+        model.finishSelection();
+        model.setFeatherRadius(4);
+
+        model.fillSelectionWithColor(Color.WHITE);
+        // Pixel centers within 4 pixels of the edge at x = 10 are partially filled
+        for (int x = 0; x <= 5; ++x) {
+            assertEquals(0, img.getRGB(x, 20) & 0xFF, "pixel (" + x + ", 20)");
+        }
+        for (int x = 6; x < 14; ++x) {
+            assertTrue((img.getRGB(x, 20) & 0xFF) > (img.getRGB(x - 1, 20) & 0xFF),
+                    "pixel (" + x + ", 20)");
+        }
+        assertEquals(112, img.getRGB(9, 20) & 0xFF);
+        assertEquals(143, img.getRGB(10, 20) & 0xFF);
+        for (int x = 14; x <= 20; ++x) {
+            assertEquals(255, img.getRGB(x, 20) & 0xFF, "pixel (" + x + ", 20)");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> model.setFeatherRadius(-1));
+    }
+
+    @DisplayName("GIVEN a finished selection over an image, WHEN it is saved, THEN the PNG "
+            + "will decode to the selected pixels within their bounding box, AND pixels outside "
+            + "of the selection will be transparent")
+    @Test
+    void testSaveSelection() throws IOException {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(60, 50, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < img.getHeight(); ++y) {
+            for (int x = 0; x < img.getWidth(); ++x) {
+                img.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        model.setImage(img);
+        model.addPoint(new Point(10, 5));
+        model.addPoint(new Point(55, 12));
+        model.addPoint(new Point(30, 46));
+        model.finishSelection();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.saveSelection(out);
+        BufferedImage saved = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+
+        SelectionMask mask = model.selectionMask();
+        Rectangle bounds = mask.bounds();
+        assertEquals(bounds.width, saved.getWidth());
+        assertEquals(bounds.height, saved.getHeight());
+        for (int y = 0; y < bounds.height; ++y) {
+            for (int x = 0; x < bounds.width; ++x) {
+                int expected = mask.contains(bounds.x + x, bounds.y + y)
+                        ? img.getRGB(bounds.x + x, bounds.y + y) : 0;
+                assertEquals(expected, saved.getRGB(x, y), "pixel (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a finished selection, WHEN it is exported to a TIFF file, THEN the file "
+            + "will decode to the selected pixels within their bounding box, AND pixels outside "
+            + "of the selection will be transparent")
+    @Test
+    void testExportSelectionTiff() throws Exception {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(70, 60, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(2);
+        for (int y = 0; y < img.getHeight(); ++y) {
+            for (int x = 0; x < img.getWidth(); ++x) {
+                img.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        model.setImage(img);
+        model.addPoint(new Point(3, 10));
+        model.addPoint(new Point(69, 4));
+        model.addPoint(new Point(35, 55));
+        model.finishSelection();
+
+        Path file = Files.createTempFile("selection", ".tif");
+        BufferedImage saved;
+        try {
+            SwingWorker<Void, Void> export = model.exportSelection(file);
+            export.run();
+            export.get();
+            saved = ImageIO.read(file.toFile());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        SelectionMask mask = model.selectionMask();
+        Rectangle bounds = mask.bounds();
+        assertEquals(bounds.width, saved.getWidth());
+        assertEquals(bounds.height, saved.getHeight());
+        for (int y = 0; y < bounds.height; ++y) {
+            for (int x = 0; x < bounds.width; ++x) {
+                int expected = mask.contains(bounds.x + x, bounds.y + y)
+                        ? img.getRGB(bounds.x + x, bounds.y + y) : 0;
+                assertEquals(expected, saved.getRGB(x, y), "pixel (" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a feathered selection taller than a strip of the matte, WHEN it is"
+            + " exported to a PNG file and to a TIFF file, THEN each pixel's alpha will be that of"
+            + " the matte feathering the whole selection")
+    @Test
+    void testExportFeatheredSelection() throws Exception {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(230, 700, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < img.getHeight(); ++y) {
+            for (int x = 0; x < img.getWidth(); ++x) {
+                img.setRGB(x, y, (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x * y) & 0xFF));
+            }
+        }
+        model.setImage(img);
+        model.addPoint(new Point(20, 4));
+        model.addPoint(new Point(225, 350));
+        model.addPoint(new Point(60, 690));
+        model.finishSelection();
+        model.setFeatherRadius(7.5);
+        SelectionMatte matte = model.selectionMatte();
+        Rectangle bounds = matte.bounds();
+
+        for (String suffix : new String[]{".png", ".tif"}) {
+            Path file = Files.createTempFile("selection", suffix);
+            BufferedImage saved;
+            try {
+                SwingWorker<Void, Void> export = model.exportSelection(file);
+                export.run();
+                export.get();
+                saved = ImageIO.read(file.toFile());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+            assertEquals(bounds.width, saved.getWidth());
+            assertEquals(bounds.height, saved.getHeight());
+            for (int y = 0; y < bounds.height; ++y) {
+                for (int x = 0; x < bounds.width; ++x) {
+                    int alpha = matte.alpha(bounds.x + x, bounds.y + y);
+                    int argb = saved.getRGB(x, y);
+                    String where = suffix + " pixel (" + x + ", " + y + ")";
+                    assertEquals(alpha, argb >>> 24, where);
+                    if (alpha > 0) {
+                        assertEquals(img.getRGB(bounds.x + x, bounds.y + y) & 0xFFFFFF,
+                                argb & 0xFFFFFF, where);
+                    }
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a finished selection, WHEN it is being exported, THEN filling or deleting"
+            + " it will throw an IllegalStateException, AND both will be allowed again once the"
+            + " export has finished or was cancelled before it started")
+    @Test
+    void testEditsBlockedDuringExport() throws Exception {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        model.setImage(img);
+        model.addPoint(new Point(5, 5));
+        model.addPoint(new Point(35, 5));
+        model.addPoint(new Point(20, 25));
+        model.finishSelection();
+        List<Object> exporting = new LinkedList<>();
+        model.addPropertyChangeListener("exporting", e -> exporting.add(e.getNewValue()));
+        assertFalse(model.isExporting());
+
+        Path file = Files.createTempFile("selection", ".png");
+        try {
+            SwingWorker<Void, Void> export = model.exportSelection(file);
+            assertTrue(model.isExporting());
+            assertThrows(IllegalStateException.class,
+                    () -> model.fillSelectionWithColor(Color.RED));
+            assertThrows(IllegalStateException.class, () -> model.deleteSelectedRegion());
+            assertEquals(0, img.getRGB(20, 10) & 0xFFFFFF);
+            export.run();
+            export.get();
+            // Completion is reported on the Event Dispatch thread
+            SwingUtilities.invokeAndWait(() -> {});
+            assertFalse(model.isExporting());
+            assertEquals(List.of(true, false), exporting);
+
+            SwingWorker<Void, Void> cancelled = model.exportSelection(file);
+            assertTrue(model.isExporting());
+            cancelled.cancel(false);
+            assertFalse(model.isExporting());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        model.fillSelectionWithColor(Color.RED);
+        assertEquals(Color.RED.getRGB(), img.getRGB(20, 10));
+        model.deleteSelectedRegion();
+        assertEquals(0, img.getRGB(20, 10) & 0xFFFFFF);
+    }
+
+    @DisplayName("GIVEN a finished selection, WHEN its mask is saved in each format, THEN the "
+            + "output will be that of `MaskExport` for its mask and path")
+    @Test
+    void testSaveMask() throws IOException {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(new BufferedImage(45, 37, BufferedImage.TYPE_INT_RGB));
+        model.addPoint(new Point(3, 2));
+        model.addPoint(new Point(40, 9));
+        model.addPoint(new Point(22, 35));
+        model.finishSelection();
+
+        for (MaskExport.Format format : MaskExport.Format.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            model.saveMask(format, out);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            switch (format) {
+                case PBM -> MaskExport.writePbm(model.selectionMask(), 45, 37, expected);
+                case COCO_RLE -> MaskExport.writeCocoRle(model.selectionMask(), 45, 37, expected);
+                case CHAIN_CODE -> MaskExport.writeChainCode(model.selection(), expected);
+            }
+            assertArrayEquals(expected.toByteArray(), out.toByteArray(), format.toString());
+        }
+    }
+
+    @DisplayName("GIVEN a model, WHEN its image, selection, or state change, THEN its generation "
+            + "will change, AND WHEN it only reports progress, THEN its generation will not")
+    @Test
+    void testGeneration() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        long generation = model.generation();
+        model.setImage(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        assertNotEquals(generation, model.generation());
+
+        generation = model.generation();
+        model.addPoint(new Point(1, 1));
+        assertNotEquals(generation, model.generation());
+
+        generation = model.generation();
+        model.propSupport.firePropertyChange("progress", 10, 20);
+        assertEquals(generation, model.generation());
+
+        model.addPoint(new Point(8, 1));
+        model.addPoint(new Point(8, 8));
+        generation = model.generation();
+        model.finishSelection();
+        assertNotEquals(generation, model.generation());
+    }
+
+    @DisplayName("GIVEN a model with a non-empty selection, WHEN its live wire is requested into a "
+            + "buffer, THEN the buffer will hold the points of `liveWire()` AND will be reused "
+            + "rather than appended to when requested again")
+    @Test
+    void testLiveWireBuffer() {
+        SelectionModel model = new PointToPointSelectionModel(false);
+        model.addPoint(new Point(0, 0));
+        model.addPoint(new Point(5, 5));
+        PolyLineBuffer buffer = new PolyLineBuffer();
+
+        assertSame(buffer, model.liveWire(new Point(7, 3), buffer));
+        assertEquals(model.liveWire(new Point(7, 3)), buffer.toPolyLine());
+        int[] xs = buffer.xs();
+
+        model.liveWire(new Point(9, 1), buffer);
+        assertEquals(model.liveWire(new Point(9, 1)), buffer.toPolyLine());
+        assertSame(xs, buffer.xs());
+        assertEquals(new Rectangle(5, 1, 5, 5), buffer.bounds(new Rectangle()));
+    }
+
+    @DisplayName("GIVEN two finished selections, one inside the other, WHEN the inner one's mask "
+            + "is subtracted from the outer one's and selected, THEN the selection will have a "
+            + "hole, AND its mask will be the difference")
+    @Test
+    void testSelectRegionWithHole() {
+        PointToPointSelectionModel model = new PointToPointSelectionModel(false);
+        model.setImage(new BufferedImage(30, 30, BufferedImage.TYPE_INT_ARGB));
+        model.addPoint(new Point(2, 2));
+        model.addPoint(new Point(28, 2));
+        model.addPoint(new Point(28, 28));
+        model.addPoint(new Point(2, 28));
+        model.finishSelection();
+        SelectionMask outer = model.selectionMask();
+        model.reset();
+        model.addPoint(new Point(10, 10));
+        model.addPoint(new Point(20, 10));
+        model.addPoint(new Point(15, 20));
+        model.finishSelection();
+        SelectionMask inner = model.selectionMask();
+
+        SelectionMask ring = outer.subtract(inner);
+        model.selectRegion(ring);
+        assertEquals(SELECTED, model.state());
+        assertSame(ring, model.selectionMask());
+        assertEquals(outer.area() - inner.area(), ring.area());
+
+        // The traced outline rasterizes to the same pixels, hole included
+        SelectionMask traced = SelectionMask.rasterize(model.selection(), 30, 30);
+        for (int y = 0; y < 30; ++y) {
+            for (int x = 0; x < 30; ++x) {
+                assertEquals(outer.contains(x, y) && !inner.contains(x, y), traced.contains(x, y),
+                        "pixel (" + x + ", " + y + ")");
+            }
+        }
+        assertEquals(inner.area(), outer.intersect(inner).area());
+        assertEquals(outer.area(), ring.union(inner).area());
+    }
+
 
 }
 
@@ -0,0 +1,154 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PolyLineTest {
+
+    @DisplayName("GIVEN a long path of steps to 8-neighbors, WHEN it is compacted, THEN it will "
+            + "decode to the same points AND equal the uncompacted poly-line, AND a selection "
+            + "made of such paths will rasterize as before")
+    @Test
+    void testCompactPolyLine() {
+        Random random = new Random(3);
+        int size = 1000;
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        xs[0] = 500;
+        ys[0] = 500;
+        for (int k = 1; k < size; ++k) {
+            do {
+                xs[k] = xs[k - 1] + random.nextInt(3) - 1;
+                ys[k] = ys[k - 1] + random.nextInt(3) - 1;
+            } while (xs[k] == xs[k - 1] && ys[k] == ys[k - 1]);
+        }
+        PolyLine compact = PolyLine.compact(xs, ys, size);
+        PolyLine explicit = new PolyLine(xs.clone(), ys.clone());
+        assertArrayEquals(xs, compact.xs());
+        assertArrayEquals(ys, compact.ys());
+        assertEquals(size, compact.size());
+        assertEquals(new Point(xs[size - 1], ys[size - 1]), compact.end());
+        assertEquals(explicit, compact);
+        assertEquals(compact, explicit);
+        assertEquals(explicit.hashCode(), compact.hashCode());
+
+        int[] tailXs = new int[size];
+        int[] tailYs = new int[size];
+        compact.copyPoints(size - 30, tailXs, tailYs, 5);
+        assertArrayEquals(Arrays.copyOfRange(xs, size - 30, size),
+                Arrays.copyOfRange(tailXs, 5, 35));
+        assertArrayEquals(Arrays.copyOfRange(ys, size - 30, size),
+                Arrays.copyOfRange(tailYs, 5, 35));
+
+        // A jump between points cannot be chain coded
+        xs[size / 2] += 5;
+        assertArrayEquals(xs, PolyLine.compact(xs, ys, size).xs());
+
+        List<PolyLine> loop = List.of(PolyLine.compact(new int[]{2, 3, 4, 5, 5, 5},
+                new int[]{2, 2, 3, 3, 4, 5}, 6), new PolyLine(new Point(5, 5), new Point(2, 2)));
+        List<PolyLine> explicitLoop = List.of(new PolyLine(new int[]{2, 3, 4, 5, 5, 5},
+                new int[]{2, 2, 3, 3, 4, 5}), new PolyLine(new Point(5, 5), new Point(2, 2)));
+        assertEquals(PolyLine.makePolygon(explicitLoop).npoints,
+                PolyLine.makePolygon(loop).npoints);
+        SelectionMask mask = SelectionMask.rasterize(loop, 10, 10);
+        SelectionMask expected = SelectionMask.rasterize(explicitLoop, 10, 10);
+        assertTrue(mask.subtract(expected).isEmpty() && expected.subtract(mask).isEmpty());
+    }
+
+    @DisplayName("GIVEN a long pixel path, WHEN it is simplified at increasing tolerances, THEN "
+            + "each simplification will keep its endpoints and a subset of the previous one's "
+            + "points, AND every dropped point will be within the tolerance of the simplified line")
+    @Test
+    void testSimplifiedPolyLine() {
+        Random random = new Random(4);
+        int size = 2000;
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        for (int k = 1; k < size; ++k) {
+            // A wandering path with a drift, so that it has both straight and wiggly stretches
+            xs[k] = xs[k - 1] + ((random.nextInt(5) == 0) ? random.nextInt(3) - 1 : 1);
+            ys[k] = ys[k - 1] + random.nextInt(3) - 1;
+        }
+        PolyLine line = PolyLine.compact(xs, ys, size);
+        assertSame(line, line.simplified(0.25));
+        assertEquals(new Rectangle(Arrays.stream(xs).min().getAsInt(),
+                Arrays.stream(ys).min().getAsInt(),
+                Arrays.stream(xs).max().getAsInt() - Arrays.stream(xs).min().getAsInt() + 1,
+                Arrays.stream(ys).max().getAsInt() - Arrays.stream(ys).min().getAsInt() + 1),
+                line.bounds());
+
+        PolyLine previous = line;
+        for (double tolerance = 0.5; tolerance <= 64; tolerance *= 2) {
+            PolyLine simple = line.simplified(tolerance);
+            assertSame(simple, line.simplified(tolerance * 1.5));
+            assertEquals(line.start(), simple.start());
+            assertEquals(line.end(), simple.end());
+            assertTrue(simple.size() <= previous.size());
+            int[] sxs = simple.xs();
+            int[] sys = simple.ys();
+            // Walk the original path, matching the kept points in order
+            int j = 0;
+            for (int k = 0; k < size; ++k) {
+                if (j < sxs.length && xs[k] == sxs[j] && ys[k] == sys[j]) {
+                    j += 1;
+                    continue;
+                }
+                double dx = sxs[j] - sxs[j - 1];
+                double dy = sys[j] - sys[j - 1];
+                double px = xs[k] - sxs[j - 1];
+                double py = ys[k] - sys[j - 1];
+                double t = Math.max(0, Math.min(1, (px * dx + py * dy) / (dx * dx + dy * dy)));
+                assertTrue(Math.hypot(px - t * dx, py - t * dy) <= tolerance,
+                        "point " + k + " at tolerance " + tolerance);
+            }
+            assertEquals(sxs.length, j);
+            previous = simple;
+        }
+        assertTrue(line.simplified(1).size() < size / 2);
+        assertEquals(2, line.simplified(1e9).size());
+    }
+
+    @DisplayName("GIVEN a buffer, WHEN points and poly-lines are appended, THEN duplicated joints"
+            + " will be skipped, AND its poly-line will be compacted to the same points, AND"
+            + " clearing it will keep its arrays")
+    @Test
+    void testBuffer() {
+        PolyLineBuffer buffer = new PolyLineBuffer(2);
+        buffer.append(new Point(4, 4));
+        buffer.append(4, 4);
+        buffer.append(5, 5);
+        buffer.append(PolyLine.compact(new int[]{5, 6, 7, 7}, new int[]{5, 5, 6, 7}, 4));
+        buffer.append(new PolyLine(new Point(9, 9), new Point(20, 3)));
+        int[] xs = {4, 5, 6, 7, 7, 9, 20};
+        int[] ys = {4, 5, 5, 6, 7, 9, 3};
+        assertEquals(xs.length, buffer.size());
+        assertArrayEquals(xs, Arrays.copyOf(buffer.xs(), buffer.size()));
+        assertArrayEquals(ys, Arrays.copyOf(buffer.ys(), buffer.size()));
+        assertEquals(new Rectangle(4, 3, 17, 7), buffer.bounds(new Rectangle()));
+
+        PolyLine line = buffer.toPolyLine();
+        assertEquals(new PolyLine(xs, ys), line);
+        assertArrayEquals(xs, line.xs());
+
+        buffer.reverse();
+        assertEquals(new Point(20, 3), buffer.start());
+        assertEquals(new Point(4, 4), buffer.end());
+
+        int[] storage = buffer.xs();
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.bounds(new Rectangle(1, 1, 1, 1)).isEmpty());
+        buffer.append(1, 2);
+        assertSame(storage, buffer.xs());
+        assertEquals(new PolyLine(new Point(1, 2), new Point(1, 2)), buffer.toPolyLine());
+        buffer.clear();
+        assertThrows(IllegalStateException.class, buffer::toPolyLine);
+    }
+}
@@ -0,0 +1,118 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ProjectiveSelectionModelTest {
+
+    /**
+     * Return a `width` x `height` image of type `type` filled with pseudo-random colors (and
+     * alphas, if the type has them).
+     */
+    static BufferedImage randomImage(int width, int height, int type, long seed) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random rng = new Random(seed);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                img.setRGB(x, y, rng.nextInt());
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Warp `src` onto `dest` with the homography `H` the way `warpAndOverlay()` originally did:
+     * visit every destination pixel, sample the source with per-pixel `getRGB()` calls, and write
+     * each blended pixel with `setRGB()`.
+     */
+    static void warpPerPixel(ProjectiveSelectionModel model, BufferedImage src,
+            BufferedImage dest, double[][] H) {
+        double[][] Hinv = model.invertHomography(H);
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int[] srcPixels = new int[width * height];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                srcPixels[x + width * y] = src.getRGB(x, y);
+            }
+        }
+        for (int y = 0; y < dest.getHeight(); ++y) {
+            for (int x = 0; x < dest.getWidth(); ++x) {
+                double[] srcPt = model.applyHomography(Hinv, x, y);
+                int rgb = model.bilinearInterpolate(srcPixels, width, height, srcPt[0], srcPt[1]);
+                if (rgb != 0) {
+                    dest.setRGB(x, y, model.blend(rgb, dest.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN images of each common type and a subimage, WHEN reading their ARGB pixels"
+            + " as a flat array, THEN every pixel equals the one read by `getRGB()`")
+    @Test
+    void testArgbPixelsMatchGetRgb() {
+        BufferedImage parent = randomImage(13, 11, BufferedImage.TYPE_INT_ARGB, 1);
+        List<BufferedImage> images = List.of(parent, parent.getSubimage(2, 3, 9, 6),
+                randomImage(13, 11, BufferedImage.TYPE_INT_RGB, 2),
+                randomImage(13, 11, BufferedImage.TYPE_3BYTE_BGR, 3),
+                randomImage(13, 11, BufferedImage.TYPE_4BYTE_ABGR, 4),
+                randomImage(13, 11, BufferedImage.TYPE_BYTE_GRAY, 5));
+        for (BufferedImage img : images) {
+            int width = img.getWidth();
+            int[] pixels = PixelPlanes.argbPixels(img);
+            for (int y = 0; y < img.getHeight(); ++y) {
+                for (int x = 0; x < width; ++x) {
+                    assertEquals(img.getRGB(x, y), pixels[x + width * y]);
+                }
+            }
+        }
+        assertNotNull(PixelPlanes.directArgb(parent));
+        assertNull(PixelPlanes.directArgb(parent.getSubimage(2, 3, 9, 6)));
+    }
+
+    @DisplayName("GIVEN homographies that shrink, enlarge, skew, and partly or wholly push the"
+            + " pasted image off the destination, WHEN warping onto destinations of each type,"
+            + " THEN the result equals that of the per-pixel `getRGB()`/`setRGB()` warp")
+    @Test
+    void testWarpMatchesPerPixelLoop() {
+        ProjectiveSelectionModel model = new ProjectiveSelectionModel(false);
+        BufferedImage src = randomImage(17, 12, BufferedImage.TYPE_INT_ARGB, 6);
+        // Make part of the pasted image transparent, as rendered text is
+        for (int x = 0; x < 17; ++x) {
+            src.setRGB(x, 5, 0);
+        }
+        double[][][] homographies = {
+                {{0.5, 0, 3.2}, {0, 0.7, 4.1}, {0, 0, 1}},
+                {{2.3, 0.4, -5}, {-0.3, 1.9, 2.5}, {0.01, 0.02, 1}},
+                {{1.1, 0.2, 30}, {0.1, 0.9, 20}, {0.001, -0.003, 1}},
+                {{1, 0, -100}, {0, 1, -100}, {0, 0, 1}},
+                {{1, 0, 5}, {0, 1, 5}, {-0.08, 0, 1}},
+        };
+        // Each destination is created twice, once for each warp
+        List<Supplier<BufferedImage>> destinations = List.of(
+                () -> randomImage(50, 40, BufferedImage.TYPE_INT_ARGB, 7),
+                () -> randomImage(50, 40, BufferedImage.TYPE_INT_ARGB, 7).getSubimage(4, 3, 40, 30),
+                () -> randomImage(45, 35, BufferedImage.TYPE_INT_RGB, 8),
+                () -> randomImage(45, 35, BufferedImage.TYPE_3BYTE_BGR, 9));
+        for (double[][] H : homographies) {
+            for (Supplier<BufferedImage> dest : destinations) {
+                BufferedImage expected = dest.get();
+                BufferedImage actual = dest.get();
+                warpPerPixel(model, src, expected, H);
+                model.warpAndOverlay(src, actual, H);
+                for (int y = 0; y < expected.getHeight(); ++y) {
+                    for (int x = 0; x < expected.getWidth(); ++x) {
+                        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                                "Pixel (" + x + ", " + y + ")");
+                    }
+                }
+            }
+        }
+    }
+}
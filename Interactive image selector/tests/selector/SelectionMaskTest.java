@@ -0,0 +1,254 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SelectionMaskTest {
+
+    /**
+     * Return the closed path through `points`, as one segment per side.
+     */
+    static List<PolyLine> polygonPath(Point... points) {
+        PolyLine[] segments = new PolyLine[points.length];
+        for (int k = 0; k < points.length; ++k) {
+            segments[k] = new PolyLine(points[k], points[(k + 1) % points.length]);
+        }
+        return List.of(segments);
+    }
+
+    /**
+     * Return the mask of the pixels marked `#` in `rows`, each string being one row of an image as
+     * wide as the longest of them.
+     */
+    static SelectionMask maskOf(String... rows) {
+        int width = 0;
+        for (String row : rows) {
+            width = Math.max(width, row.length());
+        }
+        int w = width;
+        return SelectionMask.fromPixels(w, rows.length, i -> i % w < rows[i / w].length()
+                && rows[i / w].charAt(i % w) == '#');
+    }
+
+    /**
+     * Return a mask of a `width` x `height` image selecting random blobs of pixels in rows
+     * `[yBegin..yEnd)`, with density `density`.
+     */
+    static SelectionMask randomMask(int width, int height, int yBegin, int yEnd, double density,
+            Random random) {
+        boolean[] selected = new boolean[width * height];
+        for (int y = yBegin; y < yEnd; ++y) {
+            for (int x = 0; x < width; ++x) {
+                // Runs of equal pixels, so that masks have runs of several lengths
+                boolean same = x > 0 && random.nextInt(4) != 0;
+                selected[x + width * y] = same ? selected[x - 1 + width * y]
+                        : random.nextDouble() < density;
+            }
+        }
+        return SelectionMask.fromPixels(width, height, i -> selected[i]);
+    }
+
+    /**
+     * Assert that `mask` stores its runs canonically: each run is non-empty, runs in a row are in
+     * order and do not touch, and its bounds are the bounding box of its runs.
+     */
+    static void assertCanonical(SelectionMask mask) {
+        List<int[]> runs = new ArrayList<>();
+        mask.forEachRun((y, xBegin, xEnd) -> runs.add(new int[]{y, xBegin, xEnd}));
+        Rectangle bounds = new Rectangle();
+        for (int k = 0; k < runs.size(); ++k) {
+            int[] run = runs.get(k);
+            assertTrue(run[1] < run[2], "empty run in row " + run[0]);
+            if (k > 0 && runs.get(k - 1)[0] == run[0]) {
+                assertTrue(runs.get(k - 1)[2] < run[1], "touching runs in row " + run[0]);
+            }
+            Rectangle r = new Rectangle(run[1], run[0], run[2] - run[1], 1);
+            bounds = (k == 0) ? r : bounds.union(r);
+        }
+        assertEquals(bounds, mask.bounds());
+    }
+
+    /**
+     * Assert that `union`, `intersect`, and `subtract` of `a` and `b`, which select pixels of a
+     * `width` x `height` image, select the pixels that the corresponding operations on each
+     * pixel's membership do, and that their runs are canonical.
+     */
+    static void assertAlgebra(SelectionMask a, SelectionMask b, int width, int height) {
+        List<BinaryOperator<SelectionMask>> ops = List.of(SelectionMask::union,
+                SelectionMask::intersect, SelectionMask::subtract);
+        List<String> names = List.of("union", "intersect", "subtract");
+        for (int op = 0; op < ops.size(); ++op) {
+            SelectionMask result = ops.get(op).apply(a, b);
+            assertCanonical(result);
+            long area = 0;
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    boolean inA = a.contains(x, y);
+                    boolean inB = b.contains(x, y);
+                    boolean expected = switch (op) {
+                        case 0 -> inA || inB;
+                        case 1 -> inA && inB;
+                        default -> inA && !inB;
+                    };
+                    assertEquals(expected, result.contains(x, y),
+                            names.get(op) + " pixel (" + x + ", " + y + ")");
+                    area += expected ? 1 : 0;
+                }
+            }
+            assertEquals(area, result.area(), names.get(op));
+        }
+    }
+
+    @DisplayName("GIVEN a self-intersecting path that leaves the image, WHEN it is rasterized, THEN"
+            + " the mask will contain exactly the pixels of the image whose centers the path's"
+            + " polygon contains, AND its bounds and area will match them")
+    @Test
+    void testRasterize() {
+        List<PolyLine> path = polygonPath(new Point(-5, 2), new Point(25, 17), new Point(12, -3),
+                new Point(3, 16), new Point(33, 6));
+        SelectionMask mask = SelectionMask.rasterize(path, 30, 20);
+        Polygon polygon = PolyLine.makePolygon(path);
+        Rectangle bounds = null;
+        long area = 0;
+        for (int y = 0; y < 20; ++y) {
+            for (int x = 0; x < 30; ++x) {
+                boolean inside = polygon.contains(x + 0.5, y + 0.5);
+                assertEquals(inside, mask.contains(x, y), "pixel (" + x + ", " + y + ")");
+                if (inside) {
+                    area += 1;
+                    Rectangle pixel = new Rectangle(x, y, 1, 1);
+                    bounds = (bounds == null) ? pixel : bounds.union(pixel);
+                }
+            }
+        }
+        assertEquals(area, mask.area());
+        assertEquals(bounds, mask.bounds());
+        assertFalse(mask.contains(-1, 5));
+        assertFalse(mask.contains(30, 10));
+    }
+
+    @DisplayName("GIVEN a mask, WHEN it is converted to an image and back, or built from its pixel"
+            + " predicate, THEN the result will select the same pixels")
+    @Test
+    void testImageRoundTrip() {
+        SelectionMask mask = SelectionMask.rasterize(polygonPath(new Point(3, 1),
+                new Point(20, 9), new Point(8, 14), new Point(12, 6)), 24, 16);
+        BufferedImage img = mask.toImage(24, 16);
+        SelectionMask fromImage = SelectionMask.fromImage(img);
+        SelectionMask fromPixels = SelectionMask.fromPixels(24, 16,
+                i -> mask.contains(i % 24, i / 24));
+        for (int y = 0; y < 16; ++y) {
+            for (int x = 0; x < 24; ++x) {
+                boolean inside = mask.contains(x, y);
+                assertEquals(inside ? 255 : 0, img.getRaster().getSample(x, y, 0));
+                assertEquals(inside, fromImage.contains(x, y), "pixel (" + x + ", " + y + ")");
+                assertEquals(inside, fromPixels.contains(x, y), "pixel (" + x + ", " + y + ")");
+            }
+        }
+        assertEquals(mask.bounds(), fromImage.bounds());
+        assertEquals(mask.area(), fromPixels.area());
+
+        SelectionMask empty = SelectionMask.fromPixels(5, 5, i -> false);
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.area());
+        assertTrue(empty.bounds().isEmpty());
+    }
+
+    @DisplayName("GIVEN masks whose rows partially overlap, lie in disjoint rows, touch end to"
+            + " start, or are empty, WHEN they are united, intersected, and subtracted, THEN each"
+            + " result will select the pixels given by combining each pixel's membership, AND"
+            + " touching runs will be merged")
+    @Test
+    void testAlgebraCases() {
+        SelectionMask overlapA = maskOf("##########    ", "  ###   ###   ");
+        SelectionMask overlapB = maskOf("    ##########", " #####  #     ");
+        assertAlgebra(overlapA, overlapB, 14, 2);
+        assertAlgebra(overlapB, overlapA, 14, 2);
+
+        SelectionMask top = maskOf(" ### ", "#   #", "", "", "", "");
+        SelectionMask bottom = maskOf("", "", "", "", "  #  ", "#####");
+        assertAlgebra(top, bottom, 5, 6);
+        assertAlgebra(bottom, top, 5, 6);
+        assertTrue(top.intersect(bottom).isEmpty());
+        assertEquals(top.area(), top.subtract(bottom).area());
+
+        SelectionMask left = maskOf("#####     ", "###       ");
+        SelectionMask right = maskOf("     #####", "   #######");
+        assertAlgebra(left, right, 10, 2);
+        SelectionMask joined = left.union(right);
+        List<int[]> runs = new ArrayList<>();
+        joined.forEachRun((y, xBegin, xEnd) -> runs.add(new int[]{y, xBegin, xEnd}));
+        assertEquals(2, runs.size());
+        assertArrayEquals(new int[]{0, 0, 10}, runs.get(0));
+        assertArrayEquals(new int[]{1, 0, 10}, runs.get(1));
+        assertTrue(joined.subtract(right).subtract(left).isEmpty());
+
+        SelectionMask empty = maskOf("", "", "");
+        assertAlgebra(empty, overlapA, 14, 3);
+        assertAlgebra(overlapA, empty, 14, 3);
+        assertAlgebra(empty, empty, 14, 3);
+        assertTrue(empty.union(empty).isEmpty());
+        assertTrue(overlapA.subtract(overlapA).isEmpty());
+    }
+
+    @DisplayName("GIVEN random masks covering overlapping bands of rows, WHEN they are united,"
+            + " intersected, and subtracted, THEN each result will select the pixels given by"
+            + " combining each pixel's membership")
+    @Test
+    void testAlgebraRandom() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 30; ++trial) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(30);
+            int aBegin = random.nextInt(height);
+            int bBegin = random.nextInt(height);
+            SelectionMask a = randomMask(width, height, aBegin,
+                    aBegin + random.nextInt(height - aBegin + 1), random.nextDouble(), random);
+            SelectionMask b = randomMask(width, height, bBegin,
+                    bBegin + random.nextInt(height - bBegin + 1), random.nextDouble(), random);
+            assertAlgebra(a, b, width, height);
+        }
+    }
+
+    @DisplayName("GIVEN random masks, WHEN they are transposed, THEN the transpose will select"
+            + " pixel (y, x) exactly where the mask selects (x, y), AND transposing again will"
+            + " give back the mask")
+    @Test
+    void testTranspose() {
+        Random random = new Random(6);
+        for (int trial = 0; trial < 30; ++trial) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(30);
+            SelectionMask mask = randomMask(width, height, random.nextInt(height), height,
+                    random.nextDouble(), random);
+            SelectionMask transposed = mask.transpose();
+            assertCanonical(transposed);
+            assertEquals(mask.area(), transposed.area());
+            for (int y = 0; y < height; ++y) {
+                for (int x = 0; x < width; ++x) {
+                    assertEquals(mask.contains(x, y), transposed.contains(y, x),
+                            "pixel (" + x + ", " + y + ")");
+                }
+            }
+            SelectionMask back = transposed.transpose();
+            assertEquals(mask.bounds(), back.bounds());
+            assertTrue(back.subtract(mask).isEmpty() && mask.subtract(back).isEmpty());
+        }
+
+        assertTrue(maskOf("", "").transpose().isEmpty());
+        SelectionMask ring = maskOf("####", "#  #", "####");
+        assertEquals(new Rectangle(0, 0, 3, 4), ring.transpose().bounds());
+        assertFalse(ring.transpose().contains(1, 1));
+        assertTrue(ring.transpose().contains(1, 0));
+    }
+}
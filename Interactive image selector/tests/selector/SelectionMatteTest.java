@@ -0,0 +1,83 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SelectionMatteTest {
+
+    @DisplayName("GIVEN a mask, WHEN it is feathered over a radius of at most 1/2, THEN the matte"
+            + " will be opaque exactly at the mask's pixels")
+    @Test
+    void testHardEdge() {
+        SelectionMask mask = SelectionMask.rasterize(SelectionMaskTest.polygonPath(
+                new Point(4, 3), new Point(37, 12), new Point(9, 28)), 40, 30);
+        for (double radius : new double[]{0, 0.25, 0.5}) {
+            SelectionMatte matte = SelectionMatte.feather(mask, radius, 40, 30);
+            for (int y = 0; y < 30; ++y) {
+                for (int x = 0; x < 40; ++x) {
+                    assertEquals(mask.contains(x, y) ? 255 : 0, matte.alpha(x, y),
+                            "pixel (" + x + ", " + y + ") at radius " + radius);
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a rectangular mask, WHEN it is feathered, THEN alpha will ramp across each"
+            + " edge over the radius, symmetrically about the edge, AND the matte's bounds will be"
+            + " the mask's grown by the radius and clipped to the image")
+    @Test
+    void testRamp() {
+        SelectionMask mask = SelectionMask.fromPixels(60, 50,
+                i -> i % 60 >= 20 && i / 60 >= 10 && i / 60 < 40);
+        SelectionMatte matte = SelectionMatte.feather(mask, 6, 60, 50);
+        assertEquals(new Rectangle(14, 4, 46, 42), matte.bounds());
+        assertEquals(matte.bounds(), SelectionMatte.featherBounds(mask, 6, 60, 50));
+
+        for (int x = 0; x <= 13; ++x) {
+            assertEquals(0, matte.alpha(x, 25), "pixel (" + x + ", 25)");
+        }
+        for (int x = 14; x < 26; ++x) {
+            assertTrue(matte.alpha(x, 25) > matte.alpha(x - 1, 25), "pixel (" + x + ", 25)");
+        }
+        for (int x = 26; x < 60; ++x) {
+            assertEquals(255, matte.alpha(x, 25), "pixel (" + x + ", 25)");
+        }
+        // Pixel centers at the same distance on either side of the edge add up to opaque
+        for (int k = 0; k < 6; ++k) {
+            assertEquals(255, matte.alpha(19 - k, 25) + matte.alpha(20 + k, 25), 1);
+        }
+        // The image's own edge at x = 60 is not feathered
+        assertEquals(255, matte.alpha(59, 25));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SelectionMatte.feather(mask, -1, 60, 50));
+        assertThrows(IllegalArgumentException.class,
+                () -> SelectionMatte.feather(mask, Double.NaN, 60, 50));
+        assertThrows(IllegalArgumentException.class,
+                () -> SelectionMatte.feather(mask, 6, 60, 50, 20, 10));
+    }
+
+    @DisplayName("GIVEN a feathered mask taller than a strip, WHEN strips of rows of its matte are"
+            + " feathered separately, THEN each strip will match the whole matte within its rows"
+            + " AND be transparent outside of them")
+    @Test
+    void testStrips() {
+        SelectionMask mask = SelectionMask.rasterize(SelectionMaskTest.polygonPath(
+                new Point(20, 4), new Point(225, 350), new Point(60, 690)), 230, 700);
+        SelectionMatte matte = SelectionMatte.feather(mask, 7.5, 230, 700);
+        for (int[] rows : new int[][]{{0, 700}, {0, 1}, {3, 300}, {256, 512}, {690, 700},
+                {699, 700}, {650, 650}}) {
+            SelectionMatte strip = SelectionMatte.feather(mask, 7.5, 230, 700, rows[0], rows[1]);
+            for (int y = 0; y < 700; ++y) {
+                for (int x = 0; x < 230; ++x) {
+                    int expected = (y >= rows[0] && y < rows[1]) ? matte.alpha(x, y) : 0;
+                    assertEquals(expected, strip.alpha(x, y), "pixel (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+}
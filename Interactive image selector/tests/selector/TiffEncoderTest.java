@@ -0,0 +1,91 @@
+package selector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class TiffEncoderTest {
+
+    /**
+     * Encode `img` to a temporary classic TIFF file, recording the progress reported in
+     * `progress`, and return the decoded file.
+     */
+    static BufferedImage encodeAndDecode(BufferedImage img, List<Integer> progress)
+            throws IOException {
+        int width = img.getWidth();
+        Path file = Files.createTempFile("encoded", ".tif");
+        try {
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                new TiffEncoder(width, img.getHeight(), false).encode(
+                        (x, y, w, h, argb) -> img.getRGB(x, y, w, h, argb, 0, w),
+                        out, progress::add, () -> false);
+            }
+            return ImageIO.read(file.toFile());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @DisplayName("GIVEN an image spanning several tiles, with partial tiles at its right and"
+            + " bottom edges, WHEN it is encoded, THEN the TIFF will decode to the same colors and"
+            + " alphas, AND progress will be reported once per tile")
+    @Test
+    void testEncode() throws IOException {
+        for (int[] size : new int[][]{{700, 600}, {256, 256}, {1, 1}}) {
+            BufferedImage img = PngEncoderTest.gradientImage(size[0], size[1], size[1]);
+            TiffEncoder encoder = new TiffEncoder(size[0], size[1], false);
+            int tiles = ((size[0] + 255) / 256) * ((size[1] + 255) / 256);
+            assertEquals(tiles, encoder.tileCount());
+            List<Integer> progress = new ArrayList<>();
+            BufferedImage decoded = encodeAndDecode(img, progress);
+
+            assertEquals(img.getWidth(), decoded.getWidth());
+            assertEquals(img.getHeight(), decoded.getHeight());
+            for (int y = 0; y < img.getHeight(); ++y) {
+                for (int x = 0; x < img.getWidth(); ++x) {
+                    assertEquals(img.getRGB(x, y), decoded.getRGB(x, y),
+                            "pixel (" + x + ", " + y + ")");
+                }
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int k = 1; k <= tiles; ++k) {
+                expected.add(k);
+            }
+            assertEquals(expected, progress);
+        }
+    }
+
+    @DisplayName("WHEN an image is too large for classic TIFF, THEN it will need BigTIFF, AND"
+            + " creating a classic encoder for it or an encoder for an empty image will throw an"
+            + " IllegalArgumentException, AND cancelling encoding will throw a"
+            + " CancellationException")
+    @Test
+    void testLimits() throws IOException {
+        assertFalse(TiffEncoder.needsBigTiff(30_000, 30_000));
+        assertTrue(TiffEncoder.needsBigTiff(40_000, 40_000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TiffEncoder(40_000, 40_000, false));
+        assertEquals(157 * 157, new TiffEncoder(40_000, 40_000, true).tileCount());
+        assertThrows(IllegalArgumentException.class, () -> new TiffEncoder(0, 10, true));
+        assertThrows(IllegalArgumentException.class, () -> new TiffEncoder(10, -1, false));
+
+        Path file = Files.createTempFile("cancelled", ".tif");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            assertThrows(CancellationException.class, () -> new TiffEncoder(300, 300, false)
+                    .encode((x, y, w, h, argb) -> {}, out, tiles -> {}, () -> true));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}